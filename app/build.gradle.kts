@@ -45,6 +45,14 @@ android {
         }
     }
 
+    // Keep TFLite models and the compiled lexicon uncompressed so they can be memory-mapped from the APK
+    androidResources {
+        noCompress += listOf("tflite", "bin")
+    }
+
+    // Compiled emergency lexicon (:detection-core:compileEmergencyLexicon)
+    sourceSets["main"].assets.srcDir(project(":detection-core").layout.buildDirectory.dir("generated/lexicon"))
+
     // Optimize packaging
     packagingOptions {
         resources {
@@ -60,6 +68,9 @@ android {
 }
 
 dependencies {
+    // Android-free detection logic (also built and benchmarked on the JVM)
+    implementation(project(":detection-core"))
+
     // Firebase
     implementation(platform(libs.firebase.bom))
     implementation(libs.firebase.auth)
@@ -105,4 +116,11 @@ dependencies {
     // Guava for ListenableFuture (required by CameraX)
     implementation ("com.google.guava:guava:31.1-android")
 
-}
\ No newline at end of file
+    // Local unit tests
+    testImplementation(libs.junit)
+
+}
+
+tasks.named("preBuild") {
+    dependsOn(":detection-core:compileEmergencyLexicon")
+}
@@ -4,9 +4,6 @@ import android.Manifest;
 import android.content.Intent;
 import android.content.SharedPreferences;
 import android.content.pm.PackageManager;
-import android.media.AudioFormat;
-import android.media.AudioRecord;
-import android.media.MediaRecorder;
 import android.os.Build;
 import android.os.Bundle;
 import android.os.Handler;
@@ -25,20 +22,19 @@ import android.widget.Toast;
 
 import androidx.core.app.ActivityCompat;
 
+import com.example.safetyapp.helper.AcousticAnalyzer;
+import com.example.safetyapp.helper.AcousticVerdict;
+import com.example.safetyapp.helper.AudioCaptureHub;
+import com.example.safetyapp.helper.AudioFanOut;
 import com.example.safetyapp.helper.EmergencyMessageHelper;
+import com.example.safetyapp.helper.EnrollmentState;
 import com.example.safetyapp.helper.PersonalizedVoiceHelper;
 import com.example.safetyapp.helper.EmergencyPhraseDetector;
+import com.example.safetyapp.helper.EmergencyTypeDetector;
+import com.example.safetyapp.helper.ModelRegistry;
 
-import org.tensorflow.lite.Interpreter;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.io.InputStream;
-import java.nio.ByteBuffer;
-import java.nio.ByteOrder;
-import java.util.Arrays;
-import java.util.HashMap;
-import java.util.Map;
 
 import com.google.firebase.auth.FirebaseAuth;
 import com.google.firebase.auth.FirebaseUser;
@@ -62,21 +58,24 @@ public class AIVoiceActivity extends BaseActivity {
     private static final int CONSECUTIVE_POSITIVES_REQUIRED = 2;  // Require 2 consecutive detections (filters false positives)
     private static final long COOLDOWN_PERIOD = 30000; // 30 seconds
     // Audio recording
-    private AudioRecord audioRecord;
-    private boolean isRecording = false;
+    private AudioFanOut.Subscription captureSubscription;
+    private volatile boolean isRecording = false;
     private PersonalizedVoiceHelper voiceHelper;
     private boolean isUserVerified = false;
     private EmergencyPhraseDetector phraseDetector;
-    // TFLite models
-    private Interpreter yamnetInterpreter;
-    private Interpreter screamClassifierInterpreter;
+    // TFLite models - acquired once per activity by the loader thread, released in onDestroy
+    private final Object modelLock = new Object();
+    private ModelRegistry.ModelHandle yamnetModel;            // Guarded by modelLock
+    private ModelRegistry.ModelHandle screamClassifierModel;  // Guarded by modelLock
+    private boolean modelsRequested = false;                  // Guarded by modelLock
+    private boolean destroyed = false;                        // Guarded by modelLock
+    private boolean modelsReady = false;                      // UI thread only
     // Reusable buffers
-    private short[] audioBuffer = new short[BUFFER_SIZE];
-    private float[] floatAudio = new float[BUFFER_SIZE];
-    private float[][] yamnetInputArray = new float[1][BUFFER_SIZE];
+    private final short[] audioBuffer = new short[BUFFER_SIZE];
+    private volatile AcousticAnalyzer analyzer;
     // Detection state
     private int positiveCount = 0;
-    private boolean isInCooldown = false;
+    private volatile boolean isInCooldown = false;
     private Handler mainHandler = new Handler(Looper.getMainLooper());
     private PowerManager.WakeLock wakeLock;
     // UI elements
@@ -142,20 +141,54 @@ public class AIVoiceActivity extends BaseActivity {
         }
     }
 
+    /**
+     * Load the models once, then start detection; safe to call again (e.g. from onResume) while
+     * loading or after detection has started
+     */
     private void initializeModelsAndStartDetection() {
+        if (modelsReady) {
+            startDetection();
+            return;
+        }
+        synchronized (modelLock) {
+            // Loading already - the loader starts detection when it is done
+            if (modelsRequested || destroyed) return;
+            modelsRequested = true;
+        }
+
         new Thread(() -> {
+            ModelRegistry.ModelHandle yamnet = null;
+            ModelRegistry.ModelHandle screamClassifier = null;
             try {
-                yamnetInterpreter = new Interpreter(loadModelFile("yamnet.tflite"));
-                screamClassifierInterpreter = new Interpreter(loadModelFile("scream_classifier.tflite"));
-                voiceHelper = new PersonalizedVoiceHelper(this, yamnetInterpreter);
+                // Shared with the background service when it is running
+                ModelRegistry registry = ModelRegistry.getInstance(this);
+                yamnet = registry.acquire(ModelRegistry.YAMNET);
+                screamClassifier = registry.acquire(ModelRegistry.SCREAM_CLASSIFIER);
+                synchronized (modelLock) {
+                    if (destroyed) {
+                        // onDestroy ran while we were loading; nobody else will release these
+                        yamnet.close();
+                        screamClassifier.close();
+                        return;
+                    }
+                    yamnetModel = yamnet;
+                    screamClassifierModel = screamClassifier;
+                }
+                voiceHelper = new PersonalizedVoiceHelper(this, yamnet);
+                analyzer = new AcousticAnalyzer(BUFFER_SIZE, false, yamnet, screamClassifier);
                 voiceHelper.loadStoredEmbedding();
 
                 runOnUiThread(() -> {
+                    if (isDestroyed()) return;
+                    modelsReady = true;
                     tvStatus.setText("🎙️ KEYWORD Detection Active\nSay: \"help\" or \"emergency\" or \"save me\"\nSpeak clearly and loudly");
-                    startKeywordDetection();  // Start keyword detection ONLY
-                    // DO NOT start voice detection - microphone conflict with SpeechRecognizer
+                    startDetection();
                 });
             } catch (IOException e) {
+                if (yamnet != null) yamnet.close();
+                synchronized (modelLock) {
+                    modelsRequested = false; // Let a later onResume retry
+                }
                 runOnUiThread(() -> {
                     Log.e("AI_VOICE", "Model loading failed", e);
                     tvStatus.setText("Error loading AI models");
@@ -165,6 +198,17 @@ public class AIVoiceActivity extends BaseActivity {
         }).start();
     }
 
+    private void startDetection() {
+        if (phraseDetector == null) {
+            startKeywordDetection();
+        }
+        // Scream detection shares our capture through the hub; the SpeechRecognizer still
+        // opens its own input, which the platform only allows concurrently from Android 10
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+            startVoiceDetection();
+        }
+    }
+
     private void startKeywordDetection() {
         Log.i("KEYWORD_DETECTION", "=== Starting KEYWORD-ONLY detection mode ===");
         Log.i("KEYWORD_DETECTION", "Monitoring for 40+ emergency keywords (English + Bangla)");
@@ -256,77 +300,54 @@ public class AIVoiceActivity extends BaseActivity {
     }
 
     private void startVoiceDetection() {
-        // Check microphone permission before proceeding
-        if (ActivityCompat.checkSelfPermission(this, Manifest.permission.RECORD_AUDIO)
-                != PackageManager.PERMISSION_GRANTED) {
-            runOnUiThread(() -> tvStatus.setText("Microphone permission not granted"));
+        // Already running - a second subscription would keep the microphone on after we stop
+        if (isRecording && captureSubscription != null && !captureSubscription.isClosed()) {
             return;
         }
-
-        int minBufferSize = AudioRecord.getMinBufferSize(
-                SAMPLE_RATE,
-                AudioFormat.CHANNEL_IN_MONO,
-                AudioFormat.ENCODING_PCM_16BIT
-        );
-
-        try {
-            audioRecord = new AudioRecord(
-                    MediaRecorder.AudioSource.MIC,
-                    SAMPLE_RATE,
-                    AudioFormat.CHANNEL_IN_MONO,
-                    AudioFormat.ENCODING_PCM_16BIT,
-                    Math.max(minBufferSize, BUFFER_SIZE * 2)
-            );
-        } catch (SecurityException e) {
-            Log.e("AI_VOICE", "SecurityException when initializing AudioRecord", e);
-            runOnUiThread(() -> tvStatus.setText("Unable to access microphone"));
-            return;
+        if (captureSubscription != null) {
+            captureSubscription.close();
         }
 
-        if (audioRecord.getState() != AudioRecord.STATE_INITIALIZED) {
-            runOnUiThread(() -> tvStatus.setText("Microphone initialization failed"));
+        // Shares the microphone with every other consumer through the capture hub
+        AudioFanOut.Subscription source = AudioCaptureHub.getInstance().subscribe(
+                this, "AI_VOICE", BUFFER_SIZE * 2, AudioFanOut.BackpressurePolicy.DROP_OLDEST);
+        if (source == null) {
+            runOnUiThread(() -> tvStatus.setText("Unable to access microphone"));
             return;
         }
+        captureSubscription = source;
 
         isRecording = true;
         new Thread(() -> {
             try {
-                audioRecord.startRecording();
-                runOnUiThread(() -> tvStatus.setText("⚡ Continuous monitoring active - Instant trigger ready"));
-            } catch (SecurityException e) {
-                Log.e("AI_VOICE", "Permission denied when starting recording", e);
-                runOnUiThread(() -> tvStatus.setText("Microphone permission not granted"));
-                return;
-            }
-
-            while (isRecording) {
-                if (!isInCooldown) {
-                    try {
-                        int readResult = audioRecord.read(audioBuffer, 0, audioBuffer.length);
-                        if (readResult > 0) {
-                            processAudioChunk(audioBuffer);
-                        } else {
-                            Log.e("AI_VOICE", "Failed to read audio buffer");
+                while (isRecording) {
+                    if (isInCooldown) {
+                        source.skipToLatest(audioBuffer.length);
+                        try {
+                            Thread.sleep(50);
+                        } catch (InterruptedException e) {
+                            Log.e("AI_VOICE", "Thread interrupted", e);
+                            break;
                         }
-                    } catch (SecurityException e) {
-                        Log.e("AI_VOICE", "Security exception during audio read", e);
-                        runOnUiThread(() -> tvStatus.setText("Permission lost during recording"));
-                        break;
+                        continue;
                     }
-                }
 
-                try {
-                    Thread.sleep(50);
-                } catch (InterruptedException e) {
-                    Log.e("AI_VOICE", "Thread interrupted", e);
-                    break;
+                    // Blocks until a full window is captured; false once the subscription is closed
+                    if (!source.awaitWindow(audioBuffer, audioBuffer.length)) {
+                        break;
+                    }
+                    processAudioChunk(audioBuffer);
                 }
+            } finally {
+                // The hub stops capturing only once its last subscriber is gone
+                source.close();
             }
-        }).start();
+        }, "AIVoiceDetection").start();
     }
 
     private void processAudioChunk(short[] audioData) {
-        if (yamnetInterpreter == null || screamClassifierInterpreter == null || voiceHelper == null) {
+        AcousticAnalyzer acousticAnalyzer = analyzer;
+        if (acousticAnalyzer == null || voiceHelper == null) {
             return;
         }
 
@@ -345,31 +366,20 @@ public class AIVoiceActivity extends BaseActivity {
             return;
         }
 
-        // 2. Convert audio to float [-1.0, 1.0]
-        float[] floatInput = new float[audioData.length];
-        for (int i = 0; i < audioData.length; i++) {
-            floatInput[i] = audioData[i] / 32767.0f;
-        }
-
-        // 3. Prepare YAMNet input/output
-        Object[] yamnetInputs = new Object[]{floatInput};
-        Map<Integer, Object> yamnetOutputs = new HashMap<>();
-        float[][] yamnetScores = new float[1][521];
-        yamnetOutputs.put(0, yamnetScores);
-
-        // 4. Run YAMNet
-        float[] averagedScores;
+        // 2. One YAMNet pass feeds the scream classifier and all score-based detectors
+        AcousticVerdict verdict;
         try {
-            yamnetInterpreter.runForMultipleInputsOutputs(yamnetInputs, yamnetOutputs);
-            averagedScores = yamnetScores[0];
+            verdict = acousticAnalyzer.analyze(audioData, rms);
         } catch (Exception e) {
-            Log.e("INFERENCE", "YAMNet error", e);
+            Log.e("INFERENCE", "Acoustic analysis error", e);
             return;
         }
+        float screamProbability = verdict.getScreamProbability();
+        EmergencyTypeDetector.EmergencyType emergencyType = verdict.getEmergencyType();
 
-        // 5. Voice verification (optional - for personalized AI)
+        // 3. Voice verification (optional - for personalized AI)
         if (voiceHelper.hasStoredEmbedding()) {
-            boolean isMatch = voiceHelper.verify(averagedScores, audioData);
+            boolean isMatch = voiceHelper.verify(verdict, audioData);
 
             if (!isMatch) {
                 runOnUiThread(() -> {
@@ -392,22 +402,7 @@ public class AIVoiceActivity extends BaseActivity {
             });
         }
 
-        // 6. Prepare input for scream classifier
-        float[][] classifierInput = new float[1][521];
-        classifierInput[0] = averagedScores;
-
-        // 7. Run scream classifier
-        float screamProbability;
-        try {
-            float[][] screamClassifierOutput = new float[1][1];
-            screamClassifierInterpreter.run(classifierInput, screamClassifierOutput);
-            screamProbability = screamClassifierOutput[0][0];
-        } catch (Exception e) {
-            Log.e("INFERENCE", "Classifier error", e);
-            return;
-        }
-
-        // 8. Update UI (display only - keywords trigger, not distress %)
+        // 4. Update UI (display only - keywords trigger, not distress %)
         runOnUiThread(() -> {
             // Update distress probability (DISPLAY ONLY - does NOT trigger)
             int screamPercent = (int) (screamProbability * 100);
@@ -415,7 +410,9 @@ public class AIVoiceActivity extends BaseActivity {
 
             if (screamProbability >= SCREAM_THRESHOLD) {
                 tvScreamProb.setTextColor(0xFFFFA726); // Orange (not red - won't trigger)
-                tvStatus.setText("📊 Distress: " + screamPercent + "% (display only)\n🎙️ ONLY keywords trigger SOS - distress ignored");
+                String typeText = emergencyType != EmergencyTypeDetector.EmergencyType.NONE
+                        ? "\n" + emergencyType.getDescription() : "";
+                tvStatus.setText("📊 Distress: " + screamPercent + "% (display only)" + typeText + "\n🎙️ ONLY keywords trigger SOS - distress ignored");
             } else if (screamProbability > 0.3f) {
                 tvScreamProb.setTextColor(0xFFFFA726); // Orange
                 tvStatus.setText("📊 Monitoring: " + screamPercent + "% (display only)\n✅ Listening for emergency keywords");
@@ -425,7 +422,8 @@ public class AIVoiceActivity extends BaseActivity {
             }
         });
 
-        Log.d("ScreamDetection", "Distress: " + (int)(screamProbability * 100) + "% | Intensity (RMS): " + String.format("%.3f", rms));
+        Log.d("ScreamDetection", "Distress: " + (int)(screamProbability * 100) + "% | Intensity (RMS): " + String.format("%.3f", rms)
+                + " | Ambient: " + verdict.getAmbientDistress() + " | Type: " + emergencyType);
         handleDetection(screamProbability, rms);
     }
 
@@ -543,22 +541,6 @@ public class AIVoiceActivity extends BaseActivity {
         }
     }
 
-    private ByteBuffer loadModelFile(String modelName) throws IOException {
-        InputStream inputStream = getAssets().open(modelName);
-        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
-
-        byte[] buffer = new byte[1024];
-        int length;
-        while ((length = inputStream.read(buffer)) != -1) {
-            outputStream.write(buffer, 0, length);
-        }
-
-        byte[] modelBytes = outputStream.toByteArray();
-        return ByteBuffer.allocateDirect(modelBytes.length)
-                .order(ByteOrder.nativeOrder())
-                .put(modelBytes);
-    }
-
     @Override
     public void onRequestPermissionsResult(int requestCode, String[] permissions, int[] grantResults) {
         super.onRequestPermissionsResult(requestCode, permissions, grantResults);
@@ -599,8 +581,8 @@ public class AIVoiceActivity extends BaseActivity {
     private void updateEnrollmentStatus() {
         new Thread(() -> {
             try {
-                PersonalizedVoiceHelper helper = new PersonalizedVoiceHelper(this, yamnetInterpreter);
-                boolean hasEnrolled = helper.hasStoredEmbedding();
+                // Shared enrollment state - the file is read at most once per process
+                boolean hasEnrolled = EnrollmentState.getInstance(this).isEnrolled();
 
                 runOnUiThread(() -> {
                     if (hasEnrolled) {
@@ -712,9 +694,8 @@ public class AIVoiceActivity extends BaseActivity {
         boolean voiceDetectionEnabled = prefs.getBoolean("voice_detection", false);
 
         if (voiceDetectionEnabled && ActivityCompat.checkSelfPermission(this, Manifest.permission.RECORD_AUDIO) == PackageManager.PERMISSION_GRANTED) {
-            if (phraseDetector == null || !isRecording) {
-                initializeModelsAndStartDetection();
-            }
+            // Idempotent: loads the models once, restarts only what is not running
+            initializeModelsAndStartDetection();
         }
     }
 
@@ -741,16 +722,21 @@ public class AIVoiceActivity extends BaseActivity {
         isRecording = false;
         mainHandler.removeCallbacksAndMessages(null);
 
-        if (audioRecord != null) {
-            audioRecord.stop();
-            audioRecord.release();
+        if (captureSubscription != null) {
+            captureSubscription.close();
         }
         if (phraseDetector != null) {
             phraseDetector.stopListening();
             phraseDetector.destroy();
         }
-        if (yamnetInterpreter != null) yamnetInterpreter.close();
-        if (screamClassifierInterpreter != null) screamClassifierInterpreter.close();
+        analyzer = null;
+        synchronized (modelLock) {
+            destroyed = true;
+            if (yamnetModel != null) yamnetModel.close();
+            if (screamClassifierModel != null) screamClassifierModel.close();
+            yamnetModel = null;
+            screamClassifierModel = null;
+        }
         if (wakeLock != null && wakeLock.isHeld()) wakeLock.release();
     }
 }
\ No newline at end of file
@@ -0,0 +1,25 @@
+package com.example.safetyapp;
+
+import android.app.Application;
+
+import com.example.safetyapp.helper.DetectionLog;
+import com.example.safetyapp.helper.EmergencyLexiconLoader;
+import com.example.safetyapp.helper.IntentModelLoader;
+import com.example.safetyapp.helper.LogcatDetectionSink;
+
+/**
+ * Process entry point - runs before any activity, service or receiver
+ */
+public class SafetyApplication extends Application {
+
+    @Override
+    public void onCreate() {
+        super.onCreate();
+        // Detection core is plain Java; route its logs to Logcat
+        DetectionLog.setSink(new LogcatDetectionSink());
+        // Phrase lexicon: bundled asset, replaced by downloaded updates as they arrive
+        EmergencyLexiconLoader.init(this);
+        // Rule-based intent patterns unless the learned model is selected in settings
+        IntentModelLoader.apply(this);
+    }
+}
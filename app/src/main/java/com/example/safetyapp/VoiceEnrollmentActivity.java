@@ -4,10 +4,6 @@ import android.Manifest;
 import android.animation.ObjectAnimator;
 import android.animation.ValueAnimator;
 import android.content.pm.PackageManager;
-import android.content.res.AssetFileDescriptor;
-import android.media.AudioFormat;
-import android.media.AudioRecord;
-import android.media.MediaRecorder;
 import android.os.Bundle;
 import android.os.Handler;
 import android.os.Looper;
@@ -23,30 +19,49 @@ import android.widget.Toast;
 import androidx.annotation.Nullable;
 import androidx.core.app.ActivityCompat;
 
+import com.example.safetyapp.helper.AudioCaptureHub;
+import com.example.safetyapp.helper.AudioFanOut;
+import com.example.safetyapp.helper.EnrollmentWindower;
 import com.example.safetyapp.helper.PersonalizedVoiceHelper;
+import com.example.safetyapp.helper.ModelRegistry;
+import com.example.safetyapp.helper.VoiceEnrollmentSession;
 
-import org.tensorflow.lite.Interpreter;
 
 import java.io.BufferedOutputStream;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
-import java.nio.ByteBuffer;
-import java.nio.channels.FileChannel;
 
 public class VoiceEnrollmentActivity extends BaseActivity {
 
     private static final int SAMPLE_RATE = 16000;
-    private static final int RECORD_DURATION_MS = 975; // match YAMNet
+    private static final int RECORD_DURATION_MS = 3000; // Several YAMNet windows per prompt
+    private static final int CHUNK_SAMPLES = SAMPLE_RATE / 10; // 100 ms per read
     private static final int PERMISSION_CODE = 2001;
     private static final float MIN_ENROLL_RMS = 0.08f;  // Lowered for easier enrollment
+    private static final float MIN_QUIET_RMS = 0.03f;   // Quietest voice the detector verifies
+
+    // One recording per way the user may sound in an emergency; every window becomes a sample
+    private static final String[] PROMPTS = {
+            "Say \"Help me, please\" in your normal voice",
+            "Say \"Please help me\" quietly",
+            "SHOUT \"HELP!\""
+    };
+    private static final float[] PROMPT_MIN_RMS = {MIN_QUIET_RMS, MIN_QUIET_RMS, MIN_ENROLL_RMS};
 
     private TextView statusText;
     private Button enrollButton;
     private PersonalizedVoiceHelper voiceHelper;
-    private Interpreter yamnetInterpreter;
+    private final Object modelLock = new Object();
+    private ModelRegistry.ModelHandle yamnetModel; // Guarded by modelLock
+    private int promptIndex = 0;
+    private VoiceEnrollmentSession session; // Across the prompts of one enrollment
+    private boolean saveEnrollmentAudio;    // Also keep each prompt as enrolled_voice_N.wav
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    // Set in onDestroy; the recording thread stops reading and posts nothing more
+    private volatile boolean destroyed = false;
+    private volatile AudioFanOut.Subscription activeRecorder;
 
     // New UI components
     private View pulseRing1, pulseRing2;
@@ -75,22 +90,12 @@ public class VoiceEnrollmentActivity extends BaseActivity {
         audioLevelContainer = findViewById(R.id.audio_level_container);
         qualityIndicator = findViewById(R.id.quality_indicator);
 
-        try {
-            AssetFileDescriptor fileDescriptor = getAssets().openFd("yamnet.tflite");
-            FileInputStream inputStream = new FileInputStream(fileDescriptor.getFileDescriptor());
-            FileChannel fileChannel = inputStream.getChannel();
-            long startOffset = fileDescriptor.getStartOffset();
-            long declaredLength = fileDescriptor.getDeclaredLength();
-
-            ByteBuffer modelBuffer = fileChannel.map(FileChannel.MapMode.READ_ONLY, startOffset, declaredLength);
-            yamnetInterpreter = new Interpreter(modelBuffer);
+        saveEnrollmentAudio = getSharedPreferences("AppSettingsPrefs", MODE_PRIVATE)
+                .getBoolean("save_enrollment_audio", false);
 
-            voiceHelper = new PersonalizedVoiceHelper(this, yamnetInterpreter);
-        } catch (IOException e) {
-            Toast.makeText(this, "Failed to load model", Toast.LENGTH_LONG).show();
-            finish();
-            return;
-        }
+        // Enabled once YAMNet is loaded
+        enrollButton.setEnabled(false);
+        loadModel();
 
         enrollButton.setOnClickListener(v -> {
             if (ActivityCompat.checkSelfPermission(this, Manifest.permission.RECORD_AUDIO)
@@ -103,8 +108,38 @@ public class VoiceEnrollmentActivity extends BaseActivity {
         });
     }
 
+    /**
+     * acquire() blocks (loading, warm-up, or waiting behind another loader), so it runs off the
+     * main thread; a handle that arrives after onDestroy is released straight away
+     */
+    private void loadModel() {
+        new Thread(() -> {
+            ModelRegistry.ModelHandle handle;
+            try {
+                handle = ModelRegistry.getInstance(this).acquire(ModelRegistry.YAMNET);
+            } catch (IOException e) {
+                Log.e("VoiceEnrollment", "Failed to load model", e);
+                runOnUiThreadIfAlive(() -> {
+                    Toast.makeText(this, "Failed to load model", Toast.LENGTH_LONG).show();
+                    finish();
+                });
+                return;
+            }
+
+            synchronized (modelLock) {
+                if (destroyed) {
+                    handle.close();
+                    return;
+                }
+                yamnetModel = handle;
+            }
+            voiceHelper = new PersonalizedVoiceHelper(this, handle);
+            runOnUiThreadIfAlive(() -> enrollButton.setEnabled(true));
+        }, "VoiceEnrollmentLoader").start();
+    }
+
     private void startCountdownAndRecord() {
-        statusText.setText("Get ready to shout in...");
+        statusText.setText("Prompt " + (promptIndex + 1) + " of " + PROMPTS.length + ": " + PROMPTS[promptIndex]);
         enrollButton.setEnabled(false);
 
         // Start pulse animation
@@ -113,13 +148,13 @@ public class VoiceEnrollmentActivity extends BaseActivity {
         // Show audio level indicator
         audioLevelContainer.setVisibility(View.VISIBLE);
 
-        new Handler().postDelayed(() -> {
+        mainHandler.postDelayed(() -> {
             statusText.setText("3...");
-            new Handler().postDelayed(() -> {
+            mainHandler.postDelayed(() -> {
                 statusText.setText("2...");
-                new Handler().postDelayed(() -> {
+                mainHandler.postDelayed(() -> {
                     statusText.setText("1...");
-                    new Handler().postDelayed(() -> {
+                    mainHandler.postDelayed(() -> {
                         startVoiceRecording();
                     }, 1000);
                 }, 1000);
@@ -150,7 +185,7 @@ public class VoiceEnrollmentActivity extends BaseActivity {
     }
 
     private void startVoiceRecording() {
-        statusText.setText("Recording... SHOUT NOW!");
+        statusText.setText("Recording... " + PROMPTS[promptIndex]);
 
         // 1. Check RECORD_AUDIO permission again
         if (ActivityCompat.checkSelfPermission(this, Manifest.permission.RECORD_AUDIO)
@@ -161,72 +196,87 @@ public class VoiceEnrollmentActivity extends BaseActivity {
             return;
         }
 
-        // 2. Get recommended buffer size
-        int bufferSize = AudioRecord.getMinBufferSize(
-                SAMPLE_RATE,
-                AudioFormat.CHANNEL_IN_MONO,
-                AudioFormat.ENCODING_PCM_16BIT
-        );
-
-        AudioRecord recorder;
-        try {
-            recorder = new AudioRecord(
-                    MediaRecorder.AudioSource.MIC,
-                    SAMPLE_RATE,
-                    AudioFormat.CHANNEL_IN_MONO,
-                    AudioFormat.ENCODING_PCM_16BIT,
-                    bufferSize
-            );
-        } catch (Exception e) {
-            statusText.setText("Microphone error: " + e.getMessage());
-            return;
-        }
-
-        // 3. Validate recorder initialization
-        if (recorder.getState() != AudioRecord.STATE_INITIALIZED) {
+        // 2. Subscribe to the shared microphone; DROP_NEWEST keeps the recording gap-free
+        int totalSamples = SAMPLE_RATE * RECORD_DURATION_MS / 1000;
+        AudioFanOut.Subscription recorder = AudioCaptureHub.getInstance().subscribe(
+                this, "VoiceEnrollment", totalSamples, AudioFanOut.BackpressurePolicy.DROP_NEWEST);
+        if (recorder == null) {
             statusText.setText("Microphone not initialized");
-            recorder.release();
             return;
         }
+        activeRecorder = recorder;
 
-        // 4. Prepare audio buffer
-        short[] audioData = new short[SAMPLE_RATE * RECORD_DURATION_MS / 1000];
-        recorder.startRecording();
+        // 3. Every prompt feeds one session; YAMNet runs on its windows while the user speaks
+        if (session == null) {
+            session = voiceHelper.startEnrollment();
+        }
+        VoiceEnrollmentSession enrollment = session;
 
-        // 5. Read audio in background with real-time visualization
+        // 4. Read audio in background with real-time visualization
         new Thread(() -> {
-            int totalSamples = audioData.length;
-            int chunkSize = totalSamples / 10; // 10 updates during recording
+            short[] chunk = new short[CHUNK_SAMPLES];
+            OutputStream wavOut = saveEnrollmentAudio ? openWavFile(wavFile(promptIndex), totalSamples) : null;
+            double sumSquares = 0.0;
             int samplesRead = 0;
 
             while (samplesRead < totalSamples) {
-                int toRead = Math.min(chunkSize, totalSamples - samplesRead);
-                recorder.read(audioData, samplesRead, toRead);
+                int toRead = Math.min(chunk.length, totalSamples - samplesRead);
+                if (destroyed || recorder.read(chunk, 0, toRead) < toRead) {
+                    recorder.close();
+                    closeWavFile(wavOut, wavFile(promptIndex));
+                    enrollment.endPrompt(false);
+                    // Closed by onDestroy: the session is cancelled, nothing is left to show
+                    if (destroyed) return;
+                    runOnUiThreadIfAlive(() -> {
+                        statusText.setText("Microphone error");
+                        stopPulseAnimation();
+                        audioLevelContainer.setVisibility(View.GONE);
+                        enrollButton.setEnabled(true);
+                    });
+                    return;
+                }
+                enrollment.write(chunk, 0, toRead);
+                if (wavOut != null && !writeWavSamples(wavOut, chunk, toRead)) {
+                    wavOut = closeWavFile(wavOut, wavFile(promptIndex));
+                }
 
-                // Calculate RMS for this chunk for visualization
-                final int finalSamplesRead = samplesRead + toRead;
-                final float chunkRMS = calculateRMSForRange(audioData, 0, finalSamplesRead);
+                // RMS so far, for visualization
+                for (int i = 0; i < toRead; i++) {
+                    sumSquares += chunk[i] * chunk[i];
+                }
+                samplesRead += toRead;
+                final float levelRMS = (float) Math.sqrt(sumSquares / samplesRead) / 32768f;
 
-                runOnUiThread(() -> {
-                    int progress = (int) (chunkRMS * 1000); // Scale for visualization
+                runOnUiThreadIfAlive(() -> {
+                    int progress = (int) (levelRMS * 1000); // Scale for visualization
                     audioLevelProgress.setProgress(Math.min(100, progress));
                     audioPercentageText.setText(Math.min(100, progress) + "%");
                 });
-
-                samplesRead += toRead;
             }
 
-            recorder.stop();
-            recorder.release();
+            recorder.close();
+            closeWavFile(wavOut, null);
+            if (destroyed) return;
 
             // Stop pulse animation
-            runOnUiThread(() -> stopPulseAnimation());
-
-            // 6. Check loudness (RMS)
-            float rms = PersonalizedVoiceHelper.calculateRMS(audioData);
-            if (rms < MIN_ENROLL_RMS) {
-                runOnUiThread(() -> {
-                    statusText.setText("Too quiet! Please shout louder");
+            runOnUiThreadIfAlive(() -> stopPulseAnimation());
+
+            // 5. Check loudness (RMS) and the graded windows for this prompt
+            float rms = (float) Math.sqrt(sumSquares / totalSamples) / 32768f;
+            int goodWindows = enrollment.getPromptWindows(EnrollmentWindower.Quality.GOOD);
+            int clippedWindows = enrollment.getPromptWindows(EnrollmentWindower.Quality.CLIPPED);
+            String retry = null;
+            if (goodWindows == 0 && clippedWindows > 0) {
+                retry = "Too loud! Hold the phone a little further away";
+            } else if (rms < PROMPT_MIN_RMS[promptIndex] || goodWindows == 0) {
+                retry = promptIndex == PROMPTS.length - 1
+                        ? "Too quiet! Please shout louder" : "Too quiet! Please speak up a little";
+            }
+            enrollment.endPrompt(retry == null);
+            if (retry != null) {
+                String message = retry;
+                runOnUiThreadIfAlive(() -> {
+                    statusText.setText(message);
                     audioLevelContainer.setVisibility(View.GONE);
                     qualityIndicator.setVisibility(View.GONE);
                     enrollButton.setEnabled(true);
@@ -235,9 +285,12 @@ public class VoiceEnrollmentActivity extends BaseActivity {
             }
 
             // Show quality indicator
-            runOnUiThread(() -> {
+            runOnUiThreadIfAlive(() -> {
                 qualityIndicator.setVisibility(View.VISIBLE);
-                if (rms > 0.15f) {
+                if (clippedWindows > 0) {
+                    qualityStatusText.setText("Fair - some audio clipped");
+                    qualityStatusText.setTextColor(0xFFFFA726);
+                } else if (rms > 0.15f) {
                     qualityStatusText.setText("Excellent");
                     qualityStatusText.setTextColor(0xFF4CAF50);
                 } else if (rms > 0.10f) {
@@ -249,28 +302,26 @@ public class VoiceEnrollmentActivity extends BaseActivity {
                 }
             });
 
-            // 7. Save audio
-            File wavFile = new File(getFilesDir(), "enrolled_voice.wav");
-            boolean saved = saveAsWavFile(audioData, wavFile);
+            // Next prompt, until every one is recorded
+            if (++promptIndex < PROMPTS.length) {
+                runOnUiThreadIfAlive(() -> mainHandler.postDelayed(this::startCountdownAndRecord, 1000));
+                return;
+            }
 
-            // 8. Enroll using PersonalizedVoiceHelper
-            runOnUiThread(() -> {
-                if (!saved) {
-                    statusText.setText("Failed to save WAV file");
-                    audioLevelContainer.setVisibility(View.GONE);
-                    qualityIndicator.setVisibility(View.GONE);
-                    enrollButton.setEnabled(true);
-                    return;
-                }
+            // 6. Only the last window or two are still being embedded
+            runOnUiThreadIfAlive(() -> statusText.setText("Learning your voice..."));
+            boolean enrolled = enrollment.finish();
+            promptIndex = 0;
+            session = null;
 
-                boolean enrolled = voiceHelper.enroll(wavFile);
+            runOnUiThreadIfAlive(() -> {
                 if (enrolled) {
                     statusText.setText("✓ Voice Enrolled Successfully!");
                     statusText.setTextColor(0xFF4CAF50);
                     Toast.makeText(this, "✓ Your voice is now protected!", Toast.LENGTH_LONG).show();
 
                     // Hide progress indicators after success
-                    new Handler().postDelayed(() -> {
+                    mainHandler.postDelayed(() -> {
                         audioLevelContainer.setVisibility(View.GONE);
                         enrollButton.setText("Re-enroll Voice");
                         enrollButton.setEnabled(true);
@@ -287,52 +338,59 @@ public class VoiceEnrollmentActivity extends BaseActivity {
         }).start();
     }
 
-
-    private float calculateRMS(short[] data) {
-        double sum = 0.0;
-        for (short s : data) {
-            sum += s * s;
-        }
-        return (float) Math.sqrt(sum / data.length) / 32768f;
+    // The recording thread outlives neither the screen's views nor its handler callbacks
+    private void runOnUiThreadIfAlive(Runnable action) {
+        if (destroyed) return;
+        runOnUiThread(() -> {
+            if (!destroyed) action.run();
+        });
     }
 
-    private float calculateRMSForRange(short[] data, int start, int end) {
-        if (end <= start) return 0;
-        double sum = 0.0;
-        for (int i = start; i < end; i++) {
-            sum += data[i] * data[i];
-        }
-        return (float) Math.sqrt(sum / (end - start)) / 32768f;
-    }
+    // ==== Optional WAV copy of each prompt, for debugging enrollment ====
 
-    private boolean saveAsWavFile(short[] audioData, File file) {
-        try (FileOutputStream fos = new FileOutputStream(file);
-             BufferedOutputStream bos = new BufferedOutputStream(fos)) {
+    private File wavFile(int prompt) {
+        return new File(getFilesDir(), "enrolled_voice_" + (prompt + 1) + ".wav");
+    }
 
+    /**
+     * @param samples Length of the recording, known up front so the header is written once
+     * @return null if the file could not be created; enrollment goes on without it
+     */
+    private OutputStream openWavFile(File file, int samples) {
+        OutputStream out = null;
+        try {
+            out = new BufferedOutputStream(new FileOutputStream(file));
             int byteRate = SAMPLE_RATE * 2;
-            int dataSize = audioData.length * 2;
+            int dataSize = samples * 2;
             int chunkSize = 36 + dataSize;
 
-            writeString(bos, "RIFF");
-            writeInt(bos, chunkSize);
-            writeString(bos, "WAVE");
-            writeString(bos, "fmt ");
-            writeInt(bos, 16); // Subchunk1Size
-            writeShort(bos, (short) 1); // PCM format
-            writeShort(bos, (short) 1); // Mono
-            writeInt(bos, SAMPLE_RATE);
-            writeInt(bos, byteRate);
-            writeShort(bos, (short) 2); // BlockAlign
-            writeShort(bos, (short) 16); // BitsPerSample
-            writeString(bos, "data");
-            writeInt(bos, dataSize);
-
-            for (short sample : audioData) {
-                bos.write(sample & 0xff);
-                bos.write((sample >> 8) & 0xff);
-            }
+            writeString(out, "RIFF");
+            writeInt(out, chunkSize);
+            writeString(out, "WAVE");
+            writeString(out, "fmt ");
+            writeInt(out, 16); // Subchunk1Size
+            writeShort(out, (short) 1); // PCM format
+            writeShort(out, (short) 1); // Mono
+            writeInt(out, SAMPLE_RATE);
+            writeInt(out, byteRate);
+            writeShort(out, (short) 2); // BlockAlign
+            writeShort(out, (short) 16); // BitsPerSample
+            writeString(out, "data");
+            writeInt(out, dataSize);
+            return out;
+        } catch (IOException e) {
+            Log.e("WAV", "Failed to create WAV file", e);
+            closeWavFile(out, file);
+            return null;
+        }
+    }
 
-            bos.flush();
+    private boolean writeWavSamples(OutputStream out, short[] samples, int length) {
+        try {
+            for (int i = 0; i < length; i++) {
+                out.write(samples[i] & 0xff);
+                out.write((samples[i] >> 8) & 0xff);
+            }
             return true;
         } catch (IOException e) {
             Log.e("WAV", "Failed to save WAV file", e);
@@ -340,6 +398,24 @@ public class VoiceEnrollmentActivity extends BaseActivity {
         }
     }
 
+    /**
+     * @param discard File to delete once closed (a failed copy), or null to keep it
+     * @return null, for the caller to drop its stream
+     */
+    private OutputStream closeWavFile(OutputStream out, File discard) {
+        if (out != null) {
+            try {
+                out.close();
+            } catch (IOException e) {
+                Log.e("WAV", "Failed to save WAV file", e);
+            }
+            if (discard != null) {
+                discard.delete();
+            }
+        }
+        return null;
+    }
+
     private void writeString(OutputStream out, String value) throws IOException {
         out.write(value.getBytes("US-ASCII"));
     }
@@ -359,8 +435,22 @@ public class VoiceEnrollmentActivity extends BaseActivity {
     @Override
     protected void onDestroy() {
         super.onDestroy();
-        if (yamnetInterpreter != null) {
-            yamnetInterpreter.close();
+        destroyed = true;
+        mainHandler.removeCallbacksAndMessages(null);
+        // Cancel first so a recording thread that is just finishing cannot store a partial enrollment
+        if (session != null) {
+            session.cancel();
+        }
+        // Wakes the recording thread, which then stops reading
+        AudioFanOut.Subscription recorder = activeRecorder;
+        if (recorder != null) {
+            recorder.close();
+        }
+        synchronized (modelLock) {
+            if (yamnetModel != null) {
+                yamnetModel.close();
+                yamnetModel = null;
+            }
         }
     }
 }
@@ -0,0 +1,72 @@
+package com.example.safetyapp.helper;
+
+/**
+ * Single-pass acoustic analysis stage
+ * Runs YAMNet once per window, feeds the same score frame to the scream classifier and to
+ * every score-based detector (ambient distress, vocal stress, emergency type), and returns
+ * one combined verdict. Full detection costs one YAMNet invocation instead of one per detector.
+ * Ambient distress and the ambient emergency type are judged on scores smoothed over the last
+ * few windows (YamnetScoreHistory), so one noisy window does not decide them alone.
+ * Not thread-safe - one per pipeline thread. The returned verdict is reused between calls.
+ */
+public class AcousticAnalyzer {
+
+    private final ScreamInferenceWorkspace workspace;
+    private final ModelRegistry.ModelHandle yamnetModel;
+    private final ModelRegistry.ModelHandle screamClassifierModel;
+
+    private final VocalStressDetector vocalStressDetector = new VocalStressDetector();
+    private final ScoreFrame scoreFrame = new ScoreFrame();
+    private final YamnetScoreHistory scoreHistory;
+    private final AcousticVerdict verdict;
+
+    /**
+     * @param windowLength Samples per analysis window
+     * @param preEmphasis Whether to apply the pre-emphasis filter before YAMNet
+     */
+    public AcousticAnalyzer(int windowLength, boolean preEmphasis,
+                            ModelRegistry.ModelHandle yamnetModel,
+                            ModelRegistry.ModelHandle screamClassifierModel) {
+        this(windowLength, preEmphasis, yamnetModel, screamClassifierModel,
+                YamnetScoreHistory.DEFAULT_HORIZON_FRAMES);
+    }
+
+    /**
+     * @param smoothingFrames Windows of YAMNet history for the ambient detectors (1: none)
+     */
+    public AcousticAnalyzer(int windowLength, boolean preEmphasis,
+                            ModelRegistry.ModelHandle yamnetModel,
+                            ModelRegistry.ModelHandle screamClassifierModel,
+                            int smoothingFrames) {
+        this.workspace = new ScreamInferenceWorkspace(windowLength, preEmphasis);
+        this.yamnetModel = yamnetModel;
+        this.screamClassifierModel = screamClassifierModel;
+        this.scoreHistory = new YamnetScoreHistory(smoothingFrames);
+        this.verdict = new AcousticVerdict(scoreFrame, workspace.getYamnetEmbedding());
+    }
+
+    /**
+     * Analyse one window of 16 kHz PCM audio
+     * @param rms Loudness of the window (as from PersonalizedVoiceHelper.calculateRMS)
+     * @return The combined verdict; overwritten by the next call
+     * @throws RuntimeException if either model fails
+     */
+    public AcousticVerdict analyze(short[] pcm, float rms) {
+        // One YAMNet run; the scream classifier consumes its output buffer directly
+        workspace.fillInput(pcm);
+        scoreFrame.set(workspace.runYamnet(yamnetModel));
+        scoreHistory.add(scoreFrame);
+        float screamProbability = workspace.runScreamClassifier(screamClassifierModel);
+
+        EmergencyTypeDetector.EmergencyType type =
+                EmergencyTypeDetector.detectEmergencyType(scoreFrame, scoreHistory, screamProbability, rms, null);
+
+        verdict.rms = rms;
+        verdict.screamProbability = screamProbability;
+        verdict.ambientDistress = AmbientDistressDetector.detectAmbientDistress(scoreHistory, rms);
+        verdict.vocalStress = vocalStressDetector.analyzeVocalStress(pcm, screamProbability, rms);
+        verdict.emergencyType = type;
+        verdict.confidence = EmergencyTypeDetector.getConfidenceLevel(type, screamProbability, scoreFrame);
+        return verdict;
+    }
+}
@@ -0,0 +1,83 @@
+package com.example.safetyapp.helper;
+
+import java.nio.FloatBuffer;
+
+/**
+ * Combined result of one AcousticAnalyzer pass
+ * Owned and reused by the analyzer - valid until its next analyze() call.
+ */
+public final class AcousticVerdict {
+    private final ScoreFrame scores;
+    private final FloatBuffer embedding;
+
+    float screamProbability;
+    float ambientDistress;
+    float vocalStress;
+    float rms;
+    EmergencyTypeDetector.EmergencyType emergencyType = EmergencyTypeDetector.EmergencyType.NONE;
+    float confidence;
+
+    AcousticVerdict(ScoreFrame scores, FloatBuffer embedding) {
+        this.scores = scores;
+        this.embedding = embedding;
+    }
+
+    /**
+     * Scream classifier output (0.0 - 1.0)
+     */
+    public float getScreamProbability() {
+        return screamProbability;
+    }
+
+    /**
+     * Ambient distress score from AmbientDistressDetector (0.0 - 1.0)
+     */
+    public float getAmbientDistress() {
+        return ambientDistress;
+    }
+
+    /**
+     * Vocal stress level from VocalStressDetector (0.0 = calm)
+     */
+    public float getVocalStress() {
+        return vocalStress;
+    }
+
+    public float getRms() {
+        return rms;
+    }
+
+    public EmergencyTypeDetector.EmergencyType getEmergencyType() {
+        return emergencyType;
+    }
+
+    /**
+     * Confidence in the emergency type (0 when the type is NONE)
+     */
+    public float getConfidence() {
+        return confidence;
+    }
+
+    /**
+     * The YAMNet scores this verdict was computed from
+     */
+    public ScoreFrame getScores() {
+        return scores;
+    }
+
+    /**
+     * YAMNet's 1024-d embedding from the same pass, for speaker verification
+     */
+    public FloatBuffer getEmbedding() {
+        return embedding;
+    }
+
+    @Override
+    public String toString() {
+        return "AcousticVerdict{scream=" + screamProbability
+                + ", ambient=" + ambientDistress
+                + ", stress=" + vocalStress
+                + ", type=" + emergencyType
+                + ", confidence=" + confidence + "}";
+    }
+}
@@ -0,0 +1,181 @@
+package com.example.safetyapp.helper;
+
+import android.Manifest;
+import android.content.Context;
+import android.content.pm.PackageManager;
+import android.media.AudioFormat;
+import android.media.AudioRecord;
+import android.media.MediaRecorder;
+import android.os.Process;
+import android.util.Log;
+
+import androidx.core.content.ContextCompat;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Process-wide owner of the single microphone AudioRecord
+ * One high-priority capture thread publishes 16 kHz mono PCM frames to any number of
+ * subscribers through an AudioFanOut, which gives each subscriber its own bounded ring and
+ * backpressure policy. The microphone is opened with the first subscriber and released with
+ * the last one.
+ */
+public class AudioCaptureHub {
+    private static final String TAG = "AudioCaptureHub";
+
+    public static final int SAMPLE_RATE = 16000;
+    private static final int FRAME_SIZE = SAMPLE_RATE * 20 / 1000; // 20ms frames
+    private static final int DRIVER_BUFFER_SIZE = SAMPLE_RATE * 2;  // 1s of 16-bit audio
+    private static final long STOP_WAIT_MS = 500;
+
+    private static AudioCaptureHub instance;
+
+    private final AudioFanOut fanOut = new AudioFanOut(new AudioFanOut.Source() {
+        @Override
+        public boolean start() {
+            return startCapture();
+        }
+
+        @Override
+        public void stop() {
+            stopCapture();
+        }
+    }, SAMPLE_RATE);
+
+    // Guarded by fanOut, which holds its lock while starting or stopping the capture
+    private CaptureSession session;
+    private CaptureSession previousSession;
+
+    private AudioCaptureHub() {}
+
+    public static synchronized AudioCaptureHub getInstance() {
+        if (instance == null) {
+            instance = new AudioCaptureHub();
+        }
+        return instance;
+    }
+
+    /**
+     * Subscribe to the shared capture stream, opening the microphone if needed
+     * @param name Used in logs only
+     * @param capacitySamples Size of this subscriber's ring (bounded queue)
+     * @return The subscription, or null if the microphone could not be opened
+     */
+    public AudioFanOut.Subscription subscribe(Context context, String name, int capacitySamples,
+                                              AudioFanOut.BackpressurePolicy policy) {
+        if (ContextCompat.checkSelfPermission(context, Manifest.permission.RECORD_AUDIO)
+                != PackageManager.PERMISSION_GRANTED) {
+            Log.e(TAG, "Microphone permission not granted");
+            return null;
+        }
+        return fanOut.subscribe(name, capacitySamples, policy);
+    }
+
+    public boolean isCapturing() {
+        return fanOut.isStarted();
+    }
+
+    private boolean startCapture() {
+        // A previous capture thread may still be releasing the microphone
+        if (previousSession != null) {
+            try {
+                previousSession.released.await(STOP_WAIT_MS, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            previousSession = null;
+        }
+
+        int minBufferSize = AudioRecord.getMinBufferSize(
+                SAMPLE_RATE,
+                AudioFormat.CHANNEL_IN_MONO,
+                AudioFormat.ENCODING_PCM_16BIT
+        );
+
+        AudioRecord record;
+        try {
+            record = new AudioRecord(
+                    MediaRecorder.AudioSource.MIC,
+                    SAMPLE_RATE,
+                    AudioFormat.CHANNEL_IN_MONO,
+                    AudioFormat.ENCODING_PCM_16BIT,
+                    Math.max(minBufferSize, DRIVER_BUFFER_SIZE)
+            );
+        } catch (SecurityException e) {
+            Log.e(TAG, "Security exception - microphone permission not granted", e);
+            return false;
+        }
+
+        if (record.getState() != AudioRecord.STATE_INITIALIZED) {
+            Log.e(TAG, "AudioRecord initialization failed");
+            record.release();
+            return false;
+        }
+
+        CaptureSession newSession = new CaptureSession(record);
+        session = newSession;
+        new Thread(() -> captureLoop(newSession), "AudioCaptureHub").start();
+        Log.i(TAG, "Shared microphone capture started");
+        return true;
+    }
+
+    private void stopCapture() {
+        if (session == null) return;
+        session.running = false;
+        previousSession = session;
+        session = null;
+        Log.i(TAG, "Shared microphone capture stopping");
+    }
+
+    private void captureLoop(CaptureSession captureSession) {
+        Process.setThreadPriority(Process.THREAD_PRIORITY_URGENT_AUDIO);
+        AudioRecord record = captureSession.record;
+        short[] frame = new short[FRAME_SIZE];
+
+        try {
+            record.startRecording();
+            while (captureSession.running) {
+                int read = record.read(frame, 0, frame.length);
+                if (read > 0) {
+                    fanOut.publish(frame, read);
+                } else if (read < 0) {
+                    Log.e(TAG, "AudioRecord read error: " + read);
+                    break;
+                }
+            }
+        } catch (Exception e) {
+            Log.e(TAG, "Capture loop failed", e);
+        } finally {
+            try {
+                record.stop();
+            } catch (Exception e) {
+                Log.e(TAG, "Error stopping AudioRecord", e);
+            }
+            record.release();
+            captureSession.released.countDown();
+            onCaptureEnded(captureSession);
+        }
+    }
+
+    private void onCaptureEnded(CaptureSession captureSession) {
+        synchronized (fanOut) {
+            if (session == captureSession) {
+                // Ended by an error rather than by the last unsubscribe - let consumers know
+                session = null;
+                fanOut.sourceEnded();
+            }
+        }
+        Log.i(TAG, "Shared microphone capture stopped");
+    }
+
+    private static class CaptureSession {
+        final AudioRecord record;
+        final CountDownLatch released = new CountDownLatch(1);
+        volatile boolean running = true;
+
+        CaptureSession(AudioRecord record) {
+            this.record = record;
+        }
+    }
+}
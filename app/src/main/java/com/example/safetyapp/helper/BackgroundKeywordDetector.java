@@ -2,9 +2,6 @@ package com.example.safetyapp.helper;
 
 import android.content.Context;
 import android.content.Intent;
-import android.media.AudioFormat;
-import android.media.AudioRecord;
-import android.media.MediaRecorder;
 import android.os.Bundle;
 import android.os.Handler;
 import android.os.Looper;
@@ -18,7 +15,7 @@ import java.util.Locale;
 
 /**
  * Advanced background keyword detector that works even when screen is off
- * Uses AudioRecord for continuous audio monitoring + SpeechRecognizer for confirmation
+ * Uses the shared AudioCaptureHub for continuous audio monitoring + SpeechRecognizer for confirmation
  */
 public class BackgroundKeywordDetector {
     private static final String TAG = "BackgroundKeyword";
@@ -27,29 +24,41 @@ public class BackgroundKeywordDetector {
     private KeywordDetectionListener listener;
     private Handler mainHandler;
 
-    // AudioRecord for continuous monitoring
-    private AudioRecord audioRecord;
+    // Subscription to the shared microphone capture for continuous monitoring
+    private volatile AudioFanOut.Subscription subscription;
     private Thread audioThread;
     private volatile boolean isRecording = false;
-    private static final int SAMPLE_RATE = 16000;
-    private static final int CHANNEL_CONFIG = AudioFormat.CHANNEL_IN_MONO;
-    private static final int AUDIO_FORMAT = AudioFormat.ENCODING_PCM_16BIT;
-    private int bufferSize;
+    private static final int SAMPLE_RATE = AudioCaptureHub.SAMPLE_RATE;
+    private static final int FRAME_SIZE = SAMPLE_RATE / 20; // 50ms analysis frames
+    private static final int RING_CAPACITY = SAMPLE_RATE; // 1s of backlog; older audio is dropped
+
+    // Fallback keywords: the "background" set of the shared emergency lexicon
+    // (matching ignores case and punctuation)
+    private static final KeywordCategoryMatcher KEYWORD_MATCHER = new KeywordCategoryMatcher("background");
 
     // SpeechRecognizer for keyword confirmation
     private SpeechRecognizer speechRecognizer;
     private Intent recognizerIntent;
     private boolean isSpeechRecognizerListening = false;
 
-    // Detection parameters
-    private static final double VOICE_THRESHOLD = 800.0; // Audio level threshold for voice detection (lowered for better sensitivity)
-    private static final long VOICE_DURATION_MS = 200; // Minimum voice duration to trigger recognition (reduced)
+    // Partial hypotheses of the current utterance are classified incrementally; once one of them
+    // raises an emergency the rest of the utterance (including its final results) is skipped
+    private final EmergencyIntentClassifier.Session partialSession = new EmergencyIntentClassifier.Session();
+    private boolean utteranceTriggered = false;
+
+    // Final results: all N-best alternatives scored together
+    private final NBestIntentScorer nBestScorer = new NBestIntentScorer(KEYWORD_MATCHER);
+
+    // Voice activity: the recogniser only starts on speech-like segments
+    private final VoiceActivityDetector voiceActivityDetector = new VoiceActivityDetector();
     private static final long MONITORING_LOG_INTERVAL = 10000; // Log status every 10 seconds
-    private long voiceStartTime = 0;
-    private boolean voiceDetected = false;
     private long lastLogTime = 0;
     private int detectionAttempts = 0;
 
+    // Metrics: recogniser starts per hour of monitoring
+    private volatile int recognizerStarts = 0;
+    private volatile long monitoringStartTime = 0;
+
     public interface KeywordDetectionListener {
         void onKeywordDetected(String keyword, float confidence);
         void onStatusChanged(boolean isListening);
@@ -60,14 +69,8 @@ public class BackgroundKeywordDetector {
         this.listener = listener;
         this.mainHandler = new Handler(Looper.getMainLooper());
 
-        // Calculate buffer size
-        bufferSize = AudioRecord.getMinBufferSize(SAMPLE_RATE, CHANNEL_CONFIG, AUDIO_FORMAT);
-        if (bufferSize == AudioRecord.ERROR || bufferSize == AudioRecord.ERROR_BAD_VALUE) {
-            bufferSize = SAMPLE_RATE * 2;
-        }
-
         initializeSpeechRecognizer();
-        Log.i(TAG, "BackgroundKeywordDetector initialized with buffer size: " + bufferSize);
+        Log.i(TAG, "BackgroundKeywordDetector initialized with frame size: " + FRAME_SIZE);
     }
 
     /**
@@ -85,6 +88,8 @@ public class BackgroundKeywordDetector {
             public void onReadyForSpeech(Bundle params) {
                 Log.d(TAG, "SpeechRecognizer ready");
                 isSpeechRecognizerListening = true;
+                partialSession.reset();
+                utteranceTriggered = false;
             }
 
             @Override
@@ -122,7 +127,9 @@ public class BackgroundKeywordDetector {
                 ArrayList<String> matches = results.getStringArrayList(SpeechRecognizer.RESULTS_RECOGNITION);
                 float[] confidences = results.getFloatArray(SpeechRecognizer.CONFIDENCE_SCORES);
 
-                if (matches != null && !matches.isEmpty()) {
+                if (utteranceTriggered) {
+                    Log.d(TAG, "Emergency already raised from partial results, skipping final results");
+                } else if (matches != null && !matches.isEmpty()) {
                     Log.i(TAG, "Speech recognized: " + matches.toString());
                     processRecognitionResults(matches, confidences);
                 }
@@ -132,9 +139,9 @@ public class BackgroundKeywordDetector {
             @Override
             public void onPartialResults(Bundle partialResults) {
                 ArrayList<String> matches = partialResults.getStringArrayList(SpeechRecognizer.RESULTS_RECOGNITION);
-                if (matches != null && !matches.isEmpty()) {
+                if (!utteranceTriggered && matches != null && !matches.isEmpty()) {
                     Log.d(TAG, "Partial results: " + matches.toString());
-                    processRecognitionResults(matches, null);
+                    utteranceTriggered = processPartialResult(matches.get(0));
                 }
             }
 
@@ -155,60 +162,68 @@ public class BackgroundKeywordDetector {
 
     /**
      * Process speech recognition results and check for emergency keywords
+     * All alternatives are scored together, so the decision does not depend on their order
      */
     private void processRecognitionResults(ArrayList<String> matches, float[] confidences) {
-        for (int i = 0; i < matches.size(); i++) {
-            String text = matches.get(i);
-            float confidence = (confidences != null && i < confidences.length) ? confidences[i] : 0.5f;
-
-            Log.i(TAG, "Checking: \"" + text + "\" (confidence: " + confidence + ")");
-
-            // Use AI-powered semantic classifier
-            EmergencyIntentClassifier.EmergencyClassification classification =
-                    EmergencyIntentClassifier.classifyIntent(text);
-
-            if (classification.isEmergency()) {
-                Log.i(TAG, "🚨 EMERGENCY DETECTED: " + classification.type +
-                      " (confidence: " + classification.confidence + ") - \"" + text + "\"");
-                if (listener != null) {
-                    float combinedConfidence = (confidence + classification.confidence) / 2.0f;
-                    listener.onKeywordDetected(text, combinedConfidence);
-                }
-                return;
+        NBestIntentScorer.Decision decision = nBestScorer.score(matches, confidences);
+
+        // AI-powered semantic classifier
+        if (decision.isEmergency()) {
+            String text = matches.get(decision.hypothesisIndex);
+            Log.i(TAG, "🚨 EMERGENCY DETECTED: " + decision.type +
+                  " (posterior: " + decision.posterior + ") - \"" + text + "\"");
+            if (listener != null) {
+                listener.onKeywordDetected(text, decision.posterior);
             }
+            return;
+        }
 
-            // Fallback: keyword matching
-            if (containsEmergencyKeyword(text.toLowerCase())) {
-                Log.i(TAG, "🚨 KEYWORD MATCH: \"" + text + "\"");
-                if (listener != null) {
-                    listener.onKeywordDetected(text, confidence);
-                }
-                return;
+        // Fallback: keyword matching
+        if (decision.hasKeyword()) {
+            String text = matches.get(decision.keywordHypothesisIndex);
+            Log.i(TAG, "🚨 KEYWORD MATCH: \"" + text + "\" (posterior: " + decision.keywordPosterior + ")");
+            if (listener != null) {
+                listener.onKeywordDetected(text, decision.keywordPosterior);
             }
         }
     }
 
     /**
-     * Check if text contains emergency keywords
+     * Check the latest partial hypothesis of the current utterance
+     * @return true if an emergency was raised
      */
-    private boolean containsEmergencyKeyword(String text) {
-        String[] keywords = {
-            // English
-            "help", "save me", "please help", "danger", "sos", "emergency",
-            "call police", "someone help", "i need help", "don't hurt",
-            "scared", "afraid", "attacking", "following me",
-            // Bangla
-            "বাঁচাও", "সাহায্য", "বিপদ", "পুলিশ", "ভয়", "মারছে"
-        };
-
-        for (String keyword : keywords) {
-            if (text.contains(keyword.toLowerCase())) {
-                return true;
+    private boolean processPartialResult(String text) {
+        // Partial results carry no confidence scores
+        float confidence = 0.5f;
+
+        EmergencyIntentClassifier.EmergencyClassification classification = partialSession.update(text);
+        if (classification.isEmergency()) {
+            Log.i(TAG, "🚨 EMERGENCY DETECTED (partial): " + classification.type +
+                  " (confidence: " + classification.confidence + ") - \"" + text + "\"");
+            if (listener != null) {
+                float combinedConfidence = (confidence + classification.confidence) / 2.0f;
+                listener.onKeywordDetected(text, combinedConfidence);
             }
+            return true;
+        }
+
+        if (containsEmergencyKeyword(text)) {
+            Log.i(TAG, "🚨 KEYWORD MATCH (partial): \"" + text + "\"");
+            if (listener != null) {
+                listener.onKeywordDetected(text, confidence);
+            }
+            return true;
         }
         return false;
     }
 
+    /**
+     * Check if text contains emergency keywords
+     */
+    private boolean containsEmergencyKeyword(String text) {
+        return KEYWORD_MATCHER.containsAny(text);
+    }
+
     /**
      * Start continuous audio monitoring
      */
@@ -219,21 +234,15 @@ public class BackgroundKeywordDetector {
         }
 
         try {
-            // Initialize AudioRecord
-            audioRecord = new AudioRecord(
-                MediaRecorder.AudioSource.VOICE_RECOGNITION,
-                SAMPLE_RATE,
-                CHANNEL_CONFIG,
-                AUDIO_FORMAT,
-                bufferSize
-            );
-
-            if (audioRecord.getState() != AudioRecord.STATE_INITIALIZED) {
-                Log.e(TAG, "AudioRecord initialization failed");
+            // Subscribe to the shared microphone instead of opening a second AudioRecord
+            subscription = AudioCaptureHub.getInstance().subscribe(
+                context, TAG, RING_CAPACITY, AudioFanOut.BackpressurePolicy.DROP_OLDEST);
+
+            if (subscription == null) {
+                Log.e(TAG, "Could not subscribe to microphone capture");
                 return;
             }
 
-            audioRecord.startRecording();
             isRecording = true;
 
             // Notify listener
@@ -247,8 +256,6 @@ public class BackgroundKeywordDetector {
 
             Log.i(TAG, "✅ Background audio monitoring started");
 
-        } catch (SecurityException e) {
-            Log.e(TAG, "Security exception - microphone permission not granted", e);
         } catch (Exception e) {
             Log.e(TAG, "Failed to start audio monitoring", e);
         }
@@ -259,97 +266,71 @@ public class BackgroundKeywordDetector {
      */
     private void audioMonitoringLoop() {
         Log.i(TAG, "=== Audio monitoring loop started ===");
-        Log.i(TAG, "Voice threshold: " + VOICE_THRESHOLD + ", Duration threshold: " + VOICE_DURATION_MS + "ms");
 
-        short[] audioBuffer = new short[bufferSize / 2];
+        AudioFanOut.Subscription source = subscription;
+        short[] audioBuffer = new short[FRAME_SIZE];
         long loopIterations = 0;
-        double maxAudioLevel = 0;
+        voiceActivityDetector.reset();
         lastLogTime = System.currentTimeMillis();
+        monitoringStartTime = lastLogTime;
+        recognizerStarts = 0;
 
-        while (isRecording && audioRecord != null) {
+        while (isRecording && source != null) {
             try {
-                int readResult = audioRecord.read(audioBuffer, 0, audioBuffer.length);
+                // Blocks until a full frame has been captured - no polling delay needed
+                int readResult = source.read(audioBuffer, 0, audioBuffer.length);
                 loopIterations++;
 
-                if (readResult > 0) {
-                    // Calculate audio level (RMS)
-                    double audioLevel = calculateRMS(audioBuffer);
-
-                    // Track max audio level for logging
-                    if (audioLevel > maxAudioLevel) {
-                        maxAudioLevel = audioLevel;
-                    }
+                if (readResult == audioBuffer.length) {
+                    boolean speechStarted = voiceActivityDetector.process(audioBuffer, 0, readResult);
 
                     // Periodic status logging
                     long currentTime = System.currentTimeMillis();
                     if (currentTime - lastLogTime >= MONITORING_LOG_INTERVAL) {
                         Log.i(TAG, "📊 Status: Monitoring active | Iterations: " + loopIterations +
-                              " | Max audio level (last 10s): " + String.format("%.1f", maxAudioLevel) +
-                              " | Threshold: " + VOICE_THRESHOLD +
+                              " | Noise floor: " + String.format("%.1f", voiceActivityDetector.getNoiseFloorDb()) + " dB" +
+                              " | Recognizer starts/h: " + String.format("%.1f", getRecognizerStartsPerHour()) +
+                              " | VAD CPU: " + String.format("%.3f", voiceActivityDetector.getLoad() * 100) + "%" +
                               " | Speech recognizer: " + (isSpeechRecognizerListening ? "ACTIVE" : "ready"));
                         lastLogTime = currentTime;
-                        maxAudioLevel = 0; // Reset for next interval
                     }
 
-                    // Check if voice is detected
-                    if (audioLevel > VOICE_THRESHOLD) {
-                        if (!voiceDetected) {
-                            voiceDetected = true;
-                            voiceStartTime = System.currentTimeMillis();
-                            Log.i(TAG, "🔊 Voice activity detected! (level: " + String.format("%.1f", audioLevel) + ")");
-                        } else {
-                            // Voice has been continuous for required duration
-                            long voiceDuration = System.currentTimeMillis() - voiceStartTime;
-                            if (voiceDuration >= VOICE_DURATION_MS && !isSpeechRecognizerListening) {
-                                detectionAttempts++;
-                                Log.i(TAG, "🎙️ SUSTAINED VOICE DETECTED! Duration: " + voiceDuration + "ms - Starting speech recognition (attempt #" + detectionAttempts + ")");
-                                mainHandler.post(this::startSpeechRecognition);
-                                voiceDetected = false; // Reset to avoid repeated triggers
-                            }
-                        }
-                    } else {
-                        // Reset if silence detected
-                        if (voiceDetected) {
-                            long voiceDuration = System.currentTimeMillis() - voiceStartTime;
-                            if (voiceDuration < VOICE_DURATION_MS) {
-                                Log.d(TAG, "Voice too short (" + voiceDuration + "ms), resetting (level dropped to " + String.format("%.1f", audioLevel) + ")");
-                            }
-                        }
-                        voiceDetected = false;
+                    if (speechStarted && !isSpeechRecognizerListening) {
+                        detectionAttempts++;
+                        Log.i(TAG, "🎙️ SPEECH DETECTED (level: " + String.format("%.1f", voiceActivityDetector.getLastLevelDb()) +
+                              " dB, floor: " + String.format("%.1f", voiceActivityDetector.getNoiseFloorDb()) +
+                              " dB) - Starting speech recognition (attempt #" + detectionAttempts + ")");
+                        mainHandler.post(this::startSpeechRecognition);
                     }
-                } else if (readResult == AudioRecord.ERROR_INVALID_OPERATION) {
-                    Log.e(TAG, "❌ AudioRecord error: invalid operation");
-                    break;
-                } else if (readResult == AudioRecord.ERROR_BAD_VALUE) {
-                    Log.e(TAG, "❌ AudioRecord error: bad value");
+                } else {
+                    // Short read means the subscription was closed
+                    Log.i(TAG, "Microphone capture closed");
                     break;
                 }
 
-                // Small delay to reduce CPU usage
-                Thread.sleep(50);
-
-            } catch (InterruptedException e) {
-                Log.i(TAG, "Audio monitoring interrupted");
-                break;
             } catch (Exception e) {
                 Log.e(TAG, "❌ Error in audio monitoring loop", e);
                 break;
             }
         }
 
-        Log.i(TAG, "=== Audio monitoring loop ended === (Total iterations: " + loopIterations + ", Detection attempts: " + detectionAttempts + ")");
+        Log.i(TAG, "=== Audio monitoring loop ended === (Total iterations: " + loopIterations + ", Detection attempts: " + detectionAttempts +
+              ", VAD time: " + voiceActivityDetector.getProcessingNanos() / 1_000_000 + "ms)");
     }
 
     /**
-     * Calculate RMS (Root Mean Square) audio level
+     * Speech recognizer starts per hour since monitoring started
      */
-    private double calculateRMS(short[] audioData) {
-        long sum = 0;
-        for (short sample : audioData) {
-            sum += sample * sample;
-        }
-        double mean = sum / (double) audioData.length;
-        return Math.sqrt(mean);
+    public float getRecognizerStartsPerHour() {
+        long elapsed = System.currentTimeMillis() - monitoringStartTime;
+        return monitoringStartTime == 0 || elapsed <= 0 ? 0.0f : recognizerStarts * 3_600_000f / elapsed;
+    }
+
+    /**
+     * Voice activity detection time as a fraction of the audio it processed
+     */
+    public float getVadLoad() {
+        return voiceActivityDetector.getLoad();
     }
 
     /**
@@ -369,6 +350,7 @@ public class BackgroundKeywordDetector {
         try {
             Log.i(TAG, "▶️ Starting SpeechRecognizer for keyword confirmation...");
             speechRecognizer.startListening(recognizerIntent);
+            recognizerStarts++;
             Log.i(TAG, "✅ SpeechRecognizer.startListening() called successfully");
         } catch (Exception e) {
             Log.e(TAG, "❌ Failed to start speech recognition", e);
@@ -384,6 +366,12 @@ public class BackgroundKeywordDetector {
         Log.i(TAG, "Stopping background keyword detection");
         isRecording = false;
 
+        // Closing wakes the monitoring thread if it is waiting for audio
+        if (subscription != null) {
+            subscription.close();
+            subscription = null;
+        }
+
         if (audioThread != null) {
             audioThread.interrupt();
             try {
@@ -394,16 +382,6 @@ public class BackgroundKeywordDetector {
             audioThread = null;
         }
 
-        if (audioRecord != null) {
-            try {
-                audioRecord.stop();
-                audioRecord.release();
-            } catch (Exception e) {
-                Log.e(TAG, "Error stopping AudioRecord", e);
-            }
-            audioRecord = null;
-        }
-
         if (speechRecognizer != null) {
             try {
                 speechRecognizer.cancel();
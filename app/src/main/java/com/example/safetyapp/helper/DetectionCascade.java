@@ -0,0 +1,88 @@
+package com.example.safetyapp.helper;
+
+import android.util.Log;
+
+/**
+ * Cheap stages that decide whether a window is worth full YAMNet + scream classifier inference
+ * 1. level: the window's RMS is above the minimum worth verifying
+ * 2. spectral: SpectralGate - the window is a clear onset or spectrally busy, not steady noise
+ * 3. vocalisation: a tiny loud-vocalisation model on the spectral gate's band levels
+ * Each stage only sees windows the previous one passed, and every stage keeps pass-rate counters
+ * (CascadeStats) so the saving can be measured. The vocalisation model is optional; without it
+ * that stage passes everything. Not thread-safe - one per pipeline thread.
+ */
+public final class DetectionCascade {
+    private static final String TAG = "DetectionCascade";
+
+    public static final int STAGE_LEVEL = 0;
+    public static final int STAGE_SPECTRAL = 1;
+    public static final int STAGE_VOCALISATION = 2;
+
+    // Low on purpose: the cascade must not cost recall, YAMNet makes the real decision
+    private static final float VOCALISATION_THRESHOLD = 0.2f;
+
+    private final float minRms;
+    private final SpectralGate spectralGate = new SpectralGate();
+    private final ModelRegistry.ModelHandle vocalisationModel;
+    private final float[][] vocalisationInput = new float[1][SpectralGate.BANDS];
+    private final float[][] vocalisationOutput = new float[1][1];
+    private final CascadeStats stats = new CascadeStats("level", "spectral", "vocalisation");
+
+    /**
+     * @param minRms Windows quieter than this are skipped outright
+     * @param vocalisationModel ModelRegistry.LOUD_VOCALISATION, or null to run without that stage
+     */
+    public DetectionCascade(float minRms, ModelRegistry.ModelHandle vocalisationModel) {
+        this.minRms = minRms;
+        this.vocalisationModel = vocalisationModel;
+    }
+
+    /**
+     * Run the stages in order on one window
+     * @param rms Loudness of the window (as from PersonalizedVoiceHelper.calculateRMS)
+     * @return true if the window should get full inference
+     */
+    public boolean shouldAnalyze(short[] pcm, float rms) {
+        boolean pass = rms >= minRms;
+        stats.record(STAGE_LEVEL, pass);
+        if (!pass) return false;
+
+        pass = spectralGate.test(pcm);
+        stats.record(STAGE_SPECTRAL, pass);
+        if (!pass) return false;
+
+        pass = vocalisationModel == null || isLoudVocalisation();
+        stats.record(STAGE_VOCALISATION, pass);
+        return pass;
+    }
+
+    private boolean isLoudVocalisation() {
+        System.arraycopy(spectralGate.features(), 0, vocalisationInput[0], 0, SpectralGate.BANDS);
+        try {
+            vocalisationModel.run(vocalisationInput, vocalisationOutput);
+        } catch (RuntimeException e) {
+            // Fail open: a broken gate must never hide a real emergency
+            Log.e(TAG, "Vocalisation model failed; passing the window on", e);
+            return true;
+        }
+        return vocalisationOutput[0][0] >= VOCALISATION_THRESHOLD;
+    }
+
+    public boolean hasVocalisationModel() {
+        return vocalisationModel != null;
+    }
+
+    /**
+     * Per-stage pass rates and the inference saved
+     */
+    public CascadeStats getStats() {
+        return stats;
+    }
+
+    /**
+     * Forget the spectral gate's background level (e.g. when the audio source restarts)
+     */
+    public void reset() {
+        spectralGate.reset();
+    }
+}
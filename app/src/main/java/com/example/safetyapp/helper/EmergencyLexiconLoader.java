@@ -0,0 +1,90 @@
+package com.example.safetyapp.helper;
+
+import android.content.Context;
+import android.content.res.AssetFileDescriptor;
+import android.os.FileObserver;
+import android.util.Log;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Supplies the compiled emergency lexicon to the detection core
+ * The bundled lexicon is memory-mapped from the APK assets (stored uncompressed, like the TFLite
+ * models). Updates are picked up from filesDir/lexicon/emergency_lexicon.bin: whatever writes an
+ * update should write a temporary file in that directory and rename it over the target, and the
+ * new lexicon is installed without restarting detection. Older or corrupt updates are ignored.
+ */
+public final class EmergencyLexiconLoader {
+    private static final String TAG = "EmergencyLexiconLoader";
+    private static final String UPDATE_DIR = "lexicon";
+
+    // Kept reachable: a collected FileObserver stops watching
+    private static FileObserver updateObserver;
+
+    private EmergencyLexiconLoader() {}
+
+    /**
+     * Register the bundled asset and start watching for updates; call once from Application.onCreate
+     */
+    public static synchronized void init(Context context) {
+        Context appContext = context.getApplicationContext();
+        EmergencyLexicon.setBundledSource(() -> mapAsset(appContext, EmergencyLexicon.FILE_NAME));
+
+        File updateDir = new File(appContext.getFilesDir(), UPDATE_DIR);
+        if (!updateDir.isDirectory() && !updateDir.mkdirs()) {
+            Log.e(TAG, "Cannot create " + updateDir + ", lexicon updates are disabled");
+            return;
+        }
+        File updateFile = new File(updateDir, EmergencyLexicon.FILE_NAME);
+
+        if (updateObserver == null) {
+            updateObserver = new FileObserver(updateDir.getPath(), FileObserver.CLOSE_WRITE | FileObserver.MOVED_TO) {
+                @Override
+                public void onEvent(int event, String path) {
+                    if (EmergencyLexicon.FILE_NAME.equals(path)) {
+                        installUpdate(updateFile);
+                    }
+                }
+            };
+            updateObserver.startWatching();
+        }
+
+        // An update downloaded in an earlier run; loading it also loads the bundled lexicon,
+        // so keep it off the main thread
+        new Thread(() -> installUpdate(updateFile), "LexiconLoader").start();
+    }
+
+    /**
+     * Install the lexicon in file if it is valid and newer than the one in use
+     */
+    public static boolean installUpdate(File file) {
+        if (!file.isFile()) return false;
+
+        try (RandomAccessFile input = new RandomAccessFile(file, "r");
+             FileChannel channel = input.getChannel()) {
+            // The lexicon copies what it needs, so the mapping is only used while reading
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return EmergencyLexicon.install(EmergencyLexicon.read(buffer));
+        } catch (IOException e) {
+            Log.e(TAG, "Ignoring invalid lexicon update " + file, e);
+            return false;
+        }
+    }
+
+    private static ByteBuffer mapAsset(Context context, String assetName) throws IOException {
+        try (AssetFileDescriptor fileDescriptor = context.getAssets().openFd(assetName);
+             FileInputStream inputStream = new FileInputStream(fileDescriptor.getFileDescriptor());
+             FileChannel fileChannel = inputStream.getChannel()) {
+            return fileChannel.map(
+                    FileChannel.MapMode.READ_ONLY,
+                    fileDescriptor.getStartOffset(),
+                    fileDescriptor.getDeclaredLength()
+            );
+        }
+    }
+}
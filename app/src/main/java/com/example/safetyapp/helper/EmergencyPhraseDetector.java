@@ -27,92 +27,29 @@ public class EmergencyPhraseDetector {
     private boolean isListening = false;
     private Handler restartHandler;
 
-    // Comprehensive Emergency keywords organized by category
-    // Category 1: Common SOS / Help
-    private static final String[] COMMON_SOS_KEYWORDS = {
-        // English
-        "help", "save me", "please help", "i'm in danger", "sos",
-        "call the police", "emergency", "someone please", "i need help", "don't hurt me",
-        // Bangla
-        "বাঁচাও", "সাহায্য করো", "আমাকে বাঁচাও", "আমি বিপদে আছি",
-        "পুলিশ ডাকো", "কেউ আছো", "আমি ভয় পাচ্ছি", "আমার কিছু হবে",
-        "দয়া করে বাঁচাও", "ওরা আমাকে মারবে"
+    // Partial hypotheses of the current utterance are classified incrementally; once the classifier
+    // raises an emergency from one of them the rest of the utterance (including its final results)
+    // is skipped. Keywords alone are left to the final results, where all N-best alternatives are
+    // weighed: an unstable partial must not suppress them.
+    private final EmergencyIntentClassifier.Session partialSession = new EmergencyIntentClassifier.Session();
+    private boolean utteranceTriggered = false;
+
+    // Final results: all N-best alternatives scored together
+    private final NBestIntentScorer nBestScorer = new NBestIntentScorer(KEYWORD_MATCHER);
+
+    // Emergency keyword categories, in priority order (matches KEYWORD_CATEGORY_NAMES);
+    // the phrases are the lexicon sets of the same name in emergency_lexicon.txt
+    private static final KeywordCategoryMatcher KEYWORD_MATCHER = new KeywordCategoryMatcher(
+            "sos", "fear_panic", "attack_threat", "emotional_distress", "coded_sos");
+    private static final String[] KEYWORD_CATEGORY_NAMES = {
+            "Common SOS/Help", "Fear/Panic", "Attack/Threat", "Emotional Distress", "Coded SOS"
     };
 
-    // Category 2: Fear / Panic
-    private static final String[] FEAR_PANIC_KEYWORDS = {
-        // English
-        "i'm scared", "i'm afraid", "please don't", "oh my god",
-        "what's happening", "no no no", "i can't breathe", "stay away from me",
-        // Bangla
-        "আমি ভয় পেয়েছি", "দয়া করে না", "হে আল্লাহ", "এ কী হচ্ছে",
-        "না না না", "দূরে থাকো", "আমি পারছি না", "আমাকে ছেড়ে দাও"
-    };
-
-    // Category 3: Attack / Threat
-    private static final String[] ATTACK_THREAT_KEYWORDS = {
-        // English
-        "he's hitting me", "they're attacking me", "someone is following me",
-        "he's trying to kidnap me", "i'm trapped",
-        // Bangla
-        "ওরা আমাকে মারছে", "ওরা আমার পেছনে", "আমাকে তুলে নিচ্ছে",
-        "আমি আটকে গেছি", "কেউ আমাকে অনুসরণ করছে"
-    };
-
-    // Category 4: Emotional Distress
-    private static final String[] EMOTIONAL_DISTRESS_KEYWORDS = {
-        // English
-        "i can't take it anymore", "i'm not okay", "i'm tired of everything",
-        "i want to disappear", "please someone listen",
-        // Bangla
-        "আর পারছি না", "আমি ভালো নেই", "সব কিছু শেষ হয়ে গেছে",
-        "আমি হারিয়ে যেতে চাই", "কেউ শুনবে না আমাকে"
-    };
-
-    // Category 5: Hidden / Coded SOS (context-sensitive)
-    private static final String[] CODED_SOS_KEYWORDS = {
-        // English
-        "i'm fine", "i'm with a friend", "can you call me now", "bring my red file",
-        // Bangla
-        "আমি ঠিক আছি", "আমি একজনের সঙ্গে আছি", "আমাকে ফোন দাও এখনই", "লাল ফাইলটা নিয়ে আসো"
-    };
-
-    // Combined emergency keywords array for backward compatibility
-    private static final String[] EMERGENCY_KEYWORDS = combineAllKeywords();
-
     public interface PhraseDetectionListener {
         void onEmergencyPhraseDetected(String phrase, float confidence);
         void onListeningStatusChanged(boolean isListening);
     }
 
-    /**
-     * Combine all keyword categories into a single array
-     */
-    private static String[] combineAllKeywords() {
-        int totalLength = COMMON_SOS_KEYWORDS.length + FEAR_PANIC_KEYWORDS.length +
-                         ATTACK_THREAT_KEYWORDS.length + EMOTIONAL_DISTRESS_KEYWORDS.length +
-                         CODED_SOS_KEYWORDS.length;
-
-        String[] combined = new String[totalLength];
-        int index = 0;
-
-        System.arraycopy(COMMON_SOS_KEYWORDS, 0, combined, index, COMMON_SOS_KEYWORDS.length);
-        index += COMMON_SOS_KEYWORDS.length;
-
-        System.arraycopy(FEAR_PANIC_KEYWORDS, 0, combined, index, FEAR_PANIC_KEYWORDS.length);
-        index += FEAR_PANIC_KEYWORDS.length;
-
-        System.arraycopy(ATTACK_THREAT_KEYWORDS, 0, combined, index, ATTACK_THREAT_KEYWORDS.length);
-        index += ATTACK_THREAT_KEYWORDS.length;
-
-        System.arraycopy(EMOTIONAL_DISTRESS_KEYWORDS, 0, combined, index, EMOTIONAL_DISTRESS_KEYWORDS.length);
-        index += EMOTIONAL_DISTRESS_KEYWORDS.length;
-
-        System.arraycopy(CODED_SOS_KEYWORDS, 0, combined, index, CODED_SOS_KEYWORDS.length);
-
-        return combined;
-    }
-
     public EmergencyPhraseDetector(Context context, PhraseDetectionListener listener) {
         this.context = context;
         this.listener = listener;
@@ -133,6 +70,8 @@ public class EmergencyPhraseDetector {
             public void onReadyForSpeech(Bundle params) {
                 Log.d(TAG, "Ready for speech");
                 isListening = true;
+                partialSession.reset();
+                utteranceTriggered = false;
                 if (listener != null) listener.onListeningStatusChanged(true);
             }
 
@@ -175,7 +114,9 @@ public class EmergencyPhraseDetector {
                 ArrayList<String> matches = results.getStringArrayList(SpeechRecognizer.RESULTS_RECOGNITION);
                 float[] confidences = results.getFloatArray(SpeechRecognizer.CONFIDENCE_SCORES);
 
-                if (matches != null && !matches.isEmpty()) {
+                if (utteranceTriggered) {
+                    Log.d(TAG, "Emergency already raised from partial results, skipping final results");
+                } else if (matches != null && !matches.isEmpty()) {
                     processResults(matches, confidences);
                 }
 
@@ -185,10 +126,11 @@ public class EmergencyPhraseDetector {
 
             @Override
             public void onPartialResults(Bundle partialResults) {
-                // Process partial results for faster response
+                // Process partial results for faster response: trigger mid-utterance,
+                // without waiting for the end-of-speech silence window
                 ArrayList<String> matches = partialResults.getStringArrayList(SpeechRecognizer.RESULTS_RECOGNITION);
-                if (matches != null && !matches.isEmpty()) {
-                    processResults(matches, null);
+                if (!utteranceTriggered && matches != null && !matches.isEmpty()) {
+                    utteranceTriggered = processPartialResult(matches.get(0));
                 }
             }
 
@@ -222,94 +164,62 @@ public class EmergencyPhraseDetector {
 
     /**
      * Process speech recognition results and check for emergency using semantic AI
+     * All alternatives are scored together, so the decision does not depend on their order
      */
     private void processResults(ArrayList<String> matches, float[] confidences) {
         Log.i(TAG, "=== Processing " + matches.size() + " recognition results ===");
-
         for (int i = 0; i < matches.size(); i++) {
-            String text = matches.get(i);
             float speechConfidence = (confidences != null && i < confidences.length) ? confidences[i] : 0.5f;
+            Log.i(TAG, "  [" + i + "] Recognized: \"" + matches.get(i) + "\" (confidence: " + speechConfidence + ")");
+        }
 
-            Log.i(TAG, "  [" + i + "] Recognized: \"" + text + "\" (confidence: " + speechConfidence + ")");
-
-            // Use AI-powered semantic intent classifier
-            EmergencyIntentClassifier.EmergencyClassification classification =
-                    EmergencyIntentClassifier.classifyIntent(text);
+        NBestIntentScorer.Decision decision = nBestScorer.score(matches, confidences);
 
-            // If semantic classifier detects emergency with good confidence
-            if (classification.isEmergency()) {
-                Log.i(TAG, "SEMANTIC EMERGENCY DETECTED: " + classification.type +
-                      " (confidence: " + classification.confidence + ") in phrase: " + text);
-                if (listener != null) {
-                    // Use average of speech confidence and semantic confidence
-                    float combinedConfidence = (speechConfidence + classification.confidence) / 2.0f;
-                    listener.onEmergencyPhraseDetected(text, combinedConfidence);
-                }
-                return; // Stop after first match
+        // If semantic classifier detects emergency with good confidence
+        if (decision.isEmergency()) {
+            String text = matches.get(decision.hypothesisIndex);
+            Log.i(TAG, "SEMANTIC EMERGENCY DETECTED: " + decision.type +
+                  " (posterior: " + decision.posterior + ") in phrase: " + text);
+            if (listener != null) {
+                listener.onEmergencyPhraseDetected(text, decision.posterior);
             }
+            return;
+        }
 
-            // Fallback: Check if text contains emergency keywords (backward compatibility)
-            String lowerText = text.toLowerCase();
-            Log.d(TAG, "  Checking for keywords in: \"" + lowerText + "\"");
-
-            // Check each category for better logging and context
-            String detectedCategory = getKeywordCategory(lowerText);
-            if (detectedCategory != null) {
-                Log.i(TAG, "  ✅ EMERGENCY KEYWORD DETECTED [" + detectedCategory + "] in phrase: \"" + text + "\"");
-                if (listener != null) {
-                    listener.onEmergencyPhraseDetected(text, speechConfidence);
-                }
-                return; // Stop after first match
-            } else {
-                Log.d(TAG, "  ❌ No emergency keyword found in: \"" + text + "\"");
+        // Fallback: keyword matching (backward compatibility)
+        if (decision.hasKeyword()) {
+            String text = matches.get(decision.keywordHypothesisIndex);
+            Log.i(TAG, "  ✅ EMERGENCY KEYWORD DETECTED [" + KEYWORD_CATEGORY_NAMES[decision.keywordCategory] +
+                  "] in phrase: \"" + text + "\" (posterior: " + decision.keywordPosterior + ")");
+            if (listener != null) {
+                listener.onEmergencyPhraseDetected(text, decision.keywordPosterior);
             }
+            return;
         }
 
         Log.d(TAG, "=== No emergency keywords detected in any results ===");
     }
 
     /**
-     * Get the category of a detected emergency keyword
-     * @param lowerText The text to check (should be lowercase)
-     * @return Category name or null if no keyword found
+     * Check the latest partial hypothesis of the current utterance with the intent classifier only;
+     * the keyword fallback waits for the final results
+     * @return true if an emergency was raised
      */
-    private String getKeywordCategory(String lowerText) {
-        // Check Common SOS / Help category
-        for (String keyword : COMMON_SOS_KEYWORDS) {
-            if (lowerText.contains(keyword.toLowerCase())) {
-                return "Common SOS/Help";
-            }
-        }
-
-        // Check Fear / Panic category
-        for (String keyword : FEAR_PANIC_KEYWORDS) {
-            if (lowerText.contains(keyword.toLowerCase())) {
-                return "Fear/Panic";
+    private boolean processPartialResult(String text) {
+        // Partial results carry no confidence scores
+        float speechConfidence = 0.5f;
+
+        EmergencyIntentClassifier.EmergencyClassification classification = partialSession.update(text);
+        if (classification.isEmergency()) {
+            Log.i(TAG, "SEMANTIC EMERGENCY DETECTED (partial): " + classification.type +
+                  " (confidence: " + classification.confidence + ") in phrase: " + text);
+            if (listener != null) {
+                float combinedConfidence = (speechConfidence + classification.confidence) / 2.0f;
+                listener.onEmergencyPhraseDetected(text, combinedConfidence);
             }
+            return true;
         }
-
-        // Check Attack / Threat category
-        for (String keyword : ATTACK_THREAT_KEYWORDS) {
-            if (lowerText.contains(keyword.toLowerCase())) {
-                return "Attack/Threat";
-            }
-        }
-
-        // Check Emotional Distress category
-        for (String keyword : EMOTIONAL_DISTRESS_KEYWORDS) {
-            if (lowerText.contains(keyword.toLowerCase())) {
-                return "Emotional Distress";
-            }
-        }
-
-        // Check Coded SOS category (these should be treated carefully)
-        for (String keyword : CODED_SOS_KEYWORDS) {
-            if (lowerText.contains(keyword.toLowerCase())) {
-                return "Coded SOS";
-            }
-        }
-
-        return null; // No keyword found
+        return false;
     }
 
     /**
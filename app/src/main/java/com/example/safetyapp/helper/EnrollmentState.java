@@ -0,0 +1,194 @@
+package com.example.safetyapp.helper;
+
+import android.content.Context;
+import android.util.Log;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Process-wide owner of the stored voice enrollment
+ * The speaker index is loaded from user_embedding.dat once and then shared from memory by every
+ * PersonalizedVoiceHelper, so per-window verification never touches the file system. A new or
+ * cleared enrollment goes through here, replacing the cached index and notifying listeners: a
+ * running detection service verifies against an enrollment the moment the activity stores it.
+ */
+public final class EnrollmentState {
+    private static final String TAG = "EnrollmentState";
+    private static final String EMBEDDING_FILE = "user_embedding.dat"; // A SpeakerIndex
+
+    /**
+     * Called on the thread that stored or cleared the enrollment
+     */
+    public interface Listener {
+        /**
+         * @param index The new enrollment, or null if it was cleared
+         */
+        void onEnrollmentChanged(SpeakerIndex index);
+    }
+
+    private static EnrollmentState instance;
+
+    private final File file;
+    private final File tempFile;
+    private final CopyOnWriteArrayList<Listener> listeners = new CopyOnWriteArrayList<>();
+
+    // Written under the lock; loaded stays true once the file has been looked at
+    private volatile boolean loaded;
+    private volatile SpeakerIndex index;
+
+    private EnrollmentState(Context context) {
+        File dir = context.getApplicationContext().getFilesDir();
+        this.file = new File(dir, EMBEDDING_FILE);
+        this.tempFile = new File(dir, EMBEDDING_FILE + ".tmp");
+    }
+
+    public static synchronized EnrollmentState getInstance(Context context) {
+        if (instance == null) {
+            instance = new EnrollmentState(context);
+        }
+        return instance;
+    }
+
+    /**
+     * The enrolled speaker index; the file is read on the first call only
+     * @return null if the user has not enrolled (or the stored file is unreadable)
+     */
+    public SpeakerIndex get() {
+        if (!loaded) {
+            synchronized (this) {
+                if (!loaded) {
+                    index = loadIndexFromFile();
+                    loaded = true;
+                }
+            }
+        }
+        return index;
+    }
+
+    public boolean isEnrolled() {
+        return get() != null;
+    }
+
+    /**
+     * Store a new enrollment, replacing any earlier one
+     * @return false if it could not be saved; the earlier enrollment is then kept
+     */
+    boolean store(SpeakerIndex newIndex) {
+        synchronized (this) {
+            if (!saveIndexToFile(newIndex)) {
+                return false;
+            }
+            index = newIndex;
+            loaded = true;
+        }
+        notifyListeners(newIndex);
+        return true;
+    }
+
+    /**
+     * @return false if there was no stored enrollment to delete
+     */
+    boolean clear() {
+        boolean deleted;
+        synchronized (this) {
+            deleted = file.exists() && file.delete();
+            if (!deleted) {
+                return false;
+            }
+            index = null;
+            loaded = true;
+        }
+        notifyListeners(null);
+        return true;
+    }
+
+    public void addListener(Listener listener) {
+        listeners.addIfAbsent(listener);
+    }
+
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    private void notifyListeners(SpeakerIndex newIndex) {
+        for (Listener listener : listeners) {
+            listener.onEnrollmentChanged(newIndex);
+        }
+    }
+
+    // ==== Storage ====
+
+    /**
+     * Written to a temporary file and renamed into place: a running detector may have the old
+     * file mapped, and rewriting it in place would change (or truncate) the pages under it
+     */
+    private boolean saveIndexToFile(SpeakerIndex index) {
+        try (OutputStream out = new BufferedOutputStream(new FileOutputStream(tempFile))) {
+            index.writeTo(out);
+        } catch (IOException e) {
+            Log.e(TAG, "Failed to save embedding", e);
+            tempFile.delete();
+            return false;
+        }
+        if (!tempFile.renameTo(file)) {
+            Log.e(TAG, "Failed to replace " + EMBEDDING_FILE);
+            tempFile.delete();
+            return false;
+        }
+        Log.d(TAG, "Embedding saved successfully");
+        return true;
+    }
+
+    /**
+     * Map the stored index; its samples are used straight from the mapping, so a cold start
+     * only checks the header - nothing is parsed, copied or even read from the matrix
+     */
+    private SpeakerIndex loadIndexFromFile() {
+        if (!file.exists()) {
+            Log.d(TAG, "Embedding file does not exist");
+            return null;
+        }
+
+        ByteBuffer buffer;
+        try (RandomAccessFile input = new RandomAccessFile(file, "r");
+             FileChannel channel = input.getChannel()) {
+            // The mapping stays valid after the channel is closed
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } catch (IOException e) {
+            Log.e(TAG, "Failed to load embedding", e);
+            return null;
+        }
+
+        try {
+            if (buffer.remaining() >= 4 && buffer.getInt(0) == SpeakerIndex.MAGIC) {
+                SpeakerIndex index = SpeakerIndex.read(buffer);
+                Log.d(TAG, "Embedding loaded from file (" + index.size() + " " + index.getKind() + " samples)");
+                // An older index was checked in full; rewrite it once so later starts skip that
+                if (index.getFormatVersion() < SpeakerIndex.FORMAT_VERSION && saveIndexToFile(index)) {
+                    Log.i(TAG, "Migrated " + EMBEDDING_FILE + " from index format " + index.getFormatVersion());
+                }
+                return index;
+            }
+
+            // A single signature from before the index; rewrite it once as a one-sample index
+            SpeakerEmbedding embedding = SpeakerEmbedding.read(buffer);
+            SpeakerIndex index = SpeakerIndex.of(embedding);
+            if (saveIndexToFile(index)) {
+                Log.i(TAG, "Migrated " + EMBEDDING_FILE + " from format " + embedding.getFormatVersion()
+                        + " (" + embedding.getKind() + "); enroll again to verify on several voice samples");
+            }
+            return index;
+        } catch (IOException e) {
+            Log.e(TAG, "Failed to load embedding", e);
+            return null;
+        }
+    }
+}
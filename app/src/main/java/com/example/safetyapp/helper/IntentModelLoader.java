@@ -0,0 +1,71 @@
+package com.example.safetyapp.helper;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.util.Log;
+
+import java.io.IOException;
+
+/**
+ * Selects the speech intent engine: the rule-based intent patterns or the learned hashed n-gram
+ * model (HashedIntentModel, trained with :detection-core:trainIntentModel and shipped as the
+ * intent_model.bin asset). The rules stay in use if the learned model cannot be loaded.
+ */
+public final class IntentModelLoader {
+    private static final String TAG = "IntentModelLoader";
+
+    // Settings key (AppSettingsPrefs)
+    private static final String PREF_INTENT_ENGINE = "intent_engine";
+
+    /**
+     * Which engine classifies speech transcripts
+     */
+    public enum Engine {
+        RULES,  // Hand-written intent patterns from the emergency lexicon (default)
+        LEARNED // Hashed n-gram linear model
+    }
+
+    private IntentModelLoader() {}
+
+    public static Engine getEngine(Context context) {
+        SharedPreferences prefs = context.getSharedPreferences("AppSettingsPrefs", Context.MODE_PRIVATE);
+        try {
+            return Engine.valueOf(prefs.getString(PREF_INTENT_ENGINE, Engine.RULES.name()));
+        } catch (IllegalArgumentException e) {
+            return Engine.RULES;
+        }
+    }
+
+    /**
+     * Save the engine choice and switch to it
+     */
+    public static void setEngine(Context context, Engine engine) {
+        context.getSharedPreferences("AppSettingsPrefs", Context.MODE_PRIVATE)
+                .edit().putString(PREF_INTENT_ENGINE, engine.name()).apply();
+        apply(context);
+    }
+
+    /**
+     * Switch to the saved engine; the learned model is loaded off the calling thread
+     */
+    public static void apply(Context context) {
+        if (getEngine(context) == Engine.RULES) {
+            EmergencyIntentClassifier.setLearnedModel(null);
+            return;
+        }
+
+        Context appContext = context.getApplicationContext();
+        new Thread(() -> {
+            try {
+                HashedIntentModel model = HashedIntentModel.read(
+                        TfliteModelLoader.loadMappedModel(appContext, HashedIntentModel.FILE_NAME));
+                // The choice may have changed while loading
+                if (getEngine(appContext) == Engine.LEARNED) {
+                    EmergencyIntentClassifier.setLearnedModel(model);
+                }
+            } catch (IOException e) {
+                Log.e(TAG, "Learned intent model unavailable, keeping the rule engine", e);
+            }
+        }, "IntentModelLoader").start();
+    }
+}
@@ -0,0 +1,23 @@
+package com.example.safetyapp.helper;
+
+import android.util.Log;
+
+/**
+ * Forwards detection-core logs to Logcat (DetectionLog levels match android.util.Log)
+ */
+public class LogcatDetectionSink implements DetectionLog.Sink {
+
+    @Override
+    public boolean isLoggable(String tag, int level) {
+        return Log.isLoggable(tag, level);
+    }
+
+    @Override
+    public void log(int level, String tag, String message, Throwable error) {
+        if (error != null) {
+            Log.println(level, tag, message + '\n' + Log.getStackTraceString(error));
+        } else {
+            Log.println(level, tag, message);
+        }
+    }
+}
@@ -0,0 +1,269 @@
+package com.example.safetyapp.helper;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.SystemClock;
+import android.util.Log;
+
+import org.tensorflow.lite.Interpreter;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Process-wide owner of the TFLite interpreters
+ * Every screen and service that needs a model acquires a reference-counted handle instead of
+ * building its own Interpreter, so each model is loaded (and warmed up) once no matter how many
+ * users are alive, and is closed when the last handle is released.
+ */
+public final class ModelRegistry {
+    private static final String TAG = "ModelRegistry";
+
+    public static final ModelSpec YAMNET = new ModelSpec("yamnet.tflite", new int[]{15600});
+    public static final ModelSpec SCREAM_CLASSIFIER = new ModelSpec("scream_classifier.tflite", new int[]{1, 521});
+    // Optional int8 gate model (float in/out) on SpectralGate band levels; see DetectionCascade
+    public static final ModelSpec LOUD_VOCALISATION = new ModelSpec("loud_vocalisation.tflite", new int[]{1, SpectralGate.BANDS});
+
+    // Settings keys (AppSettingsPrefs) - read once when the registry is created
+    private static final String PREF_NUM_THREADS = "tflite_num_threads";
+    private static final String PREF_ACCELERATOR = "tflite_accelerator";
+    private static final int DEFAULT_NUM_THREADS = 2;
+
+    /**
+     * Which TFLite backend executes the models
+     */
+    public enum Accelerator {
+        CPU,     // Reference CPU kernels
+        XNNPACK, // Optimised CPU kernels (default)
+        NNAPI    // Android Neural Networks API, falls back to CPU for unsupported ops
+    }
+
+    private static ModelRegistry instance;
+
+    private final Context appContext;
+    private final Map<String, Entry> entries = new HashMap<>();
+    private int numThreads;
+    private Accelerator accelerator;
+
+    private ModelRegistry(Context context) {
+        this.appContext = context.getApplicationContext();
+
+        SharedPreferences prefs = appContext.getSharedPreferences("AppSettingsPrefs", Context.MODE_PRIVATE);
+        this.numThreads = Math.max(1, prefs.getInt(PREF_NUM_THREADS, DEFAULT_NUM_THREADS));
+        try {
+            this.accelerator = Accelerator.valueOf(prefs.getString(PREF_ACCELERATOR, Accelerator.XNNPACK.name()));
+        } catch (IllegalArgumentException e) {
+            this.accelerator = Accelerator.XNNPACK;
+        }
+    }
+
+    public static synchronized ModelRegistry getInstance(Context context) {
+        if (instance == null) {
+            instance = new ModelRegistry(context);
+        }
+        return instance;
+    }
+
+    /**
+     * Change interpreter options. Only affects models loaded after this call;
+     * models that are currently held keep the options they were built with.
+     */
+    public synchronized void setOptions(int numThreads, Accelerator accelerator) {
+        this.numThreads = Math.max(1, numThreads);
+        this.accelerator = accelerator;
+    }
+
+    /**
+     * Get a handle to a model, loading and warming it up if no one holds it yet
+     * Blocking - call off the main thread. Every handle must be closed when no longer needed.
+     */
+    public synchronized ModelHandle acquire(ModelSpec spec) throws IOException {
+        Entry entry = entries.get(spec.assetName);
+        if (entry == null) {
+            entry = new Entry(spec.assetName, load(spec));
+            entries.put(spec.assetName, entry);
+        }
+        entry.refCount++;
+        Log.d(TAG, spec.assetName + " acquired (refs: " + entry.refCount + ")");
+        return new ModelHandle(entry);
+    }
+
+    /**
+     * Same as acquire(), for models the app can run without
+     * @return The handle, or null if the model is not installed or fails to load
+     */
+    public ModelHandle acquireOptional(ModelSpec spec) {
+        try {
+            return acquire(spec);
+        } catch (IOException e) {
+            Log.i(TAG, spec.assetName + " not available: " + e.getMessage());
+            return null;
+        }
+    }
+
+    private synchronized void release(Entry entry) {
+        entry.refCount--;
+        Log.d(TAG, entry.name + " released (refs: " + entry.refCount + ")");
+        if (entry.refCount > 0) return;
+
+        entries.remove(entry.name);
+        // Wait for any in-flight inference before freeing native memory
+        synchronized (entry) {
+            entry.interpreter.close();
+            entry.interpreter = null;
+        }
+        Log.i(TAG, entry.name + " unloaded");
+    }
+
+    private Interpreter load(ModelSpec spec) throws IOException {
+        long startTime = SystemClock.elapsedRealtime();
+
+        Interpreter.Options options = new Interpreter.Options();
+        options.setNumThreads(numThreads);
+        options.setUseXNNPACK(accelerator == Accelerator.XNNPACK);
+        options.setUseNNAPI(accelerator == Accelerator.NNAPI);
+
+        Interpreter interpreter = new Interpreter(TfliteModelLoader.loadMappedModel(appContext, spec.assetName), options);
+        long loadTime = SystemClock.elapsedRealtime() - startTime;
+
+        // One throwaway inference so the first real detection does not pay for
+        // tensor allocation and delegate initialisation
+        try {
+            warmUp(interpreter, spec.warmUpInputShape);
+        } catch (Exception e) {
+            Log.e(TAG, "Warm-up failed for " + spec.assetName, e);
+        }
+
+        Log.i(TAG, spec.assetName + " loaded in " + loadTime + "ms, warmed up in "
+                + (SystemClock.elapsedRealtime() - startTime - loadTime) + "ms ("
+                + accelerator + ", " + numThreads + " threads)");
+        return interpreter;
+    }
+
+    private static void warmUp(Interpreter interpreter, int[] inputShape) {
+        interpreter.resizeInput(0, inputShape);
+        interpreter.allocateTensors();
+
+        Object[] inputs = new Object[interpreter.getInputTensorCount()];
+        for (int i = 0; i < inputs.length; i++) {
+            inputs[i] = zeroBuffer(interpreter.getInputTensor(i).numBytes());
+        }
+
+        Map<Integer, Object> outputs = new HashMap<>();
+        for (int i = 0; i < interpreter.getOutputTensorCount(); i++) {
+            outputs.put(i, zeroBuffer(interpreter.getOutputTensor(i).numBytes()));
+        }
+
+        interpreter.runForMultipleInputsOutputs(inputs, outputs);
+    }
+
+    /**
+     * Zeroed direct buffer in native byte order for count float32 values
+     * The interpreter binds such buffers to its tensors without marshalling Java arrays.
+     */
+    public static ByteBuffer allocateFloatBuffer(int count) {
+        return zeroBuffer(count * 4);
+    }
+
+    private static ByteBuffer zeroBuffer(int numBytes) {
+        return ByteBuffer.allocateDirect(numBytes).order(ByteOrder.nativeOrder());
+    }
+
+    /**
+     * A model asset plus the input shape used to warm it up
+     */
+    public static final class ModelSpec {
+        final String assetName;
+        final int[] warmUpInputShape;
+
+        public ModelSpec(String assetName, int[] warmUpInputShape) {
+            this.assetName = assetName;
+            this.warmUpInputShape = warmUpInputShape;
+        }
+    }
+
+    private static final class Entry {
+        final String name;
+        Interpreter interpreter;
+        int refCount;
+
+        Entry(String name, Interpreter interpreter) {
+            this.name = name;
+            this.interpreter = interpreter;
+        }
+    }
+
+    /**
+     * The inference calls ScreamInferenceWorkspace makes; lets tests stand in for an interpreter
+     */
+    interface Runner {
+        void run(Object input, Object output);
+
+        void runForMultipleInputsOutputs(Object[] inputs, int[] inputShape, Map<Integer, Object> outputs);
+    }
+
+    /**
+     * One user's reference to a shared model
+     * Inference calls are serialised per model, since an Interpreter is not thread-safe.
+     */
+    public final class ModelHandle implements Runner {
+        private final Entry entry;
+        private boolean closed = false;
+
+        private ModelHandle(Entry entry) {
+            this.entry = entry;
+        }
+
+        @Override
+        public void run(Object input, Object output) {
+            synchronized (entry) {
+                checkLoaded().run(input, output);
+            }
+        }
+
+        public void runForMultipleInputsOutputs(Object[] inputs, Map<Integer, Object> outputs) {
+            synchronized (entry) {
+                checkLoaded().runForMultipleInputsOutputs(inputs, outputs);
+            }
+        }
+
+        /**
+         * Same as runForMultipleInputsOutputs(), resizing input 0 to inputShape first (a no-op if
+         * it already has it). Direct buffers carry no shape, and another holder of this model may
+         * have resized it.
+         */
+        @Override
+        public void runForMultipleInputsOutputs(Object[] inputs, int[] inputShape, Map<Integer, Object> outputs) {
+            synchronized (entry) {
+                Interpreter interpreter = checkLoaded();
+                interpreter.resizeInput(0, inputShape);
+                interpreter.runForMultipleInputsOutputs(inputs, outputs);
+            }
+        }
+
+        private Interpreter checkLoaded() {
+            if (closed || entry.interpreter == null) {
+                throw new IllegalStateException(entry.name + " handle already released");
+            }
+            return entry.interpreter;
+        }
+
+        public String getName() {
+            return entry.name;
+        }
+
+        /**
+         * Drop this reference. Safe to call more than once.
+         */
+        public void close() {
+            synchronized (this) {
+                if (closed) return;
+                closed = true;
+            }
+            release(entry);
+        }
+    }
+}
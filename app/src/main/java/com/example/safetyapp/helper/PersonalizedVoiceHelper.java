@@ -3,107 +3,122 @@ package com.example.safetyapp.helper;
 import android.content.Context;
 import android.util.Log;
 
-import org.tensorflow.lite.Interpreter;
-
-import java.io.*;
-import java.nio.ByteBuffer;
-import java.nio.ByteOrder;
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.List;
+import java.nio.FloatBuffer;
 
 public class PersonalizedVoiceHelper {
     private static final String TAG = "VoiceHelper";
-    private static final String EMBEDDING_FILE = "user_embedding.dat";
-    private static final float MATCH_THRESHOLD = 0.30f; // Lowered for better matching
-    private static final float MIN_ENROLL_RMS = 0.08f;  // Lowered for enrollment
+    // verify() runs once per audio window - keep its debug strings off the hot path unless enabled
+    private static final boolean DEBUG_LOGGING = Log.isLoggable(TAG, Log.DEBUG);
     private static final float MIN_VERIFY_RMS = 0.03f;  // Very low to catch quiet distress
-
-    private final Context context;
-    private final Interpreter yamnetInterpreter;
-    private float[] storedEmbedding;
-
-    public PersonalizedVoiceHelper(Context context, Interpreter yamnetInterpreter) {
-        this.context = context;
-        this.yamnetInterpreter = yamnetInterpreter;
+    static final int WINDOW_SAMPLES = 15600;    // One YAMNet patch (0.975s at 16 kHz)
+    static final int WINDOW_HOP = WINDOW_SAMPLES / 2;
+
+    private final EnrollmentState enrollment; // Shared; no file system access per window
+    private final ModelRegistry.ModelHandle yamnetModel;
+    private ScreamInferenceWorkspace workspace; // Created on first inference
+
+    /**
+     * @param yamnetModel Shared YAMNet handle; owned by the caller, may be null if only
+     *                    embedding storage is used
+     */
+    public PersonalizedVoiceHelper(Context context, ModelRegistry.ModelHandle yamnetModel) {
+        this.enrollment = EnrollmentState.getInstance(context);
+        this.yamnetModel = yamnetModel;
     }
 
     // ==== RMS Calculation Methods ====
     public static float calculateRMS(short[] audioData) {
-        double sum = 0.0;
-        for (short s : audioData) {
-            sum += s * s;
-        }
-        return (float) Math.sqrt(sum / audioData.length) / 32768f;
+        return calculateRMS(audioData, 0, audioData.length);
     }
 
-    private float calculateRMS(float[] audioData) {
+    public static float calculateRMS(short[] audioData, int offset, int length) {
         double sum = 0.0;
-        for (float sample : audioData) {
-            sum += sample * sample;
+        for (int i = offset; i < offset + length; i++) {
+            sum += audioData[i] * audioData[i];
         }
-        return (float) Math.sqrt(sum / audioData.length);
+        return (float) Math.sqrt(sum / length) / 32768f;
     }
 
     // ==== Enrollment ====
-    public boolean enroll(File wavFile) {
-        float[] audioData = readWavFileMono16kPCM(wavFile);
-        if (audioData == null) {
-            Log.e(TAG, "Failed to read WAV file");
+
+    /**
+     * Start an enrollment fed straight from the microphone (one recording per prompt); every
+     * good window becomes one sample of the speaker index. The stored enrollment is replaced
+     * only when the session finishes.
+     */
+    public VoiceEnrollmentSession startEnrollment() {
+        return new VoiceEnrollmentSession(this);
+    }
+
+    /**
+     * Store a finished enrollment and verify against it from now on
+     */
+    boolean commitEnrollment(SpeakerIndex index) {
+        if (!enrollment.store(index)) {
             return false;
         }
+        Log.i(TAG, "Enrolled " + index.size() + " voice samples");
+        return true;
+    }
 
-        // Check audio loudness
-        float rms = calculateRMS(audioData);
-        if (rms < MIN_ENROLL_RMS) {
-            Log.e(TAG, "Enrollment failed: Audio too quiet (RMS: " + rms + ")");
+    // ==== Verification ====
+
+    /**
+     * Verify against the YAMNet outputs of an AcousticAnalyzer pass
+     */
+    public boolean verify(AcousticVerdict verdict, short[] audioData) {
+        SpeakerIndex index = enrollment.get();
+        if (index == null || verdict == null) {
+            Log.w(TAG, "Verification failed: Missing embeddings");
             return false;
         }
-
-        float[] embedding = runYamnet(audioData);
-        if (embedding == null) {
-            Log.e(TAG, "Failed to generate embedding");
+        if (!isLoudEnough(audioData)) {
             return false;
         }
-
-        return saveEmbeddingToFile(embedding);
+        // Compare on the output the samples were taken from
+        float similarity = index.getKind() == SpeakerEmbedding.Kind.CLASS_SCORES
+                ? index.similarity(verdict.getScores().values, SpeakerIndex.DEFAULT_TOP_K)
+                : index.similarity(verdict.getEmbedding(), SpeakerIndex.DEFAULT_TOP_K);
+        return isMatch(index, similarity);
     }
 
-    // ==== Verification ====
-    public boolean verify(float[] liveEmbedding, short[] audioData) {
-        if (storedEmbedding == null || liveEmbedding == null) {
+    /**
+     * @param liveOutput YAMNet output of the same kind as the enrolled samples
+     */
+    public boolean verify(float[] liveOutput, short[] audioData) {
+        SpeakerIndex index = enrollment.get();
+        if (index == null || liveOutput == null) {
             Log.w(TAG, "Verification failed: Missing embeddings");
             return false;
         }
+        if (!isLoudEnough(audioData)) {
+            return false;
+        }
+        return isMatch(index, index.similarity(liveOutput, SpeakerIndex.DEFAULT_TOP_K));
+    }
 
-        // Check audio loudness first
+    private boolean isLoudEnough(short[] audioData) {
         float rms = calculateRMS(audioData);
         if (rms < MIN_VERIFY_RMS) {
-            Log.d(TAG, "Verification skipped: Audio too quiet (RMS: " + rms + ")");
+            if (DEBUG_LOGGING) Log.d(TAG, "Verification skipped: Audio too quiet (RMS: " + rms + ")");
             return false;
         }
-
-        // Calculate cosine similarity
-        float similarity = calculateCosineSimilarity(storedEmbedding, liveEmbedding);
-        Log.d(TAG, "Verification: Similarity=" + similarity + " RMS=" + rms);
-
-        return similarity >= MATCH_THRESHOLD;
+        return true;
     }
 
-    private float calculateCosineSimilarity(float[] a, float[] b) {
-        float dot = 0f, normA = 0f, normB = 0f;
-        for (int i = 0; i < a.length; i++) {
-            dot += a[i] * b[i];
-            normA += a[i] * a[i];
-            normB += b[i] * b[i];
-        }
-        return dot / ((float) Math.sqrt(normA) * (float) Math.sqrt(normB));
+    private boolean isMatch(SpeakerIndex index, float similarity) {
+        if (DEBUG_LOGGING) Log.d(TAG, "Verification: Similarity=" + similarity + " (top " + SpeakerIndex.DEFAULT_TOP_K
+                + " of " + index.size() + " " + index.getKind() + ")");
+        return similarity >= index.getKind().matchThreshold;
     }
 
     // ==== Loading ====
+
+    /**
+     * Load the stored enrollment ahead of the first verification; the file is read once per process
+     */
     public boolean loadStoredEmbedding() {
-        storedEmbedding = loadEmbeddingFromFile();
-        if (storedEmbedding == null) {
+        if (!enrollment.isEnrolled()) {
             Log.d(TAG, "No stored embedding found");
             return false;
         }
@@ -112,103 +127,56 @@ public class PersonalizedVoiceHelper {
     }
 
     // ==== YAMNet Inference ====
-    public synchronized float[] runYamnet(float[] audioData) {
-        float[][] output = new float[1][521];
-        Object[] inputs = new Object[]{audioData};
-        HashMap<Integer, Object> outputs = new HashMap<>();
-        outputs.put(0, output);
 
+    /**
+     * Add YAMNet's embedding of one enrollment window to the index
+     * @return false if inference failed
+     */
+    synchronized boolean addSample(SpeakerIndex.Builder builder, short[] window) {
+        ScreamInferenceWorkspace yamnet = getWorkspace();
         try {
-            yamnetInterpreter.runForMultipleInputsOutputs(inputs, outputs);
-            return output[0];
+            yamnet.fillInput(window);
+            yamnet.runYamnet(yamnetModel);
+            if (!builder.add(yamnet.getYamnetEmbedding())) {
+                Log.d(TAG, "Skipped an all-zero embedding");
+            }
+            return true;
         } catch (Exception e) {
             Log.e(TAG, "YAMNet inference failed", e);
-            return null;
+            return false;
         }
     }
 
-    // ==== WAV to PCM Float Conversion ====
-    private float[] readWavFileMono16kPCM(File file) {
-        try (FileInputStream fis = new FileInputStream(file)) {
-            byte[] header = new byte[44];
-            if (fis.read(header) != 44) {
-                Log.e(TAG, "Invalid WAV header length");
-                return null;
-            }
-
-            // Validate RIFF and WAVE headers
-            String chunkID = new String(header, 0, 4);
-            String format = new String(header, 8, 4);
-            if (!"RIFF".equals(chunkID) || !"WAVE".equals(format)) {
-                Log.e(TAG, "Invalid WAV file: not RIFF/WAVE");
-                return null;
-            }
-
-            // Read remaining audio data
-            int dataSize = fis.available();
-            byte[] audioBytes = new byte[dataSize];
-            if (fis.read(audioBytes) != dataSize) {
-                Log.e(TAG, "Could not read WAV audio data fully");
-                return null;
-            }
-
-            int numSamples = dataSize / 2;
-            float[] audio = new float[numSamples];
-            ByteBuffer buffer = ByteBuffer.wrap(audioBytes).order(ByteOrder.LITTLE_ENDIAN);
-
-            for (int i = 0; i < numSamples; i++) {
-                short sample = buffer.getShort();
-                audio[i] = sample / 32768.0f; // normalize to [-1.0, 1.0]
-            }
-            return audio;
+    /**
+     * Similarity of one live window to the enrolled samples
+     * @return The similarity, or NaN if inference failed
+     */
+    private synchronized float computeSimilarity(SpeakerIndex index, short[] audioData) {
+        ScreamInferenceWorkspace yamnet = getWorkspace();
+        try {
+            yamnet.fillInput(audioData);
+            FloatBuffer scores = yamnet.runYamnet(yamnetModel);
+            FloatBuffer live = index.getKind() == SpeakerEmbedding.Kind.CLASS_SCORES ? scores : yamnet.getYamnetEmbedding();
+            return index.similarity(live, SpeakerIndex.DEFAULT_TOP_K);
         } catch (Exception e) {
-            Log.e(TAG, "Failed to read WAV", e);
-            return null;
-        }
-    }
-
-    // ==== Embedding Management ====
-    private boolean saveEmbeddingToFile(float[] embedding) {
-        File file = new File(context.getFilesDir(), EMBEDDING_FILE);
-        try (DataOutputStream dos = new DataOutputStream(new FileOutputStream(file))) {
-            for (float v : embedding) {
-                dos.writeFloat(v);
-            }
-            Log.d(TAG, "Embedding saved successfully");
-            return true;
-        } catch (IOException e) {
-            Log.e(TAG, "Failed to save embedding", e);
-            return false;
+            Log.e(TAG, "YAMNet inference failed", e);
+            return Float.NaN;
         }
     }
 
-    private float[] loadEmbeddingFromFile() {
-        File file = new File(context.getFilesDir(), EMBEDDING_FILE);
-        if (!file.exists()) {
-            Log.d(TAG, "Embedding file does not exist");
-            return null;
-        }
-
-        try (DataInputStream dis = new DataInputStream(new FileInputStream(file))) {
-            float[] embedding = new float[521];
-            for (int i = 0; i < 521; i++) {
-                embedding[i] = dis.readFloat();
-            }
-            Log.d(TAG, "Embedding loaded from file");
-            return embedding;
-        } catch (IOException e) {
-            Log.e(TAG, "Failed to load embedding", e);
-            return null;
+    // Direct tensor buffers, reused for every window; no pre-emphasis, like the original enrollment
+    private ScreamInferenceWorkspace getWorkspace() {
+        if (workspace == null) {
+            workspace = new ScreamInferenceWorkspace(WINDOW_SAMPLES, false);
         }
+        return workspace;
     }
 
     public boolean matchVoice(short[] audioData) {
-        // Load stored embedding if not loaded yet
-        if (storedEmbedding == null) {
-            if (!loadStoredEmbedding()) {
-                Log.e(TAG, "No stored embedding for matching");
-                return false;
-            }
+        SpeakerIndex index = enrollment.get();
+        if (index == null) {
+            Log.e(TAG, "No stored embedding for matching");
+            return false;
         }
 
         // Check RMS loudness
@@ -218,36 +186,30 @@ public class PersonalizedVoiceHelper {
             return false;
         }
 
-        // Convert short[] PCM to float[] PCM normalized for YAMNet
-        float[] floatAudio = new float[audioData.length];
-        for (int i = 0; i < audioData.length; i++) {
-            floatAudio[i] = audioData[i] / 32768.0f;
-        }
-
         // Run YAMNet on current audio
-        float[] liveEmbedding = runYamnet(floatAudio);
-        if (liveEmbedding == null) {
+        float similarity = computeSimilarity(index, audioData);
+        if (Float.isNaN(similarity)) {
             Log.e(TAG, "Failed to get live embedding for matching");
             return false;
         }
 
         // Verify similarity
-        return verify(liveEmbedding, audioData);
+        return isMatch(index, similarity);
     }
 
     // ==== Reset ====
     public boolean clearSavedEmbedding() {
-        File file = new File(context.getFilesDir(), EMBEDDING_FILE);
-        boolean deleted = file.exists() && file.delete();
+        boolean deleted = enrollment.clear();
         if (deleted) {
-            storedEmbedding = null;
             Log.d(TAG, "Embedding cleared successfully");
         }
         return deleted;
     }
 
+    /**
+     * From memory; the running service calls this for every window
+     */
     public boolean hasStoredEmbedding() {
-        File file = new File(context.getFilesDir(), EMBEDDING_FILE);
-        return file.exists();
+        return enrollment.isEnrolled();
     }
 }
\ No newline at end of file
@@ -0,0 +1,136 @@
+package com.example.safetyapp.helper;
+
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Preallocated tensor buffers for one scream detection pipeline (YAMNet + scream classifier)
+ * Inputs and outputs are direct buffers in native byte order, which the interpreter binds to its
+ * tensors without marshalling Java arrays: audio is converted straight into YAMNet's input, and
+ * YAMNet's output buffer is bound as-is as the scream classifier's input. The same YAMNet call also
+ * captures its 1024-d embedding output, used for speaker verification. Every buffer is created
+ * once, so steady-state inference performs no heap allocations per audio chunk.
+ * Not thread-safe - one per pipeline thread.
+ */
+public class ScreamInferenceWorkspace {
+    public static final int YAMNET_CLASSES = ScoreFrame.NUM_CLASSES;
+    public static final int YAMNET_EMBEDDING_SIZE = SpeakerEmbedding.EMBEDDING_SIZE;
+
+    // YAMNet output tensors
+    static final int YAMNET_SCORES_OUTPUT = 0;
+    static final int YAMNET_EMBEDDING_OUTPUT = 1;
+
+    private static final float PCM_SCALE = 1.0f / 32767f;
+    private static final float PRE_EMPHASIS_COEFF = 0.97f;
+
+    private final boolean preEmphasis;
+
+    // YAMNet input / output; the float views share the direct buffers' memory
+    private final int[] yamnetInputShape;
+    private final ByteBuffer yamnetInput;
+    private final FloatBuffer yamnetInputFloats;
+    private final Object[] yamnetInputs;
+    private final ByteBuffer yamnetScores = ModelRegistry.allocateFloatBuffer(YAMNET_CLASSES);
+    private final FloatBuffer yamnetScoreFloats = yamnetScores.asFloatBuffer();
+    private final ByteBuffer yamnetEmbedding = ModelRegistry.allocateFloatBuffer(YAMNET_EMBEDDING_SIZE);
+    private final FloatBuffer yamnetEmbeddingFloats = yamnetEmbedding.asFloatBuffer();
+    private final Map<Integer, Object> yamnetOutputs = new HashMap<>();
+
+    // Scream classifier output (its input is yamnetScores itself)
+    private final ByteBuffer screamOutput = ModelRegistry.allocateFloatBuffer(1);
+
+    /**
+     * @param windowLength Samples per inference window
+     * @param preEmphasis Whether to apply the pre-emphasis filter while converting
+     */
+    public ScreamInferenceWorkspace(int windowLength, boolean preEmphasis) {
+        this.preEmphasis = preEmphasis;
+        this.yamnetInputShape = new int[]{windowLength};
+        this.yamnetInput = ModelRegistry.allocateFloatBuffer(windowLength);
+        this.yamnetInputFloats = yamnetInput.asFloatBuffer();
+        this.yamnetInputs = new Object[]{yamnetInput};
+        this.yamnetOutputs.put(YAMNET_SCORES_OUTPUT, yamnetScores);
+        this.yamnetOutputs.put(YAMNET_EMBEDDING_OUTPUT, yamnetEmbedding);
+    }
+
+    /**
+     * Convert 16-bit PCM to float [-1, 1] and apply pre-emphasis in a single pass,
+     * writing straight into the YAMNet input tensor buffer
+     */
+    public FloatBuffer fillInput(short[] pcm) {
+        return fillInput(pcm, 0, pcm.length);
+    }
+
+    /**
+     * Same as fillInput(short[]) for part of a longer recording; zero-padded if shorter than
+     * the window
+     */
+    public FloatBuffer fillInput(short[] pcm, int offset, int count) {
+        int windowLength = yamnetInputFloats.capacity();
+        int length = Math.min(count, windowLength);
+        float previous = 0f;
+        for (int i = 0; i < length; i++) {
+            float current = pcm[offset + i] * PCM_SCALE;
+            yamnetInputFloats.put(i, (preEmphasis && i > 0) ? current - PRE_EMPHASIS_COEFF * previous : current);
+            previous = current;
+        }
+        for (int i = length; i < windowLength; i++) {
+            yamnetInputFloats.put(i, 0f);
+        }
+        return yamnetInputFloats;
+    }
+
+    /**
+     * Run YAMNet on the current input, capturing its class scores and its embedding
+     * @return The 521 class scores; owned by this workspace and overwritten by the next call
+     */
+    public FloatBuffer runYamnet(ModelRegistry.ModelHandle yamnet) {
+        return runYamnet((ModelRegistry.Runner) yamnet);
+    }
+
+    FloatBuffer runYamnet(ModelRegistry.Runner yamnet) {
+        // The interpreter writes outputs from the buffer's position; inputs are bound whole
+        yamnetInput.rewind();
+        yamnetScores.rewind();
+        yamnetEmbedding.rewind();
+        yamnet.runForMultipleInputsOutputs(yamnetInputs, yamnetInputShape, yamnetOutputs);
+        return yamnetScoreFloats;
+    }
+
+    /**
+     * Run the scream classifier on the scores from the last runYamnet call
+     * @return Scream probability
+     */
+    public float runScreamClassifier(ModelRegistry.ModelHandle screamClassifier) {
+        return runScreamClassifier((ModelRegistry.Runner) screamClassifier);
+    }
+
+    float runScreamClassifier(ModelRegistry.Runner screamClassifier) {
+        yamnetScores.rewind();
+        screamOutput.rewind();
+        screamClassifier.run(yamnetScores, screamOutput);
+        return screamOutput.getFloat(0);
+    }
+
+    // The buffers exactly as runYamnet / runScreamClassifier bind them, for tests
+    ByteBuffer yamnetInputTensor() {
+        return yamnetInput;
+    }
+
+    ByteBuffer screamClassifierInputTensor() {
+        return yamnetScores;
+    }
+
+    public FloatBuffer getYamnetScores() {
+        return yamnetScoreFloats;
+    }
+
+    /**
+     * YAMNet's 1024-d embedding from the last runYamnet call
+     */
+    public FloatBuffer getYamnetEmbedding() {
+        return yamnetEmbeddingFloats;
+    }
+}
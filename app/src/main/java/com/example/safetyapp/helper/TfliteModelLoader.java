@@ -0,0 +1,74 @@
+package com.example.safetyapp.helper;
+
+import android.content.Context;
+import android.content.res.AssetFileDescriptor;
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.io.BufferedReader;
+import java.io.FileInputStream;
+import java.io.FileReader;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Loads TFLite models straight from the APK with a read-only memory map
+ * The model bytes are never copied onto the Java or native heap; the pages are file-backed,
+ * shared between interpreters and can be reclaimed by the OS under memory pressure.
+ * Requires the .tflite assets to be stored uncompressed (see noCompress in build.gradle.kts).
+ */
+public final class TfliteModelLoader {
+    private static final String TAG = "TfliteModelLoader";
+
+    private TfliteModelLoader() {}
+
+    /**
+     * Memory-map a model from the assets folder
+     * @throws IOException if the asset is missing or stored compressed
+     */
+    public static MappedByteBuffer loadMappedModel(Context context, String assetName) throws IOException {
+        long startTime = SystemClock.elapsedRealtime();
+
+        try (AssetFileDescriptor fileDescriptor = context.getAssets().openFd(assetName);
+             FileInputStream inputStream = new FileInputStream(fileDescriptor.getFileDescriptor());
+             FileChannel fileChannel = inputStream.getChannel()) {
+
+            // The mapping stays valid after the channel is closed
+            MappedByteBuffer modelBuffer = fileChannel.map(
+                    FileChannel.MapMode.READ_ONLY,
+                    fileDescriptor.getStartOffset(),
+                    fileDescriptor.getDeclaredLength()
+            );
+
+            Log.i(TAG, "Mapped " + assetName + " (" + fileDescriptor.getDeclaredLength() / 1024 + " KB) in "
+                    + (SystemClock.elapsedRealtime() - startTime) + "ms");
+            return modelBuffer;
+        }
+    }
+
+    /**
+     * Log current and peak resident memory of this process (VmRSS / VmHWM from /proc/self/status)
+     * Used to compare model loading cost before and after changes.
+     */
+    public static void logMemoryUsage(String label) {
+        String rss = null;
+        String peak = null;
+
+        try (BufferedReader reader = new BufferedReader(new FileReader("/proc/self/status"))) {
+            String line;
+            while ((line = reader.readLine()) != null && (rss == null || peak == null)) {
+                if (line.startsWith("VmRSS:")) {
+                    rss = line.substring(6).trim();
+                } else if (line.startsWith("VmHWM:")) {
+                    peak = line.substring(6).trim();
+                }
+            }
+        } catch (IOException e) {
+            Log.e(TAG, "Could not read process memory stats", e);
+            return;
+        }
+
+        Log.i(TAG, label + " - RSS: " + rss + ", peak RSS: " + peak);
+    }
+}
@@ -0,0 +1,144 @@
+package com.example.safetyapp.helper;
+
+import android.util.Log;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One voice enrollment, fed straight from the microphone
+ * Captured audio is cut into half-overlapping YAMNet windows as it arrives; each good window
+ * (see EnrollmentWindower) is embedded on a background thread while the user is still speaking,
+ * so when the last prompt ends only its final window is left to run. A prompt whose recording
+ * is rejected can be dropped with all of its samples.
+ * write() and endPrompt() are called from the recording thread, one recording at a time.
+ */
+public class VoiceEnrollmentSession implements EnrollmentWindower.Listener {
+    private static final String TAG = "VoiceEnrollment";
+    private static final long FINISH_TIMEOUT_SECONDS = 10;
+
+    private final PersonalizedVoiceHelper helper;
+    private final EnrollmentWindower windower =
+            new EnrollmentWindower(PersonalizedVoiceHelper.WINDOW_SAMPLES, PersonalizedVoiceHelper.WINDOW_HOP);
+    private final ExecutorService worker = Executors.newSingleThreadExecutor(r -> new Thread(r, TAG));
+
+    // Worker thread only
+    private final SpeakerIndex.Builder builder = SpeakerIndex.builder(SpeakerEmbedding.Kind.YAMNET_EMBEDDING);
+    private int promptStart;
+
+    private volatile boolean failed;
+    private volatile boolean cancelled;
+    private volatile int samples;
+
+    VoiceEnrollmentSession(PersonalizedVoiceHelper helper) {
+        this.helper = helper;
+    }
+
+    /**
+     * Feed captured audio of the current prompt; never blocks on inference
+     */
+    public void write(short[] pcm, int offset, int length) {
+        if (cancelled) return;
+        windower.write(pcm, offset, length, this);
+    }
+
+    @Override
+    public void onWindow(short[] window, EnrollmentWindower.Quality quality, float rms) {
+        if (quality != EnrollmentWindower.Quality.GOOD) {
+            Log.d(TAG, "Window skipped: " + quality + " (RMS: " + rms + ")");
+            return;
+        }
+        short[] copy = window.clone(); // The windower reuses its buffer
+        submit(() -> {
+            if (failed || cancelled) return;
+            if (!helper.addSample(builder, copy)) {
+                failed = true;
+                return;
+            }
+            samples = builder.size();
+        });
+    }
+
+    /**
+     * Windows of the given quality in the current prompt so far
+     */
+    public int getPromptWindows(EnrollmentWindower.Quality quality) {
+        return windower.getCount(quality);
+    }
+
+    /**
+     * Voice samples embedded so far, across prompts
+     */
+    public int getSampleCount() {
+        return samples;
+    }
+
+    /**
+     * End the current prompt's recording
+     * @param keep false to drop its samples (e.g. the user did not speak up), true to keep them
+     */
+    public void endPrompt(boolean keep) {
+        windower.reset();
+        submit(() -> {
+            if (!keep) builder.truncate(promptStart);
+            promptStart = builder.size();
+            samples = promptStart;
+        });
+    }
+
+    // In order on the worker; dropped once the session is cancelled
+    private void submit(Runnable task) {
+        try {
+            worker.execute(task);
+        } catch (RejectedExecutionException e) {
+            Log.d(TAG, "Enrollment already finished or cancelled");
+        }
+    }
+
+    /**
+     * Embed the windows still queued and store the enrollment, replacing any earlier one
+     * Call after endPrompt() of the last prompt.
+     * @return false if no usable sample was recorded, inference failed, saving failed or the
+     *         session was cancelled
+     */
+    public boolean finish() {
+        if (cancelled) return false;
+        worker.shutdown();
+        try {
+            if (!worker.awaitTermination(FINISH_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                Log.e(TAG, "Enrollment timed out");
+                worker.shutdownNow();
+                return false;
+            }
+        } catch (InterruptedException e) {
+            worker.shutdownNow();
+            Thread.currentThread().interrupt();
+            return false;
+        }
+
+        if (cancelled) {
+            Log.d(TAG, "Enrollment cancelled");
+            return false;
+        }
+        if (failed) {
+            Log.e(TAG, "Enrollment failed: YAMNet inference failed");
+            return false;
+        }
+        if (builder.size() == 0) {
+            Log.e(TAG, "Enrollment failed: Audio too quiet");
+            return false;
+        }
+        return helper.commitEnrollment(builder.build());
+    }
+
+    /**
+     * Abandon the enrollment; the stored one is left as it was, even if finish() is called
+     * afterwards (or is waiting already)
+     */
+    public void cancel() {
+        cancelled = true;
+        worker.shutdownNow();
+    }
+}
@@ -7,14 +7,12 @@ import android.app.NotificationManager;
 import android.app.Service;
 import android.content.Intent;
 import android.content.pm.PackageManager;
-import android.media.AudioFormat;
-import android.media.AudioRecord;
-import android.media.MediaRecorder;
 import android.os.Build;
 import android.os.Handler;
 import android.os.IBinder;
 import android.os.Looper;
 import android.os.PowerManager;
+import android.os.SystemClock;
 import android.util.Log;
 import android.widget.Toast;
 
@@ -24,22 +22,25 @@ import androidx.core.app.NotificationCompat;
 
 import com.example.safetyapp.EvidenceRecordingActivity;
 import com.example.safetyapp.R;
+import com.example.safetyapp.helper.AcousticAnalyzer;
+import com.example.safetyapp.helper.AcousticVerdict;
+import com.example.safetyapp.helper.AudioCaptureHub;
+import com.example.safetyapp.helper.AudioFanOut;
+import com.example.safetyapp.helper.DetectionCascade;
 import com.example.safetyapp.helper.EmergencyMessageHelperService;
+import com.example.safetyapp.helper.EnrollmentState;
+import com.example.safetyapp.helper.EmergencyTypeDetector;
+import com.example.safetyapp.helper.ModelRegistry;
 import com.example.safetyapp.helper.PersonalizedVoiceHelper;
+import com.example.safetyapp.helper.TfliteModelLoader;
 
-import org.tensorflow.lite.Interpreter;
-
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.io.InputStream;
-import java.nio.ByteBuffer;
-import java.nio.ByteOrder;
-import java.util.HashMap;
-import java.util.Map;
 
 public class VoiceDetectionService extends Service {
 
     private static final String TAG = "VoiceDetectionService";
+    // Per-window debug logs build strings on the audio thread - only when explicitly enabled
+    private static final boolean DEBUG_LOGGING = Log.isLoggable(TAG, Log.DEBUG);
 
     private static final int NOTIFICATION_ID = 1;
     private static final String CHANNEL_ID = "VoiceDetectionChannel";
@@ -55,21 +56,34 @@ public class VoiceDetectionService extends Service {
     private static final int CONSECUTIVE_POSITIVES_REQUIRED = 1; // Instant trigger - no confirmation needed
     private static final long COOLDOWN_MS = 30_000;
 
-    // Enhanced detection parameters
-    private static final int PROCESSING_INTERVAL_MS = 30; // Reduced from 50ms for faster checking
-
-    private AudioRecord audioRecord;
-    private boolean isRecording = false;
-
-    private Interpreter yamnetInterpreter;
-    private Interpreter screamClassifierInterpreter;
+    // Capture / windowing parameters
+    private static final int DEFAULT_HOP_MS = 250; // New analysis window every 250ms (windows overlap)
+    private static final int MIN_HOP_MS = 50;
+    private static final int RING_CAPACITY = SAMPLE_RATE * 4; // ~4s of history before the consumer loses audio
+    private static final long STATS_LOG_INTERVAL_MS = 60_000;
+
+    private volatile boolean isRecording = false;
+    private volatile AudioFanOut.Subscription subscription;
+    private int hopSamples = SAMPLE_RATE * DEFAULT_HOP_MS / 1000;
+
+    // TFLite models - acquired by the loader thread, released in onDestroy
+    private final Object modelLock = new Object();
+    private ModelRegistry.ModelHandle yamnetModel;            // Guarded by modelLock
+    private ModelRegistry.ModelHandle screamClassifierModel;  // Guarded by modelLock
+    private ModelRegistry.ModelHandle vocalisationModel;      // Guarded by modelLock; optional cascade stage
+    private boolean destroyed = false;                        // Guarded by modelLock
     private PersonalizedVoiceHelper voiceHelper;
+    // Verification reads the shared enrollment itself; a new one applies from the next window
+    private final EnrollmentState.Listener enrollmentListener = index -> Log.i(TAG, index == null
+            ? "Voice enrollment cleared; verification paused" : "Voice enrollment updated: " + index.size() + " samples");
 
-    private short[] audioBuffer = new short[BUFFER_SIZE];
+    private final short[] audioBuffer = new short[BUFFER_SIZE];
+    private volatile AcousticAnalyzer analyzer;
+    private volatile DetectionCascade cascade;
     private Handler mainHandler;
 
     private int positiveCount = 0;
-    private boolean isInCooldown = false;
+    private volatile boolean isInCooldown = false;
 
     private PowerManager.WakeLock wakeLock;
 
@@ -84,20 +98,49 @@ public class VoiceDetectionService extends Service {
         createNotificationChannel();
         startForeground(NOTIFICATION_ID, buildNotification("Voice detection starting..."));
 
+        EnrollmentState.getInstance(this).addListener(enrollmentListener);
+
         // Load models asynchronously, then start recording
         loadModels();
     }
 
     private void loadModels() {
         new Thread(() -> {
+            long startTime = SystemClock.elapsedRealtime();
+            ModelRegistry.ModelHandle yamnet = null;
+            ModelRegistry.ModelHandle screamClassifier = null;
+            ModelRegistry.ModelHandle vocalisation = null;
+            boolean published = false;
             try {
-                yamnetInterpreter = new Interpreter(loadModelFromAssets("yamnet.tflite"));
-                screamClassifierInterpreter = new Interpreter(loadModelFromAssets("scream_classifier.tflite"));
-                voiceHelper = new PersonalizedVoiceHelper(getApplicationContext(), yamnetInterpreter);
+                // Shared with any open detection screen - loaded and warmed up only once
+                ModelRegistry registry = ModelRegistry.getInstance(this);
+                yamnet = registry.acquire(ModelRegistry.YAMNET);
+                screamClassifier = registry.acquire(ModelRegistry.SCREAM_CLASSIFIER);
+                // Cheap stages in front of the analyzer; most windows never reach YAMNet
+                vocalisation = registry.acquireOptional(ModelRegistry.LOUD_VOCALISATION);
+
+                synchronized (modelLock) {
+                    // onDestroy ran while we were loading; the finally block releases the handles
+                    if (destroyed) return;
+                    yamnetModel = yamnet;
+                    screamClassifierModel = screamClassifier;
+                    vocalisationModel = vocalisation;
+                    published = true;
+                }
+                voiceHelper = new PersonalizedVoiceHelper(getApplicationContext(), yamnet);
+                // Pre-emphasis enhances high-frequency distress energy before YAMNet
+                analyzer = new AcousticAnalyzer(BUFFER_SIZE, true, yamnet, screamClassifier);
+                cascade = new DetectionCascade(MIN_VERIFY_RMS, vocalisation);
                 boolean embeddingLoaded = voiceHelper.loadStoredEmbedding();
-                Log.i(TAG, "Models loaded. Embedding loaded: " + embeddingLoaded);
+                Log.i(TAG, "Models loaded in " + (SystemClock.elapsedRealtime() - startTime)
+                        + "ms. Embedding loaded: " + embeddingLoaded);
+                TfliteModelLoader.logMemoryUsage(TAG + " after model load");
 
                 mainHandler.post(() -> {
+                    synchronized (modelLock) {
+                        // A subscription opened now would keep the microphone on for a dead service
+                        if (destroyed) return;
+                    }
                     startForeground(NOTIFICATION_ID, buildNotification("Voice detection running"));
                     startAudioRecording();
                 });
@@ -105,54 +148,28 @@ public class VoiceDetectionService extends Service {
             } catch (IOException e) {
                 Log.e(TAG, "Error loading models", e);
                 stopSelf();
+            } finally {
+                if (!published) {
+                    if (yamnet != null) yamnet.close();
+                    if (screamClassifier != null) screamClassifier.close();
+                    if (vocalisation != null) vocalisation.close();
+                }
             }
         }).start();
     }
 
-    private ByteBuffer loadModelFromAssets(String filename) throws IOException {
-        InputStream inputStream = getAssets().open(filename);
-        ByteArrayOutputStream byteBuffer = new ByteArrayOutputStream();
-        byte[] buffer = new byte[1024];
-        int length;
-        while ((length = inputStream.read(buffer)) != -1) {
-            byteBuffer.write(buffer, 0, length);
-        }
-        byte[] modelBytes = byteBuffer.toByteArray();
-
-        ByteBuffer byteBufferModel = ByteBuffer.allocateDirect(modelBytes.length);
-        byteBufferModel.order(ByteOrder.nativeOrder());
-        byteBufferModel.put(modelBytes);
-        byteBufferModel.rewind();
-        return byteBufferModel;
-    }
-
     private void startAudioRecording() {
-        if (ActivityCompat.checkSelfPermission(this, Manifest.permission.RECORD_AUDIO) != PackageManager.PERMISSION_GRANTED) {
-            Log.e(TAG, "Microphone permission not granted");
-            stopSelf();
-            return;
-        }
-
-        int minBufferSize = AudioRecord.getMinBufferSize(
-                SAMPLE_RATE,
-                AudioFormat.CHANNEL_IN_MONO,
-                AudioFormat.ENCODING_PCM_16BIT
-        );
-
-        audioRecord = new AudioRecord(
-                MediaRecorder.AudioSource.MIC,
-                SAMPLE_RATE,
-                AudioFormat.CHANNEL_IN_MONO,
-                AudioFormat.ENCODING_PCM_16BIT,
-                Math.max(minBufferSize, BUFFER_SIZE * 2)
-        );
-
-        if (audioRecord.getState() != AudioRecord.STATE_INITIALIZED) {
-            Log.e(TAG, "AudioRecord initialization failed");
+        // The microphone itself is owned by the shared capture hub; we only subscribe to it
+        subscription = AudioCaptureHub.getInstance().subscribe(
+                this, TAG, RING_CAPACITY, AudioFanOut.BackpressurePolicy.DROP_OLDEST);
+        if (subscription == null) {
+            Log.e(TAG, "Could not subscribe to microphone capture");
             stopSelf();
             return;
         }
 
+        int hopMs = getSharedPreferences("AppSettingsPrefs", MODE_PRIVATE).getInt("voice_hop_ms", DEFAULT_HOP_MS);
+        hopSamples = SAMPLE_RATE * Math.max(MIN_HOP_MS, Math.min(hopMs, RECORD_DURATION_MS)) / 1000;
         isRecording = true;
 
         // Acquire WakeLock to keep CPU running
@@ -161,90 +178,107 @@ public class VoiceDetectionService extends Service {
             Log.i(TAG, "WakeLock acquired");
         }
 
-        new Thread(() -> {
-            audioRecord.startRecording();
-            while (isRecording) {
-                if (!isInCooldown) {
-                    int read = audioRecord.read(audioBuffer, 0, audioBuffer.length);
-                    if (read > 0) {
-                        processAudioChunk(audioBuffer);
-                    }
-                }
-                try {
-                    Thread.sleep(PROCESSING_INTERVAL_MS); // Faster processing (30ms instead of 50ms)
-                } catch (InterruptedException e) {
-                    Log.e(TAG, "Sleep interrupted", e);
-                }
+        new Thread(this::inferenceLoop, "VoiceInference").start();
+    }
+
+    /**
+     * Inference thread: analyses overlapping windows at the configured hop, so detection latency
+     * is bounded by the hop size instead of by inference time
+     */
+    private void inferenceLoop() {
+        AudioFanOut.Subscription source = subscription;
+        long lastStatsLog = System.currentTimeMillis();
+
+        while (isRecording) {
+            if (isInCooldown) {
+                source.skipToLatest(audioBuffer.length);
+                sleepQuietly(hopSamples * 1000L / SAMPLE_RATE);
+                continue;
             }
-            audioRecord.stop();
-            audioRecord.release();
 
-            // Release WakeLock on stop
-            if (wakeLock.isHeld()) {
-                wakeLock.release();
-                Log.i(TAG, "WakeLock released");
+            // Blocks until the next window is complete; false once capture has stopped
+            if (!source.awaitWindow(audioBuffer, hopSamples)) {
+                break;
             }
-        }).start();
+            processAudioChunk(audioBuffer);
+
+            long now = System.currentTimeMillis();
+            if (now - lastStatsLog >= STATS_LOG_INTERVAL_MS) {
+                Log.i(TAG, "Capture stats - overruns: " + getOverrunCount() + ", dropped samples: " + getDroppedSamples());
+                DetectionCascade detectionCascade = cascade;
+                if (detectionCascade != null) {
+                    Log.i(TAG, "Inference " + detectionCascade.getStats());
+                }
+                lastStatsLog = now;
+            }
+        }
+
+        // Release WakeLock on stop
+        if (wakeLock.isHeld()) {
+            wakeLock.release();
+            Log.i(TAG, "WakeLock released");
+        }
+    }
+
+    private void sleepQuietly(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Log.e(TAG, "Sleep interrupted", e);
+        }
+    }
+
+    /**
+     * Samples the inference consumer never saw because it fell behind the capture thread
+     */
+    public long getDroppedSamples() {
+        AudioFanOut.Subscription source = subscription;
+        return source != null ? source.getDroppedSamples() : 0;
+    }
+
+    /**
+     * Number of times the inference consumer was lapped by the capture thread
+     */
+    public long getOverrunCount() {
+        AudioFanOut.Subscription source = subscription;
+        return source != null ? source.getOverrunCount() : 0;
     }
 
     private void processAudioChunk(short[] audioData) {
-        if (yamnetInterpreter == null || screamClassifierInterpreter == null || voiceHelper == null) return;
+        AcousticAnalyzer acousticAnalyzer = analyzer;
+        DetectionCascade detectionCascade = cascade;
+        if (acousticAnalyzer == null || detectionCascade == null || voiceHelper == null) return;
 
         float rms = PersonalizedVoiceHelper.calculateRMS(audioData);
-        if (rms < MIN_VERIFY_RMS) {
-            Log.d(TAG, "Audio too quiet for verification (RMS: " + rms + ")");
+        if (!detectionCascade.shouldAnalyze(audioData, rms)) {
+            if (DEBUG_LOGGING) Log.d(TAG, "Window gated before inference (RMS: " + rms + ")");
             return;
         }
 
-        // Convert to float and apply pre-emphasis filter for better voice detection
-        float[] floatInput = new float[audioData.length];
-        for (int i = 0; i < audioData.length; i++) {
-            floatInput[i] = audioData[i] / 32767f;
-        }
-
-        // Apply pre-emphasis to enhance high frequencies (improves distress voice detection)
-        floatInput = applyPreEmphasis(floatInput);
-
-        Object[] inputs = new Object[]{floatInput};
-        Map<Integer, Object> outputs = new HashMap<>();
-        float[][] yamnetScores = new float[1][521];
-        outputs.put(0, yamnetScores);
-
+        // One YAMNet pass feeds the scream classifier and every score-based detector
+        AcousticVerdict verdict;
         try {
-            yamnetInterpreter.runForMultipleInputsOutputs(inputs, outputs);
+            verdict = acousticAnalyzer.analyze(audioData, rms);
         } catch (Exception e) {
-            Log.e(TAG, "YAMNet inference failed", e);
+            Log.e(TAG, "Acoustic analysis failed", e);
             return;
         }
 
-        float[] liveEmbedding = yamnetScores[0];
-
+        // In memory - no file system access per window
         if (!voiceHelper.hasStoredEmbedding()) {
-            Log.d(TAG, "No stored user embedding; skipping verification");
+            if (DEBUG_LOGGING) Log.d(TAG, "No stored user embedding; skipping verification");
             return;
         }
 
-        boolean verified = voiceHelper.verify(liveEmbedding, audioData);
+        boolean verified = voiceHelper.verify(verdict, audioData);
         if (!verified) {
-            Log.d(TAG, "Voice verification failed");
-            return;
-        }
-        Log.d(TAG, "Voice verified");
-
-        float[][] classifierInput = new float[1][521];
-        classifierInput[0] = liveEmbedding;
-
-        float screamProb;
-        try {
-            float[][] screamOutput = new float[1][1];
-            screamClassifierInterpreter.run(classifierInput, screamOutput);
-            screamProb = screamOutput[0][0];
-        } catch (Exception e) {
-            Log.e(TAG, "Scream classifier failed", e);
+            if (DEBUG_LOGGING) Log.d(TAG, "Voice verification failed");
             return;
         }
+        if (DEBUG_LOGGING) Log.d(TAG, "Voice verified");
 
-        Log.d(TAG, "Scream probability: " + screamProb + " RMS: " + rms);
+        float screamProb = verdict.getScreamProbability();
+        if (DEBUG_LOGGING) Log.d(TAG, "Verdict: " + verdict + " RMS: " + rms);
 
         // STRICT DISTRESS DETECTION: Require BOTH high scream probability AND high intensity
         boolean isHighIntensity = rms >= HIGH_INTENSITY_RMS;
@@ -255,34 +289,32 @@ public class VoiceDetectionService extends Service {
             Log.d(TAG, "DISTRESS DETECTED - Count: " + positiveCount + " (prob: " + screamProb + ", RMS: " + rms + ")");
 
             if (positiveCount >= CONSECUTIVE_POSITIVES_REQUIRED) {
-                Log.i(TAG, "EMERGENCY: Genuine distress voice confirmed - triggering alert");
+                Log.i(TAG, "EMERGENCY: Genuine distress voice confirmed - triggering alert (" + verdict + ")");
                 positiveCount = 0;
-                mainHandler.post(this::triggerEmergency);
+                String alertMessage = buildAlertMessage(verdict);
+                mainHandler.post(() -> triggerEmergency(alertMessage));
             }
         } else {
             // Decay positive count if not distress
             if (positiveCount > 0) {
                 positiveCount--;
-                Log.d(TAG, "Not distress - reducing count: " + positiveCount + " (prob: " + screamProb + ", RMS: " + rms + ", intensity: " + isHighIntensity + ")");
+                if (DEBUG_LOGGING) Log.d(TAG, "Not distress - reducing count: " + positiveCount + " (prob: " + screamProb + ", RMS: " + rms + ", intensity: " + isHighIntensity + ")");
             }
         }
     }
 
     /**
-     * Apply pre-emphasis filter to enhance high-frequency components
-     * This improves detection of distress voices (screaming has high-frequency energy)
+     * Emergency SMS text, naming the emergency type when the analyzer recognised one
      */
-    private float[] applyPreEmphasis(float[] audio) {
-        float preEmphasisCoeff = 0.97f;
-        float[] filtered = new float[audio.length];
-        filtered[0] = audio[0];
-        for (int i = 1; i < audio.length; i++) {
-            filtered[i] = audio[i] - preEmphasisCoeff * audio[i - 1];
+    private static String buildAlertMessage(AcousticVerdict verdict) {
+        EmergencyTypeDetector.EmergencyType type = verdict.getEmergencyType();
+        if (type == EmergencyTypeDetector.EmergencyType.NONE) {
+            return "Automated emergency triggered by scream detection";
         }
-        return filtered;
+        return "Automated emergency triggered by scream detection: " + type.getDescription();
     }
 
-    private void triggerEmergency() {
+    private void triggerEmergency(String alertMessage) {
         if (isInCooldown) {
             Log.d(TAG, "In cooldown; ignoring trigger");
             return;
@@ -311,7 +343,7 @@ public class VoiceDetectionService extends Service {
         }
 
         try {
-            EmergencyMessageHelperService.sendEmergencyMessages(getApplicationContext(), "Automated emergency triggered by scream detection");
+            EmergencyMessageHelperService.sendEmergencyMessages(getApplicationContext(), alertMessage);
 
             mainHandler.post(() -> Toast.makeText(getApplicationContext(), "Scream detected! Emergency SMS sent.", Toast.LENGTH_LONG).show());
         } catch (Exception e) {
@@ -353,19 +385,28 @@ public class VoiceDetectionService extends Service {
     public void onDestroy() {
         super.onDestroy();
         isRecording = false;
-
-        if (audioRecord != null) {
-            audioRecord.stop();
-            audioRecord.release();
-            audioRecord = null;
+        // Closing wakes the inference thread; the hub releases the microphone with its last subscriber
+        if (subscription != null) {
+            subscription.close();
         }
-        if (yamnetInterpreter != null) {
-            yamnetInterpreter.close();
-            yamnetInterpreter = null;
-        }
-        if (screamClassifierInterpreter != null) {
-            screamClassifierInterpreter.close();
-            screamClassifierInterpreter = null;
+
+        EnrollmentState.getInstance(this).removeListener(enrollmentListener);
+        analyzer = null;
+        cascade = null;
+        synchronized (modelLock) {
+            destroyed = true;
+            if (vocalisationModel != null) {
+                vocalisationModel.close();
+                vocalisationModel = null;
+            }
+            if (yamnetModel != null) {
+                yamnetModel.close();
+                yamnetModel = null;
+            }
+            if (screamClassifierModel != null) {
+                screamClassifierModel.close();
+                screamClassifierModel = null;
+            }
         }
         if (wakeLock != null && wakeLock.isHeld()) {
             wakeLock.release();
@@ -18,13 +18,9 @@ import androidx.core.app.NotificationCompat;
 import androidx.core.app.ActivityCompat;
 
 import com.example.safetyapp.helper.EmergencyMessageHelperService;
-
-import org.tensorflow.lite.Interpreter;
+import com.example.safetyapp.helper.ModelRegistry;
 
 import java.io.IOException;
-import java.io.InputStream;
-import java.nio.ByteBuffer;
-import java.nio.ByteOrder;
 
 public class VoiceMonitorService extends Service {
 
@@ -37,8 +33,8 @@ public class VoiceMonitorService extends Service {
             AudioFormat.ENCODING_PCM_16BIT
     );
 
-    private Interpreter yamnetInterpreter;
-    private Interpreter screamInterpreter;
+    private ModelRegistry.ModelHandle yamnetModel;
+    private ModelRegistry.ModelHandle screamModel;
 
     private AudioRecord audioRecord;
     private HandlerThread handlerThread;
@@ -58,8 +54,9 @@ public class VoiceMonitorService extends Service {
 
         handler.post(() -> {
             try {
-                yamnetInterpreter = new Interpreter(loadModelFile("yamnet.tflite"));
-                screamInterpreter = new Interpreter(loadModelFile("scream_classifier.tflite"));
+                ModelRegistry registry = ModelRegistry.getInstance(this);
+                yamnetModel = registry.acquire(ModelRegistry.YAMNET);
+                screamModel = registry.acquire(ModelRegistry.SCREAM_CLASSIFIER);
             } catch (IOException e) {
                 e.printStackTrace();
                 stopSelf();
@@ -96,11 +93,11 @@ public class VoiceMonitorService extends Service {
 
                     // Prepare input/output buffers for YAMNet
                     float[][] yamnetOutput = new float[1][521]; // Adjust output size based on your model
-                    yamnetInterpreter.run(floatInput, yamnetOutput);
+                    yamnetModel.run(floatInput, yamnetOutput);
 
                     // Run scream classifier using YAMNet output as input
                     float[][] screamOutput = new float[1][1];
-                    screamInterpreter.run(yamnetOutput, screamOutput);
+                    screamModel.run(yamnetOutput, screamOutput);
 
                     float screamProb = screamOutput[0][0];
 
@@ -128,23 +125,11 @@ public class VoiceMonitorService extends Service {
 
             audioRecord.stop();
             audioRecord.release();
-            yamnetInterpreter.close();
-            screamInterpreter.close();
+            yamnetModel.close();
+            screamModel.close();
         });
     }
 
-    private ByteBuffer loadModelFile(String assetName) throws IOException {
-        InputStream inputStream = getAssets().open(assetName);
-        byte[] buffer = new byte[inputStream.available()];
-        int read = inputStream.read(buffer);
-        inputStream.close();
-
-        ByteBuffer bb = ByteBuffer.allocateDirect(buffer.length).order(ByteOrder.nativeOrder());
-        bb.put(buffer);
-        bb.rewind();
-        return bb;
-    }
-
     private void startForegroundService() {
         if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
             NotificationChannel channel = new NotificationChannel(
@@ -178,11 +163,11 @@ public class VoiceMonitorService extends Service {
         if (audioRecord != null) {
             audioRecord.release();
         }
-        if (yamnetInterpreter != null) {
-            yamnetInterpreter.close();
+        if (yamnetModel != null) {
+            yamnetModel.close();
         }
-        if (screamInterpreter != null) {
-            screamInterpreter.close();
+        if (screamModel != null) {
+            screamModel.close();
         }
     }
 
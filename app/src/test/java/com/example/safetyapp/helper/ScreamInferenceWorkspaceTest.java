@@ -0,0 +1,281 @@
+package com.example.safetyapp.helper;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Local unit tests for the preallocated scream inference workspace
+ */
+public class ScreamInferenceWorkspaceTest {
+
+    private static final int WINDOW = 15600;
+
+    /**
+     * The per-chunk conversion the workspace replaced: a fresh float[] scaled by 1/32767, then
+     * (in the service) a separate pre-emphasis pass starting afresh on every chunk
+     */
+    private static float[] baselineInput(short[] audioData, boolean preEmphasis) {
+        float[] floatInput = new float[audioData.length];
+        for (int i = 0; i < audioData.length; i++) {
+            floatInput[i] = audioData[i] / 32767f;
+        }
+        if (!preEmphasis) return floatInput;
+
+        float preEmphasisCoeff = 0.97f;
+        float[] filtered = new float[floatInput.length];
+        filtered[0] = floatInput[0];
+        for (int i = 1; i < floatInput.length; i++) {
+            filtered[i] = floatInput[i] - preEmphasisCoeff * floatInput[i - 1];
+        }
+        return filtered;
+    }
+
+    private static short[] randomPcm(long seed, int length) {
+        Random random = new Random(seed);
+        short[] pcm = new short[length];
+        for (int i = 0; i < length; i++) {
+            pcm[i] = (short) random.nextInt(1 << 16);
+        }
+        pcm[0] = Short.MIN_VALUE;
+        pcm[1] = Short.MAX_VALUE;
+        return pcm;
+    }
+
+    // A tensor buffer read the way the interpreter reads it: raw native-order floats
+    private static FloatBuffer asTensor(ByteBuffer buffer) {
+        return buffer.duplicate().order(ByteOrder.nativeOrder()).asFloatBuffer();
+    }
+
+    /**
+     * Stands in for the interpreter: remembers what it was bound to and writes its outputs the
+     * way TFLite does, from each output buffer's position. Allocates nothing per call.
+     */
+    private static final class FakeInterpreter implements ModelRegistry.Runner {
+        static final int SCORED_CLASS = 42; // Any class; the fake scores only this one
+
+        Object[] inputs;
+        int[] inputShape;
+        Map<Integer, Object> outputs;
+        Object input;
+        Object output;
+        int inputPosition = -1;
+        int outputPosition = -1;
+        float value = 0.75f;
+
+        @Override
+        public void runForMultipleInputsOutputs(Object[] inputs, int[] inputShape, Map<Integer, Object> outputs) {
+            this.inputs = inputs;
+            this.inputShape = inputShape;
+            this.outputs = outputs;
+            inputPosition = ((ByteBuffer) inputs[0]).position();
+            ByteBuffer scores = (ByteBuffer) outputs.get(ScreamInferenceWorkspace.YAMNET_SCORES_OUTPUT);
+            outputPosition = scores.position();
+            scores.putFloat(scores.position() + SCORED_CLASS * 4, value);
+        }
+
+        @Override
+        public void run(Object input, Object output) {
+            this.input = input;
+            this.output = output;
+            inputPosition = ((ByteBuffer) input).position();
+            ByteBuffer result = (ByteBuffer) output;
+            outputPosition = result.position();
+            result.putFloat(result.position(), value);
+        }
+    }
+
+    @Test
+    public void yamnetInput_matchesThePerChunkConversion() {
+        for (boolean preEmphasis : new boolean[]{false, true}) {
+            ScreamInferenceWorkspace workspace = new ScreamInferenceWorkspace(WINDOW, preEmphasis);
+            // Consecutive chunks: nothing may carry over from the previous one
+            for (long chunk = 1; chunk <= 3; chunk++) {
+                short[] pcm = randomPcm(chunk, WINDOW);
+                float[] expected = baselineInput(pcm, preEmphasis);
+                workspace.fillInput(pcm);
+
+                FloatBuffer fed = asTensor(workspace.yamnetInputTensor());
+                assertEquals(WINDOW, fed.remaining());
+                for (int i = 0; i < WINDOW; i++) {
+                    // Multiplying by the reciprocal differs from dividing by at most an ulp or two
+                    assertEquals("preEmphasis=" + preEmphasis + " chunk=" + chunk + " sample " + i,
+                            expected[i], fed.get(i), 1e-6f);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void yamnetInput_ofARangeMatchesTheConversionOfThatRange() {
+        short[] recording = randomPcm(4, 3 * WINDOW);
+        ScreamInferenceWorkspace workspace = new ScreamInferenceWorkspace(WINDOW, false);
+        int offset = WINDOW / 2;
+        workspace.fillInput(recording, offset, WINDOW);
+
+        short[] window = new short[WINDOW];
+        System.arraycopy(recording, offset, window, 0, WINDOW);
+        float[] expected = baselineInput(window, false);
+        FloatBuffer fed = asTensor(workspace.yamnetInputTensor());
+        for (int i = 0; i < WINDOW; i++) {
+            assertEquals(expected[i], fed.get(i), 1e-6f);
+        }
+    }
+
+    @Test
+    public void screamClassifier_isFedYamnetScoresUnchanged() {
+        // The old path copied yamnetScores[0] into a float[1][521] classifier input
+        ScreamInferenceWorkspace workspace = new ScreamInferenceWorkspace(WINDOW, true);
+        Random random = new Random(5);
+        float[] scores = new float[ScreamInferenceWorkspace.YAMNET_CLASSES];
+        FloatBuffer yamnetOutput = workspace.getYamnetScores();
+        for (int i = 0; i < scores.length; i++) {
+            scores[i] = random.nextFloat();
+            yamnetOutput.put(i, scores[i]); // As the interpreter writes its output tensor
+        }
+
+        FloatBuffer fed = asTensor(workspace.screamClassifierInputTensor());
+        assertEquals(scores.length, fed.remaining());
+        for (int i = 0; i < scores.length; i++) {
+            assertEquals(scores[i], fed.get(i), 0.0f);
+        }
+    }
+
+    @Test
+    public void fillInput_fusesConversionAndPreEmphasis() {
+        ScreamInferenceWorkspace workspace = new ScreamInferenceWorkspace(4, true);
+        FloatBuffer input = workspace.fillInput(new short[]{32767, 32767, 0, -32767});
+
+        assertEquals(1.0f, input.get(0), 1e-6f);
+        assertEquals(1.0f - 0.97f, input.get(1), 1e-6f);
+        assertEquals(-0.97f, input.get(2), 1e-6f);
+        assertEquals(-1.0f, input.get(3), 1e-6f);
+    }
+
+    @Test
+    public void fillInput_zeroPadsShortAudio() {
+        ScreamInferenceWorkspace workspace = new ScreamInferenceWorkspace(4, false);
+        workspace.fillInput(new short[]{1000, 1000, 1000, 1000});
+        FloatBuffer input = workspace.fillInput(new short[]{32767, 32767});
+
+        assertEquals(1.0f, input.get(1), 1e-6f);
+        assertEquals(0.0f, input.get(2), 0.0f);
+        assertEquals(0.0f, input.get(3), 0.0f);
+    }
+
+    @Test
+    public void buffers_areDirectAndNativeOrder() {
+        // The interpreter only binds direct native-order buffers without copying through Java
+        ScreamInferenceWorkspace workspace = new ScreamInferenceWorkspace(WINDOW, true);
+        FloatBuffer input = workspace.fillInput(new short[WINDOW]);
+
+        assertTrue(input.isDirect());
+        assertEquals(ByteOrder.nativeOrder(), input.order());
+        assertEquals(WINDOW, input.capacity());
+        assertTrue(workspace.getYamnetScores().isDirect());
+        assertEquals(ScreamInferenceWorkspace.YAMNET_CLASSES, workspace.getYamnetScores().capacity());
+    }
+
+    @Test
+    public void fillInput_reusesTheSameBuffers() {
+        ScreamInferenceWorkspace workspace = new ScreamInferenceWorkspace(WINDOW, true);
+        short[] pcm = new short[WINDOW];
+
+        assertSame(workspace.fillInput(pcm), workspace.fillInput(pcm));
+        assertSame(workspace.getYamnetScores(), workspace.getYamnetScores());
+    }
+
+    @Test
+    public void runYamnet_bindsTheSameBuffersOnEveryCall() {
+        ScreamInferenceWorkspace workspace = new ScreamInferenceWorkspace(WINDOW, true);
+        FakeInterpreter yamnet = new FakeInterpreter();
+        workspace.fillInput(randomPcm(6, WINDOW));
+
+        FloatBuffer scores = workspace.runYamnet(yamnet);
+        Object[] inputs = yamnet.inputs;
+        Map<Integer, Object> outputs = yamnet.outputs;
+        assertSame(workspace.yamnetInputTensor(), inputs[0]);
+        assertArrayEquals(new int[]{WINDOW}, yamnet.inputShape);
+        assertSame(workspace.screamClassifierInputTensor(), outputs.get(ScreamInferenceWorkspace.YAMNET_SCORES_OUTPUT));
+        assertEquals(2, outputs.size());
+        assertSame(workspace.getYamnetScores(), scores);
+        assertEquals(yamnet.value, scores.get(FakeInterpreter.SCORED_CLASS), 0.0f);
+
+        // A previous run leaves the buffers' positions moved; they are bound from the start again
+        workspace.yamnetInputTensor().position(8);
+        workspace.screamClassifierInputTensor().position(8);
+        yamnet.value = 0.5f;
+        assertSame(scores, workspace.runYamnet(yamnet));
+        assertSame(inputs, yamnet.inputs);
+        assertSame(outputs, yamnet.outputs);
+        assertEquals(0, yamnet.inputPosition);
+        assertEquals(0, yamnet.outputPosition);
+        assertEquals(0.5f, scores.get(FakeInterpreter.SCORED_CLASS), 0.0f);
+    }
+
+    @Test
+    public void runScreamClassifier_feedsTheYamnetScoresBufferItself() {
+        ScreamInferenceWorkspace workspace = new ScreamInferenceWorkspace(WINDOW, true);
+        FakeInterpreter yamnet = new FakeInterpreter();
+        FakeInterpreter classifier = new FakeInterpreter();
+        workspace.fillInput(randomPcm(7, WINDOW));
+        workspace.runYamnet(yamnet);
+
+        classifier.value = 0.9f;
+        assertEquals(0.9f, workspace.runScreamClassifier(classifier), 0.0f);
+        Object output = classifier.output;
+        assertSame(workspace.screamClassifierInputTensor(), classifier.input);
+        assertEquals(0, classifier.inputPosition);
+
+        classifier.value = 0.1f;
+        assertEquals(0.1f, workspace.runScreamClassifier(classifier), 0.0f);
+        assertSame(output, classifier.output);
+        assertEquals(0, classifier.outputPosition);
+    }
+
+    @Test
+    public void steadyStateInference_allocatesNothing() {
+        com.sun.management.ThreadMXBean threadBean =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+
+        // Everything the pipeline does per chunk, with the interpreters faked
+        ScreamInferenceWorkspace workspace = new ScreamInferenceWorkspace(WINDOW, true);
+        FakeInterpreter yamnet = new FakeInterpreter();
+        FakeInterpreter classifier = new FakeInterpreter();
+        short[] pcm = new short[WINDOW];
+        for (int i = 0; i < pcm.length; i++) {
+            pcm[i] = (short) ((i * 31) % 20000 - 10000);
+        }
+
+        // Warm up so JIT compilation is not attributed to the measured loop
+        for (int i = 0; i < 2000; i++) {
+            workspace.fillInput(pcm);
+            workspace.runYamnet(yamnet);
+            workspace.runScreamClassifier(classifier);
+        }
+
+        int chunks = 5000;
+        long before = threadBean.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < chunks; i++) {
+            workspace.fillInput(pcm);
+            workspace.runYamnet(yamnet);
+            workspace.runScreamClassifier(classifier);
+            workspace.getYamnetEmbedding();
+        }
+        long allocated = threadBean.getThreadAllocatedBytes(threadId) - before;
+
+        // Less than one byte per chunk means no per-chunk allocation at all
+        assertTrue("Allocated " + allocated + " bytes over " + chunks + " chunks", allocated < chunks);
+    }
+}
@@ -0,0 +1,61 @@
+plugins {
+    `java-library`
+    id("me.champeau.jmh")
+}
+
+// Plain Java so the detectors can be unit tested and benchmarked without a device;
+// the app module consumes it as a normal dependency
+java {
+    sourceCompatibility = JavaVersion.VERSION_1_8
+    targetCompatibility = JavaVersion.VERSION_1_8
+}
+
+tasks.withType<JavaCompile>().configureEach {
+    options.encoding = "UTF-8"
+}
+
+dependencies {
+    testImplementation(libs.junit)
+}
+
+// ./gradlew :detection-core:compileEmergencyLexicon
+// Normalises the phrases and builds the automaton once at build time; the app ships the
+// binary as an asset and tests/benchmarks read it from the classpath
+val generatedLexiconDir = layout.buildDirectory.dir("generated/lexicon")
+
+val compileEmergencyLexicon by tasks.registering(JavaExec::class) {
+    val source = file("src/main/lexicon/emergency_lexicon.txt")
+    val output = generatedLexiconDir.map { it.file("emergency_lexicon.bin") }
+    inputs.file(source)
+    outputs.file(output)
+    classpath = sourceSets["main"].runtimeClasspath
+    mainClass.set("com.example.safetyapp.helper.LexiconCompiler")
+    args(source.absolutePath, output.get().asFile.absolutePath)
+}
+
+// ./gradlew :detection-core:trainIntentModel --args="labelled.tsv intent_model.bin [epochs] [bucketBits]"
+// Offline training of the learned intent model (HashedIntentModel); copy the output into the
+// app assets to ship it
+val trainIntentModel by tasks.registering(JavaExec::class) {
+    classpath = sourceSets["main"].runtimeClasspath
+    mainClass.set("com.example.safetyapp.helper.IntentModelTrainer")
+    workingDir = rootDir
+}
+
+sourceSets {
+    test { resources.srcDir(files(generatedLexiconDir).builtBy(compileEmergencyLexicon)) }
+    named("jmh") { resources.srcDir(files(generatedLexiconDir).builtBy(compileEmergencyLexicon)) }
+}
+
+// ./gradlew :detection-core:jmh
+// Throughput plus sampled latency percentiles; the gc profiler adds bytes allocated per op
+jmh {
+    jmhVersion.set("1.37")
+    benchmarkMode.set(listOf("thrpt", "sample"))
+    timeUnit.set("us")
+    profilers.set(listOf("gc"))
+    fork.set(1)
+    warmupIterations.set(3)
+    iterations.set(5)
+    resultFormat.set("JSON")
+}
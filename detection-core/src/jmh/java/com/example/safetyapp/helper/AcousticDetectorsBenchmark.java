@@ -0,0 +1,114 @@
+package com.example.safetyapp.helper;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+
+/**
+ * Per-window cost of the acoustic detectors on synthetic YAMNet scores and PCM
+ * One window is 975ms of 16kHz audio, the same as the detection service feeds them.
+ */
+@State(Scope.Thread)
+public class AcousticDetectorsBenchmark {
+    private static final int WINDOW_SAMPLES = 15600;
+
+    /**
+     * quiet: low flat scores, calm speech level
+     * distress: scream/crying/siren classes raised, loud bursts in the audio
+     */
+    @Param({"quiet", "distress"})
+    public String scene;
+
+    private final ScoreFrame frame = new ScoreFrame();
+    private final YamnetRuleTable.Evaluation rules = new YamnetRuleTable.Evaluation();
+    private final YamnetScoreHistory history = new YamnetScoreHistory();
+    private final SpectralGate spectralGate = new SpectralGate();
+    private final VoiceActivityDetector voiceActivityDetector = new VoiceActivityDetector();
+    private final VocalStressDetector vocalStressDetector = new VocalStressDetector();
+    private short[] pcm;
+    private float screamProbability;
+    private float rms;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        boolean distress = "distress".equals(scene);
+
+        float[] scores = new float[ScoreFrame.NUM_CLASSES];
+        for (int i = 0; i < scores.length; i++) {
+            scores[i] = random.nextFloat() * 0.05f;
+        }
+        if (distress) {
+            scores[YamnetRuleTable.CLASS_SCREAM] = 0.72f;
+            scores[YamnetRuleTable.CLASS_CRYING] = 0.41f;
+            scores[YamnetRuleTable.CLASS_SIREN] = 0.33f;
+        }
+        frame.set(scores);
+
+        pcm = new short[WINDOW_SAMPLES];
+        double amplitude = distress ? 12000 : 1500;
+        double sumSquares = 0;
+        for (int i = 0; i < pcm.length; i++) {
+            double envelope = distress && (i / 1600) % 2 == 0 ? 1.0 : 0.4;
+            double sample = amplitude * envelope * Math.sin(2 * Math.PI * 880 * i / 16000.0)
+                    + random.nextGaussian() * amplitude * 0.1;
+            pcm[i] = (short) Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, sample));
+            sumSquares += (double) pcm[i] * pcm[i];
+        }
+        rms = (float) Math.sqrt(sumSquares / pcm.length);
+        screamProbability = distress ? 0.68f : 0.12f;
+    }
+
+    /**
+     * The rule pass ScoreFrame.set() runs once per window for both detectors below
+     */
+    @Benchmark
+    public YamnetRuleTable.Evaluation evaluateRules() {
+        YamnetRuleTable.evaluate(frame.values, rules);
+        return rules;
+    }
+
+    /**
+     * Per-window smoothing update, including the rule pass on the smoothed evidence
+     */
+    @Benchmark
+    public YamnetRuleTable.Evaluation updateHistory() {
+        history.add(frame);
+        return history.rules();
+    }
+
+    @Benchmark
+    public float detectAmbientDistress() {
+        return AmbientDistressDetector.detectAmbientDistress(frame, rms);
+    }
+
+    @Benchmark
+    public EmergencyTypeDetector.EmergencyType detectEmergencyType() {
+        return EmergencyTypeDetector.detectEmergencyType(frame, screamProbability, rms, null);
+    }
+
+    /**
+     * First cascade stage, paid on every window that is loud enough
+     */
+    @Benchmark
+    public boolean spectralGate() {
+        return spectralGate.test(pcm);
+    }
+
+    /**
+     * Keyword spotter VAD over one window's worth of audio (97 frames of 10 ms)
+     */
+    @Benchmark
+    public boolean voiceActivity() {
+        return voiceActivityDetector.process(pcm, 0, pcm.length);
+    }
+
+    @Benchmark
+    public float analyzeVocalStress() {
+        return vocalStressDetector.analyzeVocalStress(pcm, screamProbability, rms);
+    }
+}
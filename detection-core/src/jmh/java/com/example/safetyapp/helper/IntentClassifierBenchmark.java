@@ -0,0 +1,64 @@
+package com.example.safetyapp.helper;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Cost of classifying one speech transcript
+ * Covers literal English/Bangla hits, misrecognised words (fuzzy path) and non-emergency speech,
+ * for the rule engine and the hashed n-gram model. The learned model's cost does not depend on its
+ * weights, so it is trained here on the lexicon's core phrases. classifyIntent clears the result
+ * cache first; classifyIntentRepeated measures a transcript the recogniser delivers again.
+ */
+@State(Scope.Thread)
+public class IntentClassifierBenchmark {
+
+    @Param({
+            "help me someone is following me",
+            "HELP! Fire in the building, smoke everywhere",
+            "he's trying to kidnap me, i'm trapped in the van",
+            "harrasment touching me uncomfortable",
+            "what is the weather like today",
+            "বাঁচাও আমাকে কেউ অনুসরণ করছে",
+            "আগুন লেগেছে বাড়িতে ধোঁয়া সব জায়গায়",
+            "ওরা আমাকে মারছে সাহায্য করুন"
+    })
+    public String transcript;
+
+    private HashedIntentModel learnedModel;
+
+    @Setup
+    public void trainLearnedModel() {
+        EmergencyLexicon lexicon = EmergencyLexicon.current();
+        List<IntentModelTrainer.Example> examples = new ArrayList<>();
+        for (int p = 0; p < lexicon.patternTypes.length; p++) {
+            for (int phraseId : lexicon.patternCore[p]) {
+                examples.add(new IntentModelTrainer.Example(lexicon.patternTypes[p], lexicon.phrases[phraseId]));
+            }
+        }
+        examples.add(new IntentModelTrainer.Example(EmergencyTypeDetector.EmergencyType.NONE, "what is the weather like"));
+        learnedModel = IntentModelTrainer.train(examples, IntentModelTrainer.DEFAULT_BUCKET_BITS, 5);
+    }
+
+    @Benchmark
+    public EmergencyIntentClassifier.EmergencyClassification classifyIntent() {
+        EmergencyIntentClassifier.resultCache().clear();
+        return EmergencyIntentClassifier.classifyIntent(transcript);
+    }
+
+    @Benchmark
+    public EmergencyIntentClassifier.EmergencyClassification classifyIntentRepeated() {
+        return EmergencyIntentClassifier.classifyIntent(transcript);
+    }
+
+    @Benchmark
+    public EmergencyIntentClassifier.EmergencyClassification learnedModel() {
+        return learnedModel.classify(transcript);
+    }
+}
@@ -0,0 +1,48 @@
+package com.example.safetyapp.helper;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Cost of deciding on one 5-best recognition result: batch scoring vs one classification per alternative
+ * The result cache is cleared every time, so each alternative is really classified.
+ */
+@State(Scope.Thread)
+public class NBestScoringBenchmark {
+
+    private final List<String> alternatives = Arrays.asList(
+            "help me someone is following me",
+            "help me someone is following",
+            "help me someone is swallowing me",
+            "help me some one is following me",
+            "help me someone's following me"
+    );
+    private final float[] confidences = {0.82f, 0.07f, 0.05f, 0.04f, 0.02f};
+
+    private NBestIntentScorer scorer;
+
+    @Setup
+    public void setUp() {
+        scorer = new NBestIntentScorer(new KeywordCategoryMatcher("sos"));
+    }
+
+    @Benchmark
+    public NBestIntentScorer.Decision batch() {
+        EmergencyIntentClassifier.resultCache().clear();
+        return scorer.score(alternatives, confidences);
+    }
+
+    @Benchmark
+    public void independent(Blackhole blackhole) {
+        EmergencyIntentClassifier.resultCache().clear();
+        for (String alternative : alternatives) {
+            blackhole.consume(EmergencyIntentClassifier.classifyIntent(alternative));
+        }
+    }
+}
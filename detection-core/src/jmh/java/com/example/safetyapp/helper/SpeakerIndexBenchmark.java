@@ -0,0 +1,77 @@
+package com.example.safetyapp.helper;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.util.Random;
+
+/**
+ * Per-window cost of speaker verification against a multi-sample enrollment
+ * blocked: SpeakerIndex top-k on a matrix read in place from a direct (mapped-file-like) buffer
+ * perSample: one cosine per enrolled sample, as the single-signature code did, for comparison
+ */
+@State(Scope.Thread)
+public class SpeakerIndexBenchmark {
+    private static final int DIMENSIONS = SpeakerEmbedding.EMBEDDING_SIZE;
+
+    @Param({"12", "48", "192"})
+    public int samples;
+
+    private SpeakerIndex index;
+    private float[][] rows;
+    private FloatBuffer live;
+
+    @Setup
+    public void setUp() throws IOException {
+        Random random = new Random(42);
+        SpeakerIndex.Builder builder = SpeakerIndex.builder(SpeakerEmbedding.Kind.YAMNET_EMBEDDING);
+        rows = new float[samples][DIMENSIONS];
+        for (float[] row : rows) {
+            for (int i = 0; i < DIMENSIONS; i++) {
+                row[i] = random.nextFloat();
+            }
+            builder.add(row);
+            SpeakerEmbedding.normalize(row);
+        }
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        builder.build().writeTo(bytes);
+        ByteBuffer file = ByteBuffer.allocateDirect(bytes.size());
+        file.put(bytes.toByteArray()).flip();
+        index = SpeakerIndex.read(file);
+
+        live = ByteBuffer.allocateDirect(DIMENSIONS * 4).order(ByteOrder.nativeOrder()).asFloatBuffer();
+        for (int i = 0; i < DIMENSIONS; i++) {
+            live.put(i, random.nextFloat());
+        }
+    }
+
+    @Benchmark
+    public float blocked() {
+        return index.similarity(live, SpeakerIndex.DEFAULT_TOP_K);
+    }
+
+    @Benchmark
+    public float perSample() {
+        float best = Float.NEGATIVE_INFINITY;
+        for (float[] row : rows) {
+            float dot = 0.0f;
+            float norm = 0.0f;
+            for (int i = 0; i < DIMENSIONS; i++) {
+                float value = live.get(i);
+                dot += row[i] * value;
+                norm += value * value;
+            }
+            best = Math.max(best, dot / (float) Math.sqrt(norm));
+        }
+        return best;
+    }
+}
@@ -0,0 +1,144 @@
+package com.example.safetyapp.helper;
+
+/**
+ * Detects ambient distress sounds and crowd emergencies
+ * Works independently of voice enrollment - detects ANY distress
+ */
+public class AmbientDistressDetector {
+    private static final String TAG = "AmbientDistress";
+
+    private static final boolean DEBUG_LOGGING = DetectionLog.isLoggable(TAG, DetectionLog.DEBUG);
+
+    // Rule evaluation for callers that pass raw scores instead of a ScoreFrame
+    private static final ThreadLocal<YamnetRuleTable.Evaluation> RULES =
+            ThreadLocal.withInitial(YamnetRuleTable.Evaluation::new);
+
+    /**
+     * Check if audio contains ambient distress (independent of voice matching)
+     * @param yamnetScores Audio classification scores from YAMNet
+     * @param rms Audio loudness level
+     * @return Ambient distress score (0.0 - 1.0)
+     */
+    public static float detectAmbientDistress(float[] yamnetScores, float rms) {
+        if (yamnetScores == null || yamnetScores.length < ScoreFrame.NUM_CLASSES) {
+            return 0.0f;
+        }
+
+        YamnetRuleTable.Evaluation rules = RULES.get();
+        YamnetRuleTable.evaluate(yamnetScores, rules);
+        return scoreDistress(rules, rms);
+    }
+
+    /**
+     * Same as detectAmbientDistress(float[], float), reading a shared score frame whose rules
+     * were already evaluated when it was filled
+     */
+    public static float detectAmbientDistress(ScoreFrame scores, float rms) {
+        return scoreDistress(scores.rules(), rms);
+    }
+
+    /**
+     * Ambient distress from the smoothed evidence of the last few windows
+     * @param history Updated with the current window
+     */
+    public static float detectAmbientDistress(YamnetScoreHistory history, float rms) {
+        return scoreDistress(history.rules(), rms);
+    }
+
+    /**
+     * Turn the weighted distress sounds (YamnetRuleTable) into a 0-1 score
+     */
+    private static float scoreDistress(YamnetRuleTable.Evaluation rules, float rms) {
+        float ambientScore = rules.distressSum();
+        int detectionCount = rules.distressCount();
+
+        if (DEBUG_LOGGING && detectionCount > 0) {
+            DetectionLog.d(TAG, "Ambient distress sounds: " + rules.describeDistress());
+        }
+
+        // Boost score if RMS is high (loud environment)
+        if (rms > 0.15f) {
+            ambientScore *= 1.2f;
+        }
+
+        // Boost if multiple distress indicators present (crowd emergency)
+        if (detectionCount >= 2) {
+            ambientScore *= 1.3f;
+            DetectionLog.i(TAG, "Multiple ambient distress indicators detected (" + detectionCount + ")");
+        }
+
+        // Normalize to 0-1 range
+        float normalizedScore = Math.min(ambientScore / 2.0f, 1.0f);
+
+        if (normalizedScore > 0.3f) {
+            DetectionLog.i(TAG, "Ambient distress score: " + normalizedScore + " (detections: " + detectionCount + ", RMS: " + rms + ")");
+        }
+
+        return normalizedScore;
+    }
+
+    /**
+     * Check if crowd panic is occurring (multiple people in distress)
+     */
+    public static boolean isCrowdPanic(float[] yamnetScores, float rms) {
+        if (yamnetScores == null || yamnetScores.length < ScoreFrame.NUM_CLASSES) {
+            return false;
+        }
+
+        // High crowd sound + high distress sounds = panic
+        boolean highCrowd = yamnetScores[YamnetRuleTable.CLASS_CROWD] > YamnetRuleTable.HIGH_AMBIENT_THRESHOLD;
+        boolean highDistress = yamnetScores[YamnetRuleTable.CLASS_SCREAM] > YamnetRuleTable.AMBIENT_SOUND_THRESHOLD ||
+                               yamnetScores[YamnetRuleTable.CLASS_YELL] > YamnetRuleTable.AMBIENT_SOUND_THRESHOLD;
+        boolean loudEnvironment = rms > 0.2f;
+
+        return highCrowd && highDistress && loudEnvironment;
+    }
+
+    /**
+     * Check if emergency sound is present (fire alarm, explosion, crash, etc.)
+     */
+    public static boolean hasEmergencySounds(float[] yamnetScores) {
+        if (yamnetScores == null || yamnetScores.length < ScoreFrame.NUM_CLASSES) {
+            return false;
+        }
+
+        return yamnetScores[YamnetRuleTable.CLASS_FIRE_ALARM] > YamnetRuleTable.AMBIENT_SOUND_THRESHOLD ||
+               yamnetScores[YamnetRuleTable.CLASS_EXPLOSION] > YamnetRuleTable.AMBIENT_SOUND_THRESHOLD ||
+               yamnetScores[YamnetRuleTable.CLASS_CRASH] > YamnetRuleTable.AMBIENT_SOUND_THRESHOLD ||
+               yamnetScores[YamnetRuleTable.CLASS_GLASS_BREAK] > YamnetRuleTable.AMBIENT_SOUND_THRESHOLD;
+    }
+
+    /**
+     * Get description of detected ambient sounds
+     */
+    public static String getAmbientDescription(float[] yamnetScores, float rms) {
+        if (isCrowdPanic(yamnetScores, rms)) {
+            return "Crowd panic/stampede detected";
+        }
+
+        if (hasEmergencySounds(yamnetScores)) {
+            if (yamnetScores[YamnetRuleTable.CLASS_FIRE_ALARM] > YamnetRuleTable.AMBIENT_SOUND_THRESHOLD) {
+                return "Fire alarm detected";
+            }
+            if (yamnetScores[YamnetRuleTable.CLASS_EXPLOSION] > YamnetRuleTable.AMBIENT_SOUND_THRESHOLD) {
+                return "Explosion sound detected";
+            }
+            if (yamnetScores[YamnetRuleTable.CLASS_CRASH] > YamnetRuleTable.AMBIENT_SOUND_THRESHOLD) {
+                return "Crash/collision detected";
+            }
+            if (yamnetScores[YamnetRuleTable.CLASS_GLASS_BREAK] > YamnetRuleTable.AMBIENT_SOUND_THRESHOLD) {
+                return "Glass breaking detected";
+            }
+        }
+
+        if (yamnetScores[YamnetRuleTable.CLASS_SCREAM] > YamnetRuleTable.AMBIENT_SOUND_THRESHOLD) {
+            return "Scream detected nearby";
+        }
+
+        if (yamnetScores[YamnetRuleTable.CLASS_YELL] > YamnetRuleTable.AMBIENT_SOUND_THRESHOLD) {
+            return "Loud yelling detected";
+        }
+
+        return "Ambient distress detected";
+    }
+}
@@ -0,0 +1,222 @@
+package com.example.safetyapp.helper;
+
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Subscriber bookkeeping for one shared audio source
+ * Frames published by the capture thread are copied into each subscriber's own bounded ring
+ * under its backpressure policy, so a slow consumer can never stall the capture thread or the
+ * other consumers. The source is started with the first subscriber and stopped when the last
+ * one closes. AudioCaptureHub supplies the microphone.
+ */
+public class AudioFanOut {
+    private static final String TAG = "AudioFanOut";
+
+    /**
+     * What happens when a subscriber's ring is full
+     */
+    public enum BackpressurePolicy {
+        DROP_OLDEST, // Keep the newest audio (detectors that care about "now")
+        DROP_NEWEST  // Keep a gap-free prefix (recordings that must stay contiguous)
+    }
+
+    /**
+     * The shared audio source; both calls are made with the fan-out's lock held
+     */
+    public interface Source {
+        /**
+         * Start publishing frames, for the first subscriber
+         * @return false if the source could not be started
+         */
+        boolean start();
+
+        /**
+         * Stop publishing, after the last subscriber closed
+         */
+        void stop();
+    }
+
+    private final Source source;
+    private final int sampleRate;
+    private final CopyOnWriteArrayList<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+    private boolean started = false; // Guarded by this
+
+    /**
+     * @param sampleRate Of the published audio; bounds how long a waiting consumer sleeps
+     */
+    public AudioFanOut(Source source, int sampleRate) {
+        this.source = source;
+        this.sampleRate = sampleRate;
+    }
+
+    /**
+     * Subscribe to the published stream, starting the source if needed
+     * @param name Used in logs only
+     * @param capacitySamples Size of this subscriber's ring (bounded queue)
+     * @return The subscription, or null if the source could not be started
+     */
+    public synchronized Subscription subscribe(String name, int capacitySamples, BackpressurePolicy policy) {
+        if (!started) {
+            if (!source.start()) {
+                return null;
+            }
+            started = true;
+        }
+        Subscription subscription = new Subscription(name, capacitySamples, policy);
+        subscriptions.add(subscription);
+        DetectionLog.i(TAG, "Subscriber added: " + name + " (" + policy + ", total " + subscriptions.size() + ")");
+        return subscription;
+    }
+
+    private synchronized void unsubscribe(Subscription subscription) {
+        if (!subscriptions.remove(subscription)) return;
+        DetectionLog.i(TAG, "Subscriber removed: " + subscription.name + " (dropped "
+                + subscription.getDroppedSamples() + " samples, " + subscriptions.size() + " left)");
+        if (subscriptions.isEmpty() && started) {
+            started = false;
+            source.stop();
+        }
+    }
+
+    /**
+     * Whether the source is started, i.e. there is at least one subscriber
+     */
+    public synchronized boolean isStarted() {
+        return started;
+    }
+
+    public int getSubscriberCount() {
+        return subscriptions.size();
+    }
+
+    /**
+     * Hand a captured frame to every subscriber; never blocks
+     * Must only be called from the single capture thread.
+     */
+    public void publish(short[] frame, int length) {
+        for (Subscription subscription : subscriptions) {
+            subscription.publish(frame, length);
+        }
+    }
+
+    /**
+     * The source stopped on its own (e.g. a read error) rather than after the last close:
+     * close every subscription so that waiting consumers return
+     */
+    public synchronized void sourceEnded() {
+        started = false;
+        for (Subscription subscription : subscriptions) {
+            subscription.markClosed();
+        }
+        subscriptions.clear();
+    }
+
+    /**
+     * One consumer's view of the shared stream
+     * Reading methods must be called from a single consumer thread.
+     */
+    public class Subscription {
+        private final String name;
+        private final BackpressurePolicy policy;
+        private final AudioRingBuffer ring;
+        private volatile Thread waiter;
+        private volatile boolean closed = false;
+
+        private Subscription(String name, int capacitySamples, BackpressurePolicy policy) {
+            this.name = name;
+            this.policy = policy;
+            this.ring = new AudioRingBuffer(capacitySamples);
+        }
+
+        // Called on the capture thread only
+        private void publish(short[] frame, int length) {
+            if (policy == BackpressurePolicy.DROP_NEWEST) {
+                ring.offer(frame, 0, length);
+            } else {
+                ring.write(frame, 0, length);
+            }
+            Thread consumer = waiter;
+            if (consumer != null) {
+                LockSupport.unpark(consumer);
+            }
+        }
+
+        /**
+         * Block until the next overlapping analysis window is available
+         * @return false once the subscription is closed
+         */
+        public boolean awaitWindow(short[] dest, int hopSamples) {
+            while (!closed) {
+                if (ring.readWindow(dest, hopSamples)) {
+                    return true;
+                }
+                park(ring.samplesUntilNextWindow(dest.length));
+            }
+            return false;
+        }
+
+        /**
+         * Block until length contiguous samples have been read
+         * @return Number of samples read; less than length only if the subscription was closed
+         */
+        public int read(short[] dest, int offset, int length) {
+            int total = 0;
+            while (total < length && !closed) {
+                int count = ring.read(dest, offset + total, length - total);
+                if (count > 0) {
+                    total += count;
+                } else {
+                    park(length - total);
+                }
+            }
+            return total;
+        }
+
+        /**
+         * Discard everything captured so far, e.g. after a cooldown
+         */
+        public void skipToLatest(int windowLength) {
+            ring.skipToLatest(windowLength);
+        }
+
+        private void park(long samplesNeeded) {
+            waiter = Thread.currentThread();
+            long nanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1, samplesNeeded * 1000L / sampleRate));
+            LockSupport.parkNanos(this, nanos);
+            waiter = null;
+        }
+
+        private void markClosed() {
+            closed = true;
+            Thread consumer = waiter;
+            if (consumer != null) {
+                LockSupport.unpark(consumer);
+            }
+        }
+
+        /**
+         * Stop receiving audio; the source is stopped with the last subscription
+         */
+        public void close() {
+            markClosed();
+            unsubscribe(this);
+        }
+
+        public boolean isClosed() {
+            return closed;
+        }
+
+        /**
+         * Samples this subscriber lost to backpressure
+         */
+        public long getDroppedSamples() {
+            return ring.getDroppedSamples();
+        }
+
+        public long getOverrunCount() {
+            return ring.getOverrunCount();
+        }
+    }
+}
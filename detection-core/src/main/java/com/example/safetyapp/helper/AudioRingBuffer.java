@@ -0,0 +1,217 @@
+package com.example.safetyapp.helper;
+
+/**
+ * Lock-free single-producer ring buffer for 16-bit PCM audio
+ * The capture thread never blocks: write() overwrites the oldest unread audio, offer() drops
+ * the newest instead. One consumer reads either overlapping analysis windows or a
+ * contiguous stream, and detects when it has fallen behind the writer.
+ */
+public class AudioRingBuffer {
+
+    private final short[] buffer;
+    private final int mask;
+
+    // Total samples ever written - only the producer updates this, the volatile store publishes the data
+    private volatile long writePosition = 0;
+
+    // Largest single write seen; slots it may be overwriting are not yet covered by writePosition
+    private volatile int largestWrite = 0;
+
+    // Consumer-owned state
+    private long nextWindowEnd = -1;
+    private long readPosition = 0;
+
+    // Oldest sample the consumer still needs - published for offer()
+    private volatile long consumedPosition = 0;
+
+    // Loss counters - updated by the consumer for write(), by the producer for offer()
+    private volatile long droppedSamples = 0;
+    private volatile long overrunCount = 0;
+
+    /**
+     * @param minCapacity Minimum number of samples to retain; rounded up to a power of two
+     */
+    public AudioRingBuffer(int minCapacity) {
+        int capacity = Integer.highestOneBit(Math.max(2, minCapacity - 1)) << 1;
+        this.buffer = new short[capacity];
+        this.mask = capacity - 1;
+    }
+
+    public int capacity() {
+        return buffer.length;
+    }
+
+    // ==== Producer ====
+
+    /**
+     * Append samples. Never blocks; the oldest unread audio is overwritten if the consumer lags.
+     * Must only be called from the single producer thread.
+     */
+    public void write(short[] src, int offset, int length) {
+        if (length <= 0) return;
+        if (length > buffer.length) {
+            // Only the newest capacity samples can ever be read back
+            offset += length - buffer.length;
+            length = buffer.length;
+        }
+
+        if (length > largestWrite) {
+            largestWrite = length;
+        }
+
+        long position = writePosition;
+        int start = (int) (position & mask);
+        int firstPart = Math.min(length, buffer.length - start);
+        System.arraycopy(src, offset, buffer, start, firstPart);
+        if (firstPart < length) {
+            System.arraycopy(src, offset + firstPart, buffer, 0, length - firstPart);
+        }
+        writePosition = position + length;
+    }
+
+    /**
+     * Append samples only if they fit without overwriting audio the consumer has not read yet.
+     * Must only be called from the single producer thread.
+     * @return false if the samples were dropped
+     */
+    public boolean offer(short[] src, int offset, int length) {
+        // Stay within the span the consumer treats as intact (see readWindow/read)
+        long unread = writePosition - consumedPosition;
+        if (unread + length > buffer.length - Math.max(largestWrite, length)) {
+            recordOverrun(length);
+            return false;
+        }
+        write(src, offset, length);
+        return true;
+    }
+
+    public long getWritePosition() {
+        return writePosition;
+    }
+
+    // ==== Consumer ====
+
+    /**
+     * Copy the next analysis window into dest. Consecutive windows start hopSamples apart,
+     * so they overlap whenever hopSamples is smaller than dest.length.
+     * If the consumer fell so far behind that the window was overwritten, it skips ahead to
+     * the newest complete window and records the loss.
+     * @return true if dest was filled, false if not enough new audio has arrived yet
+     */
+    public boolean readWindow(short[] dest, int hopSamples) {
+        int windowLength = dest.length;
+        if (windowLength > buffer.length - largestWrite) {
+            throw new IllegalArgumentException("Window too large for ring capacity");
+        }
+
+        long end = nextWindowEnd < 0 ? windowLength : nextWindowEnd;
+        long written = writePosition;
+        if (written < end) {
+            return false;
+        }
+
+        int safeSpan = buffer.length - largestWrite;
+        if (written - (end - windowLength) > safeSpan) {
+            recordOverrun(written - end);
+            end = written;
+        }
+
+        long start = end - windowLength;
+        int from = (int) (start & mask);
+        int firstPart = Math.min(windowLength, buffer.length - from);
+        System.arraycopy(buffer, from, dest, 0, firstPart);
+        if (firstPart < windowLength) {
+            System.arraycopy(buffer, 0, dest, firstPart, windowLength - firstPart);
+        }
+
+        // The producer may have lapped us while copying - discard the torn window
+        long writtenAfterCopy = writePosition;
+        if (writtenAfterCopy - start > safeSpan) {
+            recordOverrun(writtenAfterCopy - end);
+            nextWindowEnd = writtenAfterCopy;
+            return false;
+        }
+
+        nextWindowEnd = end + Math.max(1, hopSamples);
+        consumedPosition = nextWindowEnd - windowLength;
+        return true;
+    }
+
+    /**
+     * Copy up to length of the oldest unread samples into dest (contiguous stream reading).
+     * If unread audio was overwritten, reading resumes at the oldest sample still available.
+     * @return Number of samples copied, 0 if nothing new has arrived
+     */
+    public int read(short[] dest, int offset, int length) {
+        long written = writePosition;
+        int safeSpan = buffer.length - largestWrite;
+        if (written - readPosition > safeSpan) {
+            long resumeAt = written - safeSpan;
+            recordOverrun(resumeAt - readPosition);
+            readPosition = resumeAt;
+        }
+
+        int count = (int) Math.min(length, written - readPosition);
+        if (count <= 0) return 0;
+
+        int from = (int) (readPosition & mask);
+        int firstPart = Math.min(count, buffer.length - from);
+        System.arraycopy(buffer, from, dest, offset, firstPart);
+        if (firstPart < count) {
+            System.arraycopy(buffer, 0, dest, offset + firstPart, count - firstPart);
+        }
+
+        long writtenAfterCopy = writePosition;
+        if (writtenAfterCopy - readPosition > safeSpan) {
+            // Torn copy - drop it and resume from the oldest intact sample on the next call
+            long resumeAt = writtenAfterCopy - safeSpan;
+            recordOverrun(resumeAt - readPosition);
+            readPosition = resumeAt;
+            consumedPosition = readPosition;
+            return 0;
+        }
+
+        readPosition += count;
+        consumedPosition = readPosition;
+        return count;
+    }
+
+    /**
+     * Number of samples available to read() right now
+     */
+    public int available() {
+        return (int) Math.min(Integer.MAX_VALUE, writePosition - readPosition);
+    }
+
+    /**
+     * Number of samples the producer still has to write before the next window is complete
+     */
+    public long samplesUntilNextWindow(int windowLength) {
+        long end = nextWindowEnd < 0 ? windowLength : nextWindowEnd;
+        return Math.max(0, end - writePosition);
+    }
+
+    /**
+     * Restart windowing from the newest audio, e.g. after a cooldown in which nothing was analysed.
+     * Skipping on purpose is not counted as a loss.
+     */
+    public void skipToLatest(int windowLength) {
+        long written = writePosition;
+        nextWindowEnd = Math.max(windowLength, written);
+        readPosition = written;
+        consumedPosition = nextWindowEnd - windowLength;
+    }
+
+    private void recordOverrun(long samplesLost) {
+        overrunCount++;
+        droppedSamples += Math.max(0, samplesLost);
+    }
+
+    public long getDroppedSamples() {
+        return droppedSamples;
+    }
+
+    public long getOverrunCount() {
+        return overrunCount;
+    }
+}
@@ -0,0 +1,101 @@
+package com.example.safetyapp.helper;
+
+/**
+ * Pass-rate counters for a cascade of detection stages
+ * Every window enters stage 0, and a window only reaches stage n + 1 if it passed stage n;
+ * windows that pass the last stage get full inference. From the counts follow each stage's
+ * pass rate and how many full inferences the cascade saved per hour of listening.
+ * Written by the one pipeline thread that runs the cascade; readers on other threads may see
+ * counts that are a window apart.
+ */
+public final class CascadeStats {
+    private static final double NANOS_PER_HOUR = 3_600e9;
+
+    private final String[] stageNames;
+    private final long[] entered;
+    private final long[] passed;
+    private long startNanos = System.nanoTime();
+
+    public CascadeStats(String... stageNames) {
+        if (stageNames.length == 0) {
+            throw new IllegalArgumentException("A cascade needs at least one stage");
+        }
+        this.stageNames = stageNames.clone();
+        this.entered = new long[stageNames.length];
+        this.passed = new long[stageNames.length];
+    }
+
+    /**
+     * Count one window judged by a stage
+     */
+    public void record(int stage, boolean pass) {
+        entered[stage]++;
+        if (pass) passed[stage]++;
+    }
+
+    public int stageCount() {
+        return stageNames.length;
+    }
+
+    public String stageName(int stage) {
+        return stageNames[stage];
+    }
+
+    /**
+     * Windows that entered the cascade
+     */
+    public long windows() {
+        return entered[0];
+    }
+
+    /**
+     * Windows that passed every stage and got full inference
+     */
+    public long fullInferences() {
+        return passed[passed.length - 1];
+    }
+
+    /**
+     * Fraction of the windows reaching a stage that passed it (1 if none reached it yet)
+     */
+    public float passRate(int stage) {
+        return entered[stage] == 0 ? 1.0f : (float) passed[stage] / entered[stage];
+    }
+
+    /**
+     * Fraction of all windows that did not need full inference
+     */
+    public float skippedFraction() {
+        return windows() == 0 ? 0.0f : 1.0f - (float) fullInferences() / windows();
+    }
+
+    /**
+     * Full inferences avoided per hour since construction or the last reset()
+     */
+    public float savedPerHour() {
+        long elapsed = System.nanoTime() - startNanos;
+        return elapsed <= 0 ? 0.0f : (float) ((windows() - fullInferences()) * NANOS_PER_HOUR / elapsed);
+    }
+
+    public void reset() {
+        for (int i = 0; i < entered.length; i++) {
+            entered[i] = 0;
+            passed[i] = 0;
+        }
+        startNanos = System.nanoTime();
+    }
+
+    /**
+     * One-line summary for the periodic stats log
+     */
+    @Override
+    public String toString() {
+        StringBuilder summary = new StringBuilder("Cascade{windows=").append(windows());
+        for (int i = 0; i < stageNames.length; i++) {
+            summary.append(", ").append(stageNames[i]).append('=')
+                    .append(passed[i]).append('/').append(entered[i]);
+        }
+        return summary.append(", skipped=").append(Math.round(skippedFraction() * 100)).append('%')
+                .append(", saved/h=").append(Math.round(savedPerHour())).append('}').toString();
+    }
+}
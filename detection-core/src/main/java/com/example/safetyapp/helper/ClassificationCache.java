@@ -0,0 +1,86 @@
+package com.example.safetyapp.helper;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bounded, thread-safe LRU cache of intent classifications keyed by normalised transcript
+ * The recogniser delivers the same transcript many times (partials, finals, restarts); a repeat
+ * then costs one hash lookup. Each entry remembers which engine produced it (a lexicon model or
+ * a learned model), so results never outlive a lexicon reload or an engine switch.
+ */
+public final class ClassificationCache {
+    private final int capacity;
+    private final LinkedHashMap<String, CachedResult> entries;
+    private long hits;
+    private long misses;
+
+    public ClassificationCache(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+        }
+        this.capacity = capacity;
+        // Access order: get() moves an entry to the back, the eldest is the least recently used
+        this.entries = new LinkedHashMap<String, CachedResult>(capacity * 4 / 3 + 1, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedResult> eldest) {
+                return size() > ClassificationCache.this.capacity;
+            }
+        };
+    }
+
+    /**
+     * @param normalizedText Transcript after TextNormalizer
+     * @param engine The engine that would classify it now
+     * @return The memoised classification, or null if absent or produced by another engine
+     */
+    public synchronized EmergencyIntentClassifier.EmergencyClassification get(String normalizedText, Object engine) {
+        CachedResult entry = entries.get(normalizedText);
+        if (entry == null || entry.engine != engine) {
+            misses++;
+            return null;
+        }
+        hits++;
+        return entry.classification;
+    }
+
+    public synchronized void put(String normalizedText, Object engine,
+                                 EmergencyIntentClassifier.EmergencyClassification classification) {
+        entries.put(normalizedText, new CachedResult(engine, classification));
+    }
+
+    public synchronized long hits() {
+        return hits;
+    }
+
+    public synchronized long misses() {
+        return misses;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    /**
+     * Drop all entries and reset the counters
+     */
+    public synchronized void clear() {
+        entries.clear();
+        hits = 0;
+        misses = 0;
+    }
+
+    private static final class CachedResult {
+        final Object engine;
+        final EmergencyIntentClassifier.EmergencyClassification classification;
+
+        CachedResult(Object engine, EmergencyIntentClassifier.EmergencyClassification classification) {
+            this.engine = engine;
+            this.classification = classification;
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package com.example.safetyapp.helper;
+
+/**
+ * Logging facade for the detection core
+ * The detectors in this module run both inside the app and on a plain JVM (unit tests,
+ * benchmarks), so they cannot call android.util.Log directly. The app installs a sink that
+ * forwards to Logcat at startup; until then, and on the JVM, messages are dropped.
+ * Levels use the same values as android.util.Log.
+ */
+public final class DetectionLog {
+    public static final int DEBUG = 3;
+    public static final int INFO = 4;
+    public static final int WARN = 5;
+    public static final int ERROR = 6;
+
+    /**
+     * Destination for log messages
+     */
+    public interface Sink {
+        boolean isLoggable(String tag, int level);
+
+        void log(int level, String tag, String message, Throwable error);
+    }
+
+    private static final Sink SILENT = new Sink() {
+        @Override
+        public boolean isLoggable(String tag, int level) {
+            return false;
+        }
+
+        @Override
+        public void log(int level, String tag, String message, Throwable error) {}
+    };
+
+    private static volatile Sink sink = SILENT;
+
+    private DetectionLog() {}
+
+    /**
+     * Install the log destination. Must happen before the detectors are first used,
+     * since they read isLoggable() once when their class is initialised.
+     */
+    public static void setSink(Sink newSink) {
+        sink = newSink != null ? newSink : SILENT;
+    }
+
+    public static boolean isLoggable(String tag, int level) {
+        return sink.isLoggable(tag, level);
+    }
+
+    public static void d(String tag, String message) {
+        sink.log(DEBUG, tag, message, null);
+    }
+
+    public static void i(String tag, String message) {
+        sink.log(INFO, tag, message, null);
+    }
+
+    public static void w(String tag, String message) {
+        sink.log(WARN, tag, message, null);
+    }
+
+    public static void e(String tag, String message) {
+        sink.log(ERROR, tag, message, null);
+    }
+
+    public static void e(String tag, String message, Throwable error) {
+        sink.log(ERROR, tag, message, error);
+    }
+}
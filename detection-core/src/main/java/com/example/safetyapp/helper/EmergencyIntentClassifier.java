@@ -0,0 +1,619 @@
+package com.example.safetyapp.helper;
+
+import java.util.*;
+
+/**
+ * AI-powered semantic emergency intent classifier
+ * Uses natural language understanding to detect emergencies beyond keyword matching
+ */
+public class EmergencyIntentClassifier {
+    private static final String TAG = "IntentClassifier";
+    private static final boolean DEBUG_LOGGING = DetectionLog.isLoggable(TAG, DetectionLog.DEBUG);
+
+    private static final EmergencyTypeDetector.EmergencyType[] TYPES = EmergencyTypeDetector.EmergencyType.values();
+    private static final int TYPE_COUNT = TYPES.length;
+
+    // Lexicon sets the scorer reads (the phrases themselves live in emergency_lexicon.txt)
+    private static final String SET_DISTRESS = "distress"; // Common distress indicators across all emergencies
+    private static final String SET_THREAT = "threat";     // Action verbs indicating threat
+
+    private static volatile Model currentModel;
+
+    // Learned model used instead of the intent patterns when set (see setLearnedModel)
+    private static volatile HashedIntentModel learnedModel;
+
+    /**
+     * Scoring tables derived from one EmergencyLexicon
+     * Intent patterns are flattened in file order; slots of pattern p are [coreStart, contextStart)
+     * and [contextStart, slotEnd). Rebuilt whenever a new lexicon is installed.
+     */
+    private static final class Model {
+        final EmergencyLexicon lexicon;
+
+        // Per-phrase tags, indexed by lexicon phrase id
+        final int[] phraseDistressCount;
+        final boolean[] phraseIsThreat;
+        final boolean[] phraseIsMultiWord;
+        final int[][] phraseNegatedPatterns; // Patterns this phrase negates
+        final int[][] phraseTargetSlots;     // Core/context slots this phrase fills
+
+        final EmergencyTypeDetector.EmergencyType[] patternTypes;
+        final float[] patternWeights;
+        final int[] patternCoreStart;
+        final int[] patternContextStart;
+        final int[] patternSlotEnd;
+
+        // Target phrase id and owning pattern per core/context slot
+        final int[] slotPhraseIds;
+        final int[] slotPatterns;
+
+        // Near-miss lookup over the core/context phrases; term ids map back to phrase ids
+        final FuzzyMatcher fuzzyTargets;
+        final int[] fuzzyTermPhrase;
+
+        Model(EmergencyLexicon lexicon) {
+            this.lexicon = lexicon;
+            patternTypes = lexicon.patternTypes;
+            patternWeights = lexicon.patternWeights;
+
+            int patternCount = patternTypes.length;
+            int slotCount = 0;
+            for (int p = 0; p < patternCount; p++) {
+                slotCount += lexicon.patternCore[p].length + lexicon.patternContext[p].length;
+            }
+
+            patternCoreStart = new int[patternCount];
+            patternContextStart = new int[patternCount];
+            patternSlotEnd = new int[patternCount];
+            slotPhraseIds = new int[slotCount];
+            slotPatterns = new int[slotCount];
+
+            int phraseCount = lexicon.phrases.length;
+            List<List<Integer>> targets = new ArrayList<>();
+            List<List<Integer>> negations = new ArrayList<>();
+            for (int id = 0; id < phraseCount; id++) {
+                targets.add(null);
+                negations.add(null);
+            }
+
+            int slot = 0;
+            for (int p = 0; p < patternCount; p++) {
+                patternCoreStart[p] = slot;
+                for (int id : lexicon.patternCore[p]) {
+                    slot = addSlot(slot, p, id, targets);
+                }
+                patternContextStart[p] = slot;
+                for (int id : lexicon.patternContext[p]) {
+                    slot = addSlot(slot, p, id, targets);
+                }
+                patternSlotEnd[p] = slot;
+
+                for (int id : lexicon.patternNegation[p]) {
+                    add(negations, id, p);
+                }
+            }
+
+            long distressMask = lexicon.setMask(SET_DISTRESS);
+            long threatMask = lexicon.setMask(SET_THREAT);
+            phraseDistressCount = new int[phraseCount];
+            phraseIsThreat = new boolean[phraseCount];
+            phraseIsMultiWord = new boolean[phraseCount];
+            phraseNegatedPatterns = new int[phraseCount][];
+            phraseTargetSlots = new int[phraseCount][];
+
+            List<String> targetPhrases = new ArrayList<>();
+            List<Integer> targetPhraseIds = new ArrayList<>();
+            for (int id = 0; id < phraseCount; id++) {
+                phraseDistressCount[id] = (lexicon.phraseSets[id] & distressMask) != 0 ? 1 : 0;
+                phraseIsThreat[id] = (lexicon.phraseSets[id] & threatMask) != 0;
+                phraseIsMultiWord[id] = lexicon.phrases[id].indexOf(' ') >= 0;
+                phraseNegatedPatterns[id] = toIntArray(negations.get(id));
+                phraseTargetSlots[id] = toIntArray(targets.get(id));
+                if (phraseTargetSlots[id].length > 0) {
+                    targetPhrases.add(lexicon.phrases[id]);
+                    targetPhraseIds.add(id);
+                }
+            }
+
+            fuzzyTargets = new FuzzyMatcher(targetPhrases, 0.8f, 0.7f);
+            fuzzyTermPhrase = toIntArray(targetPhraseIds);
+
+            if (DEBUG_LOGGING) DetectionLog.d(TAG, "Model built for lexicon v" + lexicon.version() + ": " + phraseCount
+                    + " phrases, " + patternCount + " patterns");
+        }
+
+        private int addSlot(int slot, int pattern, int phraseId, List<List<Integer>> targets) {
+            slotPhraseIds[slot] = phraseId;
+            slotPatterns[slot] = pattern;
+            add(targets, phraseId, slot);
+            return slot + 1;
+        }
+
+        private static void add(List<List<Integer>> lists, int index, int value) {
+            List<Integer> list = lists.get(index);
+            if (list == null) {
+                list = new ArrayList<>();
+                lists.set(index, list);
+            }
+            list.add(value);
+        }
+
+        private static int[] toIntArray(List<Integer> values) {
+            if (values == null) return new int[0];
+            int[] result = new int[values.size()];
+            for (int i = 0; i < result.length; i++) {
+                result[i] = values.get(i);
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Tables for the lexicon currently installed
+     */
+    private static Model model() {
+        EmergencyLexicon lexicon = EmergencyLexicon.current();
+        Model current = currentModel;
+        if (current == null || current.lexicon != lexicon) {
+            // Threads racing after a reload may each build one; any of them is correct
+            current = new Model(lexicon);
+            currentModel = current;
+        }
+        return current;
+    }
+
+    /**
+     * Per-thread state for one classification: collects automaton hits into flat arrays
+     * Everything a hit touches is also listed, so reset() and score() only visit the few phrases,
+     * slots and patterns a transcript actually hit instead of the whole lexicon.
+     */
+    private static final class MatchState implements PhraseAutomaton.MatchSink, FuzzyMatcher.MatchSink {
+        final Model model;
+        final TextNormalizer.Buffer normalized = new TextNormalizer.Buffer();
+        final float[] slotScores;
+        final boolean[] patternNegated;
+        final boolean[] phraseSeen;
+        final boolean[] patternTouched;
+        final float[] typeScores = new float[TYPE_COUNT];
+        final int[] seenPhrases;
+        final int[] raisedSlots;
+        final int[] touchedPatterns;
+        int seenCount;
+        int raisedCount;
+        int touchedCount;
+        CharSequence text;
+        int distressCount;
+        boolean threatPresent;
+
+        MatchState(Model model) {
+            this.model = model;
+            int phraseCount = model.lexicon.phrases.length;
+            int patternCount = model.patternTypes.length;
+            slotScores = new float[model.slotPhraseIds.length];
+            raisedSlots = new int[model.slotPhraseIds.length];
+            patternNegated = new boolean[patternCount];
+            patternTouched = new boolean[patternCount];
+            touchedPatterns = new int[patternCount];
+            phraseSeen = new boolean[phraseCount];
+            seenPhrases = new int[phraseCount];
+        }
+
+        void reset(CharSequence text) {
+            this.text = text;
+            for (int i = 0; i < seenCount; i++) {
+                int phraseId = seenPhrases[i];
+                phraseSeen[phraseId] = false;
+                for (int pattern : model.phraseNegatedPatterns[phraseId]) {
+                    patternNegated[pattern] = false;
+                }
+            }
+            for (int i = 0; i < raisedCount; i++) {
+                slotScores[raisedSlots[i]] = 0.0f;
+            }
+            for (int i = 0; i < touchedCount; i++) {
+                patternTouched[touchedPatterns[i]] = false;
+            }
+            seenCount = 0;
+            raisedCount = 0;
+            touchedCount = 0;
+            distressCount = 0;
+            threatPresent = false;
+        }
+
+        @Override
+        public void onMatch(int phraseId, int start, int end) {
+            applyHit(phraseId, hitSimilarity(model, text, phraseId, start, end));
+        }
+
+        /**
+         * Record one lexicon hit; similarity only matters for target phrases
+         */
+        void applyHit(int phraseId, float similarity) {
+            if (!phraseSeen[phraseId]) {
+                phraseSeen[phraseId] = true;
+                seenPhrases[seenCount++] = phraseId;
+                distressCount += model.phraseDistressCount[phraseId];
+                threatPresent |= model.phraseIsThreat[phraseId];
+                for (int pattern : model.phraseNegatedPatterns[phraseId]) {
+                    patternNegated[pattern] = true;
+                }
+            }
+
+            if (similarity > 0.0f) {
+                raiseSlots(model.phraseTargetSlots[phraseId], similarity);
+            }
+        }
+
+        @Override
+        public void onFuzzyMatch(int termId, float similarity) {
+            raiseSlots(model.phraseTargetSlots[model.fuzzyTermPhrase[termId]], similarity);
+        }
+
+        private void raiseSlots(int[] slots, float similarity) {
+            for (int slot : slots) {
+                if (similarity > slotScores[slot]) {
+                    if (slotScores[slot] == 0.0f) {
+                        raisedSlots[raisedCount++] = slot;
+                    }
+                    slotScores[slot] = similarity;
+
+                    int pattern = model.slotPatterns[slot];
+                    if (!patternTouched[pattern]) {
+                        patternTouched[pattern] = true;
+                        touchedPatterns[touchedCount++] = pattern;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Similarity of a target found inside the text: exact word or whole phrase = 1,
+     * part of a longer word = length ratio (only counted above 0.7)
+     */
+    private static float hitSimilarity(Model model, CharSequence text, int phraseId, int start, int end) {
+        if (model.phraseTargetSlots[phraseId].length == 0) return 0.0f;
+        if (model.phraseIsMultiWord[phraseId]) return 1.0f;
+
+        int wordStart = start;
+        while (wordStart > 0 && text.charAt(wordStart - 1) != ' ') wordStart--;
+        int wordEnd = end;
+        while (wordEnd < text.length() && text.charAt(wordEnd) != ' ') wordEnd++;
+
+        int wordLength = wordEnd - wordStart;
+        if (wordLength == end - start) return 1.0f;
+
+        float similarity = (end - start) / (float) wordLength;
+        return similarity > 0.7f ? similarity : 0.0f;
+    }
+
+    private static final ThreadLocal<MatchState> MATCH_STATE = new ThreadLocal<>();
+
+    private static final int RESULT_CACHE_CAPACITY = 128;
+    private static final ClassificationCache RESULT_CACHE = new ClassificationCache(RESULT_CACHE_CAPACITY);
+
+    // ==== Engine selection ====
+
+    /**
+     * Classify with a learned model instead of the rule engine, or go back to the rules with null
+     * Applies to classifyIntent() and to every Session from its next update on.
+     */
+    public static void setLearnedModel(HashedIntentModel model) {
+        learnedModel = model;
+        DetectionLog.i(TAG, model != null ? "Using learned intent model (" + (1 << model.bucketBits()) + " buckets)"
+                : "Using rule-based intent patterns");
+    }
+
+    public static boolean isUsingLearnedModel() {
+        return learnedModel != null;
+    }
+
+    /**
+     * Classify emergency intent using semantic understanding
+     * @param text Spoken or detected text
+     * @return Detected emergency type with confidence
+     */
+    public static EmergencyClassification classifyIntent(String text) {
+        if (text == null) {
+            return new EmergencyClassification(EmergencyTypeDetector.EmergencyType.NONE, 0.0f);
+        }
+
+        HashedIntentModel learned = learnedModel;
+        Model model = model();
+        MatchState state = MATCH_STATE.get();
+        if (state == null || state.model != model) {
+            state = new MatchState(model);
+            MATCH_STATE.set(state);
+        }
+        TextNormalizer.Buffer normalizedText = state.normalized;
+        TextNormalizer.normalize(text, normalizedText);
+        if (normalizedText.tokenCount() == 0) {
+            return new EmergencyClassification(EmergencyTypeDetector.EmergencyType.NONE, 0.0f);
+        }
+
+        // Repeated transcripts (partials, finals, recogniser restarts) are answered from the cache
+        Object engine = learned != null ? learned : model;
+        String key = normalizedText.toString();
+        EmergencyClassification classification = RESULT_CACHE.get(key, engine);
+        if (classification != null) return classification;
+
+        if (learned != null) {
+            classification = learned.classify(text);
+            if (DEBUG_LOGGING) DetectionLog.d(TAG, "Learned intent classification: " + classification.type + " (confidence: " + classification.confidence + ") for text: " + text);
+        } else {
+            // One pass over the text finds every distress, threat, core, context and negation phrase
+            state.reset(normalizedText);
+            model.lexicon.automaton.scan(normalizedText, state);
+
+            // Targets that do not occur literally may still be a near-miss of a spoken word
+            matchFuzzyTargets(normalizedText, state);
+
+            classification = score(state);
+            if (DEBUG_LOGGING) DetectionLog.d(TAG, "Intent classification: " + classification.type + " (confidence: " + classification.confidence + ") for text: " + text);
+        }
+
+        RESULT_CACHE.put(key, engine, classification);
+        return classification;
+    }
+
+    /**
+     * Memoised classifications shared by classifyIntent() and every Session
+     * Exposed for its hit/miss counters.
+     */
+    public static ClassificationCache resultCache() {
+        return RESULT_CACHE;
+    }
+
+    /**
+     * Turn the hits collected in state into the best intent
+     */
+    private static EmergencyClassification score(MatchState state) {
+        // Check for general distress signals first
+        float distressScore = Math.min(state.distressCount / 3.0f, 1.0f);
+
+        // A pattern with no raised slot scores 0, so only the touched ones need scoring
+        float[] typeScores = state.typeScores;
+        Arrays.fill(typeScores, 0.0f);
+        for (int i = 0; i < state.touchedCount; i++) {
+            int pattern = state.touchedPatterns[i];
+            int type = state.model.patternTypes[pattern].ordinal();
+            typeScores[type] = Math.max(typeScores[type], scorePattern(pattern, state));
+        }
+
+        // Find best matching intent pattern (types in declaration order, first one wins a tie)
+        EmergencyTypeDetector.EmergencyType bestType = EmergencyTypeDetector.EmergencyType.NONE;
+        float bestScore = 0.0f;
+
+        for (int type = 0; type < TYPE_COUNT; type++) {
+            float typeScore = Math.min(typeScores[type], 1.0f);
+
+            // Boost score if distress signals present
+            if (distressScore > 0.3f) {
+                typeScore *= (1.0f + distressScore * 0.5f);
+            }
+
+            if (typeScore > bestScore) {
+                bestScore = typeScore;
+                bestType = TYPES[type];
+            }
+        }
+
+        // If no specific type but high distress, return general distress
+        if (bestType == EmergencyTypeDetector.EmergencyType.NONE && distressScore > 0.5f) {
+            bestType = EmergencyTypeDetector.EmergencyType.GENERAL_DISTRESS;
+            bestScore = distressScore;
+        }
+
+        return new EmergencyClassification(bestType, bestScore);
+    }
+
+    /**
+     * Score one intent pattern from the collected hits
+     */
+    private static float scorePattern(int pattern, MatchState state) {
+        if (state.patternNegated[pattern]) return 0.0f;
+
+        Model model = state.model;
+        float coreScore = averageSlotScore(state.slotScores, model.patternCoreStart[pattern], model.patternContextStart[pattern]);
+        float contextScore = averageSlotScore(state.slotScores, model.patternContextStart[pattern], model.patternSlotEnd[pattern]);
+
+        // Combined score with weights
+        float patternScore = (coreScore * 0.7f + contextScore * 0.3f) * model.patternWeights[pattern];
+
+        // Boost if threat verbs present
+        if (state.threatPresent) {
+            patternScore *= 1.2f;
+        }
+        return patternScore;
+    }
+
+    private static float averageSlotScore(float[] slotScores, int from, int to) {
+        if (to <= from) return 0.0f;
+
+        float sum = 0.0f;
+        for (int slot = from; slot < to; slot++) {
+            sum += slotScores[slot];
+        }
+        return sum / (to - from);
+    }
+
+    /**
+     * Look up every word in the fuzzy index: a word that is a large part of a target,
+     * or a close misspelling/mis-recognition of it
+     */
+    private static void matchFuzzyTargets(TextNormalizer.Buffer normalizedText, MatchState state) {
+        for (int token = 0; token < normalizedText.tokenCount(); token++) {
+            state.model.fuzzyTargets.lookup(normalizedText, normalizedText.tokenStart(token), normalizedText.tokenEnd(token), state);
+        }
+    }
+
+    /**
+     * Incremental classifier for one utterance's successive partial hypotheses
+     * Each update() re-normalises the hypothesis but only re-scans from the start of the first
+     * word that changed: automaton states and hits for the unchanged words are kept from the
+     * previous update, so classifying a growing transcript costs roughly its new words.
+     * Results are identical to classifyIntent() on the same text. Not thread-safe; use one
+     * session per recogniser and reset() it when a new utterance starts.
+     */
+    public static final class Session implements FuzzyMatcher.MatchSink {
+        private Model model;
+        private MatchState state;
+        private TextNormalizer.Buffer previous = new TextNormalizer.Buffer();
+        private TextNormalizer.Buffer current = new TextNormalizer.Buffer();
+
+        // Automaton state after each char of previous
+        private int[] automatonStates = new int[128];
+
+        // Lexicon hits in end order: phrase, similarity, end offset
+        private int[] hitPhrases = new int[32];
+        private float[] hitSimilarities = new float[32];
+        private int[] hitEnds = new int[32];
+        private int hitCount;
+
+        // Fuzzy hits in token order: term, similarity, token start offset
+        private int[] fuzzyTerms = new int[16];
+        private float[] fuzzySimilarities = new float[16];
+        private int[] fuzzyTokenStarts = new int[16];
+        private int fuzzyCount;
+        private int lookupTokenStart;
+
+        /**
+         * Forget the previous hypothesis (start of a new utterance)
+         */
+        public void reset() {
+            previous.clear();
+            hitCount = 0;
+            fuzzyCount = 0;
+        }
+
+        /**
+         * Classify the latest hypothesis, reusing work for the prefix it shares with the last one
+         */
+        public EmergencyClassification update(CharSequence hypothesis) {
+            if (hypothesis == null) {
+                return new EmergencyClassification(EmergencyTypeDetector.EmergencyType.NONE, 0.0f);
+            }
+
+            // The learned model is a single cheap pass; nothing to carry between hypotheses
+            if (learnedModel != null) {
+                reset(); // Saved hits would be stale if the rule engine is selected again
+                return classifyIntent(hypothesis.toString());
+            }
+
+            // Saved states and hits belong to one lexicon; start over if it was replaced
+            Model latest = model();
+            if (latest != model) {
+                model = latest;
+                state = new MatchState(latest);
+                reset();
+            }
+            PhraseAutomaton automaton = latest.lexicon.automaton;
+
+            TextNormalizer.normalize(hypothesis, current);
+            int length = current.length();
+
+            // A repeat is answered from the cache; previous and its hits stay as they are, so the
+            // next update still resumes against the last hypothesis actually scanned
+            String key = length > 0 ? current.toString() : null;
+            if (key != null) {
+                EmergencyClassification cached = RESULT_CACHE.get(key, latest);
+                if (cached != null) return cached;
+            }
+
+            // Resume at the start of the word holding the first changed char
+            int common = 0;
+            int limit = Math.min(length, previous.length());
+            while (common < limit && current.charAt(common) == previous.charAt(common)) common++;
+            int resume = common;
+            while (resume > 0 && current.charAt(resume - 1) != ' ') resume--;
+
+            while (hitCount > 0 && hitEnds[hitCount - 1] >= resume) hitCount--;
+            while (fuzzyCount > 0 && fuzzyTokenStarts[fuzzyCount - 1] >= resume) fuzzyCount--;
+
+            if (automatonStates.length < length) {
+                automatonStates = Arrays.copyOf(automatonStates, Math.max(length, automatonStates.length * 2));
+            }
+            int automatonState = resume > 0 ? automatonStates[resume - 1] : 0;
+            for (int i = resume; i < length; i++) {
+                automatonState = automaton.advance(automatonState, current.charAt(i));
+                automatonStates[i] = automatonState;
+
+                int end = i + 1;
+                for (int output = automaton.firstOutput(automatonState); output >= 0; output = automaton.nextOutput(output)) {
+                    int phraseId = automaton.outputPhrase(output);
+                    addHit(phraseId, hitSimilarity(latest, current, phraseId, end - automaton.phraseLength(phraseId), end), end);
+                }
+            }
+
+            for (int token = 0; token < current.tokenCount(); token++) {
+                lookupTokenStart = current.tokenStart(token);
+                if (lookupTokenStart < resume) continue;
+                latest.fuzzyTargets.lookup(current, lookupTokenStart, current.tokenEnd(token), this);
+            }
+
+            TextNormalizer.Buffer swap = previous;
+            previous = current;
+            current = swap;
+
+            if (previous.tokenCount() == 0) {
+                return new EmergencyClassification(EmergencyTypeDetector.EmergencyType.NONE, 0.0f);
+            }
+
+            // Replaying the hit list is cheap next to scanning, and every effect is order-independent
+            state.reset(previous);
+            for (int i = 0; i < hitCount; i++) {
+                state.applyHit(hitPhrases[i], hitSimilarities[i]);
+            }
+            for (int i = 0; i < fuzzyCount; i++) {
+                state.onFuzzyMatch(fuzzyTerms[i], fuzzySimilarities[i]);
+            }
+
+            EmergencyClassification classification = score(state);
+            RESULT_CACHE.put(key, latest, classification);
+            if (DEBUG_LOGGING) DetectionLog.d(TAG, "Partial intent classification: " + classification.type + " (confidence: " + classification.confidence + ") for text: " + hypothesis);
+            return classification;
+        }
+
+        @Override
+        public void onFuzzyMatch(int termId, float similarity) {
+            if (fuzzyCount == fuzzyTerms.length) {
+                fuzzyTerms = Arrays.copyOf(fuzzyTerms, fuzzyCount * 2);
+                fuzzySimilarities = Arrays.copyOf(fuzzySimilarities, fuzzyCount * 2);
+                fuzzyTokenStarts = Arrays.copyOf(fuzzyTokenStarts, fuzzyCount * 2);
+            }
+            fuzzyTerms[fuzzyCount] = termId;
+            fuzzySimilarities[fuzzyCount] = similarity;
+            fuzzyTokenStarts[fuzzyCount] = lookupTokenStart;
+            fuzzyCount++;
+        }
+
+        private void addHit(int phraseId, float similarity, int end) {
+            if (hitCount == hitPhrases.length) {
+                hitPhrases = Arrays.copyOf(hitPhrases, hitCount * 2);
+                hitSimilarities = Arrays.copyOf(hitSimilarities, hitCount * 2);
+                hitEnds = Arrays.copyOf(hitEnds, hitCount * 2);
+            }
+            hitPhrases[hitCount] = phraseId;
+            hitSimilarities[hitCount] = similarity;
+            hitEnds[hitCount] = end;
+            hitCount++;
+        }
+    }
+
+    /**
+     * Result class for emergency classification
+     */
+    public static class EmergencyClassification {
+        public final EmergencyTypeDetector.EmergencyType type;
+        public final float confidence;
+
+        public EmergencyClassification(EmergencyTypeDetector.EmergencyType type, float confidence) {
+            this.type = type;
+            this.confidence = confidence;
+        }
+
+        public boolean isEmergency() {
+            return type != EmergencyTypeDetector.EmergencyType.NONE && confidence > 0.5f;
+        }
+    }
+}
@@ -0,0 +1,301 @@
+package com.example.safetyapp.helper;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * The one emergency phrase lexicon shared by every speech and keyword detector
+ * Compiled at build time by LexiconCompiler; at runtime the binary is read (typically from a
+ * memory-mapped file) straight into the automaton's arrays, with no parsing or rebuilding.
+ * Phrases belong to named sets ("sos", "distress", ...) and the intent patterns refer to them
+ * by id. A lexicon is immutable: callers take current() once per check and a newer lexicon can
+ * be installed at any time without stopping detection.
+ */
+public final class EmergencyLexicon {
+    private static final String TAG = "EmergencyLexicon";
+
+    // File name of the compiled lexicon (app asset and JVM classpath resource)
+    public static final String FILE_NAME = "emergency_lexicon.bin";
+
+    /**
+     * Where the bundled lexicon comes from (the app maps it from its assets)
+     */
+    public interface Source {
+        ByteBuffer open() throws IOException;
+    }
+
+    private static final Object LOCK = new Object();
+    private static volatile EmergencyLexicon current;
+    private static Source bundledSource;
+
+    private final int version;
+    private final Map<String, Integer> setIds = new HashMap<>();
+
+    // Phrase id -> normalised phrase and bitmask of the sets it is in
+    final String[] phrases;
+    final long[] phraseSets;
+    final PhraseAutomaton automaton;
+
+    // Intent patterns, in file order; slot lists are phrase ids
+    final EmergencyTypeDetector.EmergencyType[] patternTypes;
+    final float[] patternWeights;
+    final int[][] patternCore;
+    final int[][] patternContext;
+    final int[][] patternNegation;
+
+    private static final ThreadLocal<TextNormalizer.Buffer> NORMALIZED = new ThreadLocal<TextNormalizer.Buffer>() {
+        @Override
+        protected TextNormalizer.Buffer initialValue() {
+            return new TextNormalizer.Buffer();
+        }
+    };
+
+    private EmergencyLexicon(ByteBuffer in, int version) throws IOException {
+        this.version = version;
+
+        int setCount = readCount(in, LexiconCompiler.MAX_SETS);
+        for (int set = 0; set < setCount; set++) {
+            setIds.put(readString(in), set);
+        }
+
+        int phraseCount = readCount(in, Integer.MAX_VALUE);
+        phrases = new String[phraseCount];
+        phraseSets = new long[phraseCount];
+        int[] phraseLengths = new int[phraseCount];
+        for (int id = 0; id < phraseCount; id++) {
+            phrases[id] = readString(in);
+            phraseSets[id] = in.getLong();
+            phraseLengths[id] = phrases[id].length();
+        }
+
+        automaton = PhraseAutomaton.read(in, phraseLengths);
+
+        int patternCount = readCount(in, Integer.MAX_VALUE);
+        patternTypes = new EmergencyTypeDetector.EmergencyType[patternCount];
+        patternWeights = new float[patternCount];
+        patternCore = new int[patternCount][];
+        patternContext = new int[patternCount][];
+        patternNegation = new int[patternCount][];
+        for (int p = 0; p < patternCount; p++) {
+            String type = readString(in);
+            try {
+                patternTypes[p] = EmergencyTypeDetector.EmergencyType.valueOf(type);
+            } catch (IllegalArgumentException e) {
+                patternTypes[p] = EmergencyTypeDetector.EmergencyType.NONE;
+            }
+            if (patternTypes[p] == EmergencyTypeDetector.EmergencyType.NONE) {
+                throw new IOException("Bad emergency type " + type);
+            }
+            patternWeights[p] = in.getFloat();
+            patternCore[p] = readPhraseIds(in);
+            patternContext[p] = readPhraseIds(in);
+            patternNegation[p] = readPhraseIds(in);
+        }
+
+        if (in.hasRemaining()) {
+            throw new IOException(in.remaining() + " unexpected bytes after the lexicon");
+        }
+    }
+
+    /**
+     * Read a compiled lexicon
+     * @param buffer File contents from position to limit (e.g. a mapped file); not modified
+     * @throws IOException if the data is not a valid lexicon of a supported format
+     */
+    public static EmergencyLexicon read(ByteBuffer buffer) throws IOException {
+        ByteBuffer in = buffer.duplicate().order(ByteOrder.BIG_ENDIAN);
+        try {
+            if (in.remaining() < LexiconCompiler.HEADER_SIZE || in.getInt() != LexiconCompiler.MAGIC) {
+                throw new IOException("Not an emergency lexicon");
+            }
+            int formatVersion = in.getInt();
+            if (formatVersion != LexiconCompiler.FORMAT_VERSION) {
+                throw new IOException("Unsupported lexicon format " + formatVersion);
+            }
+            int version = in.getInt();
+            int payloadLength = in.getInt();
+            int expectedCrc = in.getInt();
+            if (payloadLength < 0 || payloadLength != in.remaining()) {
+                throw new IOException("Lexicon is truncated or has trailing data");
+            }
+            if (crc(in) != expectedCrc) {
+                throw new IOException("Lexicon checksum mismatch");
+            }
+
+            return new EmergencyLexicon(in, version);
+        } catch (BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException e) {
+            throw new IOException("Malformed lexicon", e);
+        }
+    }
+
+    /**
+     * Compile and read lexicon source in one go (tests and tools; the app ships the compiled form)
+     */
+    public static EmergencyLexicon compile(String source) throws IOException {
+        return read(ByteBuffer.wrap(LexiconCompiler.compile(new StringReader(source))));
+    }
+
+    // ==== Installed lexicon ====
+
+    /**
+     * Set where the bundled lexicon is loaded from. Must be called before the first current();
+     * without it the lexicon is read from the classpath (JVM tests and benchmarks).
+     */
+    public static void setBundledSource(Source source) {
+        synchronized (LOCK) {
+            bundledSource = source;
+        }
+    }
+
+    /**
+     * The lexicon in use, loading the bundled one on first call
+     * If the bundled lexicon cannot be read an empty one is used (and logged), so callers never fail.
+     */
+    public static EmergencyLexicon current() {
+        EmergencyLexicon lexicon = current;
+        if (lexicon != null) return lexicon;
+
+        synchronized (LOCK) {
+            if (current == null) {
+                current = loadBundled();
+            }
+            return current;
+        }
+    }
+
+    /**
+     * Atomically replace the lexicon in use, if the new one has a higher version
+     * Checks already running finish on the lexicon they started with.
+     * @return true if installed
+     */
+    public static boolean install(EmergencyLexicon lexicon) {
+        synchronized (LOCK) {
+            EmergencyLexicon installed = current();
+            if (lexicon.version <= installed.version) {
+                DetectionLog.i(TAG, "Ignoring lexicon v" + lexicon.version + ", v" + installed.version + " is installed");
+                return false;
+            }
+            current = lexicon;
+        }
+        DetectionLog.i(TAG, "Installed lexicon v" + lexicon.version + " (" + lexicon.phrases.length + " phrases, "
+                + lexicon.patternTypes.length + " intent patterns)");
+        return true;
+    }
+
+    private static EmergencyLexicon loadBundled() {
+        try {
+            ByteBuffer buffer = bundledSource != null ? bundledSource.open() : readClasspathResource();
+            EmergencyLexicon lexicon = read(buffer);
+            DetectionLog.i(TAG, "Loaded bundled lexicon v" + lexicon.version);
+            return lexicon;
+        } catch (IOException e) {
+            DetectionLog.e(TAG, "Bundled lexicon unavailable, phrase detection is disabled", e);
+            try {
+                return compile("version 0");
+            } catch (IOException impossible) {
+                throw new IllegalStateException(impossible);
+            }
+        }
+    }
+
+    private static ByteBuffer readClasspathResource() throws IOException {
+        try (InputStream in = EmergencyLexicon.class.getResourceAsStream("/" + FILE_NAME)) {
+            if (in == null) {
+                throw new IOException(FILE_NAME + " not found on the classpath");
+            }
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            byte[] chunk = new byte[8192];
+            int read;
+            while ((read = in.read(chunk)) > 0) {
+                bytes.write(chunk, 0, read);
+            }
+            return ByteBuffer.wrap(bytes.toByteArray());
+        }
+    }
+
+    // ==== Lookups ====
+
+    public int version() {
+        return version;
+    }
+
+    /**
+     * Bit of a phrase set in the masks returned by match(), or 0 if this lexicon has no such set
+     */
+    public long setMask(String setName) {
+        Integer id = setIds.get(setName);
+        return id != null ? 1L << id : 0L;
+    }
+
+    /**
+     * Every phrase set with at least one phrase in text (a bitmask of setMask() bits)
+     * One normalising pass and one automaton scan, whatever the number of sets.
+     */
+    public long match(CharSequence text) {
+        if (text == null) return 0L;
+
+        TextNormalizer.Buffer normalized = NORMALIZED.get();
+        TextNormalizer.normalize(text, normalized);
+
+        long found = 0L;
+        int state = 0;
+        for (int i = 0, n = normalized.length(); i < n; i++) {
+            state = automaton.advance(state, normalized.charAt(i));
+            for (int output = automaton.firstOutput(state); output >= 0; output = automaton.nextOutput(output)) {
+                found |= phraseSets[automaton.outputPhrase(output)];
+            }
+        }
+        return found;
+    }
+
+    // ==== Reading ====
+
+    private static int crc(ByteBuffer in) {
+        CRC32 crc = new CRC32();
+        ByteBuffer data = in.duplicate();
+        byte[] chunk = new byte[8192];
+        while (data.hasRemaining()) {
+            int length = Math.min(chunk.length, data.remaining());
+            data.get(chunk, 0, length);
+            crc.update(chunk, 0, length);
+        }
+        return (int) crc.getValue();
+    }
+
+    private static int readCount(ByteBuffer in, int max) throws IOException {
+        int count = in.getInt();
+        if (count < 0 || count > max || count > in.remaining()) {
+            throw new IOException("Bad count " + count);
+        }
+        return count;
+    }
+
+    private static String readString(ByteBuffer in) throws IOException {
+        int length = readCount(in, Integer.MAX_VALUE);
+        char[] chars = new char[length];
+        for (int i = 0; i < length; i++) {
+            chars[i] = in.getChar();
+        }
+        return new String(chars);
+    }
+
+    private int[] readPhraseIds(ByteBuffer in) throws IOException {
+        int count = readCount(in, Integer.MAX_VALUE);
+        int[] ids = new int[count];
+        for (int i = 0; i < count; i++) {
+            ids[i] = in.getInt();
+            if (ids[i] < 0 || ids[i] >= phrases.length) {
+                throw new IOException("Bad phrase id " + ids[i]);
+            }
+        }
+        return ids;
+    }
+}
@@ -1,9 +1,5 @@
 package com.example.safetyapp.helper;
 
-import android.util.Log;
-import java.util.HashMap;
-import java.util.Map;
-
 /**
  * Multi-class emergency detection system
  * Analyzes audio to detect various emergency scenarios
@@ -39,25 +35,23 @@ public class EmergencyTypeDetector {
         public String getDescription() { return description; }
     }
 
-    // YAMNet class indices for emergency sounds (from AudioSet ontology)
-    private static final int CLASS_SCREAM = 307;  // Screaming
-    private static final int CLASS_CRYING = 309;  // Crying, sobbing
-    private static final int CLASS_GLASS_BREAK = 396;  // Glass breaking
-    private static final int CLASS_CRASH = 403;  // Vehicle crash
-    private static final int CLASS_EXPLOSION = 427;  // Explosion
-    private static final int CLASS_FIRE_ALARM = 388;  // Smoke detector, fire alarm
-    private static final int CLASS_SIREN = 390;  // Siren
-    private static final int CLASS_GUNSHOT = 427;  // Gunshot, gunfire
-    private static final int CLASS_CROWD = 74;   // Crowd
-    private static final int CLASS_YELL = 305;   // Yell
-    private static final int CLASS_GASP = 308;   // Gasp
-    private static final int CLASS_WHIMPER = 310; // Whimper
-
-    // Detection thresholds
-    private static final float YAMNET_THRESHOLD = 0.3f;
+    // Detection thresholds (YAMNet class rules live in YamnetRuleTable)
     private static final float SCREAM_THRESHOLD = 0.5f;  // 50% distress detection threshold
     private static final float PHRASE_CONFIDENCE_MIN = 0.6f;
 
+    // Rule evaluation for callers that pass raw scores instead of a ScoreFrame
+    private static final ThreadLocal<YamnetRuleTable.Evaluation> RULES =
+            ThreadLocal.withInitial(YamnetRuleTable.Evaluation::new);
+
+    // Keyword fallback when the intent classifier is unsure: lexicon sets, checked in order
+    private static final KeywordCategoryMatcher FALLBACK_KEYWORDS = new KeywordCategoryMatcher(
+            "fallback_assault", "fallback_kidnapping", "fallback_stalking",
+            "fallback_harassment", "fallback_general_distress");
+    private static final EmergencyType[] FALLBACK_TYPES = {
+            EmergencyType.ASSAULT_ATTACK, EmergencyType.KIDNAPPING, EmergencyType.STALKING,
+            EmergencyType.HARASSMENT, EmergencyType.GENERAL_DISTRESS
+    };
+
     /**
      * Detect emergency type from audio analysis
      * @param yamnetScores YAMNet 521-class output
@@ -71,12 +65,50 @@ public class EmergencyTypeDetector {
             float screamProbability,
             float rms,
             String detectedPhrases) {
+        return detectEmergencyType(yamnetScores, null, screamProbability, rms, detectedPhrases);
+    }
+
+    /**
+     * Same as detectEmergencyType(float[], ...), reading a shared score frame whose rules
+     * were already evaluated when it was filled
+     */
+    public static EmergencyType detectEmergencyType(
+            ScoreFrame scores,
+            float screamProbability,
+            float rms,
+            String detectedPhrases) {
+        return detectEmergencyType(scores.values, scores.rules(), screamProbability, rms, detectedPhrases);
+    }
+
+    /**
+     * Same as detectEmergencyType(ScoreFrame, ...), judging ambient sounds on the smoothed
+     * evidence of the last few windows; the scream context still reads the current window
+     * @param history Updated with the current window
+     */
+    public static EmergencyType detectEmergencyType(
+            ScoreFrame scores,
+            YamnetScoreHistory history,
+            float screamProbability,
+            float rms,
+            String detectedPhrases) {
+        return detectEmergencyType(scores.values, history.rules(), screamProbability, rms, detectedPhrases);
+    }
+
+    /**
+     * @param rules Rule evaluation of yamnetScores, or null to evaluate only if needed
+     */
+    private static EmergencyType detectEmergencyType(
+            float[] yamnetScores,
+            YamnetRuleTable.Evaluation rules,
+            float screamProbability,
+            float rms,
+            String detectedPhrases) {
 
         // Priority 1: Check for explicit emergency phrases
         if (detectedPhrases != null && !detectedPhrases.isEmpty()) {
             EmergencyType phraseEmergency = classifyFromPhrase(detectedPhrases);
             if (phraseEmergency != EmergencyType.NONE) {
-                Log.i(TAG, "Emergency detected from phrase: " + phraseEmergency);
+                DetectionLog.i(TAG, "Emergency detected from phrase: " + phraseEmergency);
                 return phraseEmergency;
             }
         }
@@ -88,9 +120,13 @@ public class EmergencyTypeDetector {
         }
 
         // Priority 3: Ambient sound-based detection
-        EmergencyType ambientEmergency = detectAmbientEmergency(yamnetScores);
+        if (rules == null) {
+            rules = RULES.get();
+            YamnetRuleTable.evaluate(yamnetScores, rules);
+        }
+        EmergencyType ambientEmergency = rules.bestType();
         if (ambientEmergency != EmergencyType.NONE) {
-            Log.i(TAG, "Ambient emergency detected: " + ambientEmergency);
+            DetectionLog.i(TAG, "Ambient emergency detected: " + ambientEmergency);
             return ambientEmergency;
         }
 
@@ -108,29 +144,15 @@ public class EmergencyTypeDetector {
 
         // Only return if confidence is high enough
         if (classification.confidence >= 0.5f) {
-            Log.i(TAG, "Semantic classification: " + classification.type +
+            DetectionLog.i(TAG, "Semantic classification: " + classification.type +
                   " (confidence: " + classification.confidence + ")");
             return classification.type;
         }
 
         // Fallback to keyword matching for backward compatibility
-        String lowerPhrase = phrase.toLowerCase();
-
-        // Quick keyword checks as fallback
-        if (containsAny(lowerPhrase, "attack", "hitting me", "beating", "assault")) {
-            return EmergencyType.ASSAULT_ATTACK;
-        }
-        if (containsAny(lowerPhrase, "kidnap", "abduct", "forcing me")) {
-            return EmergencyType.KIDNAPPING;
-        }
-        if (containsAny(lowerPhrase, "following me", "stalking", "being followed")) {
-            return EmergencyType.STALKING;
-        }
-        if (containsAny(lowerPhrase, "harassment", "molest", "inappropriate")) {
-            return EmergencyType.HARASSMENT;
-        }
-        if (containsAny(lowerPhrase, "help", "emergency", "danger", "save me")) {
-            return EmergencyType.GENERAL_DISTRESS;
+        int category = FALLBACK_KEYWORDS.findCategory(phrase);
+        if (category >= 0) {
+            return FALLBACK_TYPES[category];
         }
 
         return EmergencyType.NONE;
@@ -142,20 +164,20 @@ public class EmergencyTypeDetector {
     private static EmergencyType classifyScreamContext(float[] yamnetScores, float rms) {
         // High intensity + scream = likely assault
         if (rms > 0.15f) {
-            if (yamnetScores[CLASS_GLASS_BREAK] > YAMNET_THRESHOLD) {
+            if (yamnetScores[YamnetRuleTable.CLASS_GLASS_BREAK] > YamnetRuleTable.TYPE_THRESHOLD) {
                 return EmergencyType.ASSAULT_ATTACK;
             }
-            if (yamnetScores[CLASS_CRASH] > YAMNET_THRESHOLD) {
+            if (yamnetScores[YamnetRuleTable.CLASS_CRASH] > YamnetRuleTable.TYPE_THRESHOLD) {
                 return EmergencyType.ROAD_ACCIDENT;
             }
-            if (yamnetScores[CLASS_CROWD] > YAMNET_THRESHOLD) {
+            if (yamnetScores[YamnetRuleTable.CLASS_CROWD] > YamnetRuleTable.TYPE_THRESHOLD) {
                 return EmergencyType.CROWD_PANIC;
             }
         }
 
         // Crying/whimpering = harassment/distress
-        if (yamnetScores[CLASS_CRYING] > YAMNET_THRESHOLD ||
-            yamnetScores[CLASS_WHIMPER] > YAMNET_THRESHOLD) {
+        if (yamnetScores[YamnetRuleTable.CLASS_CRYING] > YamnetRuleTable.TYPE_THRESHOLD ||
+            yamnetScores[YamnetRuleTable.CLASS_WHIMPER] > YamnetRuleTable.TYPE_THRESHOLD) {
             return EmergencyType.HARASSMENT;
         }
 
@@ -163,63 +185,6 @@ public class EmergencyTypeDetector {
         return EmergencyType.ASSAULT_ATTACK;
     }
 
-    /**
-     * Detect emergency from ambient sounds (non-voice)
-     */
-    private static EmergencyType detectAmbientEmergency(float[] yamnetScores) {
-        Map<EmergencyType, Float> scores = new HashMap<>();
-
-        // Fire alarm detection
-        if (yamnetScores[CLASS_FIRE_ALARM] > YAMNET_THRESHOLD) {
-            scores.put(EmergencyType.FIRE, yamnetScores[CLASS_FIRE_ALARM]);
-        }
-
-        // Crash/collision detection
-        if (yamnetScores[CLASS_CRASH] > YAMNET_THRESHOLD ||
-            yamnetScores[CLASS_GLASS_BREAK] > YAMNET_THRESHOLD) {
-            float crashScore = Math.max(yamnetScores[CLASS_CRASH], yamnetScores[CLASS_GLASS_BREAK]);
-            scores.put(EmergencyType.ROAD_ACCIDENT, crashScore);
-        }
-
-        // Explosion/gunshot detection
-        if (yamnetScores[CLASS_EXPLOSION] > YAMNET_THRESHOLD ||
-            yamnetScores[CLASS_GUNSHOT] > YAMNET_THRESHOLD) {
-            scores.put(EmergencyType.ASSAULT_ATTACK, yamnetScores[CLASS_EXPLOSION]);
-        }
-
-        // Siren detection (could be any emergency)
-        if (yamnetScores[CLASS_SIREN] > YAMNET_THRESHOLD) {
-            scores.put(EmergencyType.GENERAL_DISTRESS, yamnetScores[CLASS_SIREN]);
-        }
-
-        // Crowd panic detection
-        if (yamnetScores[CLASS_CROWD] > 0.5f && yamnetScores[CLASS_YELL] > YAMNET_THRESHOLD) {
-            scores.put(EmergencyType.CROWD_PANIC, yamnetScores[CLASS_CROWD]);
-        }
-
-        // Return highest confidence emergency
-        if (!scores.isEmpty()) {
-            return scores.entrySet().stream()
-                    .max(Map.Entry.comparingByValue())
-                    .get()
-                    .getKey();
-        }
-
-        return EmergencyType.NONE;
-    }
-
-    /**
-     * Check if text contains any of the keywords
-     */
-    private static boolean containsAny(String text, String... keywords) {
-        for (String keyword : keywords) {
-            if (text.contains(keyword)) {
-                return true;
-            }
-        }
-        return false;
-    }
-
     /**
      * Get confidence level for emergency detection
      */
@@ -238,4 +203,16 @@ public class EmergencyTypeDetector {
         }
         return maxScore;
     }
+
+    /**
+     * Same as getConfidenceLevel(EmergencyType, float, float[]), using the frame's
+     * precomputed maximum instead of rescanning all scores
+     */
+    public static float getConfidenceLevel(EmergencyType type, float screamProb, ScoreFrame scores) {
+        if (type == EmergencyType.NONE) return 0.0f;
+        if (screamProb > SCREAM_THRESHOLD) {
+            return screamProb;
+        }
+        return scores.maxScore();
+    }
 }
@@ -0,0 +1,113 @@
+package com.example.safetyapp.helper;
+
+/**
+ * Cuts enrollment audio into half-overlapping model windows as it is captured, and grades each
+ * window as a voice sample: too quiet to ever be verified, clipped (the flattened peaks smear the
+ * spectrum the speaker model sees), or good. Audio may arrive in chunks of any size; the windows
+ * are the same as cutting the whole recording at once. Partial windows at the end of a recording
+ * are dropped, like the tail of a recording shorter than a hop.
+ * Not thread-safe - one per recording thread; allocates nothing per chunk.
+ */
+public final class EnrollmentWindower {
+    public static final float MIN_RMS = 0.03f;                // The quietest audio verification accepts
+    public static final float MAX_CLIPPED_FRACTION = 0.01f;   // Of the window's samples
+    static final int CLIP_LEVEL = 32000;                      // ~ -0.2 dBFS
+
+    public enum Quality { GOOD, TOO_QUIET, CLIPPED }
+
+    public interface Listener {
+        /**
+         * @param window windowLength samples, owned by the windower and overwritten after this call
+         * @param rms Of the window, 0 to 1
+         */
+        void onWindow(short[] window, Quality quality, float rms);
+    }
+
+    private final short[] window;
+    private final int hop;
+    private int fill;
+
+    // Windows since the last reset
+    private int good;
+    private int tooQuiet;
+    private int clipped;
+
+    /**
+     * @param windowLength Samples per window
+     * @param hop Samples between window starts, at most windowLength
+     */
+    public EnrollmentWindower(int windowLength, int hop) {
+        if (hop < 1 || hop > windowLength) {
+            throw new IllegalArgumentException("Bad hop " + hop + " for " + windowLength + "-sample windows");
+        }
+        this.window = new short[windowLength];
+        this.hop = hop;
+    }
+
+    /**
+     * Feed captured audio; listener hears every window completed by it, in order
+     */
+    public void write(short[] pcm, int offset, int length, Listener listener) {
+        int end = offset + length;
+        while (offset < end) {
+            int count = Math.min(end - offset, window.length - fill);
+            System.arraycopy(pcm, offset, window, fill, count);
+            fill += count;
+            offset += count;
+
+            if (fill == window.length) {
+                emit(listener);
+                System.arraycopy(window, hop, window, 0, window.length - hop);
+                fill = window.length - hop;
+            }
+        }
+    }
+
+    private void emit(Listener listener) {
+        double sum = 0.0;
+        int clippedSamples = 0;
+        for (short sample : window) {
+            sum += sample * sample;
+            if (sample >= CLIP_LEVEL || sample <= -CLIP_LEVEL) clippedSamples++;
+        }
+        float rms = (float) Math.sqrt(sum / window.length) / 32768f;
+
+        Quality quality;
+        if (rms < MIN_RMS) {
+            quality = Quality.TOO_QUIET;
+            tooQuiet++;
+        } else if (clippedSamples > MAX_CLIPPED_FRACTION * window.length) {
+            quality = Quality.CLIPPED;
+            clipped++;
+        } else {
+            quality = Quality.GOOD;
+            good++;
+        }
+        listener.onWindow(window, quality, rms);
+    }
+
+    /**
+     * Start a new recording: the partial window is dropped and the counts restart
+     */
+    public void reset() {
+        fill = 0;
+        good = 0;
+        tooQuiet = 0;
+        clipped = 0;
+    }
+
+    public int getWindowLength() {
+        return window.length;
+    }
+
+    /**
+     * Windows of the given quality since the last reset
+     */
+    public int getCount(Quality quality) {
+        switch (quality) {
+            case GOOD: return good;
+            case TOO_QUIET: return tooQuiet;
+            default: return clipped;
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.example.safetyapp.helper;
+
+/**
+ * In-place radix-2 FFT of real frames, with preallocated tables and scratch
+ * Shared by the frame-level audio gates. Not thread-safe - one per owner.
+ */
+final class Fft {
+    final int size;
+    private final float[] cos;
+    private final float[] sin;
+    private final int[] bitReverse;
+    private final float[] re;
+    private final float[] im;
+
+    /**
+     * @param size Transform length, a power of two
+     */
+    Fft(int size) {
+        if (size < 2 || Integer.bitCount(size) != 1) {
+            throw new IllegalArgumentException("FFT size must be a power of two: " + size);
+        }
+        this.size = size;
+        this.cos = new float[size / 2];
+        this.sin = new float[size / 2];
+        this.bitReverse = new int[size];
+        this.re = new float[size];
+        this.im = new float[size];
+
+        int shift = 32 - Integer.numberOfTrailingZeros(size);
+        for (int i = 0; i < size; i++) {
+            bitReverse[i] = Integer.reverse(i) >>> shift;
+        }
+        for (int i = 0; i < size / 2; i++) {
+            cos[i] = (float) Math.cos(2 * Math.PI * i / size);
+            sin[i] = (float) -Math.sin(2 * Math.PI * i / size);
+        }
+    }
+
+    /**
+     * Transform input[0, length), zero-padded to the transform size
+     */
+    void forward(float[] input, int length) {
+        for (int i = 0; i < size; i++) {
+            re[bitReverse[i]] = i < length ? input[i] : 0.0f;
+            im[i] = 0.0f;
+        }
+
+        for (int span = 2; span <= size; span <<= 1) {
+            int half = span >> 1;
+            int step = size / span;
+            for (int start = 0; start < size; start += span) {
+                for (int k = 0; k < half; k++) {
+                    float wr = cos[k * step];
+                    float wi = sin[k * step];
+                    int a = start + k;
+                    int b = a + half;
+                    float tr = re[b] * wr - im[b] * wi;
+                    float ti = re[b] * wi + im[b] * wr;
+                    re[b] = re[a] - tr;
+                    im[b] = im[a] - ti;
+                    re[a] += tr;
+                    im[a] += ti;
+                }
+            }
+        }
+    }
+
+    /**
+     * Squared magnitude of one bin of the last forward() transform
+     */
+    float power(int bin) {
+        return re[bin] * re[bin] + im[bin] * im[bin];
+    }
+
+    /**
+     * Periodic Hann window of the given length
+     */
+    static float[] hann(int length) {
+        float[] window = new float[length];
+        for (int i = 0; i < length; i++) {
+            window[i] = (float) (0.5 - 0.5 * Math.cos(2 * Math.PI * i / length));
+        }
+        return window;
+    }
+}
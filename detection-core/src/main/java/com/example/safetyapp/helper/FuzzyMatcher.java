@@ -0,0 +1,433 @@
+package com.example.safetyapp.helper;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Fuzzy lookup of a spoken word against a fixed lexicon
+ * Reports every term whose Levenshtein similarity (1 - distance / longer length) is above
+ * minSimilarity, or that contains the word as a large enough infix.
+ *
+ * Candidates come from a SymSpell-style deletion index (every term with up to
+ * INDEX_MAX_DISTANCE characters deleted, keyed by a polynomial hash), so a lookup is a handful
+ * of hash probes. Candidates are verified with Myers' bit-parallel edit distance, which stops
+ * as soon as the similarity cutoff becomes unreachable. Lookups allocate nothing after the
+ * first call on a thread.
+ */
+public final class FuzzyMatcher {
+
+    // Deletion index depth; terms that could need more edits are checked directly (rare, long phrases)
+    private static final int INDEX_MAX_DISTANCE = 2;
+
+    // Terms and words longer than this are matched exactly only (one 64-bit word per Myers column)
+    public static final int MAX_LENGTH = 64;
+
+    private static final long HASH_BASE = 0x100000001B3L;
+
+    /**
+     * Receives lookup results
+     */
+    public interface MatchSink {
+        void onFuzzyMatch(int termId, float similarity);
+    }
+
+    private static final long[] POWERS = new long[MAX_LENGTH + 1];
+
+    static {
+        POWERS[0] = 1L;
+        for (int i = 1; i <= MAX_LENGTH; i++) {
+            POWERS[i] = POWERS[i - 1] * HASH_BASE;
+        }
+    }
+
+    private final String[] terms;
+
+    // Largest allowed edit distance for a pair whose longer side has length n
+    private final int[] maxDistanceForLength = new int[MAX_LENGTH + 1];
+    // How many characters a word/term of length n may need deleted to meet any partner
+    private final int[] deletionBudget = new int[MAX_LENGTH + 1];
+
+    // Myers pattern bitmasks per term: sorted distinct chars and one mask per char
+    private final char[][] termChars;
+    private final long[][] termMasks;
+
+    private final HashIndex deletionIndex;
+    private final HashIndex infixIndex;
+    // Terms the deletion index cannot cover, checked one by one with a length prefilter
+    private final int[] unindexedTerms;
+
+    private final ThreadLocal<LookupScratch> scratch = new ThreadLocal<LookupScratch>() {
+        @Override
+        protected LookupScratch initialValue() {
+            return new LookupScratch(terms.length);
+        }
+    };
+
+    /**
+     * @param terms Lexicon; result ids are indexes into this list
+     * @param minSimilarity Report terms with edit similarity strictly above this (e.g. 0.8)
+     * @param minInfixRatio Also report terms that contain the word, when word/term length is above this
+     */
+    public FuzzyMatcher(List<String> terms, float minSimilarity, float minInfixRatio) {
+        this.terms = terms.toArray(new String[0]);
+
+        for (int n = 1; n <= MAX_LENGTH; n++) {
+            int d = 0;
+            while (d + 1 < n && 1.0f - (float) (d + 1) / n > minSimilarity) d++;
+            maxDistanceForLength[n] = d;
+        }
+        for (int n = 1; n <= MAX_LENGTH; n++) {
+            int budget = 0;
+            for (int other = 1; other <= MAX_LENGTH; other++) {
+                int d = maxDistanceForLength[Math.max(n, other)];
+                if (Math.abs(n - other) <= d) budget = Math.max(budget, d);
+            }
+            deletionBudget[n] = budget;
+        }
+
+        termChars = new char[this.terms.length][];
+        termMasks = new long[this.terms.length][];
+
+        Map<Long, List<Integer>> deletions = new HashMap<>();
+        Map<Long, List<Integer>> infixes = new HashMap<>();
+        List<Integer> unindexed = new ArrayList<>();
+
+        for (int id = 0; id < this.terms.length; id++) {
+            String term = this.terms[id];
+            int length = term.length();
+            if (length == 0 || length > MAX_LENGTH) continue;
+
+            buildPatternMasks(id, term);
+
+            if (deletionBudget[length] <= INDEX_MAX_DISTANCE) {
+                for (String variant : deletionVariants(term, deletionBudget[length])) {
+                    addPosting(deletions, hash(variant, 0, variant.length()), id);
+                }
+            } else {
+                unindexed.add(id);
+            }
+
+            for (int start = 0; start < length; start++) {
+                for (int end = start + 1; end <= length; end++) {
+                    if ((end - start) / (float) length > minInfixRatio) {
+                        addPosting(infixes, hash(term, start, end), id);
+                    }
+                }
+            }
+        }
+
+        deletionIndex = new HashIndex(deletions);
+        infixIndex = new HashIndex(infixes);
+        unindexedTerms = new int[unindexed.size()];
+        for (int i = 0; i < unindexedTerms.length; i++) {
+            unindexedTerms[i] = unindexed.get(i);
+        }
+    }
+
+    public int termCount() {
+        return terms.length;
+    }
+
+    public String getTerm(int termId) {
+        return terms[termId];
+    }
+
+    /**
+     * Report every lexicon term close to word[start, end)
+     * A term can be reported once per lookup, with its best similarity.
+     */
+    public void lookup(CharSequence word, int start, int end, MatchSink sink) {
+        int length = end - start;
+        if (length <= 0 || length > MAX_LENGTH) return;
+
+        LookupScratch s = scratch.get();
+        s.nextGeneration();
+
+        // Prefix hashes make every deletion variant's hash O(1)
+        long[] prefix = s.prefixHash;
+        for (int i = 0; i < length; i++) {
+            prefix[i + 1] = prefix[i] * HASH_BASE + word.charAt(start + i);
+        }
+
+        // Word is part of a term
+        long wordHash = prefix[length];
+        int slot = infixIndex.locate(wordHash);
+        if (slot >= 0) {
+            for (int p = infixIndex.starts[slot]; p < infixIndex.ends[slot]; p++) {
+                int id = infixIndex.postings[p];
+                if (containsRegion(terms[id], word, start, end)) {
+                    s.offer(id, length / (float) terms[id].length());
+                }
+            }
+        }
+
+        // Deletion variants of the word, up to its budget
+        int budget = Math.min(deletionBudget[length], INDEX_MAX_DISTANCE);
+        probeDeletion(s, wordHash, word, start, end);
+        if (budget >= 1) {
+            for (int i = 0; i < length; i++) {
+                long h = substringHash(prefix, 0, i) * power(length - i - 1) + substringHash(prefix, i + 1, length);
+                probeDeletion(s, h, word, start, end);
+            }
+        }
+        if (budget >= 2) {
+            for (int i = 0; i < length; i++) {
+                for (int j = i + 1; j < length; j++) {
+                    long h = substringHash(prefix, 0, i) * power(length - i - 2)
+                            + substringHash(prefix, i + 1, j) * power(length - j - 1)
+                            + substringHash(prefix, j + 1, length);
+                    probeDeletion(s, h, word, start, end);
+                }
+            }
+        }
+
+        for (int id : unindexedTerms) {
+            verify(s, id, word, start, end);
+        }
+
+        for (int i = 0; i < s.touchedCount; i++) {
+            int id = s.touched[i];
+            sink.onFuzzyMatch(id, s.best[id]);
+        }
+    }
+
+    public void lookup(CharSequence word, MatchSink sink) {
+        lookup(word, 0, word.length(), sink);
+    }
+
+    private void probeDeletion(LookupScratch s, long hash, CharSequence word, int start, int end) {
+        int slot = deletionIndex.locate(hash);
+        if (slot < 0) return;
+        for (int p = deletionIndex.starts[slot]; p < deletionIndex.ends[slot]; p++) {
+            int id = deletionIndex.postings[p];
+            if (s.verified[id] != s.generation) {
+                verify(s, id, word, start, end);
+            }
+        }
+    }
+
+    private void verify(LookupScratch s, int id, CharSequence word, int start, int end) {
+        s.verified[id] = s.generation;
+
+        int wordLength = end - start;
+        int termLength = terms[id].length();
+        int longer = Math.max(wordLength, termLength);
+        int maxDistance = maxDistanceForLength[longer];
+        if (Math.abs(wordLength - termLength) > maxDistance) return;
+
+        int distance = boundedDistance(id, word, start, end, maxDistance);
+        if (distance <= maxDistance) {
+            s.offer(id, 1.0f - (float) distance / longer);
+        }
+    }
+
+    /**
+     * Myers/Hyyrö bit-parallel Levenshtein distance between term id and word[start, end)
+     * @return The distance, or maxDistance + 1 as soon as it is known to exceed maxDistance
+     */
+    private int boundedDistance(int id, CharSequence word, int start, int end, int maxDistance) {
+        int m = terms[id].length();
+        int n = end - start;
+        long last = 1L << (m - 1);
+
+        long pv = -1L;
+        long mv = 0L;
+        int score = m;
+
+        for (int j = 0; j < n; j++) {
+            long eq = patternMask(id, word.charAt(start + j));
+            long xv = eq | mv;
+            long xh = (((eq & pv) + pv) ^ pv) | eq;
+            long ph = mv | ~(xh | pv);
+            long mh = pv & xh;
+
+            if ((ph & last) != 0) {
+                score++;
+            } else if ((mh & last) != 0) {
+                score--;
+            }
+
+            // Every remaining word char can lower the score by at most one
+            if (score - (n - j - 1) > maxDistance) {
+                return maxDistance + 1;
+            }
+
+            ph = (ph << 1) | 1L;
+            mh = mh << 1;
+            pv = mh | ~(xv | ph);
+            mv = ph & xv;
+        }
+        return score;
+    }
+
+    private long patternMask(int id, char c) {
+        int index = Arrays.binarySearch(termChars[id], c);
+        return index >= 0 ? termMasks[id][index] : 0L;
+    }
+
+    private void buildPatternMasks(int id, String term) {
+        char[] sorted = term.toCharArray();
+        Arrays.sort(sorted);
+        int distinct = 0;
+        for (int i = 0; i < sorted.length; i++) {
+            if (i == 0 || sorted[i] != sorted[i - 1]) sorted[distinct++] = sorted[i];
+        }
+        char[] chars = Arrays.copyOf(sorted, distinct);
+        long[] masks = new long[distinct];
+        for (int i = 0; i < term.length(); i++) {
+            masks[Arrays.binarySearch(chars, term.charAt(i))] |= 1L << i;
+        }
+        termChars[id] = chars;
+        termMasks[id] = masks;
+    }
+
+    private static boolean containsRegion(String term, CharSequence word, int start, int end) {
+        int length = end - start;
+        for (int offset = 0; offset + length <= term.length(); offset++) {
+            int i = 0;
+            while (i < length && term.charAt(offset + i) == word.charAt(start + i)) i++;
+            if (i == length) return true;
+        }
+        return false;
+    }
+
+    private static Set<String> deletionVariants(String term, int maxDeletes) {
+        Set<String> variants = new HashSet<>();
+        variants.add(term);
+        List<String> frontier = new ArrayList<>(variants);
+        for (int depth = 0; depth < maxDeletes; depth++) {
+            List<String> next = new ArrayList<>();
+            for (String variant : frontier) {
+                for (int i = 0; i < variant.length(); i++) {
+                    String deleted = variant.substring(0, i) + variant.substring(i + 1);
+                    if (variants.add(deleted)) next.add(deleted);
+                }
+            }
+            frontier = next;
+        }
+        return variants;
+    }
+
+    private static void addPosting(Map<Long, List<Integer>> index, long hash, int id) {
+        List<Integer> ids = index.get(hash);
+        if (ids == null) {
+            ids = new ArrayList<>();
+            index.put(hash, ids);
+        }
+        if (!ids.contains(id)) ids.add(id);
+    }
+
+    private static long hash(CharSequence text, int start, int end) {
+        long h = 0L;
+        for (int i = start; i < end; i++) {
+            h = h * HASH_BASE + text.charAt(i);
+        }
+        return h;
+    }
+
+    private static long substringHash(long[] prefix, int from, int to) {
+        return prefix[to] - prefix[from] * power(to - from);
+    }
+
+    private static long power(int exponent) {
+        return POWERS[exponent];
+    }
+
+    /**
+     * Open-addressing hash table from a 64-bit key to a run of term ids in one flat array
+     */
+    private static final class HashIndex {
+        final long[] keys;
+        final int[] starts;
+        final int[] ends;
+        final int[] postings;
+        final boolean[] used;
+        final int mask;
+
+        HashIndex(Map<Long, List<Integer>> entries) {
+            int capacity = Integer.highestOneBit(Math.max(4, entries.size() * 2) - 1) << 1;
+            keys = new long[capacity];
+            starts = new int[capacity];
+            ends = new int[capacity];
+            used = new boolean[capacity];
+            mask = capacity - 1;
+
+            int total = 0;
+            for (List<Integer> ids : entries.values()) total += ids.size();
+            postings = new int[total];
+
+            int next = 0;
+            for (Map.Entry<Long, List<Integer>> entry : entries.entrySet()) {
+                int slot = slotFor(entry.getKey());
+                while (used[slot]) slot = (slot + 1) & mask;
+                used[slot] = true;
+                keys[slot] = entry.getKey();
+                starts[slot] = next;
+                for (int id : entry.getValue()) postings[next++] = id;
+                ends[slot] = next;
+            }
+        }
+
+        /**
+         * @return Slot holding key (postings are [starts[slot], ends[slot])), or -1 if absent
+         */
+        int locate(long key) {
+            int slot = slotFor(key);
+            while (used[slot]) {
+                if (keys[slot] == key) return slot;
+                slot = (slot + 1) & mask;
+            }
+            return -1;
+        }
+
+        private int slotFor(long key) {
+            long mixed = key * 0x9E3779B97F4A7C15L;
+            return (int) (mixed >>> 40) & mask;
+        }
+    }
+
+    /**
+     * Per-thread lookup state; generation stamps avoid clearing arrays between lookups
+     */
+    private static final class LookupScratch {
+        final long[] prefixHash = new long[MAX_LENGTH + 1];
+        final int[] verified;
+        final int[] reported;
+        final float[] best;
+        final int[] touched;
+        int touchedCount;
+        int generation;
+
+        LookupScratch(int termCount) {
+            verified = new int[termCount];
+            reported = new int[termCount];
+            best = new float[termCount];
+            touched = new int[termCount];
+        }
+
+        void nextGeneration() {
+            generation++;
+            if (generation == 0) {
+                Arrays.fill(verified, 0);
+                Arrays.fill(reported, 0);
+                generation = 1;
+            }
+            touchedCount = 0;
+        }
+
+        void offer(int id, float similarity) {
+            if (reported[id] != generation) {
+                reported[id] = generation;
+                best[id] = similarity;
+                touched[touchedCount++] = id;
+            } else if (similarity > best[id]) {
+                best[id] = similarity;
+            }
+        }
+    }
+}
@@ -0,0 +1,350 @@
+package com.example.safetyapp.helper;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+
+/**
+ * Learned alternative to the rule-based intent patterns
+ * A linear model over feature-hashed word unigrams, word bigrams and character 3/4-grams of the
+ * normalised transcript, one weight row per EmergencyType. Classifying is one pass over the text
+ * to hash its features plus a sparse dot product per class, so the cost does not grow with the
+ * vocabulary. Trained offline by IntentModelTrainer and shipped as a compact weight file.
+ * Immutable and thread-safe.
+ *
+ * File layout (big-endian):
+ *   header  - magic "EMIM", format version, payload length, payload CRC32
+ *   payload - bucket bits; class count and class names (EmergencyType names);
+ *             per-class bias; weights, bucket-major (all classes of bucket 0, then bucket 1, ...)
+ * Strings are an int length followed by UTF-16 chars.
+ */
+public final class HashedIntentModel {
+    private static final String TAG = "HashedIntentModel";
+
+    // Default asset / file name of a trained model
+    public static final String FILE_NAME = "intent_model.bin";
+
+    static final int MAGIC = 0x454D494D; // "EMIM"
+    static final int FORMAT_VERSION = 1;
+    static final int HEADER_SIZE = 16;
+    static final int MIN_BUCKET_BITS = 8;
+    static final int MAX_BUCKET_BITS = 22;
+
+    // Feature kinds, mixed into the hash so the same string in two kinds lands in different buckets
+    private static final int KIND_WORD = 1;
+    private static final int KIND_BIGRAM = 2;
+    private static final int KIND_CHAR_3 = 3;
+    private static final int KIND_CHAR_4 = 4;
+
+    private static final int FNV_OFFSET = 0x811C9DC5;
+    private static final int FNV_PRIME = 0x01000193;
+
+    private final int bucketBits;
+    final EmergencyTypeDetector.EmergencyType[] classes;
+    final float[] bias;
+    final float[] weights;
+
+    private static final ThreadLocal<Scratch> SCRATCH = new ThreadLocal<Scratch>() {
+        @Override
+        protected Scratch initialValue() {
+            return new Scratch();
+        }
+    };
+
+    HashedIntentModel(int bucketBits, EmergencyTypeDetector.EmergencyType[] classes, float[] bias, float[] weights) {
+        if (bucketBits < MIN_BUCKET_BITS || bucketBits > MAX_BUCKET_BITS) {
+            throw new IllegalArgumentException("Bucket bits out of range: " + bucketBits);
+        }
+        if (bias.length != classes.length || weights.length != (classes.length << bucketBits)) {
+            throw new IllegalArgumentException("Weight table does not match " + classes.length + " classes");
+        }
+        this.bucketBits = bucketBits;
+        this.classes = classes;
+        this.bias = bias;
+        this.weights = weights;
+    }
+
+    public int bucketBits() {
+        return bucketBits;
+    }
+
+    // ==== Inference ====
+
+    /**
+     * Most likely class for text and its softmax probability
+     */
+    public EmergencyIntentClassifier.EmergencyClassification classify(CharSequence text) {
+        if (text == null) {
+            return new EmergencyIntentClassifier.EmergencyClassification(EmergencyTypeDetector.EmergencyType.NONE, 0.0f);
+        }
+
+        Scratch scratch = SCRATCH.get();
+        Features features = scratch.features;
+        features.extract(text, bucketBits);
+        if (features.count == 0) {
+            return new EmergencyIntentClassifier.EmergencyClassification(EmergencyTypeDetector.EmergencyType.NONE, 0.0f);
+        }
+
+        float[] probabilities = scratch.probabilities(classes.length);
+        predict(features, probabilities);
+
+        int best = 0;
+        for (int c = 1; c < classes.length; c++) {
+            if (probabilities[c] > probabilities[best]) best = c;
+        }
+        return new EmergencyIntentClassifier.EmergencyClassification(classes[best], probabilities[best]);
+    }
+
+    /**
+     * Class probabilities for extracted features (softmax of bias + scaled sparse dot products)
+     */
+    void predict(Features features, float[] probabilities) {
+        int classCount = classes.length;
+        System.arraycopy(bias, 0, probabilities, 0, classCount);
+
+        float[] sums = features.sums(classCount);
+        for (int i = 0; i < features.count; i++) {
+            int row = features.buckets[i] * classCount;
+            for (int c = 0; c < classCount; c++) {
+                sums[c] += weights[row + c];
+            }
+        }
+
+        float max = Float.NEGATIVE_INFINITY;
+        for (int c = 0; c < classCount; c++) {
+            probabilities[c] += sums[c] * features.scale;
+            max = Math.max(max, probabilities[c]);
+        }
+        float total = 0.0f;
+        for (int c = 0; c < classCount; c++) {
+            probabilities[c] = (float) Math.exp(probabilities[c] - max);
+            total += probabilities[c];
+        }
+        for (int c = 0; c < classCount; c++) {
+            probabilities[c] /= total;
+        }
+    }
+
+    /**
+     * Hashed features of one transcript; reused between calls
+     */
+    static final class Features {
+        final TextNormalizer.Buffer normalized = new TextNormalizer.Buffer();
+        int[] buckets = new int[256];
+        int count;
+        // Features are scaled by 1/sqrt(count) so long transcripts do not saturate the softmax
+        float scale;
+
+        private int[] wordHashes = new int[32];
+        private float[] sums = new float[0];
+
+        void extract(CharSequence text, int bucketBits) {
+            TextNormalizer.normalize(text, normalized);
+            count = 0;
+            int mask = (1 << bucketBits) - 1;
+
+            int tokens = normalized.tokenCount();
+            if (wordHashes.length < tokens) {
+                wordHashes = new int[Math.max(tokens, wordHashes.length * 2)];
+            }
+
+            for (int token = 0; token < tokens; token++) {
+                int start = normalized.tokenStart(token);
+                int end = normalized.tokenEnd(token);
+
+                int word = seed(KIND_WORD);
+                for (int i = start; i < end; i++) {
+                    word = (word ^ normalized.charAt(i)) * FNV_PRIME;
+                }
+                wordHashes[token] = word;
+                add(finish(word) & mask);
+
+                if (token > 0) {
+                    int bigram = seed(KIND_BIGRAM);
+                    bigram = (bigram ^ wordHashes[token - 1]) * FNV_PRIME;
+                    bigram = (bigram ^ word) * FNV_PRIME;
+                    add(finish(bigram) & mask);
+                }
+
+                // Character n-grams of the word padded with boundary markers: "<help>"
+                int padded = end - start + 2;
+                for (int n = 3; n <= 4; n++) {
+                    for (int from = 0; from + n <= padded; from++) {
+                        int gram = seed(n == 3 ? KIND_CHAR_3 : KIND_CHAR_4);
+                        for (int k = from; k < from + n; k++) {
+                            char c = k == 0 ? '<' : k == padded - 1 ? '>' : normalized.charAt(start + k - 1);
+                            gram = (gram ^ c) * FNV_PRIME;
+                        }
+                        add(finish(gram) & mask);
+                    }
+                }
+            }
+
+            scale = count > 0 ? (float) (1.0 / Math.sqrt(count)) : 0.0f;
+        }
+
+        private void add(int bucket) {
+            if (count == buckets.length) {
+                buckets = Arrays.copyOf(buckets, count * 2);
+            }
+            buckets[count++] = bucket;
+        }
+
+        float[] sums(int classCount) {
+            if (sums.length < classCount) {
+                sums = new float[classCount];
+            } else {
+                Arrays.fill(sums, 0, classCount, 0.0f);
+            }
+            return sums;
+        }
+
+        private static int seed(int kind) {
+            return (FNV_OFFSET ^ kind) * FNV_PRIME;
+        }
+
+        // FNV alone leaves the low bits poorly mixed; one avalanche round fixes that
+        private static int finish(int hash) {
+            hash ^= hash >>> 16;
+            hash *= 0x45D9F3B;
+            hash ^= hash >>> 16;
+            return hash;
+        }
+    }
+
+    private static final class Scratch {
+        final Features features = new Features();
+        private float[] probabilities = new float[0];
+
+        float[] probabilities(int classCount) {
+            if (probabilities.length < classCount) {
+                probabilities = new float[classCount];
+            }
+            return probabilities;
+        }
+    }
+
+    // ==== File format ====
+
+    /**
+     * Read a trained model
+     * @param buffer File contents from position to limit (e.g. a mapped file); not modified
+     * @throws IOException if the data is not a valid model of a supported format
+     */
+    public static HashedIntentModel read(ByteBuffer buffer) throws IOException {
+        ByteBuffer in = buffer.duplicate().order(ByteOrder.BIG_ENDIAN);
+        try {
+            if (in.remaining() < HEADER_SIZE || in.getInt() != MAGIC) {
+                throw new IOException("Not an intent model");
+            }
+            int formatVersion = in.getInt();
+            if (formatVersion != FORMAT_VERSION) {
+                throw new IOException("Unsupported intent model format " + formatVersion);
+            }
+            int payloadLength = in.getInt();
+            int expectedCrc = in.getInt();
+            if (payloadLength < 0 || payloadLength != in.remaining()) {
+                throw new IOException("Intent model is truncated or has trailing data");
+            }
+            if (crc(in) != expectedCrc) {
+                throw new IOException("Intent model checksum mismatch");
+            }
+
+            int bucketBits = in.getInt();
+            if (bucketBits < MIN_BUCKET_BITS || bucketBits > MAX_BUCKET_BITS) {
+                throw new IOException("Bad bucket bits " + bucketBits);
+            }
+            int classCount = in.getInt();
+            if (classCount < 2 || classCount > EmergencyTypeDetector.EmergencyType.values().length) {
+                throw new IOException("Bad class count " + classCount);
+            }
+            EmergencyTypeDetector.EmergencyType[] classes = new EmergencyTypeDetector.EmergencyType[classCount];
+            for (int c = 0; c < classCount; c++) {
+                String name = readString(in);
+                try {
+                    classes[c] = EmergencyTypeDetector.EmergencyType.valueOf(name);
+                } catch (IllegalArgumentException e) {
+                    throw new IOException("Unknown class " + name);
+                }
+            }
+
+            if (in.remaining() != ((long) classCount + ((long) classCount << bucketBits)) * 4) {
+                throw new IOException("Weight table size does not match the header");
+            }
+            float[] bias = new float[classCount];
+            float[] weights = new float[classCount << bucketBits];
+            in.asFloatBuffer().get(bias).get(weights);
+
+            return new HashedIntentModel(bucketBits, classes, bias, weights);
+        } catch (BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException e) {
+            throw new IOException("Malformed intent model", e);
+        }
+    }
+
+    /**
+     * Write this model in the format read by read()
+     */
+    public void writeTo(OutputStream output) throws IOException {
+        ByteArrayOutputStream payloadBytes = new ByteArrayOutputStream(16 + (bias.length + weights.length) * 4);
+        DataOutputStream payload = new DataOutputStream(payloadBytes);
+        payload.writeInt(bucketBits);
+        payload.writeInt(classes.length);
+        for (EmergencyTypeDetector.EmergencyType type : classes) {
+            payload.writeInt(type.name().length());
+            payload.writeChars(type.name());
+        }
+        for (float value : bias) {
+            payload.writeFloat(value);
+        }
+        for (float value : weights) {
+            payload.writeFloat(value);
+        }
+        payload.flush();
+
+        byte[] body = payloadBytes.toByteArray();
+        CRC32 crc = new CRC32();
+        crc.update(body, 0, body.length);
+
+        DataOutputStream file = new DataOutputStream(output);
+        file.writeInt(MAGIC);
+        file.writeInt(FORMAT_VERSION);
+        file.writeInt(body.length);
+        file.writeInt((int) crc.getValue());
+        file.write(body);
+        file.flush();
+
+        if (DetectionLog.isLoggable(TAG, DetectionLog.DEBUG)) {
+            DetectionLog.d(TAG, "Wrote intent model: " + classes.length + " classes, " + (1 << bucketBits)
+                    + " buckets, " + (HEADER_SIZE + body.length) / 1024 + " KB");
+        }
+    }
+
+    private static int crc(ByteBuffer in) {
+        CRC32 crc = new CRC32();
+        ByteBuffer data = in.duplicate();
+        byte[] chunk = new byte[8192];
+        while (data.hasRemaining()) {
+            int length = Math.min(chunk.length, data.remaining());
+            data.get(chunk, 0, length);
+            crc.update(chunk, 0, length);
+        }
+        return (int) crc.getValue();
+    }
+
+    private static String readString(ByteBuffer in) throws IOException {
+        int length = in.getInt();
+        if (length < 0 || length > in.remaining() / 2) {
+            throw new IOException("Bad string length " + length);
+        }
+        char[] chars = new char[length];
+        in.asCharBuffer().get(chars);
+        in.position(in.position() + length * 2);
+        return new String(chars);
+    }
+}
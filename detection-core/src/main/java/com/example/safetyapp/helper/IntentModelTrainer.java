@@ -0,0 +1,183 @@
+package com.example.safetyapp.helper;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Offline trainer for HashedIntentModel (runs on the JVM, not on the device)
+ * Multinomial logistic regression trained with SGD over every EmergencyType, NONE included, so
+ * ordinary speech must be in the training data too.
+ *
+ * Training data is UTF-8 text, one labelled transcript per line: the EmergencyType name, a tab,
+ * then the transcript ("KIDNAPPING\tthey are pushing me into a van").
+ * Empty lines and lines starting with '#' are skipped.
+ */
+public final class IntentModelTrainer {
+    public static final int DEFAULT_BUCKET_BITS = 12; // 4096 buckets x 17 classes = 272 KB of weights
+    public static final int DEFAULT_EPOCHS = 20;
+
+    private static final float LEARNING_RATE = 0.5f;
+    private static final float L2 = 1e-6f;
+    private static final long SHUFFLE_SEED = 42L; // Same data, same model
+
+    private IntentModelTrainer() {}
+
+    /**
+     * One labelled transcript
+     */
+    public static final class Example {
+        public final EmergencyTypeDetector.EmergencyType label;
+        public final String text;
+
+        public Example(EmergencyTypeDetector.EmergencyType label, String text) {
+            this.label = label;
+            this.text = text;
+        }
+    }
+
+    /**
+     * Usage: IntentModelTrainer <labelled.tsv> <output.bin> [epochs] [bucketBits]
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2 || args.length > 4) {
+            System.err.println("Usage: IntentModelTrainer <labelled.tsv> <output.bin> [epochs] [bucketBits]");
+            System.exit(2);
+        }
+        int epochs = args.length > 2 ? Integer.parseInt(args[2]) : DEFAULT_EPOCHS;
+        int bucketBits = args.length > 3 ? Integer.parseInt(args[3]) : DEFAULT_BUCKET_BITS;
+
+        List<Example> examples;
+        try (Reader reader = new InputStreamReader(new FileInputStream(args[0]), StandardCharsets.UTF_8)) {
+            examples = readExamples(reader);
+        }
+
+        long startTime = System.nanoTime();
+        HashedIntentModel model = train(examples, bucketBits, epochs);
+        System.out.printf("Trained on %d transcripts in %d ms, training accuracy %.3f%n", examples.size(),
+                (System.nanoTime() - startTime) / 1_000_000, accuracy(model, examples));
+
+        File output = new File(args[1]);
+        File parent = output.getParentFile();
+        if (parent != null && !parent.isDirectory() && !parent.mkdirs()) {
+            throw new IOException("Cannot create " + parent);
+        }
+        try (OutputStream out = new FileOutputStream(output)) {
+            model.writeTo(out);
+        }
+        System.out.println("Wrote " + args[1] + " (" + output.length() + " bytes)");
+    }
+
+    /**
+     * Parse labelled transcripts
+     * @throws IOException on a malformed line or unknown label (the message names the line)
+     */
+    public static List<Example> readExamples(Reader source) throws IOException {
+        List<Example> examples = new ArrayList<>();
+        BufferedReader reader = new BufferedReader(source);
+        String line;
+        int lineNumber = 0;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            if (line.trim().isEmpty() || line.startsWith("#")) continue;
+
+            int tab = line.indexOf('\t');
+            if (tab <= 0) {
+                throw new IOException("Line " + lineNumber + ": expected <TYPE><TAB><transcript>");
+            }
+            String label = line.substring(0, tab).trim();
+            try {
+                examples.add(new Example(EmergencyTypeDetector.EmergencyType.valueOf(label), line.substring(tab + 1)));
+            } catch (IllegalArgumentException e) {
+                throw new IOException("Line " + lineNumber + ": unknown emergency type " + label);
+            }
+        }
+        return examples;
+    }
+
+    /**
+     * Train a model over all EmergencyType classes
+     */
+    public static HashedIntentModel train(List<Example> examples, int bucketBits, int epochs) {
+        EmergencyTypeDetector.EmergencyType[] classes = EmergencyTypeDetector.EmergencyType.values();
+        int classCount = classes.length;
+        float[] bias = new float[classCount];
+        float[] weights = new float[classCount << bucketBits];
+        HashedIntentModel model = new HashedIntentModel(bucketBits, classes, bias, weights);
+
+        // Hash every transcript once; epochs only revisit the bucket lists
+        int[][] buckets = new int[examples.size()][];
+        float[] scales = new float[examples.size()];
+        HashedIntentModel.Features features = new HashedIntentModel.Features();
+        for (int i = 0; i < buckets.length; i++) {
+            features.extract(examples.get(i).text, bucketBits);
+            buckets[i] = Arrays.copyOf(features.buckets, features.count);
+            scales[i] = features.scale;
+        }
+
+        int[] order = new int[examples.size()];
+        for (int i = 0; i < order.length; i++) order[i] = i;
+        Random random = new Random(SHUFFLE_SEED);
+        float[] probabilities = new float[classCount];
+
+        for (int epoch = 0; epoch < epochs; epoch++) {
+            shuffle(order, random);
+            // Linear decay to a tenth of the initial rate
+            float rate = LEARNING_RATE * (1.0f - 0.9f * epoch / Math.max(1, epochs - 1));
+
+            for (int index : order) {
+                features.buckets = buckets[index];
+                features.count = buckets[index].length;
+                features.scale = scales[index];
+                if (features.count == 0) continue;
+
+                model.predict(features, probabilities);
+
+                // Softmax cross-entropy gradient: p - onehot(label)
+                int label = examples.get(index).label.ordinal();
+                for (int c = 0; c < classCount; c++) {
+                    float gradient = probabilities[c] - (c == label ? 1.0f : 0.0f);
+                    bias[c] -= rate * gradient;
+                    float step = rate * gradient * features.scale;
+                    for (int bucket : buckets[index]) {
+                        int w = bucket * classCount + c;
+                        weights[w] -= step + rate * L2 * weights[w];
+                    }
+                }
+            }
+        }
+
+        return model;
+    }
+
+    /**
+     * Fraction of examples the model labels correctly
+     */
+    public static float accuracy(HashedIntentModel model, List<Example> examples) {
+        if (examples.isEmpty()) return 0.0f;
+        int correct = 0;
+        for (Example example : examples) {
+            if (model.classify(example.text).type == example.label) correct++;
+        }
+        return (float) correct / examples.size();
+    }
+
+    private static void shuffle(int[] values, Random random) {
+        for (int i = values.length - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int swap = values[i];
+            values[i] = values[j];
+            values[j] = swap;
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package com.example.safetyapp.helper;
+
+/**
+ * Finds which keyword category (if any) a transcript mentions
+ * Categories are phrase sets of the shared EmergencyLexicon, so a check is one normalising pass
+ * plus one automaton scan, and always uses the lexicon that is currently installed.
+ */
+public final class KeywordCategoryMatcher {
+    private static final String TAG = "KeywordCategoryMatcher";
+
+    private final String[] categories;
+
+    // Set bits of each category in the lexicon they were last resolved against
+    private volatile Resolved resolved;
+
+    /**
+     * @param categories Lexicon set names; earlier categories win when several match
+     */
+    public KeywordCategoryMatcher(String... categories) {
+        this.categories = categories.clone();
+    }
+
+    /**
+     * @return Index of the first category with a keyword in text, or -1 if none
+     */
+    public int findCategory(CharSequence text) {
+        EmergencyLexicon lexicon = EmergencyLexicon.current();
+        long[] masks = masksFor(lexicon);
+
+        long found = lexicon.match(text);
+        if (found == 0) return -1;
+
+        for (int category = 0; category < masks.length; category++) {
+            if ((found & masks[category]) != 0) {
+                return category;
+            }
+        }
+        return -1;
+    }
+
+    public boolean containsAny(CharSequence text) {
+        return findCategory(text) >= 0;
+    }
+
+    private long[] masksFor(EmergencyLexicon lexicon) {
+        Resolved current = resolved;
+        if (current == null || current.lexicon != lexicon) {
+            long[] masks = new long[categories.length];
+            for (int i = 0; i < categories.length; i++) {
+                masks[i] = lexicon.setMask(categories[i]);
+                if (masks[i] == 0) {
+                    DetectionLog.w(TAG, "Lexicon v" + lexicon.version() + " has no set " + categories[i]);
+                }
+            }
+            current = new Resolved(lexicon, masks);
+            resolved = current;
+        }
+        return current.masks;
+    }
+
+    private static final class Resolved {
+        final EmergencyLexicon lexicon;
+        final long[] masks;
+
+        Resolved(EmergencyLexicon lexicon, long[] masks) {
+            this.lexicon = lexicon;
+            this.masks = masks;
+        }
+    }
+}
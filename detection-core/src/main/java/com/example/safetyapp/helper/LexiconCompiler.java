@@ -0,0 +1,287 @@
+package com.example.safetyapp.helper;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.CRC32;
+
+/**
+ * Compiles the emergency lexicon source (src/main/lexicon/emergency_lexicon.txt) into the binary
+ * form read by EmergencyLexicon
+ * Runs at build time (:detection-core:compileEmergencyLexicon), so every phrase is normalised and
+ * the automaton is built once on the build machine instead of on every device start.
+ *
+ * Binary layout (big-endian):
+ *   header  - magic "EMLX", format version, lexicon version, payload length, payload CRC32
+ *   payload - set names; phrases with their set bitmask; the phrase automaton;
+ *             intent patterns (type, weight, core/context/negation phrase ids)
+ * Strings are an int length followed by UTF-16 chars.
+ */
+public final class LexiconCompiler {
+    static final int MAGIC = 0x454D4C58; // "EMLX"
+    static final int FORMAT_VERSION = 1;
+    static final int HEADER_SIZE = 20;
+    static final int MAX_SETS = 64;      // One bit per set in a long
+
+    private LexiconCompiler() {}
+
+    /**
+     * Usage: LexiconCompiler <source.txt> <output.bin>
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("Usage: LexiconCompiler <source.txt> <output.bin>");
+            System.exit(2);
+        }
+
+        byte[] compiled;
+        try (Reader reader = new InputStreamReader(new FileInputStream(args[0]), StandardCharsets.UTF_8)) {
+            compiled = compile(reader);
+        }
+
+        File output = new File(args[1]);
+        File parent = output.getParentFile();
+        if (parent != null && !parent.isDirectory() && !parent.mkdirs()) {
+            throw new IOException("Cannot create " + parent);
+        }
+        try (OutputStream out = new FileOutputStream(output)) {
+            out.write(compiled);
+        }
+        System.out.println("Compiled " + args[0] + " -> " + args[1] + " (" + compiled.length + " bytes)");
+    }
+
+    /**
+     * Parse lexicon source and return the binary lexicon
+     * @throws IOException on a syntax error (the message names the line)
+     */
+    public static byte[] compile(Reader source) throws IOException {
+        Parser parser = new Parser();
+        parser.parse(source);
+        return parser.write();
+    }
+
+    private static final class Pattern {
+        final String type;
+        final float weight;
+        final List<String> core = new ArrayList<>();
+        final List<String> context = new ArrayList<>();
+        final List<String> negation = new ArrayList<>();
+
+        Pattern(String type, float weight) {
+            this.type = type;
+            this.weight = weight;
+        }
+    }
+
+    private static final class Parser {
+        private int version = -1;
+        private final Map<String, Set<String>> sets = new LinkedHashMap<>();
+        private final List<Pattern> patterns = new ArrayList<>();
+        private Set<String> currentSet;
+        private Pattern currentPattern;
+        private int lineNumber;
+
+        void parse(Reader source) throws IOException {
+            BufferedReader reader = new BufferedReader(source);
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) continue;
+                parseLine(line);
+            }
+            if (version < 0) {
+                throw error("missing version");
+            }
+        }
+
+        private void parseLine(String line) throws IOException {
+            String[] words = line.split("\\s+");
+            switch (words[0]) {
+                case "version":
+                    if (version >= 0 || words.length != 2) throw error("expected one 'version <n>' line");
+                    version = parseInt(words[1]);
+                    return;
+                case "set":
+                    if (words.length != 2) throw error("expected 'set <name>'");
+                    if (sets.containsKey(words[1])) throw error("duplicate set " + words[1]);
+                    if (sets.size() == MAX_SETS) throw error("more than " + MAX_SETS + " sets");
+                    currentSet = new LinkedHashSet<>();
+                    currentPattern = null;
+                    sets.put(words[1], currentSet);
+                    return;
+                case "include":
+                    if (words.length != 2) throw error("expected 'include <set>'");
+                    if (currentSet == null) throw error("include outside a set");
+                    Set<String> included = sets.get(words[1]);
+                    if (included == null || included == currentSet) throw error("unknown set " + words[1]);
+                    currentSet.addAll(included);
+                    return;
+                case "intent":
+                    if (words.length != 3) throw error("expected 'intent <type> <weight>'");
+                    currentPattern = new Pattern(parseType(words[1]), parseWeight(words[2]));
+                    currentSet = null;
+                    patterns.add(currentPattern);
+                    return;
+                default:
+                    break;
+            }
+
+            int colon = line.indexOf(':');
+            String key = colon > 0 ? line.substring(0, colon).trim() : "";
+            if (key.equals("core") || key.equals("context") || key.equals("negation")) {
+                if (currentPattern == null) throw error(key + ": outside an intent");
+                List<String> target = key.equals("core") ? currentPattern.core
+                        : key.equals("context") ? currentPattern.context : currentPattern.negation;
+                addPhrases(line.substring(colon + 1), target);
+            } else if (currentSet != null) {
+                addPhrases(line, currentSet);
+            } else {
+                throw error("phrases outside a set or intent");
+            }
+        }
+
+        private void addPhrases(String list, Collection<String> target) throws IOException {
+            for (String phrase : list.split(",")) {
+                if (phrase.trim().isEmpty()) continue;
+                String normalized = TextNormalizer.normalize(phrase);
+                if (normalized.isEmpty()) throw error("phrase '" + phrase.trim() + "' is empty after normalisation");
+                target.add(normalized);
+            }
+        }
+
+        private int parseInt(String value) throws IOException {
+            try {
+                int parsed = Integer.parseInt(value);
+                if (parsed < 0) throw error("negative version");
+                return parsed;
+            } catch (NumberFormatException e) {
+                throw error("not a number: " + value);
+            }
+        }
+
+        private float parseWeight(String value) throws IOException {
+            try {
+                float weight = Float.parseFloat(value);
+                if (!(weight > 0.0f && weight <= 1.0f)) throw error("weight must be in (0, 1]: " + value);
+                return weight;
+            } catch (NumberFormatException e) {
+                throw error("not a number: " + value);
+            }
+        }
+
+        private String parseType(String value) throws IOException {
+            try {
+                if (EmergencyTypeDetector.EmergencyType.valueOf(value) != EmergencyTypeDetector.EmergencyType.NONE) {
+                    return value;
+                }
+            } catch (IllegalArgumentException e) {
+                // Reported below
+            }
+            throw error("unknown emergency type " + value);
+        }
+
+        private IOException error(String message) {
+            return new IOException("Lexicon line " + lineNumber + ": " + message);
+        }
+
+        byte[] write() throws IOException {
+            // Phrase table: every distinct phrase, with the sets it belongs to
+            Map<String, Integer> phraseIds = new LinkedHashMap<>();
+            List<Long> phraseSets = new ArrayList<>();
+            int setId = 0;
+            for (Set<String> set : sets.values()) {
+                for (String phrase : set) {
+                    int id = phraseId(phrase, phraseIds, phraseSets);
+                    phraseSets.set(id, phraseSets.get(id) | (1L << setId));
+                }
+                setId++;
+            }
+            for (Pattern pattern : patterns) {
+                for (String phrase : pattern.core) phraseId(phrase, phraseIds, phraseSets);
+                for (String phrase : pattern.context) phraseId(phrase, phraseIds, phraseSets);
+                for (String phrase : pattern.negation) phraseId(phrase, phraseIds, phraseSets);
+            }
+            List<String> phrases = new ArrayList<>(phraseIds.keySet());
+
+            ByteArrayOutputStream payloadBytes = new ByteArrayOutputStream();
+            DataOutputStream payload = new DataOutputStream(payloadBytes);
+
+            payload.writeInt(sets.size());
+            for (String name : sets.keySet()) {
+                writeString(payload, name);
+            }
+
+            payload.writeInt(phrases.size());
+            for (int id = 0; id < phrases.size(); id++) {
+                writeString(payload, phrases.get(id));
+                payload.writeLong(phraseSets.get(id));
+            }
+
+            new PhraseAutomaton(phrases).writeTo(payload);
+
+            payload.writeInt(patterns.size());
+            for (Pattern pattern : patterns) {
+                writeString(payload, pattern.type);
+                payload.writeFloat(pattern.weight);
+                writeIds(payload, pattern.core, phraseIds);
+                writeIds(payload, pattern.context, phraseIds);
+                writeIds(payload, pattern.negation, phraseIds);
+            }
+            payload.flush();
+
+            byte[] body = payloadBytes.toByteArray();
+            CRC32 crc = new CRC32();
+            crc.update(body, 0, body.length);
+
+            ByteArrayOutputStream fileBytes = new ByteArrayOutputStream(HEADER_SIZE + body.length);
+            DataOutputStream file = new DataOutputStream(fileBytes);
+            file.writeInt(MAGIC);
+            file.writeInt(FORMAT_VERSION);
+            file.writeInt(version);
+            file.writeInt(body.length);
+            file.writeInt((int) crc.getValue());
+            file.write(body);
+            file.flush();
+            return fileBytes.toByteArray();
+        }
+
+        private static int phraseId(String phrase, Map<String, Integer> phraseIds, List<Long> phraseSets) {
+            Integer id = phraseIds.get(phrase);
+            if (id == null) {
+                id = phraseIds.size();
+                phraseIds.put(phrase, id);
+                phraseSets.add(0L);
+            }
+            return id;
+        }
+
+        private static void writeIds(DataOutputStream out, List<String> phrases, Map<String, Integer> phraseIds)
+                throws IOException {
+            out.writeInt(phrases.size());
+            for (String phrase : phrases) {
+                out.writeInt(phraseIds.get(phrase));
+            }
+        }
+
+        private static void writeString(DataOutputStream out, String value) throws IOException {
+            out.writeInt(value.length());
+            out.writeChars(value);
+        }
+    }
+}
@@ -0,0 +1,192 @@
+package com.example.safetyapp.helper;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Scores all N-best alternatives of one recognition result together and makes one decision
+ * Each alternative gets a weight from its recogniser confidence (or its rank when the
+ * recogniser gives none); the posterior of an emergency type is the weighted sum of the
+ * intent scores of the alternatives classified as that type. Alternatives are classified in
+ * sorted order through one incremental session, so words shared with the previous alternative
+ * are not scanned again.
+ * Not thread-safe; use one scorer per recogniser.
+ */
+public final class NBestIntentScorer {
+    private static final String TAG = "NBestIntentScorer";
+    private static final boolean DEBUG_LOGGING = DetectionLog.isLoggable(TAG, DetectionLog.DEBUG);
+
+    // Posterior above which an intent counts as an emergency (same bar as EmergencyClassification)
+    private static final float EMERGENCY_POSTERIOR = 0.5f;
+
+    private static final EmergencyTypeDetector.EmergencyType[] TYPES = EmergencyTypeDetector.EmergencyType.values();
+
+    private final KeywordCategoryMatcher keywords;
+    private final EmergencyIntentClassifier.Session session = new EmergencyIntentClassifier.Session();
+    private final float[] typePosteriors = new float[TYPES.length];
+    private final float[] typeBestContribution = new float[TYPES.length];
+    private final int[] typeBestHypothesis = new int[TYPES.length];
+
+    private float[] weights = new float[8];
+    private int[] order = new int[8];
+
+    /**
+     * @param keywords Fallback keyword matcher (null for intent scoring only)
+     */
+    public NBestIntentScorer(KeywordCategoryMatcher keywords) {
+        this.keywords = keywords;
+    }
+
+    /**
+     * Score one recognition result
+     * @param hypotheses N-best alternatives, best first
+     * @param confidences Recogniser confidence per alternative (null or partly missing allowed)
+     */
+    public Decision score(List<String> hypotheses, float[] confidences) {
+        int count = hypotheses != null ? hypotheses.size() : 0;
+        if (count == 0) {
+            return new Decision(EmergencyTypeDetector.EmergencyType.NONE, 0.0f, -1, -1, -1, 0.0f);
+        }
+
+        ensureCapacity(count);
+        computeWeights(count, confidences);
+
+        Arrays.fill(typePosteriors, 0.0f);
+        Arrays.fill(typeBestContribution, 0.0f);
+        Arrays.fill(typeBestHypothesis, -1);
+
+        // Neighbours in sorted order share the longest prefixes
+        sortHypotheses(hypotheses, count);
+        session.reset();
+        for (int k = 0; k < count; k++) {
+            int i = order[k];
+            EmergencyIntentClassifier.EmergencyClassification classification = session.update(hypotheses.get(i));
+            if (classification.type == EmergencyTypeDetector.EmergencyType.NONE) continue;
+
+            int type = classification.type.ordinal();
+            float contribution = weights[i] * classification.confidence;
+            typePosteriors[type] += contribution;
+            // Ties go to the recogniser's better-ranked alternative
+            if (contribution > typeBestContribution[type]
+                    || (contribution == typeBestContribution[type] && i < typeBestHypothesis[type])) {
+                typeBestContribution[type] = contribution;
+                typeBestHypothesis[type] = i;
+            }
+        }
+
+        int bestType = -1;
+        for (int type = 0; type < TYPES.length; type++) {
+            if (typeBestHypothesis[type] >= 0 && (bestType < 0 || typePosteriors[type] > typePosteriors[bestType])) {
+                bestType = type;
+            }
+        }
+
+        // Keyword evidence: weight of the alternatives that contain a fallback keyword
+        float keywordPosterior = 0.0f;
+        int keywordHypothesis = -1;
+        int keywordCategory = -1;
+        if (keywords != null) {
+            for (int i = 0; i < count; i++) {
+                int category = keywords.findCategory(hypotheses.get(i));
+                if (category < 0) continue;
+
+                keywordPosterior += weights[i];
+                if (keywordHypothesis < 0) {
+                    keywordHypothesis = i;
+                    keywordCategory = category;
+                }
+            }
+        }
+
+        Decision decision = bestType >= 0
+                ? new Decision(TYPES[bestType], typePosteriors[bestType], typeBestHypothesis[bestType],
+                        keywordHypothesis, keywordCategory, keywordPosterior)
+                : new Decision(EmergencyTypeDetector.EmergencyType.NONE, 0.0f, -1,
+                        keywordHypothesis, keywordCategory, keywordPosterior);
+        if (DEBUG_LOGGING) DetectionLog.d(TAG, "N-best decision over " + count + " alternatives: " + decision.type +
+                " (posterior: " + decision.posterior + ", keyword posterior: " + keywordPosterior + ")");
+        return decision;
+    }
+
+    /**
+     * Normalised alternative weights: recogniser confidence where given (> 0), otherwise a
+     * 1/rank prior scaled to the mean of the given confidences
+     */
+    private void computeWeights(int count, float[] confidences) {
+        float givenSum = 0.0f;
+        int givenCount = 0;
+        for (int i = 0; i < count; i++) {
+            if (confidences != null && i < confidences.length && confidences[i] > 0.0f) {
+                givenSum += confidences[i];
+                givenCount++;
+            }
+        }
+        float priorScale = givenCount > 0 ? givenSum / givenCount : 1.0f;
+
+        float sum = 0.0f;
+        for (int i = 0; i < count; i++) {
+            boolean given = confidences != null && i < confidences.length && confidences[i] > 0.0f;
+            weights[i] = given ? confidences[i] : priorScale / (i + 1);
+            sum += weights[i];
+        }
+        for (int i = 0; i < count; i++) {
+            weights[i] /= sum;
+        }
+    }
+
+    /**
+     * Insertion sort of hypothesis indices by text (N is small, and this allocates nothing)
+     */
+    private void sortHypotheses(List<String> hypotheses, int count) {
+        for (int i = 0; i < count; i++) {
+            String text = hypotheses.get(i);
+            int k = i;
+            while (k > 0 && text.compareToIgnoreCase(hypotheses.get(order[k - 1])) < 0) {
+                order[k] = order[k - 1];
+                k--;
+            }
+            order[k] = i;
+        }
+    }
+
+    private void ensureCapacity(int count) {
+        if (weights.length < count) {
+            weights = new float[count];
+            order = new int[count];
+        }
+    }
+
+    /**
+     * One decision for a whole recognition result
+     */
+    public static final class Decision {
+        public final EmergencyTypeDetector.EmergencyType type;
+        // Weighted intent score of type across the alternatives
+        public final float posterior;
+        // Alternative that best supports type (-1 if none)
+        public final int hypothesisIndex;
+        // Best-ranked alternative containing a fallback keyword, and its category (-1 if none)
+        public final int keywordHypothesisIndex;
+        public final int keywordCategory;
+        // Total weight of the alternatives containing a fallback keyword
+        public final float keywordPosterior;
+
+        Decision(EmergencyTypeDetector.EmergencyType type, float posterior, int hypothesisIndex,
+                 int keywordHypothesisIndex, int keywordCategory, float keywordPosterior) {
+            this.type = type;
+            this.posterior = posterior;
+            this.hypothesisIndex = hypothesisIndex;
+            this.keywordHypothesisIndex = keywordHypothesisIndex;
+            this.keywordCategory = keywordCategory;
+            this.keywordPosterior = keywordPosterior;
+        }
+
+        public boolean isEmergency() {
+            return type != EmergencyTypeDetector.EmergencyType.NONE && posterior > EMERGENCY_POSTERIOR;
+        }
+
+        public boolean hasKeyword() {
+            return keywordCategory >= 0;
+        }
+    }
+}
@@ -0,0 +1,295 @@
+package com.example.safetyapp.helper;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.TreeMap;
+
+/**
+ * Aho-Corasick automaton over a fixed set of phrases
+ * Built once, then scans any text in a single left-to-right pass and reports every occurrence
+ * of every phrase, including overlapping ones. All state lives in flat primitive arrays
+ * (sorted edge lists, failure links and dictionary-suffix links), so scanning allocates nothing
+ * and the automaton can be shared freely between threads.
+ * The arrays can also be written out once and read back without rebuilding (see writeTo/read).
+ */
+public final class PhraseAutomaton {
+
+    // Edges of state s are edgeChars/edgeTargets[edgeStart[s] .. edgeStart[s + 1]), sorted by char
+    private final int[] edgeStart;
+    private final char[] edgeChars;
+    private final int[] edgeTargets;
+
+    private final int[] failure;
+    // Nearest state on the failure chain that ends a phrase (-1 if none)
+    private final int[] dictionaryLink;
+    // Phrase id ending exactly at this state (-1 if none)
+    private final int[] terminalPhrase;
+
+    private final int[] phraseLengths;
+
+    /**
+     * @param phrases Phrases to match; the id reported for a match is the index in this list.
+     *                Duplicate phrases keep only the first id.
+     */
+    public PhraseAutomaton(List<String> phrases) {
+        // 1. Build the trie with sorted maps (construction only)
+        List<TreeMap<Character, Integer>> children = new ArrayList<>();
+        List<Integer> terminals = new ArrayList<>();
+        children.add(new TreeMap<>());
+        terminals.add(-1);
+
+        phraseLengths = new int[phrases.size()];
+        for (int id = 0; id < phrases.size(); id++) {
+            String phrase = phrases.get(id);
+            phraseLengths[id] = phrase.length();
+            if (phrase.isEmpty()) continue;
+
+            int state = 0;
+            for (int i = 0; i < phrase.length(); i++) {
+                Integer next = children.get(state).get(phrase.charAt(i));
+                if (next == null) {
+                    next = children.size();
+                    children.add(new TreeMap<>());
+                    terminals.add(-1);
+                    children.get(state).put(phrase.charAt(i), next);
+                }
+                state = next;
+            }
+            if (terminals.get(state) < 0) {
+                terminals.set(state, id);
+            }
+        }
+
+        // 2. Flatten edges into sorted arrays
+        int stateCount = children.size();
+        edgeStart = new int[stateCount + 1];
+        int edgeCount = 0;
+        for (int s = 0; s < stateCount; s++) {
+            edgeStart[s] = edgeCount;
+            edgeCount += children.get(s).size();
+        }
+        edgeStart[stateCount] = edgeCount;
+
+        edgeChars = new char[edgeCount];
+        edgeTargets = new int[edgeCount];
+        for (int s = 0; s < stateCount; s++) {
+            int e = edgeStart[s];
+            for (java.util.Map.Entry<Character, Integer> edge : children.get(s).entrySet()) {
+                edgeChars[e] = edge.getKey();
+                edgeTargets[e] = edge.getValue();
+                e++;
+            }
+        }
+
+        terminalPhrase = new int[stateCount];
+        for (int s = 0; s < stateCount; s++) {
+            terminalPhrase[s] = terminals.get(s);
+        }
+
+        // 3. Failure and dictionary links, breadth first
+        failure = new int[stateCount];
+        dictionaryLink = new int[stateCount];
+        Arrays.fill(dictionaryLink, -1);
+
+        ArrayDeque<Integer> queue = new ArrayDeque<>();
+        for (int e = edgeStart[0]; e < edgeStart[1]; e++) {
+            failure[edgeTargets[e]] = 0;
+            queue.add(edgeTargets[e]);
+        }
+
+        while (!queue.isEmpty()) {
+            int state = queue.poll();
+            for (int e = edgeStart[state]; e < edgeStart[state + 1]; e++) {
+                char c = edgeChars[e];
+                int child = edgeTargets[e];
+
+                int fallback = failure[state];
+                int target;
+                while ((target = step(fallback, c)) < 0 && fallback != 0) {
+                    fallback = failure[fallback];
+                }
+                failure[child] = (target >= 0 && target != child) ? target : 0;
+
+                int f = failure[child];
+                dictionaryLink[child] = terminalPhrase[f] >= 0 ? f : dictionaryLink[f];
+                queue.add(child);
+            }
+        }
+    }
+
+    /**
+     * Receives matches from scan(). Positions are char offsets into the scanned text.
+     */
+    public interface MatchSink {
+        void onMatch(int phraseId, int start, int end);
+    }
+
+    /**
+     * Report every phrase occurrence in text[from, to)
+     */
+    public void scan(CharSequence text, int from, int to, MatchSink sink) {
+        int state = 0;
+        for (int i = from; i < to; i++) {
+            char c = text.charAt(i);
+
+            int next;
+            while ((next = step(state, c)) < 0 && state != 0) {
+                state = failure[state];
+            }
+            state = next < 0 ? 0 : next;
+
+            int end = i + 1;
+            int output = terminalPhrase[state] >= 0 ? state : dictionaryLink[state];
+            while (output >= 0) {
+                int phraseId = terminalPhrase[output];
+                sink.onMatch(phraseId, end - phraseLengths[phraseId], end);
+                output = dictionaryLink[output];
+            }
+        }
+    }
+
+    public void scan(CharSequence text, MatchSink sink) {
+        scan(text, 0, text.length(), sink);
+    }
+
+    /**
+     * Continue a scan from a previously returned state (for incremental/streaming input)
+     * @return The automaton state after consuming c
+     */
+    public int advance(int state, char c) {
+        int next;
+        while ((next = step(state, c)) < 0 && state != 0) {
+            state = failure[state];
+        }
+        return next < 0 ? 0 : next;
+    }
+
+    /**
+     * First phrase ending at state (-1 if none); follow with nextOutput() for the rest
+     */
+    public int firstOutput(int state) {
+        return terminalPhrase[state] >= 0 ? state : dictionaryLink[state];
+    }
+
+    public int nextOutput(int outputState) {
+        return dictionaryLink[outputState];
+    }
+
+    public int outputPhrase(int outputState) {
+        return terminalPhrase[outputState];
+    }
+
+    public int phraseLength(int phraseId) {
+        return phraseLengths[phraseId];
+    }
+
+    public int phraseCount() {
+        return phraseLengths.length;
+    }
+
+    public int stateCount() {
+        return failure.length;
+    }
+
+    private PhraseAutomaton(int[] edgeStart, char[] edgeChars, int[] edgeTargets, int[] failure,
+                            int[] dictionaryLink, int[] terminalPhrase, int[] phraseLengths) {
+        this.edgeStart = edgeStart;
+        this.edgeChars = edgeChars;
+        this.edgeTargets = edgeTargets;
+        this.failure = failure;
+        this.dictionaryLink = dictionaryLink;
+        this.terminalPhrase = terminalPhrase;
+        this.phraseLengths = phraseLengths;
+    }
+
+    /**
+     * Serialise the built automaton (phrase lengths are not included; read() takes them back)
+     */
+    public void writeTo(DataOutputStream out) throws IOException {
+        int stateCount = failure.length;
+        out.writeInt(stateCount);
+        out.writeInt(edgeChars.length);
+        for (int value : edgeStart) out.writeInt(value);
+        for (char value : edgeChars) out.writeChar(value);
+        for (int value : edgeTargets) out.writeInt(value);
+        for (int value : failure) out.writeInt(value);
+        for (int value : dictionaryLink) out.writeInt(value);
+        for (int value : terminalPhrase) out.writeInt(value);
+    }
+
+    /**
+     * Read an automaton written by writeTo(), advancing the buffer past it
+     * The arrays are bulk-copied out of the buffer; nothing is rebuilt.
+     * @param phraseLengths Length of every phrase id the automaton was built with
+     * @throws IOException if the data is inconsistent
+     */
+    public static PhraseAutomaton read(ByteBuffer in, int[] phraseLengths) throws IOException {
+        int stateCount = in.getInt();
+        int edgeCount = in.getInt();
+        if (stateCount < 1 || edgeCount != stateCount - 1) {
+            throw new IOException("Bad automaton size: " + stateCount + " states, " + edgeCount + " edges");
+        }
+
+        int[] edgeStart = readInts(in, stateCount + 1);
+        char[] edgeChars = new char[edgeCount];
+        in.asCharBuffer().get(edgeChars);
+        in.position(in.position() + 2 * edgeCount);
+        int[] edgeTargets = readInts(in, edgeCount);
+        int[] failure = readInts(in, stateCount);
+        int[] dictionaryLink = readInts(in, stateCount);
+        int[] terminalPhrase = readInts(in, stateCount);
+
+        // Every index the scan loop follows must stay in range
+        if (edgeStart[0] != 0 || edgeStart[stateCount] != edgeCount) {
+            throw new IOException("Bad automaton edge table");
+        }
+        for (int s = 0; s < stateCount; s++) {
+            if (edgeStart[s] > edgeStart[s + 1]
+                    || failure[s] < 0 || failure[s] >= stateCount
+                    || dictionaryLink[s] < -1 || dictionaryLink[s] >= stateCount
+                    || terminalPhrase[s] < -1 || terminalPhrase[s] >= phraseLengths.length) {
+                throw new IOException("Bad automaton state " + s);
+            }
+        }
+        for (int target : edgeTargets) {
+            if (target <= 0 || target >= stateCount) {
+                throw new IOException("Bad automaton edge target " + target);
+            }
+        }
+
+        return new PhraseAutomaton(edgeStart, edgeChars, edgeTargets, failure, dictionaryLink, terminalPhrase,
+                phraseLengths);
+    }
+
+    private static int[] readInts(ByteBuffer in, int count) {
+        int[] values = new int[count];
+        in.asIntBuffer().get(values);
+        in.position(in.position() + 4 * count);
+        return values;
+    }
+
+    /**
+     * Goto function: binary search in the state's sorted edge list, -1 if there is no edge
+     */
+    private int step(int state, char c) {
+        int low = edgeStart[state];
+        int high = edgeStart[state + 1] - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            char midChar = edgeChars[mid];
+            if (midChar < c) {
+                low = mid + 1;
+            } else if (midChar > c) {
+                high = mid - 1;
+            } else {
+                return edgeTargets[mid];
+            }
+        }
+        return -1;
+    }
+}
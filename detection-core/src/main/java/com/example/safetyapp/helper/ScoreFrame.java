@@ -0,0 +1,87 @@
+package com.example.safetyapp.helper;
+
+import java.nio.FloatBuffer;
+
+/**
+ * Read-only snapshot of one window's YAMNet class scores
+ * Filled once per window by AcousticAnalyzer and shared by every detector, which only read it.
+ * The strongest class is found while the scores are copied in, so no detector has to rescan all 521,
+ * and the YAMNet rule table is evaluated once here for every detector that needs it.
+ */
+public final class ScoreFrame {
+    public static final int NUM_CLASSES = 521;
+
+    // Package-private so detectors in this package can index it directly; never written outside set()
+    final float[] values = new float[NUM_CLASSES];
+    private float maxScore;
+    private int topClass;
+    private final YamnetRuleTable.Evaluation rules = new YamnetRuleTable.Evaluation();
+
+    public ScoreFrame() {}
+
+    /**
+     * Copy in a raw YAMNet score vector (called by whoever runs the model)
+     */
+    public void set(float[] scores) {
+        int length = Math.min(scores.length, NUM_CLASSES);
+        System.arraycopy(scores, 0, values, 0, length);
+        summarise(length);
+    }
+
+    /**
+     * Copy in YAMNet scores straight from the model's output tensor buffer
+     * Reads from the buffer's position on; the position itself is left unchanged.
+     */
+    public void set(FloatBuffer scores) {
+        int start = scores.position();
+        int length = Math.min(scores.remaining(), NUM_CLASSES);
+        for (int i = 0; i < length; i++) {
+            values[i] = scores.get(start + i);
+        }
+        summarise(length);
+    }
+
+    private void summarise(int length) {
+        float max = Float.NEGATIVE_INFINITY;
+        int top = 0;
+        for (int i = 0; i < length; i++) {
+            float score = values[i];
+            if (score > max) {
+                max = score;
+                top = i;
+            }
+        }
+        maxScore = Math.max(0f, max);
+        topClass = top;
+        YamnetRuleTable.evaluate(values, rules);
+    }
+
+    public float get(int classIndex) {
+        return values[classIndex];
+    }
+
+    public int size() {
+        return NUM_CLASSES;
+    }
+
+    /**
+     * Highest class score in this window (0 if all scores are negative)
+     */
+    public float maxScore() {
+        return maxScore;
+    }
+
+    /**
+     * Index of the highest scoring YAMNet class
+     */
+    public int topClass() {
+        return topClass;
+    }
+
+    /**
+     * YAMNet rule table applied to this window (type evidence and ambient distress)
+     */
+    public YamnetRuleTable.Evaluation rules() {
+        return rules;
+    }
+}
@@ -0,0 +1,230 @@
+package com.example.safetyapp.helper;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.util.zip.CRC32;
+
+/**
+ * An enrolled voice signature for speaker verification, and its file format
+ * The signature is YAMNet's 1024-d embedding output, which the same invocation that produces the
+ * class scores already computes. It is L2-normalised once when created, so matching a live window
+ * is a single dot product (divided by the live vector's norm, found in the same pass).
+ * Immutable and thread-safe.
+ *
+ * File layout (big-endian):
+ *   header  - magic "SPKE", format version, payload length, payload CRC32
+ *   payload - kind (Kind ordinal), dimensions, the normalised vector
+ * Files from before the header (format version 0) are the 521 raw YAMNet class scores and nothing
+ * else. read() migrates them to a CLASS_SCORES signature, so an existing enrollment keeps working
+ * (at its old threshold) until the user enrolls again.
+ * Enrollments are now stored as a SpeakerIndex of many samples; this single-signature format is
+ * only read, to migrate files written before it.
+ */
+public final class SpeakerEmbedding {
+    public static final int EMBEDDING_SIZE = 1024;
+
+    static final int MAGIC = 0x53504B45; // "SPKE"
+    static final int FORMAT_VERSION = 1;
+    static final int HEADER_SIZE = 16;
+    static final int LEGACY_FILE_SIZE = ScoreFrame.NUM_CLASSES * 4;
+
+    /**
+     * Which YAMNet output a signature was taken from; live windows must be compared on the same one
+     */
+    public enum Kind {
+        CLASS_SCORES(ScoreFrame.NUM_CLASSES, 0.30f), // Legacy: output 0, a poor speaker signature
+        YAMNET_EMBEDDING(EMBEDDING_SIZE, 0.70f);     // Output 1
+
+        public final int dimensions;
+        public final float matchThreshold;
+
+        Kind(int dimensions, float matchThreshold) {
+            this.dimensions = dimensions;
+            this.matchThreshold = matchThreshold;
+        }
+    }
+
+    private final Kind kind;
+    private final int formatVersion;
+    final float[] vector; // Unit length
+
+    private SpeakerEmbedding(Kind kind, float[] vector, int formatVersion) {
+        this.kind = kind;
+        this.vector = vector;
+        this.formatVersion = formatVersion;
+    }
+
+    /**
+     * @param values Raw model output of kind.dimensions values; copied and normalised
+     * @throws IllegalArgumentException if the length is wrong or the vector is all zeros
+     */
+    public static SpeakerEmbedding create(Kind kind, float[] values) {
+        if (values.length != kind.dimensions) {
+            throw new IllegalArgumentException(kind + " needs " + kind.dimensions + " values, got " + values.length);
+        }
+        float[] vector = values.clone();
+        if (normalize(vector) == 0.0f) {
+            throw new IllegalArgumentException("Cannot normalise an all-zero " + kind);
+        }
+        return new SpeakerEmbedding(kind, vector, FORMAT_VERSION);
+    }
+
+    /**
+     * Scale a vector to unit length in place
+     * @return Its length before scaling (0 if it was all zeros, in which case it is unchanged)
+     */
+    public static float normalize(float[] vector) {
+        double sum = 0.0;
+        for (float value : vector) {
+            sum += value * value;
+        }
+        float norm = (float) Math.sqrt(sum);
+        if (norm > 0.0f) {
+            float scale = 1.0f / norm;
+            for (int i = 0; i < vector.length; i++) {
+                vector[i] *= scale;
+            }
+        }
+        return norm;
+    }
+
+    /**
+     * Cosine similarity to a live model output of this signature's kind
+     * @param live Read from its position on; the position is left unchanged
+     * @return -1 to 1, or 0 if the live vector is all zeros
+     */
+    public float similarity(FloatBuffer live) {
+        int start = live.position();
+        if (live.remaining() < vector.length) {
+            throw new IllegalArgumentException(kind + " needs " + vector.length + " values, got " + live.remaining());
+        }
+        float dot = 0.0f;
+        float norm = 0.0f;
+        for (int i = 0; i < vector.length; i++) {
+            float value = live.get(start + i);
+            dot += vector[i] * value;
+            norm += value * value;
+        }
+        return norm > 0.0f ? dot / (float) Math.sqrt(norm) : 0.0f;
+    }
+
+    public float similarity(float[] live) {
+        if (live.length < vector.length) {
+            throw new IllegalArgumentException(kind + " needs " + vector.length + " values, got " + live.length);
+        }
+        float dot = 0.0f;
+        float norm = 0.0f;
+        for (int i = 0; i < vector.length; i++) {
+            dot += vector[i] * live[i];
+            norm += live[i] * live[i];
+        }
+        return norm > 0.0f ? dot / (float) Math.sqrt(norm) : 0.0f;
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    /**
+     * Format version it was read from; older than FORMAT_VERSION means it should be rewritten
+     */
+    public int getFormatVersion() {
+        return formatVersion;
+    }
+
+    // ==== File format ====
+
+    /**
+     * Read a stored signature, migrating the headerless legacy format
+     * @param buffer File contents from position to limit; not modified
+     * @throws IOException if the data is not a valid signature of a supported format
+     */
+    public static SpeakerEmbedding read(ByteBuffer buffer) throws IOException {
+        ByteBuffer in = buffer.duplicate().order(ByteOrder.BIG_ENDIAN);
+        try {
+            if (in.remaining() == LEGACY_FILE_SIZE && in.getInt(in.position()) != MAGIC) {
+                float[] vector = new float[ScoreFrame.NUM_CLASSES];
+                in.asFloatBuffer().get(vector);
+                if (normalize(vector) == 0.0f) {
+                    throw new IOException("Legacy voice signature is all zeros");
+                }
+                return new SpeakerEmbedding(Kind.CLASS_SCORES, vector, 0);
+            }
+
+            if (in.remaining() < HEADER_SIZE || in.getInt() != MAGIC) {
+                throw new IOException("Not a voice signature");
+            }
+            int formatVersion = in.getInt();
+            if (formatVersion != FORMAT_VERSION) {
+                throw new IOException("Unsupported voice signature format " + formatVersion);
+            }
+            int payloadLength = in.getInt();
+            int expectedCrc = in.getInt();
+            if (payloadLength < 0 || payloadLength != in.remaining()) {
+                throw new IOException("Voice signature is truncated or has trailing data");
+            }
+            if (crc(in) != expectedCrc) {
+                throw new IOException("Voice signature checksum mismatch");
+            }
+
+            int kindOrdinal = in.getInt();
+            if (kindOrdinal < 0 || kindOrdinal >= Kind.values().length) {
+                throw new IOException("Unknown voice signature kind " + kindOrdinal);
+            }
+            Kind kind = Kind.values()[kindOrdinal];
+            int dimensions = in.getInt();
+            if (dimensions != kind.dimensions || in.remaining() != dimensions * 4) {
+                throw new IOException("Voice signature size does not match its kind " + kind);
+            }
+            float[] vector = new float[dimensions];
+            in.asFloatBuffer().get(vector);
+            return new SpeakerEmbedding(kind, vector, formatVersion);
+        } catch (BufferUnderflowException | IndexOutOfBoundsException e) {
+            throw new IOException("Malformed voice signature", e);
+        }
+    }
+
+    /**
+     * Write this signature in the current format read by read()
+     */
+    public void writeTo(OutputStream output) throws IOException {
+        ByteArrayOutputStream payloadBytes = new ByteArrayOutputStream(8 + vector.length * 4);
+        DataOutputStream payload = new DataOutputStream(payloadBytes);
+        payload.writeInt(kind.ordinal());
+        payload.writeInt(vector.length);
+        for (float value : vector) {
+            payload.writeFloat(value);
+        }
+        payload.flush();
+
+        byte[] body = payloadBytes.toByteArray();
+        CRC32 crc = new CRC32();
+        crc.update(body, 0, body.length);
+
+        DataOutputStream file = new DataOutputStream(output);
+        file.writeInt(MAGIC);
+        file.writeInt(FORMAT_VERSION);
+        file.writeInt(body.length);
+        file.writeInt((int) crc.getValue());
+        file.write(body);
+        file.flush();
+    }
+
+    private static int crc(ByteBuffer in) {
+        CRC32 crc = new CRC32();
+        ByteBuffer data = in.duplicate();
+        byte[] chunk = new byte[8192];
+        while (data.hasRemaining()) {
+            int length = Math.min(chunk.length, data.remaining());
+            data.get(chunk, 0, length);
+            crc.update(chunk, 0, length);
+        }
+        return (int) crc.getValue();
+    }
+}
@@ -0,0 +1,368 @@
+package com.example.safetyapp.helper;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+
+/**
+ * Every enrolled voice sample of the user, for speaker verification
+ * One unit-length vector per enrolled window (several prompts: normal voice, raised voice,
+ * shouting...), kept as one contiguous row-major float matrix. A live window is compared with all
+ * of them in one blocked matrix-vector product - the live vector is read once per block of rows -
+ * and its score is the mean of its top-k cosine similarities, so it only has to resemble the
+ * samples of the way the user is speaking right now, not their average.
+ * Immutable and thread-safe.
+ *
+ * File layout:
+ *   header - magic "SPKI", format version, kind (SpeakerEmbedding.Kind ordinal), dimensions,
+ *            rows, CRC32 of the preceding 20 header bytes; big-endian, 24 bytes
+ *   matrix - rows x dimensions floats, little-endian so that a memory-mapped file is used in
+ *            place (no copy, no byte swapping on Android devices)
+ * Only the header is checksummed, so opening an index costs the same whatever its size: checking
+ * the matrix would read every page of the mapping. The file is only ever replaced whole (written
+ * aside, then renamed), and a truncated one fails the size check.
+ */
+public final class SpeakerIndex {
+    public static final int DEFAULT_TOP_K = 3;
+
+    static final int MAGIC = 0x53504B49; // "SPKI"
+    static final int FORMAT_VERSION = 2;
+    static final int MATRIX_CRC_VERSION = 1; // Checksummed the whole matrix; still read, then rewritten
+    static final int HEADER_SIZE = 24;
+    static final int MAX_ROWS = 4096;
+    private static final int BLOCK_ROWS = 4;
+
+    private final SpeakerEmbedding.Kind kind;
+    private final int dimensions;
+    private final int rows;
+    private final FloatBuffer matrix; // Absolute reads only, so sharing it is safe
+    private final int formatVersion;
+
+    private static final ThreadLocal<Scratch> SCRATCH = ThreadLocal.withInitial(Scratch::new);
+
+    private SpeakerIndex(SpeakerEmbedding.Kind kind, int rows, FloatBuffer matrix, int formatVersion) {
+        this.kind = kind;
+        this.dimensions = kind.dimensions;
+        this.rows = rows;
+        this.matrix = matrix;
+        this.formatVersion = formatVersion;
+    }
+
+    /**
+     * An index holding just one signature (e.g. migrated from a single-sample enrollment)
+     */
+    public static SpeakerIndex of(SpeakerEmbedding embedding) {
+        return new SpeakerIndex(embedding.getKind(), 1, FloatBuffer.wrap(embedding.vector.clone()), FORMAT_VERSION);
+    }
+
+    public static Builder builder(SpeakerEmbedding.Kind kind) {
+        return new Builder(kind);
+    }
+
+    /**
+     * Collects enrolled samples; each is normalised as it is added
+     */
+    public static final class Builder {
+        private final SpeakerEmbedding.Kind kind;
+        private float[] matrix;
+        private int rows;
+
+        private Builder(SpeakerEmbedding.Kind kind) {
+            this.kind = kind;
+            this.matrix = new float[kind.dimensions * 16];
+        }
+
+        /**
+         * @param values Raw model output of kind.dimensions values, from its position on
+         * @return false if the sample was all zeros (and not added)
+         * @throws IllegalArgumentException if fewer than kind.dimensions values remain
+         * @throws IllegalStateException if the index is full
+         */
+        public boolean add(FloatBuffer values) {
+            int dimensions = kind.dimensions;
+            if (values.remaining() < dimensions) {
+                throw new IllegalArgumentException(kind + " needs " + dimensions + " values, got " + values.remaining());
+            }
+            if (rows == MAX_ROWS) {
+                throw new IllegalStateException("Speaker index is full (" + MAX_ROWS + " samples)");
+            }
+            if ((rows + 1) * dimensions > matrix.length) {
+                matrix = Arrays.copyOf(matrix, matrix.length * 2);
+            }
+
+            int base = rows * dimensions;
+            int start = values.position();
+            double sum = 0.0;
+            for (int i = 0; i < dimensions; i++) {
+                float value = values.get(start + i);
+                matrix[base + i] = value;
+                sum += value * value;
+            }
+            if (sum == 0.0) return false;
+
+            float scale = (float) (1.0 / Math.sqrt(sum));
+            for (int i = 0; i < dimensions; i++) {
+                matrix[base + i] *= scale;
+            }
+            rows++;
+            return true;
+        }
+
+        public boolean add(float[] values) {
+            return add(FloatBuffer.wrap(values));
+        }
+
+        public int size() {
+            return rows;
+        }
+
+        /**
+         * Drop the samples added since the builder held size samples (e.g. a rejected recording)
+         */
+        public void truncate(int size) {
+            if (size < 0 || size > rows) {
+                throw new IllegalArgumentException("Cannot truncate " + rows + " samples to " + size);
+            }
+            rows = size;
+        }
+
+        /**
+         * @throws IllegalStateException if no sample was added
+         */
+        public SpeakerIndex build() {
+            if (rows == 0) {
+                throw new IllegalStateException("Speaker index needs at least one sample");
+            }
+            return new SpeakerIndex(kind, rows, FloatBuffer.wrap(Arrays.copyOf(matrix, rows * kind.dimensions)), FORMAT_VERSION);
+        }
+    }
+
+    /**
+     * Mean of the k highest cosine similarities between a live model output and the samples
+     * @param live Output of this index's kind, read from its position on; the position is unchanged
+     * @param k Clamped to the number of samples
+     * @return -1 to 1, or 0 if the live vector is all zeros
+     */
+    public float similarity(FloatBuffer live, int k) {
+        if (live.remaining() < dimensions) {
+            throw new IllegalArgumentException(kind + " needs " + dimensions + " values, got " + live.remaining());
+        }
+        Scratch scratch = SCRATCH.get();
+        float[] vector = scratch.vector(dimensions);
+        int start = live.position();
+        float norm = 0.0f;
+        for (int i = 0; i < dimensions; i++) {
+            float value = live.get(start + i);
+            vector[i] = value;
+            norm += value * value;
+        }
+        if (norm == 0.0f) return 0.0f;
+        return topK(vector, Math.max(1, Math.min(k, rows)), scratch) / (float) Math.sqrt(norm);
+    }
+
+    public float similarity(float[] live, int k) {
+        if (live.length < dimensions) {
+            throw new IllegalArgumentException(kind + " needs " + dimensions + " values, got " + live.length);
+        }
+        float norm = 0.0f;
+        for (int i = 0; i < dimensions; i++) {
+            norm += live[i] * live[i];
+        }
+        if (norm == 0.0f) return 0.0f;
+        return topK(live, Math.max(1, Math.min(k, rows)), SCRATCH.get()) / (float) Math.sqrt(norm);
+    }
+
+    // Sum of the k best dot products with vector, divided by k
+    private float topK(float[] vector, int k, Scratch scratch) {
+        float[] best = scratch.best(k);
+        Arrays.fill(best, 0, k, Float.NEGATIVE_INFINITY);
+
+        int row = 0;
+        for (; row + BLOCK_ROWS <= rows; row += BLOCK_ROWS) {
+            int base0 = row * dimensions;
+            int base1 = base0 + dimensions;
+            int base2 = base1 + dimensions;
+            int base3 = base2 + dimensions;
+            float dot0 = 0.0f, dot1 = 0.0f, dot2 = 0.0f, dot3 = 0.0f;
+            for (int i = 0; i < dimensions; i++) {
+                float value = vector[i];
+                dot0 += matrix.get(base0 + i) * value;
+                dot1 += matrix.get(base1 + i) * value;
+                dot2 += matrix.get(base2 + i) * value;
+                dot3 += matrix.get(base3 + i) * value;
+            }
+            offer(best, k, dot0);
+            offer(best, k, dot1);
+            offer(best, k, dot2);
+            offer(best, k, dot3);
+        }
+        for (; row < rows; row++) {
+            int base = row * dimensions;
+            float dot = 0.0f;
+            for (int i = 0; i < dimensions; i++) {
+                dot += matrix.get(base + i) * vector[i];
+            }
+            offer(best, k, dot);
+        }
+
+        float sum = 0.0f;
+        for (int i = 0; i < k; i++) {
+            sum += best[i];
+        }
+        return sum / k;
+    }
+
+    // best[0..k) is kept in descending order; k is small, so insertion is cheapest
+    private static void offer(float[] best, int k, float value) {
+        if (value <= best[k - 1]) return;
+        int i = k - 1;
+        while (i > 0 && best[i - 1] < value) {
+            best[i] = best[i - 1];
+            i--;
+        }
+        best[i] = value;
+    }
+
+    public SpeakerEmbedding.Kind getKind() {
+        return kind;
+    }
+
+    /**
+     * Number of enrolled samples
+     */
+    public int size() {
+        return rows;
+    }
+
+    /**
+     * Format version it was read from; older than FORMAT_VERSION means it should be rewritten
+     */
+    public int getFormatVersion() {
+        return formatVersion;
+    }
+
+    private static final class Scratch {
+        private float[] vector = new float[0];
+        private float[] best = new float[DEFAULT_TOP_K];
+
+        float[] vector(int dimensions) {
+            if (vector.length < dimensions) {
+                vector = new float[dimensions];
+            }
+            return vector;
+        }
+
+        float[] best(int k) {
+            if (best.length < k) {
+                best = new float[k];
+            }
+            return best;
+        }
+    }
+
+    // ==== File format ====
+
+    /**
+     * Read an index; the matrix is used in place, not copied
+     * @param buffer File contents from position to limit, ideally a read-only mapping of the file;
+     *               must stay valid (and unmodified) for as long as the index is used
+     * @throws IOException if the data is not a valid index of a supported format
+     */
+    public static SpeakerIndex read(ByteBuffer buffer) throws IOException {
+        ByteBuffer in = buffer.duplicate().order(ByteOrder.BIG_ENDIAN);
+        try {
+            int start = in.position();
+            if (in.remaining() < HEADER_SIZE || in.getInt() != MAGIC) {
+                throw new IOException("Not a speaker index");
+            }
+            int formatVersion = in.getInt();
+            if (formatVersion != FORMAT_VERSION && formatVersion != MATRIX_CRC_VERSION) {
+                throw new IOException("Unsupported speaker index format " + formatVersion);
+            }
+            int kindOrdinal = in.getInt();
+            int dimensions = in.getInt();
+            int rows = in.getInt();
+            int expectedCrc = in.getInt();
+            if (formatVersion == FORMAT_VERSION && headerCrc(in, start) != expectedCrc) {
+                throw new IOException("Speaker index header checksum mismatch");
+            }
+
+            if (kindOrdinal < 0 || kindOrdinal >= SpeakerEmbedding.Kind.values().length) {
+                throw new IOException("Unknown speaker index kind " + kindOrdinal);
+            }
+            SpeakerEmbedding.Kind kind = SpeakerEmbedding.Kind.values()[kindOrdinal];
+            if (dimensions != kind.dimensions || rows < 1 || rows > MAX_ROWS) {
+                throw new IOException("Bad speaker index shape " + rows + " x " + dimensions + " for " + kind);
+            }
+            if (in.remaining() != rows * dimensions * 4) {
+                throw new IOException("Speaker index is truncated or has trailing data");
+            }
+            if (formatVersion == MATRIX_CRC_VERSION && matrixCrc(in) != expectedCrc) {
+                throw new IOException("Speaker index checksum mismatch");
+            }
+
+            FloatBuffer matrix = in.slice().order(ByteOrder.LITTLE_ENDIAN).asFloatBuffer();
+            return new SpeakerIndex(kind, rows, matrix, formatVersion);
+        } catch (BufferUnderflowException | IndexOutOfBoundsException e) {
+            throw new IOException("Malformed speaker index", e);
+        }
+    }
+
+    /**
+     * Write this index in the format read by read()
+     */
+    public void writeTo(OutputStream output) throws IOException {
+        ByteBuffer body = ByteBuffer.allocate(rows * dimensions * 4).order(ByteOrder.LITTLE_ENDIAN);
+        for (int i = 0; i < rows * dimensions; i++) {
+            body.putFloat(matrix.get(i));
+        }
+
+        ByteArrayOutputStream headerBytes = new ByteArrayOutputStream(HEADER_SIZE);
+        DataOutputStream header = new DataOutputStream(headerBytes);
+        header.writeInt(MAGIC);
+        header.writeInt(FORMAT_VERSION);
+        header.writeInt(kind.ordinal());
+        header.writeInt(dimensions);
+        header.writeInt(rows);
+        header.flush();
+        CRC32 crc = new CRC32();
+        crc.update(headerBytes.toByteArray());
+        header.writeInt((int) crc.getValue());
+        header.flush();
+
+        output.write(headerBytes.toByteArray());
+        output.write(body.array(), 0, body.capacity());
+        output.flush();
+    }
+
+    // CRC32 of the header bytes before the checksum itself
+    private static int headerCrc(ByteBuffer in, int start) {
+        byte[] header = new byte[HEADER_SIZE - 4];
+        ByteBuffer data = in.duplicate();
+        data.position(start);
+        data.get(header);
+        CRC32 crc = new CRC32();
+        crc.update(header, 0, header.length);
+        return (int) crc.getValue();
+    }
+
+    // Format 1 only: CRC32 of everything from the buffer's position on
+    private static int matrixCrc(ByteBuffer in) {
+        CRC32 crc = new CRC32();
+        ByteBuffer data = in.duplicate();
+        byte[] chunk = new byte[8192];
+        while (data.hasRemaining()) {
+            int length = Math.min(chunk.length, data.remaining());
+            data.get(chunk, 0, length);
+            crc.update(chunk, 0, length);
+        }
+        return (int) crc.getValue();
+    }
+}
@@ -0,0 +1,154 @@
+package com.example.safetyapp.helper;
+
+/**
+ * First, near-free stage of the detection cascade: energy and spectral flux
+ * Splits a window into 16 ms frames, takes a 256-point FFT of each and folds the power into
+ * 32 bands of 250 Hz. A window passes when its loudest frame stands well above the tracked
+ * background level, or when its spectrum changes a lot from frame to frame (onsets, voices).
+ * Steady noise - traffic, engines, the hum of a bus - fails both and skips YAMNet.
+ * The band levels double as input features for the next cascade stage.
+ * Keeps the background level across windows, so use one instance per detection pipeline.
+ * Not thread-safe; allocates nothing per window.
+ */
+public final class SpectralGate {
+    public static final int BANDS = 32;
+
+    private static final int FRAME_SIZE = 256;      // 16 ms at 16 kHz
+    private static final int BINS_PER_BAND = FRAME_SIZE / 2 / BANDS;
+    private static final float PCM_SCALE = 1.0f / 32768.0f;
+    private static final float FLOOR_DB = -100.0f;  // Level of digital silence
+
+    // Defaults, chosen to let anything vocal through: the gate trades little recall for the skip
+    public static final float DEFAULT_ONSET_DB = 6.0f;  // Loudest frame over background
+    public static final float DEFAULT_FLUX_DB = 2.5f;   // Mean rise per band between frames
+    private static final float BACKGROUND_RISE_DB = 0.5f; // Per window; falls immediately
+
+    private final float onsetDb;
+    private final float fluxDb;
+
+    // FFT and scratch
+    private final Fft fft = new Fft(FRAME_SIZE);
+    private final float[] hann = Fft.hann(FRAME_SIZE);
+    private final float[] frame = new float[FRAME_SIZE];
+    private final float[] bandDb = new float[BANDS];
+    private final float[] previousBandDb = new float[BANDS];
+
+    // Window results
+    private final float[] features = new float[BANDS];
+    private float backgroundDb = Float.NaN;
+    private float lastPeakDb;
+    private float lastFlux;
+
+    public SpectralGate() {
+        this(DEFAULT_ONSET_DB, DEFAULT_FLUX_DB);
+    }
+
+    /**
+     * @param onsetDb Pass when the loudest frame is this far above the background
+     * @param fluxDb Pass when band levels rise this much per frame on average
+     */
+    public SpectralGate(float onsetDb, float fluxDb) {
+        this.onsetDb = onsetDb;
+        this.fluxDb = fluxDb;
+    }
+
+    /**
+     * Judge one window of 16 kHz PCM
+     * @return Whether the window is worth running the next stage on
+     */
+    public boolean test(short[] pcm) {
+        int frames = pcm.length / FRAME_SIZE;
+        if (frames == 0) return false;
+
+        for (int b = 0; b < BANDS; b++) features[b] = 0.0f;
+        float peakDb = FLOOR_DB;
+        float quietestDb = 0.0f;
+        float fluxSum = 0.0f;
+
+        for (int f = 0; f < frames; f++) {
+            float frameDb = analyseFrame(pcm, f * FRAME_SIZE);
+            peakDb = Math.max(peakDb, frameDb);
+            quietestDb = f == 0 ? frameDb : Math.min(quietestDb, frameDb);
+
+            for (int b = 0; b < BANDS; b++) {
+                if (f > 0) fluxSum += Math.max(0.0f, bandDb[b] - previousBandDb[b]);
+                previousBandDb[b] = bandDb[b];
+                features[b] += bandDb[b];
+            }
+        }
+
+        // Background: follows the quietest frame down at once, creeps up slowly
+        if (Float.isNaN(backgroundDb) || quietestDb < backgroundDb) {
+            backgroundDb = quietestDb;
+        } else {
+            backgroundDb = Math.min(quietestDb, backgroundDb + BACKGROUND_RISE_DB);
+        }
+
+        // Features: mean band level relative to the background
+        for (int b = 0; b < BANDS; b++) {
+            features[b] = features[b] / frames - backgroundDb;
+        }
+
+        lastPeakDb = peakDb;
+        lastFlux = frames > 1 ? fluxSum / ((frames - 1) * BANDS) : 0.0f;
+        return peakDb - backgroundDb >= onsetDb || lastFlux >= fluxDb;
+    }
+
+    /**
+     * Windowed FFT of one frame into bandDb
+     * @return Frame level in dB full scale
+     */
+    private float analyseFrame(short[] pcm, int offset) {
+        float energy = 0.0f;
+        for (int i = 0; i < FRAME_SIZE; i++) {
+            float sample = pcm[offset + i] * PCM_SCALE;
+            energy += sample * sample;
+            frame[i] = sample * hann[i];
+        }
+        fft.forward(frame, FRAME_SIZE);
+
+        // Bin 0 (DC) is skipped; bands cover bins 1..128
+        int bin = 1;
+        for (int b = 0; b < BANDS; b++) {
+            float power = 0.0f;
+            for (int i = 0; i < BINS_PER_BAND && bin <= FRAME_SIZE / 2; i++, bin++) {
+                power += fft.power(bin);
+            }
+            bandDb[b] = toDb(power / (FRAME_SIZE * FRAME_SIZE));
+        }
+        return toDb(energy / FRAME_SIZE);
+    }
+
+    private static float toDb(float power) {
+        return power <= 1e-10f ? FLOOR_DB : (float) (10.0 * Math.log10(power));
+    }
+
+    /**
+     * Mean level of each band in the last window, in dB over the background
+     * Owned by the gate; overwritten by the next test()
+     */
+    public float[] features() {
+        return features;
+    }
+
+    /**
+     * Loudest frame of the last window over the background, in dB
+     */
+    public float lastOnsetDb() {
+        return lastPeakDb - backgroundDb;
+    }
+
+    /**
+     * Mean positive change per band between frames of the last window, in dB
+     */
+    public float lastFlux() {
+        return lastFlux;
+    }
+
+    /**
+     * Forget the background level (e.g. when the audio source restarts)
+     */
+    public void reset() {
+        backgroundDb = Float.NaN;
+    }
+}
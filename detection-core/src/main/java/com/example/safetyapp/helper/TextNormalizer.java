@@ -0,0 +1,234 @@
+package com.example.safetyapp.helper;
+
+import java.util.Arrays;
+
+/**
+ * Single-pass normaliser and tokeniser for speech transcripts (English, Hindi, Bangla)
+ * One table lookup per input char decides whether it is kept, folded or treated as a word break:
+ * - a-z, 0-9, Devanagari and Bengali are kept; A-Z and accented Latin-1 letters fold to a-z
+ * - Latin combining accents are dropped, so a decomposed "é" folds like a precomposed one
+ * - Devanagari/Bengali nukta and two-part vowel sequences are brought to NFC on the fly
+ * - everything else is a word break; runs of breaks collapse to one space, none at the ends
+ * Output goes to a reusable Buffer together with token offsets, so there is no regex and no
+ * intermediate String.
+ */
+public final class TextNormalizer {
+
+    private static final int TABLE_SIZE = 0x0A00; // Covers Latin, Devanagari (0900-097F) and Bengali (0980-09FF)
+
+    private static final byte BREAK = 0;
+    private static final byte KEEP = 1;
+    private static final byte FOLD = 2;      // Replace with FOLDED[c]
+    private static final byte DROP = 3;      // Ignore without breaking the word
+    private static final byte DECOMPOSE = 4; // NFC composition exclusion: base + nukta
+
+    private static final byte[] CHAR_CLASS = new byte[TABLE_SIZE];
+    private static final char[] FOLDED = new char[TABLE_SIZE];
+    private static final char[] DECOMPOSED_BASE = new char[TABLE_SIZE];
+
+    static {
+        for (char c = 'a'; c <= 'z'; c++) CHAR_CLASS[c] = KEEP;
+        for (char c = '0'; c <= '9'; c++) CHAR_CLASS[c] = KEEP;
+        for (char c = '\u0900'; c <= '\u09FF'; c++) CHAR_CLASS[c] = KEEP;
+        for (char c = 'A'; c <= 'Z'; c++) fold(c, (char) (c + ('a' - 'A')));
+        for (char c = '\u0300'; c <= '\u036F'; c++) CHAR_CLASS[c] = DROP; // Combining diacritical marks
+
+        foldAll("\u00C0\u00C1\u00C2\u00C3\u00C4\u00C5\u00E0\u00E1\u00E2\u00E3\u00E4\u00E5", 'a');
+        foldAll("\u00C7\u00E7", 'c');
+        foldAll("\u00C8\u00C9\u00CA\u00CB\u00E8\u00E9\u00EA\u00EB", 'e');
+        foldAll("\u00CC\u00CD\u00CE\u00CF\u00EC\u00ED\u00EE\u00EF", 'i');
+        foldAll("\u00D1\u00F1", 'n');
+        foldAll("\u00D2\u00D3\u00D4\u00D5\u00D6\u00D8\u00F2\u00F3\u00F4\u00F5\u00F6\u00F8", 'o');
+        foldAll("\u00D9\u00DA\u00DB\u00DC\u00F9\u00FA\u00FB\u00FC", 'u');
+        foldAll("\u00DD\u00FD\u00FF", 'y');
+
+        // Precomposed nukta letters that NFC keeps decomposed (composition exclusions)
+        decompose('\u0958', '\u0915'); // qa
+        decompose('\u0959', '\u0916'); // khha
+        decompose('\u095A', '\u0917'); // ghha
+        decompose('\u095B', '\u091C'); // za
+        decompose('\u095C', '\u0921'); // dddha
+        decompose('\u095D', '\u0922'); // rha
+        decompose('\u095E', '\u092B'); // fa
+        decompose('\u095F', '\u092F'); // yya
+        decompose('\u09DC', '\u09A1'); // Bengali rra
+        decompose('\u09DD', '\u09A2'); // Bengali rha
+        decompose('\u09DF', '\u09AF'); // Bengali yya
+    }
+
+    private static final char DEVANAGARI_NUKTA = '\u093C';
+    private static final char BENGALI_NUKTA = '\u09BC';
+    private static final char BENGALI_E_SIGN = '\u09C7';
+
+    private TextNormalizer() {}
+
+    private static void fold(char c, char to) {
+        CHAR_CLASS[c] = FOLD;
+        FOLDED[c] = to;
+    }
+
+    private static void foldAll(String chars, char to) {
+        for (int i = 0; i < chars.length(); i++) fold(chars.charAt(i), to);
+    }
+
+    private static void decompose(char c, char base) {
+        CHAR_CLASS[c] = DECOMPOSE;
+        DECOMPOSED_BASE[c] = base;
+    }
+
+    /**
+     * NFC composition of previous + mark, or 0 if the pair does not compose
+     */
+    private static char compose(char previous, char mark) {
+        switch (mark) {
+            case DEVANAGARI_NUKTA:
+                if (previous == '\u0928') return '\u0929'; // nnna
+                if (previous == '\u0930') return '\u0931'; // rra
+                if (previous == '\u0933') return '\u0934'; // llla
+                return 0;
+            case '\u09BE': // Bengali aa sign: e + aa = o
+                return previous == BENGALI_E_SIGN ? '\u09CB' : 0;
+            case '\u09D7': // Bengali au length mark: e + au mark = au
+                return previous == BENGALI_E_SIGN ? '\u09CC' : 0;
+            default:
+                return 0;
+        }
+    }
+
+    /**
+     * Normalise text into out (previous contents are replaced)
+     */
+    public static void normalize(CharSequence text, Buffer out) {
+        out.clear();
+        boolean inToken = false;
+
+        for (int i = 0, n = text.length(); i < n; i++) {
+            char c = text.charAt(i);
+            byte type = c < TABLE_SIZE ? CHAR_CLASS[c] : BREAK;
+
+            switch (type) {
+                case KEEP:
+                    if (inToken) {
+                        char composed = compose(out.chars[out.length - 1], c);
+                        if (composed != 0) {
+                            out.chars[out.length - 1] = composed;
+                            continue;
+                        }
+                    } else {
+                        out.startToken();
+                        inToken = true;
+                    }
+                    out.append(c);
+                    break;
+                case FOLD:
+                    if (!inToken) {
+                        out.startToken();
+                        inToken = true;
+                    }
+                    out.append(FOLDED[c]);
+                    break;
+                case DECOMPOSE:
+                    if (!inToken) {
+                        out.startToken();
+                        inToken = true;
+                    }
+                    out.append(DECOMPOSED_BASE[c]);
+                    out.append(c < '\u0980' ? DEVANAGARI_NUKTA : BENGALI_NUKTA);
+                    break;
+                case DROP:
+                    break;
+                default:
+                    if (inToken) {
+                        out.endToken();
+                        inToken = false;
+                    }
+                    break;
+            }
+        }
+
+        if (inToken) {
+            out.endToken();
+        }
+    }
+
+    /**
+     * Convenience for one-off normalisation (e.g. compiling a lexicon); allocates
+     */
+    public static String normalize(String text) {
+        Buffer buffer = new Buffer();
+        normalize(text, buffer);
+        return buffer.toString();
+    }
+
+    /**
+     * Reusable normalised text plus token offsets
+     * Tokens are separated by exactly one space, so token i is [tokenStart(i), tokenEnd(i)).
+     */
+    public static final class Buffer implements CharSequence {
+        private char[] chars = new char[128];
+        private int length;
+        private int[] tokenStarts = new int[32];
+        private int[] tokenEnds = new int[32];
+        private int tokenCount;
+
+        void clear() {
+            length = 0;
+            tokenCount = 0;
+        }
+
+        private void startToken() {
+            if (tokenCount > 0) {
+                append(' ');
+            }
+            if (tokenCount == tokenStarts.length) {
+                tokenStarts = Arrays.copyOf(tokenStarts, tokenCount * 2);
+                tokenEnds = Arrays.copyOf(tokenEnds, tokenCount * 2);
+            }
+            tokenStarts[tokenCount] = length;
+        }
+
+        private void endToken() {
+            tokenEnds[tokenCount++] = length;
+        }
+
+        private void append(char c) {
+            if (length == chars.length) {
+                chars = Arrays.copyOf(chars, length * 2);
+            }
+            chars[length++] = c;
+        }
+
+        public int tokenCount() {
+            return tokenCount;
+        }
+
+        public int tokenStart(int index) {
+            return tokenStarts[index];
+        }
+
+        public int tokenEnd(int index) {
+            return tokenEnds[index];
+        }
+
+        @Override
+        public int length() {
+            return length;
+        }
+
+        @Override
+        public char charAt(int index) {
+            if (index >= length) throw new IndexOutOfBoundsException("index " + index + ", length " + length);
+            return chars[index];
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            return new String(chars, start, end - start);
+        }
+
+        @Override
+        public String toString() {
+            return new String(chars, 0, length);
+        }
+    }
+}
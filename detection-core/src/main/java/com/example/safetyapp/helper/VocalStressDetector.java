@@ -1,13 +1,17 @@
 package com.example.safetyapp.helper;
 
-import android.util.Log;
+import java.util.Arrays;
 
 /**
  * Detects vocal stress and panic in user's voice
- * Distinguishes between normal conversation and distressed speech
+ * Distinguishes between normal conversation and distressed speech.
+ * Keeps a short per-session history, so use one instance per detection pipeline;
+ * instances are independent but not individually thread-safe.
  */
 public class VocalStressDetector {
     private static final String TAG = "VocalStress";
+    // Per-chunk debug logs build strings on the audio thread - only when explicitly enabled
+    private static final boolean DEBUG_LOGGING = DetectionLog.isLoggable(TAG, DetectionLog.DEBUG);
 
     // BALANCED THRESHOLDS - Detect genuine distress while blocking conversation
     private static final float EXTREME_DISTRESS_THRESHOLD = 0.55f;   // Instant trigger for genuine screams (55%-60%)
@@ -15,11 +19,22 @@ public class VocalStressDetector {
     private static final float CONVERSATION_FILTER_THRESHOLD = 0.35f; // Below this = definitely conversation
 
     private static final int ANALYSIS_WINDOW = 5;                  // Analyze trends over multiple samples
+    private static final int FRAME_SIZE = 160;                     // 10ms at 16kHz for energy variance
+    private static final float PCM_SCALE = 1.0f / 32768.0f;
 
-    // Historical data for trend analysis
-    private static float[] recentRMS = new float[ANALYSIS_WINDOW];
-    private static float[] recentScreamProb = new float[ANALYSIS_WINDOW];
-    private static int historyIndex = 0;
+    // Emergency keywords in English, Bangla, Hindi (lexicon set "vocal_stress")
+    private static final KeywordCategoryMatcher EMERGENCY_WORDS = new KeywordCategoryMatcher("vocal_stress");
+
+    // Historical data for trend analysis - primitive ring, owned by this session only
+    private final float[] recentRMS = new float[ANALYSIS_WINDOW];
+    private final float[] recentScreamProb = new float[ANALYSIS_WINDOW];
+    private int historyIndex = 0;
+    private int historyCount = 0;
+
+    // Features of the last measured chunk (see measure())
+    private float lastRms;
+    private float lastZeroCrossingRate;
+    private float lastEnergyVariance;
 
     /**
      * Analyze if user's voice shows distress/panic patterns
@@ -29,16 +44,17 @@ public class VocalStressDetector {
      * @param rms Audio loudness
      * @return Distress level (0.0 = calm, 1.0 = extreme distress)
      */
-    public static float analyzeVocalStress(short[] audioData, float screamProbability, float rms) {
+    public float analyzeVocalStress(short[] audioData, float screamProbability, float rms) {
         // Update history
         recentRMS[historyIndex] = rms;
         recentScreamProb[historyIndex] = screamProbability;
         historyIndex = (historyIndex + 1) % ANALYSIS_WINDOW;
+        if (historyCount < ANALYSIS_WINDOW) historyCount++;
 
         // Primary filter: Scream probability - THE MOST IMPORTANT CHECK
         // The ML model is trained to detect screams/distress, trust it as primary indicator
         if (screamProbability < CONVERSATION_FILTER_THRESHOLD) {
-            Log.d(TAG, "Scream too low (prob: " + screamProbability + " < 35%) - normal talking");
+            if (DEBUG_LOGGING) DetectionLog.d(TAG, "Scream too low (prob: " + screamProbability + " < 35%) - normal talking");
             return 0.0f;
         }
 
@@ -47,13 +63,13 @@ public class VocalStressDetector {
         float sustainedLevel = calculateSustainedDistress();
         if (sustainedLevel < 0.4f) {
             // Less than 40% of recent samples elevated = short burst = loud word/conversation
-            Log.d(TAG, "NOT SUSTAINED (prob: " + screamProbability + ", sustained: " + sustainedLevel + ") - SINGLE LOUD WORD/CONVERSATION BLOCKED");
+            if (DEBUG_LOGGING) DetectionLog.d(TAG, "NOT SUSTAINED (prob: " + screamProbability + ", sustained: " + sustainedLevel + ") - SINGLE LOUD WORD/CONVERSATION BLOCKED");
             return 0.0f;
         }
 
         // If scream is high (55%+) AND sustained, it's genuine scream/distress
         if (screamProbability >= EXTREME_DISTRESS_THRESHOLD) {
-            Log.i(TAG, "GENUINE SCREAM DETECTED (prob: " + screamProbability + " >= 55%, sustained: " + sustainedLevel + ")");
+            DetectionLog.i(TAG, "GENUINE SCREAM DETECTED (prob: " + screamProbability + " >= 55%, sustained: " + sustainedLevel + ")");
             return screamProbability;
         }
 
@@ -61,42 +77,50 @@ public class VocalStressDetector {
         // Different requirements based on scream probability:
         // - 50-55%: Need only 1 more check (already passed sustained)
         // - 35-50%: Need 2 more checks (stricter for borderline cases)
+        int passedChecks = countPassedChecks(audioData);
+
+        // Determine required checks based on scream probability
+        // At 50%+: need 2 total (sustained + 1 more)
+        // At 35-50%: need 3 total (sustained + 2 more)
+        int requiredChecks = (screamProbability >= MODERATE_DISTRESS_THRESHOLD) ? 2 : 3;
+
+        if (passedChecks >= requiredChecks) {
+            DetectionLog.i(TAG, "DISTRESS CONFIRMED (prob: " + screamProbability + ", sustained: " + sustainedLevel + ", passed " + passedChecks + "/" + requiredChecks + " required checks)");
+            return screamProbability;
+        } else {
+            if (DEBUG_LOGGING) DetectionLog.d(TAG, "Likely conversation (prob: " + screamProbability + ", sustained: " + sustainedLevel + ", only passed " + passedChecks + "/" + requiredChecks + " required checks)");
+            return 0.0f;
+        }
+    }
 
+    /**
+     * Sustained check (already passed) plus the signal checks: energy variance, zero-crossing
+     * rate and sudden loudness increase. Measures the chunk in one pass.
+     */
+    private int countPassedChecks(short[] audioData) {
         int passedChecks = 1; // Already passed sustained check
+        measure(audioData);
 
         // Check 2: Energy variance (blocks stable loud talking)
-        float variance = calculateEnergyVariance(audioData);
-        if (variance >= 0.02f) {
+        if (lastEnergyVariance >= 0.02f) {
             passedChecks++;
-            Log.d(TAG, "✓ Variance check passed (variance: " + variance + ")");
+            if (DEBUG_LOGGING) DetectionLog.d(TAG, "✓ Variance check passed (variance: " + lastEnergyVariance + ")");
         }
 
         // Check 3: Zero-crossing rate (detects distressed voice quality)
-        float zcr = calculateZeroCrossingRate(audioData);
-        if (zcr >= 0.07f) {
+        if (lastZeroCrossingRate >= 0.07f) {
             passedChecks++;
-            Log.d(TAG, "✓ ZCR check passed (zcr: " + zcr + ")");
+            if (DEBUG_LOGGING) DetectionLog.d(TAG, "✓ ZCR check passed (zcr: " + lastZeroCrossingRate + ")");
         }
 
         // Check 4: Sudden loudness increase (panic has volume spikes)
         float loudnessIncrease = calculateLoudnessIncrease();
         if (loudnessIncrease >= 0.02f) {
             passedChecks++;
-            Log.d(TAG, "✓ Loudness increase check passed (increase: " + loudnessIncrease + ")");
+            if (DEBUG_LOGGING) DetectionLog.d(TAG, "✓ Loudness increase check passed (increase: " + loudnessIncrease + ")");
         }
 
-        // Determine required checks based on scream probability
-        // At 50%+: need 2 total (sustained + 1 more)
-        // At 35-50%: need 3 total (sustained + 2 more)
-        int requiredChecks = (screamProbability >= MODERATE_DISTRESS_THRESHOLD) ? 2 : 3;
-
-        if (passedChecks >= requiredChecks) {
-            Log.i(TAG, "DISTRESS CONFIRMED (prob: " + screamProbability + ", sustained: " + sustainedLevel + ", passed " + passedChecks + "/" + requiredChecks + " required checks)");
-            return screamProbability;
-        } else {
-            Log.d(TAG, "Likely conversation (prob: " + screamProbability + ", sustained: " + sustainedLevel + ", only passed " + passedChecks + "/" + requiredChecks + " required checks)");
-            return 0.0f;
-        }
+        return passedChecks;
     }
 
     /**
@@ -108,21 +132,9 @@ public class VocalStressDetector {
             return false;
         }
 
-        String phrase = detectedPhrase.toLowerCase();
-
-        // Emergency keywords in English, Bangla, Hindi
-        String[] emergencyWords = {
-            "help", "emergency", "danger", "save", "attack", "fire", "accident",
-            "kidnap", "assault", "harassment", "police", "ambulance",
-            "সাহায্য", "বাঁচাও", "বিপদ", "জরুরি", "আক্রমণ", "আগুন",
-            "मदद", "बचाओ", "खतरा"
-        };
-
-        for (String word : emergencyWords) {
-            if (phrase.contains(word)) {
-                Log.i(TAG, "Emergency keyword detected: " + word);
-                return true;
-            }
+        if (EMERGENCY_WORDS.containsAny(detectedPhrase)) {
+            DetectionLog.i(TAG, "Emergency keyword detected in: " + detectedPhrase);
+            return true;
         }
 
         return false;
@@ -130,91 +142,98 @@ public class VocalStressDetector {
 
 
     /**
-     * Calculate energy variance (sudden volume changes)
-     * High variance indicates emotional/distressed speech
+     * Measure RMS, zero-crossing rate and framed energy variance in a single pass
+     * Frame energies are folded into running sums instead of being stored, so nothing is allocated.
+     * High variance indicates emotional/distressed speech; distressed/tense voice has higher ZCR.
      */
-    private static float calculateEnergyVariance(short[] audioData) {
-        if (audioData == null || audioData.length < 100) return 0.0f;
-
-        // Split audio into small frames and calculate energy variance
-        int frameSize = 160;  // 10ms at 16kHz
-        int numFrames = audioData.length / frameSize;
-        if (numFrames < 2) return 0.0f;
-
-        float[] frameEnergies = new float[numFrames];
+    public void measure(short[] audioData) {
+        lastRms = 0.0f;
+        lastZeroCrossingRate = 0.0f;
+        lastEnergyVariance = 0.0f;
+        if (audioData == null || audioData.length < 2) return;
+
+        int length = audioData.length;
+        int numFrames = length / FRAME_SIZE;
+        int framedLength = numFrames * FRAME_SIZE;
+
+        double totalEnergy = 0;
+        double frameEnergySum = 0;    // Sum of per-frame RMS
+        double frameEnergySumSq = 0;  // Sum of squared per-frame RMS
+        float frameEnergy = 0;
+        int frameFill = 0;
+        int zeroCrossings = 0;
+        boolean previousNegative = audioData[0] < 0;
 
-        for (int i = 0; i < numFrames; i++) {
-            float energy = 0;
-            int start = i * frameSize;
-            int end = Math.min(start + frameSize, audioData.length);
+        for (int i = 0; i < length; i++) {
+            short raw = audioData[i];
+            float sample = raw * PCM_SCALE;
+            float energy = sample * sample;
+            totalEnergy += energy;
 
-            for (int j = start; j < end; j++) {
-                float sample = audioData[j] / 32768.0f;
-                energy += sample * sample;
+            boolean negative = raw < 0;
+            if (negative != previousNegative) {
+                zeroCrossings++;
+            }
+            previousNegative = negative;
+
+            // Only complete 10ms frames count towards the variance
+            if (i < framedLength) {
+                frameEnergy += energy;
+                if (++frameFill == FRAME_SIZE) {
+                    double frameRms = Math.sqrt(frameEnergy / FRAME_SIZE);
+                    frameEnergySum += frameRms;
+                    frameEnergySumSq += frameRms * frameRms;
+                    frameEnergy = 0;
+                    frameFill = 0;
+                }
             }
-            frameEnergies[i] = (float) Math.sqrt(energy / (end - start));
         }
 
-        // Calculate variance of frame energies
-        float mean = 0;
-        for (float energy : frameEnergies) {
-            mean += energy;
-        }
-        mean /= frameEnergies.length;
+        lastRms = (float) Math.sqrt(totalEnergy / length);
+        lastZeroCrossingRate = (float) zeroCrossings / length;
 
-        float variance = 0;
-        for (float energy : frameEnergies) {
-            float diff = energy - mean;
-            variance += diff * diff;
+        if (length >= 100 && numFrames >= 2) {
+            double mean = frameEnergySum / numFrames;
+            lastEnergyVariance = (float) Math.max(0.0, frameEnergySumSq / numFrames - mean * mean);
         }
-        variance /= frameEnergies.length;
-
-        return variance;
     }
 
-    /**
-     * Calculate sudden increase in loudness (panic indicator)
-     */
-    private static float calculateLoudnessIncrease() {
-        if (historyIndex < 2) return 0.0f;
-
-        // Compare current RMS to average of previous samples
-        float currentRMS = recentRMS[(historyIndex - 1 + ANALYSIS_WINDOW) % ANALYSIS_WINDOW];
+    public float getLastRms() {
+        return lastRms;
+    }
 
-        float previousAvg = 0;
-        int count = 0;
-        for (int i = 0; i < ANALYSIS_WINDOW - 1; i++) {
-            previousAvg += recentRMS[i];
-            count++;
-        }
-        previousAvg /= count;
+    public float getLastZeroCrossingRate() {
+        return lastZeroCrossingRate;
+    }
 
-        return Math.max(0, currentRMS - previousAvg);
+    public float getLastEnergyVariance() {
+        return lastEnergyVariance;
     }
 
     /**
-     * Calculate zero-crossing rate (voice quality indicator)
-     * Distressed/tense voice has higher ZCR
+     * Calculate sudden increase in loudness (panic indicator)
+     * Compares the newest RMS with the average of the older entries still in the history.
      */
-    private static float calculateZeroCrossingRate(short[] audioData) {
-        if (audioData == null || audioData.length < 2) return 0.0f;
+    private float calculateLoudnessIncrease() {
+        if (historyCount < 2) return 0.0f;
 
-        int zeroCrossings = 0;
-        for (int i = 1; i < audioData.length; i++) {
-            if ((audioData[i] >= 0 && audioData[i-1] < 0) ||
-                (audioData[i] < 0 && audioData[i-1] >= 0)) {
-                zeroCrossings++;
-            }
+        int newest = (historyIndex - 1 + ANALYSIS_WINDOW) % ANALYSIS_WINDOW;
+        float currentRMS = recentRMS[newest];
+
+        float previousSum = 0;
+        for (int i = 1; i < historyCount; i++) {
+            previousSum += recentRMS[(newest - i + ANALYSIS_WINDOW) % ANALYSIS_WINDOW];
         }
+        float previousAvg = previousSum / (historyCount - 1);
 
-        return (float) zeroCrossings / audioData.length;
+        return Math.max(0, currentRMS - previousAvg);
     }
 
     /**
      * Check if distress is sustained over multiple samples
      * Short bursts (single loud word) will fail this check
      */
-    private static float calculateSustainedDistress() {
+    private float calculateSustainedDistress() {
         int distressedSamples = 0;
 
         for (int i = 0; i < ANALYSIS_WINDOW; i++) {
@@ -235,7 +254,7 @@ public class VocalStressDetector {
      * Determine if audio is likely normal conversation (not distress)
      * Returns true for conversation, false for genuine distress
      */
-    public static boolean isNormalConversation(short[] audioData, float screamProbability, float rms) {
+    public boolean isNormalConversation(short[] audioData, float screamProbability, float rms) {
         // Primary check: scream probability
         if (screamProbability < CONVERSATION_FILTER_THRESHOLD) {
             return true; // Below 35% = definitely conversation
@@ -257,17 +276,7 @@ public class VocalStressDetector {
         // Same logic as analyzeVocalStress:
         // - 50-55%: Need 2 total checks (sustained + 1 more)
         // - 35-50%: Need 3 total checks (sustained + 2 more)
-
-        int passedChecks = 1; // Already passed sustained
-
-        float variance = calculateEnergyVariance(audioData);
-        if (variance >= 0.02f) passedChecks++;
-
-        float zcr = calculateZeroCrossingRate(audioData);
-        if (zcr >= 0.07f) passedChecks++;
-
-        float loudnessIncrease = calculateLoudnessIncrease();
-        if (loudnessIncrease >= 0.02f) passedChecks++;
+        int passedChecks = countPassedChecks(audioData);
 
         // Determine required checks based on scream probability
         int requiredChecks = (screamProbability >= MODERATE_DISTRESS_THRESHOLD) ? 2 : 3;
@@ -279,10 +288,11 @@ public class VocalStressDetector {
     /**
      * Reset history (call when starting new detection session)
      */
-    public static void resetHistory() {
-        recentRMS = new float[ANALYSIS_WINDOW];
-        recentScreamProb = new float[ANALYSIS_WINDOW];
+    public void resetHistory() {
+        Arrays.fill(recentRMS, 0f);
+        Arrays.fill(recentScreamProb, 0f);
         historyIndex = 0;
-        Log.d(TAG, "Vocal stress history reset");
+        historyCount = 0;
+        DetectionLog.d(TAG, "Vocal stress history reset");
     }
 }
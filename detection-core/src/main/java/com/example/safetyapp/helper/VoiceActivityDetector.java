@@ -0,0 +1,267 @@
+package com.example.safetyapp.helper;
+
+/**
+ * Streaming voice activity detector for starting the speech recogniser
+ * Works on 10 ms frames of 16 kHz PCM. Each frame is speech-like when it stands out from the
+ * noise floor and its spectrum over the speech band (250 Hz - 4 kHz), divided by the noise
+ * spectrum, is ordered rather than flat (low spectral entropy): harmonics and formants stand out,
+ * while louder noise of the same colour - a passing car, a swell of traffic - stays flat.
+ * The noise floor is tracked with minimum statistics: the minimum
+ * of the smoothed frame power over the last ~1.5 s, so it follows a street or a bus up and a
+ * quiet room down without a fixed threshold. A speech segment starts once enough of the recent
+ * frames are speech-like and ends after a hangover of non-speech frames.
+ * Not thread-safe - one per audio thread; allocates nothing per frame.
+ */
+public final class VoiceActivityDetector {
+    public static final int FRAME_SIZE = 160; // 10 ms at 16 kHz
+
+    private static final int FFT_SIZE = 256;  // Frame zero-padded
+    private static final int LOW_BIN = 4;     // 250 Hz
+    private static final int HIGH_BIN = 64;   // 4 kHz
+    private static final float PCM_SCALE = 1.0f / 32768.0f;
+    private static final float SILENCE_DB = -100.0f;
+
+    // Minimum statistics: the floor is the minimum over SUBWINDOWS x SUBWINDOW_FRAMES frames
+    private static final int SUBWINDOWS = 8;
+    private static final int SUBWINDOW_FRAMES = 19;     // 8 x 190 ms ~ 1.5 s
+    private static final float POWER_SMOOTHING = 0.85f;
+    private static final float FLOOR_BIAS_DB = 1.5f;    // The minimum underestimates the mean
+    private static final float NOISE_SPECTRUM_SMOOTHING = 0.9f;
+
+    // Frame decision
+    private static final float MIN_SNR_DB = 3.0f;       // Over the noise floor
+    private static final float MIN_LEVEL_DB = -65.0f;   // Absolute; below this is silence
+    private static final float MAX_ENTROPY = 0.84f;     // Normalised; background noise is ~0.9
+    private static final float LOUD_SNR_DB = 25.0f;     // This far above the floor, entropy is ignored
+
+    // Segment decision over the last ONSET_FRAMES frames
+    private static final int ONSET_FRAMES = 30;          // 300 ms
+    private static final int ONSET_SPEECH_FRAMES = 10;   // 100 ms of speech-like frames in it
+    private static final int HANGOVER_FRAMES = 40;       // 400 ms of non-speech ends a segment
+
+    private final Fft fft = new Fft(FFT_SIZE);
+    private final float[] hann = Fft.hann(FRAME_SIZE);
+    private final float[] frame = new float[FRAME_SIZE];
+    private int frameFill;
+    private final float[] noiseSpectrum = new float[HIGH_BIN - LOW_BIN + 1]; // 0: not yet measured
+
+    // Noise floor tracking
+    private final float[] subwindowMinima = new float[SUBWINDOWS];
+    private int subwindowIndex;
+    private int subwindowCount;
+    private int subwindowFrames;
+    private float currentMinimum = Float.MAX_VALUE;
+    private float smoothedPower = -1.0f;
+    private float noiseFloorDb = SILENCE_DB;
+
+    // Segment state
+    private final boolean[] recentSpeech = new boolean[ONSET_FRAMES];
+    private int recentIndex;
+    private int recentSpeechCount;
+    private boolean inSpeech;
+    private int silentFrames;
+
+    // Last frame, for logging
+    private float lastLevelDb = SILENCE_DB;
+    private float lastEntropy = 1.0f;
+
+    // Metrics
+    private long frames;
+    private long segments;
+    private long processingNanos;
+
+    /**
+     * Feed captured audio; any length, frames may span calls
+     * @return true if a speech segment started in this audio
+     */
+    public boolean process(short[] pcm, int offset, int length) {
+        long startTime = System.nanoTime();
+        boolean started = false;
+        for (int i = offset; i < offset + length; i++) {
+            frame[frameFill++] = pcm[i] * PCM_SCALE;
+            if (frameFill == FRAME_SIZE) {
+                frameFill = 0;
+                started |= processFrame();
+            }
+        }
+        processingNanos += System.nanoTime() - startTime;
+        return started;
+    }
+
+    private boolean processFrame() {
+        frames++;
+
+        float energy = 0.0f;
+        for (int i = 0; i < FRAME_SIZE; i++) {
+            energy += frame[i] * frame[i];
+            frame[i] *= hann[i];
+        }
+        float power = energy / FRAME_SIZE;
+        lastLevelDb = toDb(power);
+        updateNoiseFloor(power);
+
+        float snrDb = lastLevelDb - noiseFloorDb;
+        boolean speechLike = false;
+        if (lastLevelDb >= MIN_LEVEL_DB) {
+            fft.forward(frame, FRAME_SIZE);
+            lastEntropy = whitenedEntropy();
+            speechLike = snrDb >= MIN_SNR_DB && (lastEntropy <= MAX_ENTROPY || snrDb >= LOUD_SNR_DB);
+            // Only frames at the floor teach the noise colour, or speech would whiten itself
+            if (snrDb < MIN_SNR_DB && !inSpeech) {
+                updateNoiseSpectrum();
+            }
+        }
+        return updateSegment(speechLike);
+    }
+
+    /**
+     * Normalised entropy of the speech band spectrum divided by the noise spectrum:
+     * 1 for noise like the background, lower for harmonics and formants
+     */
+    private float whitenedEntropy() {
+        float total = 0.0f;
+        for (int bin = LOW_BIN; bin <= HIGH_BIN; bin++) {
+            total += whitened(bin);
+        }
+        if (total <= 0.0f) return 1.0f;
+
+        double entropy = 0.0;
+        for (int bin = LOW_BIN; bin <= HIGH_BIN; bin++) {
+            float p = whitened(bin) / total;
+            if (p > 0.0f) entropy -= p * Math.log(p);
+        }
+        return (float) (entropy / Math.log(noiseSpectrum.length));
+    }
+
+    private float whitened(int bin) {
+        float noise = noiseSpectrum[bin - LOW_BIN];
+        return noise > 0.0f ? fft.power(bin) / noise : fft.power(bin);
+    }
+
+    private void updateNoiseSpectrum() {
+        for (int bin = LOW_BIN; bin <= HIGH_BIN; bin++) {
+            int i = bin - LOW_BIN;
+            float power = fft.power(bin) + 1e-12f;
+            noiseSpectrum[i] = noiseSpectrum[i] == 0.0f
+                    ? power : NOISE_SPECTRUM_SMOOTHING * noiseSpectrum[i] + (1.0f - NOISE_SPECTRUM_SMOOTHING) * power;
+        }
+    }
+
+    private void updateNoiseFloor(float power) {
+        smoothedPower = smoothedPower < 0.0f
+                ? power : POWER_SMOOTHING * smoothedPower + (1.0f - POWER_SMOOTHING) * power;
+        currentMinimum = Math.min(currentMinimum, smoothedPower);
+
+        if (++subwindowFrames == SUBWINDOW_FRAMES) {
+            subwindowMinima[subwindowIndex] = currentMinimum;
+            subwindowIndex = (subwindowIndex + 1) % SUBWINDOWS;
+            if (subwindowCount < SUBWINDOWS) subwindowCount++;
+            subwindowFrames = 0;
+            currentMinimum = Float.MAX_VALUE;
+        }
+
+        float minimum = currentMinimum;
+        for (int i = 0; i < subwindowCount; i++) {
+            minimum = Math.min(minimum, subwindowMinima[i]);
+        }
+        noiseFloorDb = toDb(minimum) + FLOOR_BIAS_DB;
+    }
+
+    private boolean updateSegment(boolean speechLike) {
+        if (recentSpeech[recentIndex]) recentSpeechCount--;
+        recentSpeech[recentIndex] = speechLike;
+        if (speechLike) recentSpeechCount++;
+        recentIndex = (recentIndex + 1) % ONSET_FRAMES;
+
+        if (inSpeech) {
+            silentFrames = speechLike ? 0 : silentFrames + 1;
+            if (silentFrames >= HANGOVER_FRAMES) {
+                inSpeech = false;
+            }
+            return false;
+        }
+        if (recentSpeechCount >= ONSET_SPEECH_FRAMES) {
+            inSpeech = true;
+            silentFrames = 0;
+            segments++;
+            return true;
+        }
+        return false;
+    }
+
+    private static float toDb(float power) {
+        return power <= 1e-10f ? SILENCE_DB : (float) (10.0 * Math.log10(power));
+    }
+
+    /**
+     * Whether the detector is inside a speech segment
+     */
+    public boolean isInSpeech() {
+        return inSpeech;
+    }
+
+    public float getNoiseFloorDb() {
+        return noiseFloorDb;
+    }
+
+    /**
+     * Level of the last frame in dB full scale
+     */
+    public float getLastLevelDb() {
+        return lastLevelDb;
+    }
+
+    /**
+     * Whitened spectral entropy of the last frame that was loud enough to measure
+     */
+    public float getLastEntropy() {
+        return lastEntropy;
+    }
+
+    /**
+     * 10 ms frames processed so far
+     */
+    public long getFrames() {
+        return frames;
+    }
+
+    /**
+     * Speech segments started so far
+     */
+    public long getSegments() {
+        return segments;
+    }
+
+    /**
+     * Time spent in process(), in nanoseconds
+     */
+    public long getProcessingNanos() {
+        return processingNanos;
+    }
+
+    /**
+     * Processing time as a fraction of the audio duration processed
+     */
+    public float getLoad() {
+        return frames == 0 ? 0.0f : processingNanos / (frames * 10_000_000.0f);
+    }
+
+    /**
+     * Forget the noise floor and any open segment (e.g. when the audio source restarts)
+     */
+    public void reset() {
+        frameFill = 0;
+        subwindowIndex = 0;
+        subwindowCount = 0;
+        subwindowFrames = 0;
+        currentMinimum = Float.MAX_VALUE;
+        smoothedPower = -1.0f;
+        noiseFloorDb = SILENCE_DB;
+        for (int i = 0; i < noiseSpectrum.length; i++) noiseSpectrum[i] = 0.0f;
+        for (int i = 0; i < ONSET_FRAMES; i++) recentSpeech[i] = false;
+        recentIndex = 0;
+        recentSpeechCount = 0;
+        inSpeech = false;
+        silentFrames = 0;
+    }
+}
@@ -0,0 +1,255 @@
+package com.example.safetyapp.helper;
+
+import java.util.Arrays;
+
+/**
+ * Declarative rules from YAMNet classes to emergency evidence
+ * Every YAMNet class a detector looks at is one row below. A row can add to the ambient distress
+ * score (threshold and weight), be evidence for an emergency type (threshold, optionally only
+ * together with a second class), or both. The rows are compiled into primitive arrays once, and
+ * evaluate() reads only the referenced classes, in one pass, producing the per-type scores and
+ * the ambient distress sum together - no maps, boxing or streams per frame.
+ * Rows for short impact sounds are marked transient: YamnetScoreHistory holds their peak
+ * instead of averaging them away.
+ */
+public final class YamnetRuleTable {
+
+    // YAMNet class indices (AudioSet ontology)
+    static final int CLASS_CROWD = 74;         // Crowd
+    static final int CLASS_YELL = 305;         // Yell
+    static final int CLASS_SCREAM = 307;       // Screaming
+    static final int CLASS_GASP = 308;         // Gasp
+    static final int CLASS_CRYING = 309;       // Crying, sobbing
+    static final int CLASS_WHIMPER = 310;      // Whimper
+    static final int CLASS_FIRE_ALARM = 388;   // Smoke detector, fire alarm
+    static final int CLASS_SIREN = 390;        // Siren
+    static final int CLASS_GLASS_BREAK = 396;  // Glass breaking
+    static final int CLASS_CRASH = 403;        // Vehicle crash
+    static final int CLASS_EXPLOSION = 427;    // Explosion (also stood in for gunshot, gunfire)
+
+    // Thresholds
+    static final float AMBIENT_SOUND_THRESHOLD = 0.25f; // Counts towards ambient distress
+    static final float HIGH_AMBIENT_THRESHOLD = 0.5f;   // Sounds that are common at low levels
+    static final float TYPE_THRESHOLD = 0.3f;           // Evidence for an emergency type
+
+    private static final EmergencyTypeDetector.EmergencyType[] TYPES = EmergencyTypeDetector.EmergencyType.values();
+    private static final int TYPE_COUNT = TYPES.length;
+
+    // ==== The table ====
+
+    private static final Row[] ROWS = {
+            // Distress vocalisations
+            new Row(CLASS_SCREAM, "Scream").distress(AMBIENT_SOUND_THRESHOLD, 1.5f),
+            new Row(CLASS_YELL, "Yell").distress(AMBIENT_SOUND_THRESHOLD, 1.2f),
+            new Row(CLASS_CRYING, "Crying").distress(AMBIENT_SOUND_THRESHOLD, 1.0f),
+            new Row(CLASS_GASP, "Gasp").distress(AMBIENT_SOUND_THRESHOLD, 0.8f),
+
+            // Crowd: loud crowd noise is distress; with yelling it is crowd panic
+            new Row(CLASS_CROWD, "Crowd").distress(HIGH_AMBIENT_THRESHOLD, 1.3f)
+                    .evidence(EmergencyTypeDetector.EmergencyType.CROWD_PANIC, HIGH_AMBIENT_THRESHOLD)
+                    .requires(CLASS_YELL, TYPE_THRESHOLD),
+
+            // Emergency sounds; impacts are transient and held at their peak when smoothed
+            new Row(CLASS_GLASS_BREAK, "Glass break").distress(AMBIENT_SOUND_THRESHOLD, 1.0f)
+                    .evidence(EmergencyTypeDetector.EmergencyType.ROAD_ACCIDENT, TYPE_THRESHOLD).transientSound(),
+            new Row(CLASS_CRASH, "Crash").distress(AMBIENT_SOUND_THRESHOLD, 1.2f)
+                    .evidence(EmergencyTypeDetector.EmergencyType.ROAD_ACCIDENT, TYPE_THRESHOLD).transientSound(),
+            new Row(CLASS_EXPLOSION, "Explosion").distress(AMBIENT_SOUND_THRESHOLD, 1.5f)
+                    .evidence(EmergencyTypeDetector.EmergencyType.ASSAULT_ATTACK, TYPE_THRESHOLD).transientSound(),
+            new Row(CLASS_FIRE_ALARM, "Fire alarm").distress(AMBIENT_SOUND_THRESHOLD, 1.0f)
+                    .evidence(EmergencyTypeDetector.EmergencyType.FIRE, TYPE_THRESHOLD),
+            new Row(CLASS_SIREN, "Siren").distress(AMBIENT_SOUND_THRESHOLD, 0.9f)
+                    .evidence(EmergencyTypeDetector.EmergencyType.GENERAL_DISTRESS, TYPE_THRESHOLD),
+    };
+
+    // ==== Compiled form: one entry per row ====
+
+    private static final int ROW_COUNT = ROWS.length;
+    private static final int[] ROW_CLASS = new int[ROW_COUNT];
+    private static final String[] ROW_NAME = new String[ROW_COUNT];
+    private static final float[] DISTRESS_THRESHOLD = new float[ROW_COUNT]; // +inf: no distress rule
+    private static final float[] DISTRESS_WEIGHT = new float[ROW_COUNT];
+    private static final int[] EVIDENCE_TYPE = new int[ROW_COUNT];          // Type ordinal, -1: none
+    private static final float[] EVIDENCE_THRESHOLD = new float[ROW_COUNT];
+    private static final int[] REQUIRED_CLASS = new int[ROW_COUNT];         // -1: no second class
+    private static final float[] REQUIRED_THRESHOLD = new float[ROW_COUNT];
+
+    // Every class any row reads, each once, and whether it is a transient sound
+    static final int[] TRACKED_CLASSES;
+    static final boolean[] TRACKED_TRANSIENT;
+
+    static {
+        if (ROW_COUNT > 64) {
+            throw new IllegalStateException("Fired rows are tracked in a long");
+        }
+        for (int r = 0; r < ROW_COUNT; r++) {
+            Row row = ROWS[r];
+            ROW_CLASS[r] = row.classIndex;
+            ROW_NAME[r] = row.name;
+            DISTRESS_THRESHOLD[r] = row.distressThreshold;
+            DISTRESS_WEIGHT[r] = row.distressWeight;
+            EVIDENCE_TYPE[r] = row.evidenceType != null ? row.evidenceType.ordinal() : -1;
+            EVIDENCE_THRESHOLD[r] = row.evidenceThreshold;
+            REQUIRED_CLASS[r] = row.requiredClass;
+            REQUIRED_THRESHOLD[r] = row.requiredThreshold;
+        }
+
+        int[] tracked = new int[ROW_COUNT * 2];
+        boolean[] trackedTransient = new boolean[ROW_COUNT * 2];
+        int trackedCount = 0;
+        for (int r = 0; r < ROW_COUNT; r++) {
+            trackedCount = track(tracked, trackedTransient, trackedCount, ROW_CLASS[r], ROWS[r].isTransient);
+            if (REQUIRED_CLASS[r] >= 0) {
+                trackedCount = track(tracked, trackedTransient, trackedCount, REQUIRED_CLASS[r], false);
+            }
+        }
+        TRACKED_CLASSES = Arrays.copyOf(tracked, trackedCount);
+        TRACKED_TRANSIENT = Arrays.copyOf(trackedTransient, trackedCount);
+    }
+
+    private static int track(int[] tracked, boolean[] trackedTransient, int count, int classIndex, boolean isTransient) {
+        for (int i = 0; i < count; i++) {
+            if (tracked[i] == classIndex) {
+                trackedTransient[i] |= isTransient;
+                return count;
+            }
+        }
+        tracked[count] = classIndex;
+        trackedTransient[count] = isTransient;
+        return count + 1;
+    }
+
+    private YamnetRuleTable() {}
+
+    /**
+     * Apply every rule to one window's scores
+     * @param scores YAMNet class scores (at least ScoreFrame.NUM_CLASSES)
+     * @param out Receives the result; reused between calls
+     */
+    public static void evaluate(float[] scores, Evaluation out) {
+        float[] typeScores = out.typeScores;
+        for (int t = 0; t < TYPE_COUNT; t++) typeScores[t] = 0.0f;
+        float distressSum = 0.0f;
+        int distressCount = 0;
+        long fired = 0L;
+
+        for (int r = 0; r < ROW_COUNT; r++) {
+            float score = scores[ROW_CLASS[r]];
+
+            if (score > DISTRESS_THRESHOLD[r]) {
+                distressSum += score * DISTRESS_WEIGHT[r];
+                distressCount++;
+                fired |= 1L << r;
+            }
+
+            int type = EVIDENCE_TYPE[r];
+            if (type >= 0 && score > EVIDENCE_THRESHOLD[r] && score > typeScores[type]
+                    && (REQUIRED_CLASS[r] < 0 || scores[REQUIRED_CLASS[r]] > REQUIRED_THRESHOLD[r])) {
+                typeScores[type] = score;
+            }
+        }
+
+        // Strongest type; ties go to the lower ordinal
+        int best = -1;
+        for (int t = 0; t < TYPE_COUNT; t++) {
+            if (typeScores[t] > 0.0f && (best < 0 || typeScores[t] > typeScores[best])) best = t;
+        }
+
+        out.bestType = best >= 0 ? TYPES[best] : EmergencyTypeDetector.EmergencyType.NONE;
+        out.distressSum = distressSum;
+        out.distressCount = distressCount;
+        out.firedDistressRows = fired;
+    }
+
+    /**
+     * Result of evaluate() for one window
+     */
+    public static final class Evaluation {
+        final float[] typeScores = new float[TYPE_COUNT];
+        EmergencyTypeDetector.EmergencyType bestType = EmergencyTypeDetector.EmergencyType.NONE;
+        float distressSum;
+        int distressCount;
+        long firedDistressRows;
+
+        /**
+         * Type with the strongest evidence, or NONE
+         */
+        public EmergencyTypeDetector.EmergencyType bestType() {
+            return bestType;
+        }
+
+        /**
+         * Evidence for one type (0 if no rule for it fired)
+         */
+        public float typeScore(EmergencyTypeDetector.EmergencyType type) {
+            return type == EmergencyTypeDetector.EmergencyType.NONE ? 0.0f : typeScores[type.ordinal()];
+        }
+
+        /**
+         * Weighted sum of the classes over their distress threshold
+         */
+        public float distressSum() {
+            return distressSum;
+        }
+
+        public int distressCount() {
+            return distressCount;
+        }
+
+        /**
+         * Names of the sounds that counted towards distress, for logging
+         */
+        public String describeDistress() {
+            StringBuilder description = new StringBuilder();
+            for (int r = 0; r < ROW_COUNT; r++) {
+                if ((firedDistressRows & (1L << r)) == 0) continue;
+                if (description.length() > 0) description.append(", ");
+                description.append(ROW_NAME[r]);
+            }
+            return description.toString();
+        }
+    }
+
+    /**
+     * One table row while the table is being declared
+     */
+    private static final class Row {
+        final int classIndex;
+        final String name;
+        float distressThreshold = Float.POSITIVE_INFINITY;
+        float distressWeight;
+        EmergencyTypeDetector.EmergencyType evidenceType;
+        float evidenceThreshold;
+        int requiredClass = -1;
+        float requiredThreshold;
+        boolean isTransient;
+
+        Row(int classIndex, String name) {
+            this.classIndex = classIndex;
+            this.name = name;
+        }
+
+        Row distress(float threshold, float weight) {
+            distressThreshold = threshold;
+            distressWeight = weight;
+            return this;
+        }
+
+        Row evidence(EmergencyTypeDetector.EmergencyType type, float threshold) {
+            evidenceType = type;
+            evidenceThreshold = threshold;
+            return this;
+        }
+
+        Row transientSound() {
+            isTransient = true;
+            return this;
+        }
+
+        Row requires(int classIndex, float threshold) {
+            requiredClass = classIndex;
+            requiredThreshold = threshold;
+            return this;
+        }
+    }
+}
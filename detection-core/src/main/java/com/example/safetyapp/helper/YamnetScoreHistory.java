@@ -0,0 +1,151 @@
+package com.example.safetyapp.helper;
+
+import java.util.Arrays;
+
+/**
+ * Streaming temporal smoothing of the YAMNet classes the rule table reads
+ * Keeps, per tracked class, an exponential moving average and the peak over the last
+ * horizon windows. The peak is held in a monotonic ring buffer, so adding a window is
+ * amortised O(1) per class. After each add() the rule table is evaluated once on the smoothed
+ * evidence: transient sounds (crash, glass, explosion) use their held peak, everything else its
+ * average. One noisy window is damped and a steady sound carries across short dropouts.
+ * Other classes are not tracked. Not thread-safe - one per pipeline thread.
+ */
+public final class YamnetScoreHistory {
+    public static final int DEFAULT_HORIZON_FRAMES = 4; // About 4 s of 975 ms windows
+
+    private final int horizon;
+    private final float alpha;
+    private final int[] classes = YamnetRuleTable.TRACKED_CLASSES;
+    private final boolean[] transientClass = YamnetRuleTable.TRACKED_TRANSIENT;
+    private final int[] slotOf = new int[ScoreFrame.NUM_CLASSES]; // -1: not tracked
+
+    private final float[] average;
+    // Peak-hold: per slot a ring of (value, frame) with decreasing values, oldest at head
+    private final float[] peakValues;
+    private final long[] peakFrames;
+    private final int[] peakHead;
+    private final int[] peakSize;
+
+    private final float[] evidence = new float[ScoreFrame.NUM_CLASSES];
+    private final YamnetRuleTable.Evaluation rules = new YamnetRuleTable.Evaluation();
+    private long frames;
+
+    public YamnetScoreHistory() {
+        this(DEFAULT_HORIZON_FRAMES);
+    }
+
+    /**
+     * @param horizonFrames Windows the peak is held for; the average has the same span
+     *                      (smoothing factor 2 / (horizon + 1)). 1 disables smoothing.
+     */
+    public YamnetScoreHistory(int horizonFrames) {
+        if (horizonFrames <= 0) {
+            throw new IllegalArgumentException("Horizon must be positive: " + horizonFrames);
+        }
+        this.horizon = horizonFrames;
+        this.alpha = 2.0f / (horizonFrames + 1);
+
+        int slots = classes.length;
+        this.average = new float[slots];
+        this.peakValues = new float[slots * horizonFrames];
+        this.peakFrames = new long[slots * horizonFrames];
+        this.peakHead = new int[slots];
+        this.peakSize = new int[slots];
+
+        Arrays.fill(slotOf, -1);
+        for (int s = 0; s < slots; s++) {
+            slotOf[classes[s]] = s;
+        }
+    }
+
+    /**
+     * Add the next window (call once per ScoreFrame.set())
+     */
+    public void add(ScoreFrame frame) {
+        add(frame.values);
+    }
+
+    /**
+     * Add the next window from a raw YAMNet score vector
+     */
+    public void add(float[] scores) {
+        long frame = frames++;
+        for (int s = 0; s < classes.length; s++) {
+            float score = scores[classes[s]];
+            average[s] += alpha * (score - average[s]);
+            float peak = pushPeak(s, score, frame);
+            evidence[classes[s]] = transientClass[s] ? peak : average[s];
+        }
+        YamnetRuleTable.evaluate(evidence, rules);
+    }
+
+    private float pushPeak(int slot, float score, long frame) {
+        int base = slot * horizon;
+        int head = peakHead[slot];
+        int size = peakSize[slot];
+
+        // Drop the window that left the horizon
+        if (size > 0 && peakFrames[base + head] <= frame - horizon) {
+            head = (head + 1) % horizon;
+            size--;
+        }
+        // Drop newer entries this score dominates; they can never be the peak again
+        while (size > 0 && peakValues[base + (head + size - 1) % horizon] <= score) {
+            size--;
+        }
+        int tail = base + (head + size) % horizon;
+        peakValues[tail] = score;
+        peakFrames[tail] = frame;
+
+        peakHead[slot] = head;
+        peakSize[slot] = size + 1;
+        return peakValues[base + head];
+    }
+
+    /**
+     * Moving average of a tracked class (0 for untracked classes or before the first window)
+     */
+    public float smoothed(int classIndex) {
+        int slot = slotOf[classIndex];
+        return slot < 0 ? 0.0f : average[slot];
+    }
+
+    /**
+     * Highest score of a tracked class over the last horizon windows
+     */
+    public float peak(int classIndex) {
+        int slot = slotOf[classIndex];
+        return slot < 0 || peakSize[slot] == 0 ? 0.0f : peakValues[slot * horizon + peakHead[slot]];
+    }
+
+    /**
+     * Rule table applied to the smoothed evidence after the last add()
+     */
+    public YamnetRuleTable.Evaluation rules() {
+        return rules;
+    }
+
+    public int horizonFrames() {
+        return horizon;
+    }
+
+    /**
+     * Windows added since construction or the last reset()
+     */
+    public long frames() {
+        return frames;
+    }
+
+    /**
+     * Forget all history (e.g. when the audio source restarts)
+     */
+    public void reset() {
+        Arrays.fill(average, 0.0f);
+        Arrays.fill(peakSize, 0);
+        Arrays.fill(peakHead, 0);
+        Arrays.fill(evidence, 0.0f);
+        frames = 0;
+        YamnetRuleTable.evaluate(evidence, rules);
+    }
+}
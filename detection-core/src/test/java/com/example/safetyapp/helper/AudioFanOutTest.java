@@ -0,0 +1,216 @@
+package com.example.safetyapp.helper;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Local unit tests for the capture subscriber lifecycle and backpressure policies
+ */
+public class AudioFanOutTest {
+    private static final int SAMPLE_RATE = 16000;
+
+    /**
+     * Stands in for the microphone; frames are published by the test itself
+     */
+    private static final class FakeSource implements AudioFanOut.Source {
+        boolean available = true;
+        int starts;
+        int stops;
+
+        @Override
+        public boolean start() {
+            if (!available) return false;
+            starts++;
+            return true;
+        }
+
+        @Override
+        public void stop() {
+            stops++;
+        }
+    }
+
+    private static short[] ramp(int from, int length) {
+        short[] samples = new short[length];
+        for (int i = 0; i < length; i++) {
+            samples[i] = (short) (from + i);
+        }
+        return samples;
+    }
+
+    private static void publishRamp(AudioFanOut fanOut, int frames, int frameLength) {
+        for (int i = 0; i < frames; i++) {
+            fanOut.publish(ramp(i * frameLength, frameLength), frameLength);
+        }
+    }
+
+    @Test
+    public void subscribe_startsTheSourceForTheFirstSubscriberOnly() {
+        FakeSource source = new FakeSource();
+        AudioFanOut fanOut = new AudioFanOut(source, SAMPLE_RATE);
+        assertFalse(fanOut.isStarted());
+
+        fanOut.subscribe("a", 64, AudioFanOut.BackpressurePolicy.DROP_OLDEST);
+        fanOut.subscribe("b", 64, AudioFanOut.BackpressurePolicy.DROP_NEWEST);
+        assertTrue(fanOut.isStarted());
+        assertEquals(1, source.starts);
+        assertEquals(2, fanOut.getSubscriberCount());
+    }
+
+    @Test
+    public void close_stopsTheSourceWithTheLastSubscriber() {
+        FakeSource source = new FakeSource();
+        AudioFanOut fanOut = new AudioFanOut(source, SAMPLE_RATE);
+        AudioFanOut.Subscription first = fanOut.subscribe("a", 64, AudioFanOut.BackpressurePolicy.DROP_OLDEST);
+        AudioFanOut.Subscription second = fanOut.subscribe("b", 64, AudioFanOut.BackpressurePolicy.DROP_OLDEST);
+
+        first.close();
+        assertTrue(first.isClosed());
+        assertEquals(0, source.stops);
+        assertTrue(fanOut.isStarted());
+
+        second.close();
+        second.close(); // A second close changes nothing
+        assertEquals(1, source.stops);
+        assertFalse(fanOut.isStarted());
+        assertEquals(0, fanOut.getSubscriberCount());
+
+        // The next subscriber starts the source again
+        fanOut.subscribe("c", 64, AudioFanOut.BackpressurePolicy.DROP_OLDEST);
+        assertEquals(2, source.starts);
+    }
+
+    @Test
+    public void subscribe_returnsNullWhenTheSourceCannotStart() {
+        FakeSource source = new FakeSource();
+        source.available = false;
+        AudioFanOut fanOut = new AudioFanOut(source, SAMPLE_RATE);
+
+        assertNull(fanOut.subscribe("a", 64, AudioFanOut.BackpressurePolicy.DROP_OLDEST));
+        assertFalse(fanOut.isStarted());
+        assertEquals(0, fanOut.getSubscriberCount());
+
+        // Tried again by the next subscriber
+        source.available = true;
+        assertNotNull(fanOut.subscribe("a", 64, AudioFanOut.BackpressurePolicy.DROP_OLDEST));
+        assertEquals(1, source.starts);
+    }
+
+    @Test
+    public void publish_dropOldestKeepsTheNewestAudio() {
+        AudioFanOut fanOut = new AudioFanOut(new FakeSource(), SAMPLE_RATE);
+        AudioFanOut.Subscription subscription = fanOut.subscribe("a", 16, AudioFanOut.BackpressurePolicy.DROP_OLDEST);
+        publishRamp(fanOut, 5, 4);
+
+        // 20 samples into 16 slots: the newest 12 are kept intact, the rest counted as lost
+        short[] dest = new short[12];
+        assertEquals(12, subscription.read(dest, 0, dest.length));
+        for (int i = 0; i < dest.length; i++) {
+            assertEquals((short) (8 + i), dest[i]);
+        }
+        assertEquals(8, subscription.getDroppedSamples());
+        assertEquals(1, subscription.getOverrunCount());
+    }
+
+    @Test
+    public void publish_dropNewestKeepsAGapFreePrefix() {
+        AudioFanOut fanOut = new AudioFanOut(new FakeSource(), SAMPLE_RATE);
+        AudioFanOut.Subscription subscription = fanOut.subscribe("a", 16, AudioFanOut.BackpressurePolicy.DROP_NEWEST);
+        publishRamp(fanOut, 5, 4);
+
+        short[] dest = new short[12];
+        assertEquals(12, subscription.read(dest, 0, dest.length));
+        for (int i = 0; i < dest.length; i++) {
+            assertEquals((short) i, dest[i]);
+        }
+        // The last two frames were refused as they arrived
+        assertEquals(8, subscription.getDroppedSamples());
+        assertEquals(2, subscription.getOverrunCount());
+    }
+
+    @Test
+    public void publish_aFullSubscriberDoesNotAffectTheOthers() {
+        AudioFanOut fanOut = new AudioFanOut(new FakeSource(), SAMPLE_RATE);
+        AudioFanOut.Subscription stalled = fanOut.subscribe("stalled", 16, AudioFanOut.BackpressurePolicy.DROP_NEWEST);
+        AudioFanOut.Subscription reader = fanOut.subscribe("reader", 16, AudioFanOut.BackpressurePolicy.DROP_NEWEST);
+
+        short[] dest = new short[4];
+        for (int i = 0; i < 50; i++) {
+            fanOut.publish(ramp(i * 4, 4), 4);
+            assertEquals(4, reader.read(dest, 0, dest.length));
+            assertEquals((short) (i * 4), dest[0]);
+        }
+        assertEquals(0, reader.getDroppedSamples());
+        assertEquals(50 * 4 - 12, stalled.getDroppedSamples());
+    }
+
+    @Test
+    public void sourceEnded_closesEverySubscriberWithoutStoppingTheSource() {
+        FakeSource source = new FakeSource();
+        AudioFanOut fanOut = new AudioFanOut(source, SAMPLE_RATE);
+        AudioFanOut.Subscription first = fanOut.subscribe("a", 64, AudioFanOut.BackpressurePolicy.DROP_OLDEST);
+        AudioFanOut.Subscription second = fanOut.subscribe("b", 64, AudioFanOut.BackpressurePolicy.DROP_NEWEST);
+        publishRamp(fanOut, 1, 4);
+
+        fanOut.sourceEnded();
+        assertTrue(first.isClosed());
+        assertTrue(second.isClosed());
+        assertFalse(fanOut.isStarted());
+        assertFalse(first.awaitWindow(new short[8], 4));
+        assertEquals(0, second.read(new short[8], 0, 8));
+
+        // Already stopped: closing the dead subscriptions does not stop it again
+        first.close();
+        second.close();
+        assertEquals(0, source.stops);
+    }
+
+    @Test(timeout = 10_000)
+    public void close_wakesAConsumerWaitingForAudio() throws Exception {
+        AudioFanOut fanOut = new AudioFanOut(new FakeSource(), SAMPLE_RATE);
+        AudioFanOut.Subscription subscription = fanOut.subscribe("a", 1 << 16, AudioFanOut.BackpressurePolicy.DROP_OLDEST);
+
+        // A whole-second window: the consumer parks for up to a second at a time
+        AtomicBoolean result = new AtomicBoolean(true);
+        Thread consumer = new Thread(() -> result.set(subscription.awaitWindow(new short[SAMPLE_RATE], SAMPLE_RATE)));
+        consumer.start();
+        while (consumer.getState() != Thread.State.TIMED_WAITING) {
+            Thread.yield();
+        }
+
+        long closedAt = System.nanoTime();
+        subscription.close();
+        consumer.join();
+        assertFalse(result.get());
+        assertTrue("Woken late", System.nanoTime() - closedAt < 500_000_000L);
+    }
+
+    @Test(timeout = 10_000)
+    public void awaitWindow_returnsOnceTheCaptureThreadHasPublishedEnough() throws Exception {
+        AudioFanOut fanOut = new AudioFanOut(new FakeSource(), SAMPLE_RATE);
+        AudioFanOut.Subscription subscription = fanOut.subscribe("a", 1024, AudioFanOut.BackpressurePolicy.DROP_OLDEST);
+
+        Thread capture = new Thread(() -> {
+            for (int i = 0; i < 10; i++) {
+                fanOut.publish(ramp(i * 32, 32), 32);
+                Thread.yield();
+            }
+        });
+        capture.start();
+
+        // Woken by the frames as they arrive; only the first 256 samples make the first window
+        short[] window = new short[256];
+        assertTrue(subscription.awaitWindow(window, 128));
+        for (int i = 0; i < window.length; i++) {
+            assertEquals((short) i, window[i]);
+        }
+        capture.join();
+    }
+}
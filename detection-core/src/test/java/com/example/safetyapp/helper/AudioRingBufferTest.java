@@ -0,0 +1,342 @@
+package com.example.safetyapp.helper;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Local unit tests for the lock-free capture ring buffer
+ * Every sample written is its own stream position (mod 2^16), so a window or block read back
+ * shows exactly which positions it came from and whether it was torn.
+ */
+public class AudioRingBufferTest {
+
+    private static short[] ramp(long from, int length) {
+        short[] samples = new short[length];
+        for (int i = 0; i < length; i++) {
+            samples[i] = (short) (from + i);
+        }
+        return samples;
+    }
+
+    /**
+     * @return The position after the written samples
+     */
+    private static long write(AudioRingBuffer ring, long position, int length) {
+        ring.write(ramp(position, length), 0, length);
+        return position + length;
+    }
+
+    private static void assertRamp(String message, long from, short[] samples, int offset, int length) {
+        for (int i = 0; i < length; i++) {
+            assertEquals(message + " [" + i + "]", (short) (from + i), samples[offset + i]);
+        }
+    }
+
+    private static boolean isContiguous(short[] samples, int offset, int length) {
+        for (int i = offset + 1; i < offset + length; i++) {
+            if (samples[i] != (short) (samples[i - 1] + 1)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Test
+    public void constructor_roundsUpToAPowerOfTwo() {
+        assertEquals(16, new AudioRingBuffer(16).capacity());
+        assertEquals(32, new AudioRingBuffer(17).capacity());
+        assertEquals(2048, new AudioRingBuffer(1600).capacity());
+    }
+
+    @Test
+    public void readWindow_overlapsAcrossTheWrapPoint() {
+        AudioRingBuffer ring = new AudioRingBuffer(16);
+        short[] window = new short[8];
+        long position = write(ring, 0, 4);
+        assertFalse(ring.readWindow(window, 4));
+        assertEquals(4, ring.samplesUntilNextWindow(8));
+
+        // 20 windows wrap the 16-sample ring several times
+        for (int i = 0; i < 20; i++) {
+            position = write(ring, position, 4);
+            assertTrue(ring.readWindow(window, 4));
+            assertRamp("window " + i, i * 4, window, 0, 8);
+            assertFalse(ring.readWindow(window, 4));
+        }
+        assertEquals(0, ring.getOverrunCount());
+        assertEquals(0, ring.getDroppedSamples());
+    }
+
+    @Test
+    public void read_returnsTheStreamInOrderAcrossWraps() {
+        AudioRingBuffer ring = new AudioRingBuffer(16);
+        short[] stream = new short[200];
+        int received = 0;
+        long position = 0;
+        while (position < stream.length) {
+            position = write(ring, position, 5);
+            assertEquals(5, ring.available());
+            // Small reads leave a partial block behind every other round
+            int count;
+            while ((count = ring.read(stream, received, Math.min(3, stream.length - received))) > 0) {
+                received += count;
+            }
+            assertEquals(0, ring.available());
+        }
+        assertEquals(stream.length, received);
+        assertRamp("stream", 0, stream, 0, stream.length);
+        assertEquals(0, ring.getOverrunCount());
+    }
+
+    @Test
+    public void readWindow_skipsToTheNewestWindowAfterAnOverrun() {
+        AudioRingBuffer ring = new AudioRingBuffer(16);
+        short[] window = new short[8];
+        long position = 0;
+        for (int i = 0; i < 10; i++) {
+            position = write(ring, position, 4);
+        }
+
+        // The first window would have ended at 8; everything up to the newest window is lost
+        assertTrue(ring.readWindow(window, 4));
+        assertRamp("newest", 32, window, 0, 8);
+        assertEquals(1, ring.getOverrunCount());
+        assertEquals(32, ring.getDroppedSamples());
+
+        // Caught up: the hop continues from the skipped-to window
+        assertFalse(ring.readWindow(window, 4));
+        write(ring, position, 4);
+        assertTrue(ring.readWindow(window, 4));
+        assertRamp("next", 36, window, 0, 8);
+        assertEquals(1, ring.getOverrunCount());
+    }
+
+    @Test
+    public void readWindow_dropsWindowsTheNextWriteMayBeOverwriting() {
+        // 4-sample writes into 16 slots: only the newest 12 samples are safe to read, since the
+        // slots of the oldest 4 are the ones a write in progress would be filling
+        AudioRingBuffer ring = new AudioRingBuffer(16);
+        short[] window = new short[8];
+        long position = write(ring, 0, 4);
+        position = write(ring, position, 4);
+        assertTrue(ring.readWindow(window, 4));
+
+        position = write(ring, position, 4);
+        position = write(ring, position, 4);
+        assertTrue(ring.readWindow(window, 4)); // 4..11 with 16 written: exactly 12 back
+        assertRamp("at the edge", 4, window, 0, 8);
+        assertEquals(0, ring.getOverrunCount());
+
+        position = write(ring, position, 4);
+        write(ring, position, 4);
+        // 8..15 is still in the array with 24 written, but 8..11 share slots with 24..27
+        assertTrue(ring.readWindow(window, 4));
+        assertRamp("skipped", 16, window, 0, 8);
+        assertEquals(1, ring.getOverrunCount());
+        assertEquals(8, ring.getDroppedSamples());
+    }
+
+    @Test
+    public void readWindow_rejectsWindowsLargerThanTheSafeSpan() {
+        AudioRingBuffer ring = new AudioRingBuffer(16);
+        write(ring, 0, 8);
+        assertTrue(ring.readWindow(new short[8], 8));
+        try {
+            ring.readWindow(new short[9], 8);
+            fail("Accepted a window reaching into the slots of a write in progress");
+        } catch (IllegalArgumentException expected) {
+            // Expected
+        }
+    }
+
+    @Test
+    public void read_resumesAtTheOldestIntactSample() {
+        AudioRingBuffer ring = new AudioRingBuffer(16);
+        long position = 0;
+        for (int i = 0; i < 10; i++) {
+            position = write(ring, position, 4);
+        }
+
+        short[] dest = new short[16];
+        assertEquals(12, ring.read(dest, 0, dest.length));
+        assertRamp("resumed", 28, dest, 0, 12);
+        assertEquals(1, ring.getOverrunCount());
+        assertEquals(28, ring.getDroppedSamples());
+        assertEquals(0, ring.read(dest, 0, dest.length));
+    }
+
+    @Test
+    public void offer_dropsTheNewestWhileWriteOverwritesTheOldest() {
+        AudioRingBuffer overwriting = new AudioRingBuffer(16);
+        AudioRingBuffer dropping = new AudioRingBuffer(16);
+        long position = 0;
+        int accepted = 0;
+        for (int i = 0; i < 5; i++) {
+            short[] chunk = ramp(position, 4);
+            overwriting.write(chunk, 0, 4);
+            if (dropping.offer(chunk, 0, 4)) {
+                accepted++;
+            }
+            position += 4;
+        }
+
+        // offer() keeps the first 12 and counts the rest as it refuses them
+        assertEquals(3, accepted);
+        assertEquals(12, dropping.getWritePosition());
+        assertEquals(2, dropping.getOverrunCount());
+        assertEquals(8, dropping.getDroppedSamples());
+        short[] dest = new short[16];
+        assertEquals(12, dropping.read(dest, 0, dest.length));
+        assertRamp("oldest kept", 0, dest, 0, 12);
+        assertEquals(2, dropping.getOverrunCount());
+
+        // write() took everything; the loss shows up when the consumer reads
+        assertEquals(20, overwriting.getWritePosition());
+        assertEquals(0, overwriting.getOverrunCount());
+        assertEquals(12, overwriting.read(dest, 0, dest.length));
+        assertRamp("newest kept", 8, dest, 0, 12);
+        assertEquals(1, overwriting.getOverrunCount());
+        assertEquals(8, overwriting.getDroppedSamples());
+
+        // Once read, offered audio fits again
+        assertTrue(dropping.offer(ramp(position, 4), 0, 4));
+    }
+
+    @Test
+    public void skipToLatest_restartsWindowingWithoutCountingALoss() {
+        AudioRingBuffer ring = new AudioRingBuffer(16);
+        long position = 0;
+        for (int i = 0; i < 10; i++) {
+            position = write(ring, position, 4);
+        }
+        ring.skipToLatest(8);
+
+        // The next window is the newest one, then the hop continues from there
+        short[] window = new short[8];
+        assertEquals(0, ring.samplesUntilNextWindow(8));
+        assertTrue(ring.readWindow(window, 4));
+        assertRamp("after skip", 32, window, 0, 8);
+        write(ring, position, 4);
+        assertTrue(ring.readWindow(window, 4));
+        assertRamp("next", 36, window, 0, 8);
+        assertEquals(0, ring.getOverrunCount());
+        assertEquals(0, ring.getDroppedSamples());
+    }
+
+    // ==== Producer and consumer on their own threads ====
+
+    private static final int STRESS_CAPACITY = 2048;
+    private static final int STRESS_MAX_CHUNK = 320;
+    private static final int STRESS_WINDOWS = 100_000;
+    private static final int STRESS_SAMPLES = 4_000_000;
+
+    /**
+     * Writes the ramp from its own thread in chunks of varying size, until stopped or the
+     * sample limit is reached
+     */
+    private static Thread startProducer(AudioRingBuffer ring, boolean offer, long samples,
+                                        AtomicBoolean stop, AtomicReference<Throwable> error) {
+        Thread producer = new Thread(() -> {
+            try {
+                Random random = new Random(1);
+                short[] chunk = new short[STRESS_MAX_CHUNK];
+                long position = 0;
+                while (position < samples && !stop.get()) {
+                    // The largest chunk goes first, so the ring's safe span never changes mid-test
+                    int length = position == 0 ? chunk.length : 1 + random.nextInt(chunk.length);
+                    length = (int) Math.min(length, samples - position);
+                    for (int i = 0; i < length; i++) {
+                        chunk[i] = (short) (position + i);
+                    }
+                    if (offer) {
+                        // A dropped chunk is retried, so everything accepted is one unbroken ramp
+                        while (!ring.offer(chunk, 0, length)) {
+                            Thread.yield();
+                        }
+                    } else {
+                        ring.write(chunk, 0, length);
+                        // A capture thread waits for its next buffer; a writer that never pauses
+                        // would tear every full-span window the consumer attempts
+                        Thread.yield();
+                    }
+                    position += length;
+                }
+            } catch (Throwable t) {
+                error.set(t);
+            }
+        }, "AudioRingBufferTest producer");
+        producer.start();
+        return producer;
+    }
+
+    @Test(timeout = 60_000)
+    public void readWindow_neverReturnsATornWindowUnderConcurrentWrites() throws Exception {
+        AudioRingBuffer ring = new AudioRingBuffer(STRESS_CAPACITY);
+        AtomicBoolean stop = new AtomicBoolean();
+        AtomicReference<Throwable> error = new AtomicReference<>();
+        Thread producer = startProducer(ring, false, Long.MAX_VALUE, stop, error);
+
+        // As long as the ring allows: after every skip the window starts at the oldest safe
+        // sample, so any write landing during the copy tears it
+        short[] window = new short[STRESS_CAPACITY - STRESS_MAX_CHUNK];
+        try {
+            for (int windows = 0; windows < STRESS_WINDOWS; ) {
+                if (!ring.readWindow(window, 256)) {
+                    Thread.yield();
+                    continue;
+                }
+                windows++;
+                if (!isContiguous(window, 0, window.length)) {
+                    fail("Torn window " + windows + " after " + ring.getOverrunCount() + " overruns");
+                }
+            }
+        } finally {
+            stop.set(true);
+            producer.join();
+        }
+        if (error.get() != null) throw new AssertionError(error.get());
+
+        // The writer outpaced the 256-sample hop, so windows were taken at the edge of the safe span
+        assertTrue(ring.getOverrunCount() > 0);
+    }
+
+    @Test(timeout = 60_000)
+    public void read_deliversEveryOfferedSampleInOrder() throws Exception {
+        AudioRingBuffer ring = new AudioRingBuffer(STRESS_CAPACITY);
+        AtomicBoolean stop = new AtomicBoolean();
+        AtomicReference<Throwable> error = new AtomicReference<>();
+        Thread producer = startProducer(ring, true, STRESS_SAMPLES, stop, error);
+
+        short[] block = new short[500];
+        long received = 0;
+        try {
+            while (received < STRESS_SAMPLES) {
+                int count = ring.read(block, 0, block.length);
+                if (count == 0) {
+                    if (!producer.isAlive() && ring.available() == 0) break;
+                    Thread.yield();
+                    continue;
+                }
+                if (block[0] != (short) received || !isContiguous(block, 0, count)) {
+                    fail("Stream broken at sample " + received);
+                }
+                received += count;
+            }
+        } finally {
+            stop.set(true);
+            producer.join();
+        }
+        if (error.get() != null) throw new AssertionError(error.get());
+
+        // Unbroken from the first sample to the last: read() never had to skip
+        assertEquals(STRESS_SAMPLES, received);
+    }
+}
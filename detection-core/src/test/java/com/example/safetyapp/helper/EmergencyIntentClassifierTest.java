@@ -0,0 +1,138 @@
+package com.example.safetyapp.helper;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+/**
+ * Local unit tests for incremental classification of partial speech results
+ */
+public class EmergencyIntentClassifierTest {
+
+    private static final String[] UTTERANCES = {
+            "help me, someone is following me",
+            "please don't hurt me he is hitting me",
+            "there is a fire in the building smoke everywhere",
+            "i had an accide on the road",
+            "someone is folowing me help",
+            "আমাকে কেউ অনুসরণ করছে বাঁচাও"
+    };
+
+    private static void assertSameClassification(String text,
+                                                 EmergencyIntentClassifier.EmergencyClassification expected,
+                                                 EmergencyIntentClassifier.EmergencyClassification actual) {
+        assertEquals(text, expected.type, actual.type);
+        assertEquals(text, expected.confidence, actual.confidence, 0.0f);
+    }
+
+    // The equivalence tests must exercise both code paths, not read one result back from the cache
+    private static EmergencyIntentClassifier.EmergencyClassification classifyUncached(String text) {
+        EmergencyIntentClassifier.resultCache().clear();
+        return EmergencyIntentClassifier.classifyIntent(text);
+    }
+
+    private static EmergencyIntentClassifier.EmergencyClassification updateUncached(
+            EmergencyIntentClassifier.Session session, String text) {
+        EmergencyIntentClassifier.resultCache().clear();
+        return session.update(text);
+    }
+
+    @Test
+    public void session_matchesClassifyIntentOnGrowingHypotheses() {
+        EmergencyIntentClassifier.Session session = new EmergencyIntentClassifier.Session();
+        for (String utterance : UTTERANCES) {
+            session.reset();
+            for (int end = 1; end <= utterance.length(); end++) {
+                String hypothesis = utterance.substring(0, end);
+                assertSameClassification(hypothesis, classifyUncached(hypothesis), updateUncached(session, hypothesis));
+            }
+        }
+    }
+
+    @Test
+    public void session_matchesClassifyIntentWhenTheRecogniserRevisesEarlierWords() {
+        Random random = new Random(3);
+        EmergencyIntentClassifier.Session session = new EmergencyIntentClassifier.Session();
+
+        for (int trial = 0; trial < 500; trial++) {
+            String utterance = UTTERANCES[random.nextInt(UTTERANCES.length)];
+            session.reset();
+            int end = 0;
+            while (end < utterance.length()) {
+                end = Math.min(utterance.length(), end + 1 + random.nextInt(6));
+                char[] hypothesis = utterance.substring(0, end).toCharArray();
+                if (random.nextInt(4) == 0) {
+                    hypothesis[random.nextInt(hypothesis.length)] = 'x';
+                }
+                String text = new String(hypothesis);
+                assertSameClassification(text, classifyUncached(text), updateUncached(session, text));
+            }
+        }
+    }
+
+    @Test
+    public void reset_forgetsThePreviousUtterance() {
+        EmergencyIntentClassifier.Session session = new EmergencyIntentClassifier.Session();
+        session.update("help me, someone is following me");
+        session.reset();
+
+        String next = "help";
+        assertSameClassification(next, classifyUncached(next), updateUncached(session, next));
+        assertEquals(EmergencyTypeDetector.EmergencyType.NONE, session.update("").type);
+    }
+
+    @Test
+    public void session_staysConsistentWhenRepeatsAreAnsweredFromTheCache() {
+        EmergencyIntentClassifier.Session session = new EmergencyIntentClassifier.Session();
+        for (String utterance : UTTERANCES) {
+            session.reset();
+            for (int end = 1; end <= utterance.length(); end++) {
+                String hypothesis = utterance.substring(0, end);
+                // Cached repeats of this and an earlier hypothesis must not disturb the resume point
+                session.update(hypothesis);
+                session.update(utterance.substring(0, (end + 1) / 2));
+                assertSameClassification(hypothesis, classifyUncached(hypothesis), session.update(hypothesis));
+            }
+        }
+    }
+
+    @Test
+    public void classifyIntent_answersRepeatedTranscriptsFromTheCache() {
+        ClassificationCache cache = EmergencyIntentClassifier.resultCache();
+        cache.clear();
+
+        EmergencyIntentClassifier.EmergencyClassification first =
+                EmergencyIntentClassifier.classifyIntent("Help me, someone is following me");
+        // Same normalised text
+        EmergencyIntentClassifier.EmergencyClassification repeat =
+                EmergencyIntentClassifier.classifyIntent("help me someone is FOLLOWING me!");
+
+        assertSame(first, repeat);
+        assertEquals(1, cache.hits());
+        assertEquals(1, cache.misses());
+    }
+
+    @Test
+    public void cache_evictsTheLeastRecentlyUsedEntryAndIgnoresOtherEngines() {
+        ClassificationCache cache = new ClassificationCache(2);
+        Object engine = new Object();
+        EmergencyIntentClassifier.EmergencyClassification fire =
+                new EmergencyIntentClassifier.EmergencyClassification(EmergencyTypeDetector.EmergencyType.FIRE, 0.6f);
+
+        cache.put("a", engine, fire);
+        cache.put("b", engine, fire);
+        assertSame(fire, cache.get("a", engine)); // "b" is now the least recently used
+        cache.put("c", engine, fire);
+
+        assertNull(cache.get("b", engine));
+        assertSame(fire, cache.get("c", engine));
+        assertNull(cache.get("a", new Object()));
+        assertEquals(2, cache.size());
+        assertEquals(2, cache.hits());
+        assertEquals(2, cache.misses());
+    }
+}
@@ -0,0 +1,108 @@
+package com.example.safetyapp.helper;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+/**
+ * Local unit tests for the compiled emergency lexicon and runtime lexicon updates
+ */
+public class EmergencyLexiconTest {
+
+    private static final String SOURCE_FILE = "src/main/lexicon/emergency_lexicon.txt";
+
+    private static String source() throws IOException {
+        return new String(Files.readAllBytes(Paths.get(SOURCE_FILE)), StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void match_findsSetsAfterNormalising() throws IOException {
+        EmergencyLexicon lexicon = EmergencyLexicon.compile(source());
+
+        long found = lexicon.match("HELP!! Someone is following me");
+        assertTrue((found & lexicon.setMask("sos")) != 0);
+        assertTrue((found & lexicon.setMask("attack_threat")) != 0);
+        assertEquals(0, found & lexicon.setMask("coded_sos"));
+        assertEquals(0, lexicon.match("what is the weather today") & lexicon.setMask("sos"));
+        assertEquals(0, lexicon.setMask("no_such_set"));
+    }
+
+    @Test
+    public void include_addsThePhrasesOfEarlierSets() throws IOException {
+        EmergencyLexicon lexicon = EmergencyLexicon.compile(
+                "version 1\nset fear\ni'm scared\nset distress\ninclude fear\nurgent\n");
+
+        assertTrue((lexicon.match("i'm scared") & lexicon.setMask("distress")) != 0);
+        assertTrue((lexicon.match("urgent") & lexicon.setMask("distress")) != 0);
+        assertEquals(0, lexicon.match("urgent") & lexicon.setMask("fear"));
+    }
+
+    @Test
+    public void read_rejectsCorruptedOrTruncatedData() throws IOException {
+        byte[] compiled = LexiconCompiler.compile(new StringReader(source()));
+
+        byte[] corrupted = compiled.clone();
+        corrupted[compiled.length / 2] ^= 0x20;
+        assertUnreadable(corrupted);
+
+        byte[] truncated = new byte[compiled.length - 1];
+        System.arraycopy(compiled, 0, truncated, 0, truncated.length);
+        assertUnreadable(truncated);
+    }
+
+    @Test
+    public void compile_reportsTheLineOfAnError() {
+        try {
+            EmergencyLexicon.compile("version 1\nintent NOT_A_TYPE 0.5\n");
+            fail("Expected an IOException");
+        } catch (IOException e) {
+            assertTrue(e.getMessage(), e.getMessage().startsWith("Lexicon line 2:"));
+        }
+    }
+
+    @Test
+    public void install_replacesTheLexiconInUseOnlyWithANewerVersion() throws IOException {
+        KeywordCategoryMatcher keywords = new KeywordCategoryMatcher("sos");
+        EmergencyLexicon bundled = EmergencyLexicon.current();
+        assertFalse(keywords.containsAny("code zorblax"));
+        assertEquals(EmergencyTypeDetector.EmergencyType.NONE,
+                EmergencyIntentClassifier.classifyIntent("zorblaxed").type);
+
+        // Same lexicon plus one keyword and one intent pattern
+        String updated = source()
+                .replaceFirst("(?m)^version \\d+$", "version " + (bundled.version() + 1))
+                .replaceFirst("(?m)^set sos$", "set sos\ncode zorblax")
+                + "\nintent KIDNAPPING 1.0\ncore: zorblaxed\n";
+
+        assertFalse(EmergencyLexicon.install(EmergencyLexicon.compile(source().replaceFirst(
+                "(?m)^version \\d+$", "version " + bundled.version()))));
+        assertTrue(EmergencyLexicon.install(EmergencyLexicon.compile(updated)));
+
+        assertNotEquals(bundled, EmergencyLexicon.current());
+        assertTrue(keywords.containsAny("code zorblax"));
+        assertEquals(EmergencyTypeDetector.EmergencyType.KIDNAPPING,
+                EmergencyIntentClassifier.classifyIntent("zorblaxed").type);
+        assertEquals(EmergencyTypeDetector.EmergencyType.KIDNAPPING,
+                new EmergencyIntentClassifier.Session().update("zorblaxed").type);
+    }
+
+    private static void assertUnreadable(byte[] data) {
+        try {
+            EmergencyLexicon.read(ByteBuffer.wrap(data));
+            fail("Expected an IOException");
+        } catch (IOException e) {
+            // Expected
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package com.example.safetyapp.helper;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Local unit tests for cutting streamed enrollment audio into graded windows
+ */
+public class EnrollmentWindowerTest {
+    private static final int WINDOW = 15600;
+    private static final int HOP = WINDOW / 2;
+
+    private static short[] tone(long seed, int samples, double amplitude) {
+        Random random = new Random(seed);
+        short[] pcm = new short[samples];
+        for (int i = 0; i < samples; i++) {
+            double value = amplitude * Math.sin(2 * Math.PI * 220 * i / 16000.0) + random.nextGaussian() * 50;
+            pcm[i] = (short) Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, value));
+        }
+        return pcm;
+    }
+
+    private static final class Recorder implements EnrollmentWindower.Listener {
+        final List<short[]> windows = new ArrayList<>();
+        final List<EnrollmentWindower.Quality> qualities = new ArrayList<>();
+
+        @Override
+        public void onWindow(short[] window, EnrollmentWindower.Quality quality, float rms) {
+            windows.add(window.clone());
+            qualities.add(quality);
+        }
+    }
+
+    private static Recorder feed(EnrollmentWindower windower, short[] pcm, int chunk) {
+        Recorder recorder = new Recorder();
+        for (int offset = 0; offset < pcm.length; offset += chunk) {
+            windower.write(pcm, offset, Math.min(chunk, pcm.length - offset), recorder);
+        }
+        return recorder;
+    }
+
+    @Test
+    public void write_cutsTheSameWindowsWhateverTheChunkSize() {
+        short[] pcm = tone(1, 48000, 8000);
+        for (int chunk : new int[]{160, 1600, 7777, 48000}) {
+            Recorder recorder = feed(new EnrollmentWindower(WINDOW, HOP), pcm, chunk);
+
+            // Full windows only: starts 0, 7800 ... 31200 in a 3 s recording
+            assertEquals("chunk=" + chunk, 5, recorder.windows.size());
+            for (int i = 0; i < recorder.windows.size(); i++) {
+                assertArrayEquals(Arrays.copyOfRange(pcm, i * HOP, i * HOP + WINDOW), recorder.windows.get(i));
+            }
+        }
+    }
+
+    @Test
+    public void write_gradesQuietAndClippedWindows() {
+        EnrollmentWindower windower = new EnrollmentWindower(WINDOW, WINDOW);
+        short[] pcm = new short[3 * WINDOW];
+        System.arraycopy(tone(2, WINDOW, 8000), 0, pcm, 0, WINDOW);
+        System.arraycopy(tone(3, WINDOW, 300), 0, pcm, WINDOW, WINDOW);
+        System.arraycopy(tone(4, WINDOW, 60000), 0, pcm, 2 * WINDOW, WINDOW); // Shouted into the mic
+
+        Recorder recorder = feed(windower, pcm, 1600);
+        assertEquals(Arrays.asList(EnrollmentWindower.Quality.GOOD, EnrollmentWindower.Quality.TOO_QUIET,
+                EnrollmentWindower.Quality.CLIPPED), recorder.qualities);
+        assertEquals(1, windower.getCount(EnrollmentWindower.Quality.GOOD));
+        assertEquals(1, windower.getCount(EnrollmentWindower.Quality.TOO_QUIET));
+        assertEquals(1, windower.getCount(EnrollmentWindower.Quality.CLIPPED));
+    }
+
+    @Test
+    public void reset_dropsThePartialWindowAndCounts() {
+        EnrollmentWindower windower = new EnrollmentWindower(WINDOW, HOP);
+        short[] first = tone(5, WINDOW + 1000, 8000);
+        assertEquals(1, feed(windower, first, 1600).windows.size());
+
+        windower.reset();
+        assertEquals(0, windower.getCount(EnrollmentWindower.Quality.GOOD));
+
+        // The next recording's first window holds none of the previous one
+        short[] second = tone(6, WINDOW, 8000);
+        Recorder recorder = feed(windower, second, 1600);
+        assertEquals(1, recorder.windows.size());
+        assertArrayEquals(second, recorder.windows.get(0));
+    }
+}
@@ -0,0 +1,124 @@
+package com.example.safetyapp.helper;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Local unit tests for the deletion-index fuzzy matcher
+ */
+public class FuzzyMatcherTest {
+
+    private static final List<String> LEXICON = Arrays.asList(
+            "following", "kidnap", "harassment", "accident", "me", "fire", "heart attack",
+            "can t get out", "someone is following me", "অনুসরণ", "আগুন", "সাহায্য করুন");
+
+    @Test
+    public void lookup_findsMisspellingsWithinTheCutoff() {
+        FuzzyMatcher matcher = new FuzzyMatcher(LEXICON, 0.8f, 0.7f);
+        Map<String, Float> result = lookup(matcher, "folowing");
+
+        assertEquals(1.0f - 1.0f / 9, result.get("following"), 1e-6f);
+        assertTrue(lookup(matcher, "harasment").containsKey("harassment"));
+        assertTrue(lookup(matcher, "অনুসরন").containsKey("অনুসরণ"));
+    }
+
+    @Test
+    public void lookup_reportsLargeInfixes() {
+        FuzzyMatcher matcher = new FuzzyMatcher(LEXICON, 0.8f, 0.7f);
+
+        // 6/8 = 0.75: below the edit cutoff but a large enough part of the term
+        assertEquals(0.75f, lookup(matcher, "accide").get("accident"), 1e-6f);
+        assertTrue(!lookup(matcher, "acci").containsKey("accident"));
+    }
+
+    @Test
+    public void lookup_agreesWithFullLevenshtein() {
+        FuzzyMatcher matcher = new FuzzyMatcher(LEXICON, 0.8f, 0.7f);
+        Random random = new Random(42);
+
+        for (int trial = 0; trial < 2000; trial++) {
+            String word = mutate(LEXICON.get(random.nextInt(LEXICON.size())), random);
+            Map<String, Float> result = lookup(matcher, word);
+
+            for (String term : LEXICON) {
+                int longer = Math.max(word.length(), term.length());
+                float similarity = 1.0f - (float) levenshtein(word, term) / longer;
+                boolean infix = term.contains(word) && word.length() / (float) term.length() > 0.7f;
+                boolean expected = similarity > 0.8f || infix;
+
+                assertEquals(word + " vs " + term, expected, result.containsKey(term));
+                if (expected) {
+                    assertEquals(word + " vs " + term, similarity, result.get(term), 1e-6f);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void steadyStateLookup_allocatesNothing() {
+        com.sun.management.ThreadMXBean threadBean =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+
+        FuzzyMatcher matcher = new FuzzyMatcher(LEXICON, 0.8f, 0.7f);
+        String text = "someone is folowing me near the fire";
+        int[] count = new int[1];
+        FuzzyMatcher.MatchSink sink = (termId, similarity) -> count[0]++;
+
+        for (int i = 0; i < 1000; i++) {
+            matcher.lookup(text, 11, 19, sink);
+        }
+
+        long before = threadBean.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < 1000; i++) {
+            matcher.lookup(text, 11, 19, sink);
+        }
+        long allocated = threadBean.getThreadAllocatedBytes(threadId) - before;
+
+        assertTrue(count[0] > 0);
+        assertTrue("Allocated " + allocated + " bytes", allocated < 1024);
+    }
+
+    private static Map<String, Float> lookup(FuzzyMatcher matcher, String word) {
+        Map<String, Float> result = new HashMap<>();
+        matcher.lookup(word, (termId, similarity) -> result.put(matcher.getTerm(termId), similarity));
+        return result;
+    }
+
+    private static String mutate(String term, Random random) {
+        StringBuilder builder = new StringBuilder(term);
+        int edits = random.nextInt(4);
+        for (int i = 0; i < edits && builder.length() > 1; i++) {
+            int position = random.nextInt(builder.length());
+            switch (random.nextInt(4)) {
+                case 0: builder.deleteCharAt(position); break;
+                case 1: builder.insert(position, (char) ('a' + random.nextInt(26))); break;
+                case 2: builder.setCharAt(position, (char) ('a' + random.nextInt(26))); break;
+                default: builder.delete(0, Math.min(builder.length() - 1, 1 + random.nextInt(2))); break;
+            }
+        }
+        return builder.toString();
+    }
+
+    private static int levenshtein(String a, String b) {
+        int[][] dp = new int[a.length() + 1][b.length() + 1];
+        for (int i = 0; i <= a.length(); i++) dp[i][0] = i;
+        for (int j = 0; j <= b.length(); j++) dp[0][j] = j;
+        for (int i = 1; i <= a.length(); i++) {
+            for (int j = 1; j <= b.length(); j++) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                dp[i][j] = Math.min(Math.min(dp[i - 1][j] + 1, dp[i][j - 1] + 1), dp[i - 1][j - 1] + cost);
+            }
+        }
+        return dp[a.length()][b.length()];
+    }
+}
@@ -0,0 +1,119 @@
+package com.example.safetyapp.helper;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Local unit tests for the hashed n-gram intent model and its trainer
+ */
+public class HashedIntentModelTest {
+
+    private static final String TRAINING_DATA =
+            "# label<TAB>transcript\n"
+            + "STALKING\tsomeone is following me\n"
+            + "STALKING\ta man keeps following me home\n"
+            + "STALKING\the is stalking me everywhere\n"
+            + "STALKING\tthere is a stranger behind me following\n"
+            + "KIDNAPPING\tthey are pushing me into a van\n"
+            + "KIDNAPPING\the is trying to kidnap me\n"
+            + "KIDNAPPING\tsomeone grabbed me and took me in a car\n"
+            + "KIDNAPPING\ti have been kidnapped help\n"
+            + "FIRE\tthere is a fire in the building\n"
+            + "FIRE\tsmoke everywhere the kitchen is on fire\n"
+            + "FIRE\tthe house is burning\n"
+            + "FIRE\tfire fire get out\n"
+            + "NONE\twhat is the weather today\n"
+            + "NONE\tlet's get dinner tonight\n"
+            + "NONE\ti am going home after work\n"
+            + "NONE\tcall me when you get this\n";
+
+    private static List<IntentModelTrainer.Example> examples() throws IOException {
+        return IntentModelTrainer.readExamples(new StringReader(TRAINING_DATA));
+    }
+
+    @Test
+    public void train_learnsTheTrainingDataAndGeneralisesToMisspellings() throws IOException {
+        List<IntentModelTrainer.Example> examples = examples();
+        HashedIntentModel model = IntentModelTrainer.train(examples, 10, 30);
+
+        assertEquals(1.0f, IntentModelTrainer.accuracy(model, examples), 0.0f);
+        // Character n-grams carry unseen spellings
+        assertEquals(EmergencyTypeDetector.EmergencyType.STALKING, model.classify("someone is folowing me").type);
+        assertEquals(EmergencyTypeDetector.EmergencyType.NONE, model.classify("").type);
+    }
+
+    @Test
+    public void train_isDeterministic() throws IOException {
+        HashedIntentModel first = IntentModelTrainer.train(examples(), 10, 5);
+        HashedIntentModel second = IntentModelTrainer.train(examples(), 10, 5);
+        assertTrue(Arrays.equals(first.weights, second.weights));
+    }
+
+    @Test
+    public void read_returnsTheWrittenModel() throws IOException {
+        HashedIntentModel model = IntentModelTrainer.train(examples(), 10, 10);
+        HashedIntentModel copy = HashedIntentModel.read(ByteBuffer.wrap(write(model)));
+
+        for (IntentModelTrainer.Example example : examples()) {
+            EmergencyIntentClassifier.EmergencyClassification expected = model.classify(example.text);
+            EmergencyIntentClassifier.EmergencyClassification actual = copy.classify(example.text);
+            assertEquals(example.text, expected.type, actual.type);
+            assertEquals(example.text, expected.confidence, actual.confidence, 0.0f);
+        }
+    }
+
+    @Test
+    public void read_rejectsCorruptedData() throws IOException {
+        byte[] data = write(IntentModelTrainer.train(examples(), 8, 1));
+        data[data.length - 3] ^= 0x10;
+        try {
+            HashedIntentModel.read(ByteBuffer.wrap(data));
+            fail("Expected an IOException");
+        } catch (IOException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("checksum"));
+        }
+    }
+
+    @Test
+    public void readExamples_reportsTheLineOfAnUnknownLabel() {
+        try {
+            IntentModelTrainer.readExamples(new StringReader("FIRE\tsmoke\nEARTHQUAKE\tthe ground is shaking\n"));
+            fail("Expected an IOException");
+        } catch (IOException e) {
+            assertTrue(e.getMessage(), e.getMessage().startsWith("Line 2:"));
+        }
+    }
+
+    @Test
+    public void setLearnedModel_routesClassificationToTheModel() throws IOException {
+        HashedIntentModel model = IntentModelTrainer.train(examples(), 10, 30);
+        String text = "they are pushing me into a van";
+        try {
+            EmergencyIntentClassifier.setLearnedModel(model);
+            assertTrue(EmergencyIntentClassifier.isUsingLearnedModel());
+            assertEquals(model.classify(text).confidence, EmergencyIntentClassifier.classifyIntent(text).confidence, 0.0f);
+            assertEquals(EmergencyTypeDetector.EmergencyType.KIDNAPPING,
+                    new EmergencyIntentClassifier.Session().update(text).type);
+        } finally {
+            EmergencyIntentClassifier.setLearnedModel(null);
+        }
+        assertFalse(EmergencyIntentClassifier.isUsingLearnedModel());
+    }
+
+    private static byte[] write(HashedIntentModel model) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        model.writeTo(out);
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,88 @@
+package com.example.safetyapp.helper;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Local unit tests for scoring N-best recognition alternatives together
+ */
+public class NBestIntentScorerTest {
+
+    private static final KeywordCategoryMatcher KEYWORDS = new KeywordCategoryMatcher("sos", "fear_panic");
+
+    @Test
+    public void score_isTheConfidenceWeightedIntentScore() {
+        NBestIntentScorer scorer = new NBestIntentScorer(null);
+        List<String> alternatives = Arrays.asList("someone is following me", "the weather is nice");
+
+        NBestIntentScorer.Decision decision = scorer.score(alternatives, new float[]{0.6f, 0.2f});
+
+        EmergencyIntentClassifier.EmergencyClassification top =
+                EmergencyIntentClassifier.classifyIntent(alternatives.get(0));
+        assertEquals(top.type, decision.type);
+        assertEquals(0.75f * top.confidence, decision.posterior, 1e-6f);
+        assertEquals(0, decision.hypothesisIndex);
+    }
+
+    @Test
+    public void score_doesNotDependOnAlternativeOrder() {
+        List<String> alternatives = Arrays.asList(
+                "help me someone is following me",
+                "help me someone is swallowing me",
+                "there is a fire help",
+                "i'm scared he is hitting me",
+                "what is the weather");
+        float[] confidences = {0.5f, 0.2f, 0.15f, 0.1f, 0.05f};
+        NBestIntentScorer scorer = new NBestIntentScorer(KEYWORDS);
+        NBestIntentScorer.Decision expected = scorer.score(alternatives, confidences);
+
+        Random random = new Random(11);
+        for (int trial = 0; trial < 50; trial++) {
+            List<Integer> permutation = new ArrayList<>(Arrays.asList(0, 1, 2, 3, 4));
+            Collections.shuffle(permutation, random);
+            List<String> shuffled = new ArrayList<>();
+            float[] shuffledConfidences = new float[confidences.length];
+            for (int i = 0; i < permutation.size(); i++) {
+                shuffled.add(alternatives.get(permutation.get(i)));
+                shuffledConfidences[i] = confidences[permutation.get(i)];
+            }
+
+            NBestIntentScorer.Decision decision = scorer.score(shuffled, shuffledConfidences);
+            assertEquals(expected.type, decision.type);
+            assertEquals(expected.posterior, decision.posterior, 1e-6f);
+            assertEquals(expected.keywordPosterior, decision.keywordPosterior, 1e-6f);
+            assertEquals(alternatives.get(expected.hypothesisIndex), shuffled.get(decision.hypothesisIndex));
+        }
+    }
+
+    @Test
+    public void score_findsKeywordsInLaterAlternativesAndUsesRankWhenConfidenceIsMissing() {
+        NBestIntentScorer scorer = new NBestIntentScorer(KEYWORDS);
+        List<String> alternatives = Arrays.asList("the weather is nice", "i'm scared");
+
+        NBestIntentScorer.Decision decision = scorer.score(alternatives, null);
+
+        assertFalse(decision.isEmergency());
+        assertTrue(decision.hasKeyword());
+        assertEquals(1, decision.keywordHypothesisIndex);
+        assertEquals(1, decision.keywordCategory);
+        // 1/rank prior: weights 1 and 1/2, normalised
+        assertEquals(1.0f / 3.0f, decision.keywordPosterior, 1e-6f);
+    }
+
+    @Test
+    public void score_withNoAlternatives_isNone() {
+        NBestIntentScorer.Decision decision = new NBestIntentScorer(KEYWORDS).score(new ArrayList<String>(), null);
+        assertEquals(EmergencyTypeDetector.EmergencyType.NONE, decision.type);
+        assertFalse(decision.hasKeyword());
+    }
+}
@@ -0,0 +1,125 @@
+package com.example.safetyapp.helper;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.util.Random;
+
+/**
+ * Local unit tests for the stored voice signature and its file format
+ */
+public class SpeakerEmbeddingTest {
+
+    private static float[] randomVector(long seed, int dimensions) {
+        Random random = new Random(seed);
+        float[] vector = new float[dimensions];
+        for (int i = 0; i < dimensions; i++) {
+            vector[i] = random.nextFloat();
+        }
+        return vector;
+    }
+
+    private static double cosine(float[] a, float[] b) {
+        double dot = 0, normA = 0, normB = 0;
+        for (int i = 0; i < a.length; i++) {
+            dot += a[i] * b[i];
+            normA += a[i] * a[i];
+            normB += b[i] * b[i];
+        }
+        return dot / Math.sqrt(normA * normB);
+    }
+
+    @Test
+    public void similarity_isTheCosineToAnyScaleOfTheLiveVector() {
+        float[] enrolled = randomVector(1, SpeakerEmbedding.EMBEDDING_SIZE);
+        float[] live = randomVector(2, SpeakerEmbedding.EMBEDDING_SIZE);
+        SpeakerEmbedding embedding = SpeakerEmbedding.create(SpeakerEmbedding.Kind.YAMNET_EMBEDDING, enrolled);
+
+        assertEquals(cosine(enrolled, live), embedding.similarity(live), 1e-5);
+        for (int i = 0; i < live.length; i++) {
+            live[i] *= 7.0f;
+        }
+        assertEquals(cosine(enrolled, live), embedding.similarity(live), 1e-5);
+        assertEquals(1.0f, embedding.similarity(enrolled), 1e-5f);
+    }
+
+    @Test
+    public void similarity_readsDirectTensorBuffers() {
+        float[] enrolled = randomVector(3, SpeakerEmbedding.EMBEDDING_SIZE);
+        float[] live = randomVector(4, SpeakerEmbedding.EMBEDDING_SIZE);
+        SpeakerEmbedding embedding = SpeakerEmbedding.create(SpeakerEmbedding.Kind.YAMNET_EMBEDDING, enrolled);
+
+        FloatBuffer tensor = ByteBuffer.allocateDirect(live.length * 4).order(ByteOrder.nativeOrder()).asFloatBuffer();
+        tensor.put(live).rewind();
+
+        assertEquals(embedding.similarity(live), embedding.similarity(tensor), 1e-6f);
+        assertEquals(0, tensor.position());
+    }
+
+    @Test
+    public void writeTo_roundTripsTheNormalisedVector() throws IOException {
+        SpeakerEmbedding embedding = SpeakerEmbedding.create(SpeakerEmbedding.Kind.YAMNET_EMBEDDING,
+                randomVector(5, SpeakerEmbedding.EMBEDDING_SIZE));
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        embedding.writeTo(bytes);
+
+        SpeakerEmbedding read = SpeakerEmbedding.read(ByteBuffer.wrap(bytes.toByteArray()));
+        assertEquals(SpeakerEmbedding.Kind.YAMNET_EMBEDDING, read.getKind());
+        assertEquals(SpeakerEmbedding.FORMAT_VERSION, read.getFormatVersion());
+        assertArrayEquals(embedding.vector, read.vector, 0.0f);
+    }
+
+    @Test
+    public void read_migratesHeaderlessClassScoreFiles() throws IOException {
+        // The original format: 521 raw class scores written with DataOutputStream.writeFloat
+        float[] scores = randomVector(6, ScoreFrame.NUM_CLASSES);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream legacy = new DataOutputStream(bytes);
+        for (float score : scores) {
+            legacy.writeFloat(score);
+        }
+
+        SpeakerEmbedding read = SpeakerEmbedding.read(ByteBuffer.wrap(bytes.toByteArray()));
+        assertEquals(SpeakerEmbedding.Kind.CLASS_SCORES, read.getKind());
+        assertEquals(0, read.getFormatVersion());
+        assertEquals(1.0f, read.similarity(scores), 1e-5f);
+
+        // Rewritten in the current format, it stays a class score signature
+        ByteArrayOutputStream rewritten = new ByteArrayOutputStream();
+        read.writeTo(rewritten);
+        SpeakerEmbedding migrated = SpeakerEmbedding.read(ByteBuffer.wrap(rewritten.toByteArray()));
+        assertEquals(SpeakerEmbedding.Kind.CLASS_SCORES, migrated.getKind());
+        assertArrayEquals(read.vector, migrated.vector, 0.0f);
+    }
+
+    @Test
+    public void read_rejectsCorruptFiles() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        SpeakerEmbedding.create(SpeakerEmbedding.Kind.YAMNET_EMBEDDING, randomVector(7, SpeakerEmbedding.EMBEDDING_SIZE))
+                .writeTo(bytes);
+        byte[] data = bytes.toByteArray();
+
+        byte[] flipped = data.clone();
+        flipped[SpeakerEmbedding.HEADER_SIZE + 20] ^= 1;
+        byte[] truncated = new byte[data.length - 4];
+        System.arraycopy(data, 0, truncated, 0, truncated.length);
+
+        for (byte[] bad : new byte[][]{flipped, truncated, new byte[7]}) {
+            try {
+                SpeakerEmbedding.read(ByteBuffer.wrap(bad));
+                fail("Accepted a corrupt signature of " + bad.length + " bytes");
+            } catch (IOException expected) {
+                // Expected
+            }
+        }
+    }
+}
@@ -0,0 +1,235 @@
+package com.example.safetyapp.helper;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.zip.CRC32;
+
+/**
+ * Local unit tests for the multi-sample speaker index
+ */
+public class SpeakerIndexTest {
+    private static final int DIMENSIONS = SpeakerEmbedding.EMBEDDING_SIZE;
+
+    private static float[][] randomVectors(long seed, int count) {
+        Random random = new Random(seed);
+        float[][] vectors = new float[count][DIMENSIONS];
+        for (float[] vector : vectors) {
+            for (int i = 0; i < DIMENSIONS; i++) {
+                vector[i] = random.nextFloat() - 0.3f;
+            }
+        }
+        return vectors;
+    }
+
+    private static SpeakerIndex build(float[][] samples) {
+        SpeakerIndex.Builder builder = SpeakerIndex.builder(SpeakerEmbedding.Kind.YAMNET_EMBEDDING);
+        for (float[] sample : samples) {
+            assertTrue(builder.add(sample));
+        }
+        return builder.build();
+    }
+
+    /**
+     * Mean of the k best cosines, one sample at a time
+     */
+    private static double bruteForce(float[][] samples, float[] live, int k) {
+        double[] cosines = new double[samples.length];
+        for (int row = 0; row < samples.length; row++) {
+            double dot = 0, normA = 0, normB = 0;
+            for (int i = 0; i < DIMENSIONS; i++) {
+                dot += samples[row][i] * live[i];
+                normA += samples[row][i] * samples[row][i];
+                normB += live[i] * live[i];
+            }
+            cosines[row] = dot / Math.sqrt(normA * normB);
+        }
+        Arrays.sort(cosines);
+        double sum = 0;
+        int count = Math.min(k, samples.length);
+        for (int i = 0; i < count; i++) {
+            sum += cosines[cosines.length - 1 - i];
+        }
+        return sum / count;
+    }
+
+    @Test
+    public void similarity_matchesBruteForceTopK() {
+        // Sample counts around the 4-row block size, including partial blocks
+        for (int count : new int[]{1, 3, 4, 5, 9, 23}) {
+            float[][] samples = randomVectors(count, count);
+            SpeakerIndex index = build(samples);
+            assertEquals(count, index.size());
+
+            for (float[] live : randomVectors(100 + count, 5)) {
+                for (int k : new int[]{1, 3, 50}) {
+                    assertEquals("samples=" + count + " k=" + k,
+                            bruteForce(samples, live, k), index.similarity(live, k), 1e-5);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void similarity_findsTheClosestVoiceAmongDifferentOnes() {
+        float[][] samples = randomVectors(1, 12);
+        SpeakerIndex index = build(samples);
+
+        // A louder copy of one sample is a perfect match for top-1
+        float[] live = samples[7].clone();
+        for (int i = 0; i < live.length; i++) {
+            live[i] *= 3.0f;
+        }
+        assertEquals(1.0f, index.similarity(live, 1), 1e-5f);
+        assertTrue(index.similarity(live, 3) < 1.0f);
+    }
+
+    @Test
+    public void builder_skipsAllZeroSamples() {
+        SpeakerIndex.Builder builder = SpeakerIndex.builder(SpeakerEmbedding.Kind.YAMNET_EMBEDDING);
+        assertFalse(builder.add(new float[DIMENSIONS]));
+        assertEquals(0, builder.size());
+    }
+
+    @Test
+    public void builder_truncateDropsTheLatestSamples() {
+        float[][] kept = randomVectors(7, 5);
+        SpeakerIndex.Builder builder = SpeakerIndex.builder(SpeakerEmbedding.Kind.YAMNET_EMBEDDING);
+        for (float[] sample : kept) {
+            builder.add(sample);
+        }
+        for (float[] rejected : randomVectors(8, 3)) {
+            builder.add(rejected);
+        }
+        builder.truncate(kept.length);
+        builder.add(kept[0]);
+
+        SpeakerIndex index = builder.build();
+        assertEquals(6, index.size());
+        float[] live = randomVectors(9, 1)[0];
+        assertEquals(bruteForce(new float[][]{kept[0], kept[1], kept[2], kept[3], kept[4], kept[0]}, live, 3),
+                index.similarity(live, 3), 1e-5);
+    }
+
+    @Test
+    public void read_usesTheWrittenMatrixInPlace() throws IOException {
+        float[][] samples = randomVectors(2, 10);
+        SpeakerIndex index = build(samples);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        index.writeTo(bytes);
+        assertEquals(SpeakerIndex.HEADER_SIZE + 10 * DIMENSIONS * 4, bytes.size());
+
+        // A direct buffer stands in for the mapped file
+        ByteBuffer file = ByteBuffer.allocateDirect(bytes.size());
+        file.put(bytes.toByteArray()).flip();
+        SpeakerIndex read = SpeakerIndex.read(file);
+
+        assertEquals(10, read.size());
+        assertEquals(SpeakerEmbedding.Kind.YAMNET_EMBEDDING, read.getKind());
+        float[] live = randomVectors(3, 1)[0];
+        assertEquals(index.similarity(live, 3), read.similarity(live, 3), 0.0f);
+    }
+
+    @Test
+    public void similarity_readsDirectTensorBuffers() {
+        SpeakerIndex index = build(randomVectors(4, 6));
+        float[] live = randomVectors(5, 1)[0];
+        FloatBuffer tensor = ByteBuffer.allocateDirect(DIMENSIONS * 4).order(ByteOrder.nativeOrder()).asFloatBuffer();
+        tensor.put(live).rewind();
+
+        assertEquals(index.similarity(live, 3), index.similarity(tensor, 3), 1e-6f);
+        assertEquals(0, tensor.position());
+    }
+
+    @Test
+    public void of_wrapsAMigratedSignature() {
+        float[] scores = new float[ScoreFrame.NUM_CLASSES];
+        scores[YamnetRuleTable.CLASS_SCREAM] = 0.4f;
+        scores[YamnetRuleTable.CLASS_CRYING] = 0.3f;
+        SpeakerIndex index = SpeakerIndex.of(SpeakerEmbedding.create(SpeakerEmbedding.Kind.CLASS_SCORES, scores));
+
+        assertEquals(SpeakerEmbedding.Kind.CLASS_SCORES, index.getKind());
+        assertEquals(1, index.size());
+        assertEquals(1.0f, index.similarity(scores, SpeakerIndex.DEFAULT_TOP_K), 1e-5f);
+    }
+
+    private static byte[] write(SpeakerIndex index) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        index.writeTo(bytes);
+        return bytes.toByteArray();
+    }
+
+    @Test
+    public void read_rejectsCorruptFiles() throws IOException {
+        byte[] data = write(build(randomVectors(6, 3)));
+
+        byte[] flippedHeader = data.clone();
+        flippedHeader[15] ^= 1; // dimensions
+        byte[] flippedChecksum = data.clone();
+        flippedChecksum[23] ^= 1;
+        byte[] truncated = Arrays.copyOf(data, data.length - 4);
+        byte[] tooManyRows = data.clone();
+        tooManyRows[19] = 4; // rows: 3 -> 4 without the data
+        byte[] futureVersion = data.clone();
+        futureVersion[7] = 3;
+
+        for (byte[] bad : new byte[][]{flippedHeader, flippedChecksum, truncated, tooManyRows, futureVersion,
+                new byte[10]}) {
+            try {
+                SpeakerIndex.read(ByteBuffer.wrap(bad));
+                fail("Accepted a corrupt index of " + bad.length + " bytes");
+            } catch (IOException expected) {
+                // Expected
+            }
+        }
+    }
+
+    @Test
+    public void read_checksTheHeaderOnly() throws IOException {
+        // Opening must not read the matrix (every page of a mapped file), so its bytes are not checksummed
+        byte[] data = write(build(randomVectors(6, 3)));
+        data[SpeakerIndex.HEADER_SIZE + 100] ^= 1;
+
+        SpeakerIndex read = SpeakerIndex.read(ByteBuffer.wrap(data));
+        assertEquals(3, read.size());
+        assertEquals(SpeakerIndex.FORMAT_VERSION, read.getFormatVersion());
+    }
+
+    @Test
+    public void read_acceptsFormat1WithItsMatrixChecksum() throws IOException {
+        SpeakerIndex index = build(randomVectors(8, 5));
+        byte[] data = write(index);
+
+        // Format 1 had the same layout with a CRC32 of the matrix in place of the header's
+        CRC32 crc = new CRC32();
+        crc.update(data, SpeakerIndex.HEADER_SIZE, data.length - SpeakerIndex.HEADER_SIZE);
+        ByteBuffer.wrap(data).putInt(4, SpeakerIndex.MATRIX_CRC_VERSION).putInt(20, (int) crc.getValue());
+
+        SpeakerIndex read = SpeakerIndex.read(ByteBuffer.wrap(data));
+        assertEquals(SpeakerIndex.MATRIX_CRC_VERSION, read.getFormatVersion());
+        float[] live = randomVectors(9, 1)[0];
+        assertEquals(index.similarity(live, 3), read.similarity(live, 3), 0.0f);
+
+        // Rewritten in the current format
+        assertEquals(SpeakerIndex.FORMAT_VERSION, SpeakerIndex.read(ByteBuffer.wrap(write(read))).getFormatVersion());
+
+        data[SpeakerIndex.HEADER_SIZE + 100] ^= 1;
+        try {
+            SpeakerIndex.read(ByteBuffer.wrap(data));
+            fail("Accepted a format 1 index with a corrupt matrix");
+        } catch (IOException expected) {
+            // Expected
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package com.example.safetyapp.helper;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+/**
+ * Local unit tests for the spectral cascade stage and its counters
+ */
+public class SpectralGateTest {
+    private static final int WINDOW_SAMPLES = 15600;
+
+    private static short[] noise(Random random, double amplitude) {
+        short[] pcm = new short[WINDOW_SAMPLES];
+        for (int i = 0; i < pcm.length; i++) {
+            pcm[i] = clip(random.nextGaussian() * amplitude);
+        }
+        return pcm;
+    }
+
+    /**
+     * Harmonic voice around 900 Hz with vibrato, over the same noise
+     */
+    private static short[] scream(Random random, double amplitude, double noiseAmplitude) {
+        short[] pcm = new short[WINDOW_SAMPLES];
+        double phase = 0;
+        for (int i = 0; i < pcm.length; i++) {
+            double t = i / 16000.0;
+            phase += 2 * Math.PI * (900 + 150 * Math.sin(2 * Math.PI * 6 * t)) / 16000.0;
+            double sample = random.nextGaussian() * noiseAmplitude;
+            for (int harmonic = 1; harmonic <= 6; harmonic++) {
+                sample += amplitude / harmonic * Math.sin(harmonic * phase);
+            }
+            pcm[i] = clip(sample);
+        }
+        return pcm;
+    }
+
+    private static short clip(double sample) {
+        return (short) Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, sample));
+    }
+
+    @Test
+    public void test_rejectsSteadyNoise() {
+        SpectralGate gate = new SpectralGate();
+        Random random = new Random(1);
+        for (int window = 0; window < 20; window++) {
+            assertFalse("window " + window, gate.test(noise(random, 3000)));
+        }
+    }
+
+    @Test
+    public void test_passesAScreamOverStreetNoise() {
+        SpectralGate gate = new SpectralGate();
+        Random random = new Random(2);
+        for (int window = 0; window < 20; window++) {
+            gate.test(noise(random, 3000));
+        }
+        assertTrue(gate.test(scream(random, 6000, 3000)));
+    }
+
+    @Test
+    public void test_passesALoudOnset() {
+        SpectralGate gate = new SpectralGate();
+        Random random = new Random(3);
+        gate.test(noise(random, 500));
+
+        short[] pcm = noise(random, 500);
+        for (int i = WINDOW_SAMPLES / 2; i < WINDOW_SAMPLES / 2 + 1600; i++) {
+            pcm[i] = clip(random.nextGaussian() * 8000);
+        }
+        assertTrue(gate.test(pcm));
+        assertTrue(gate.lastOnsetDb() > SpectralGate.DEFAULT_ONSET_DB);
+    }
+
+    @Test
+    public void features_areBandLevelsOverTheBackground() {
+        SpectralGate gate = new SpectralGate();
+        Random random = new Random(4);
+        gate.test(noise(random, 3000));
+
+        float[] features = gate.features();
+        assertEquals(SpectralGate.BANDS, features.length);
+        for (float level : features) {
+            assertTrue(String.valueOf(level), level > -30.0f && level < 30.0f);
+        }
+    }
+
+    @Test
+    public void cascadeStats_countsPassRatesAndSkippedWindows() {
+        CascadeStats stats = new CascadeStats("level", "spectral");
+        for (int window = 0; window < 10; window++) {
+            boolean loud = window < 6;
+            stats.record(0, loud);
+            if (loud) stats.record(1, window < 2);
+        }
+
+        assertEquals(10, stats.windows());
+        assertEquals(2, stats.fullInferences());
+        assertEquals(0.6f, stats.passRate(0), 1e-6f);
+        assertEquals(1.0f / 3, stats.passRate(1), 1e-6f);
+        assertEquals(0.8f, stats.skippedFraction(), 1e-6f);
+    }
+}
@@ -0,0 +1,103 @@
+package com.example.safetyapp.helper;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.text.Normalizer;
+import java.util.Random;
+
+/**
+ * Local unit tests for the single-pass transcript normaliser
+ */
+public class TextNormalizerTest {
+
+    // What EmergencyIntentClassifier did before: two regexes on the lowercased text
+    private static String regexNormalize(String text) {
+        return text.toLowerCase()
+                .replaceAll("[^a-z0-9\\s\\u0900-\\u097F\\u0980-\\u09FF]", " ")
+                .replaceAll("\\s+", " ")
+                .trim();
+    }
+
+    @Test
+    public void normalize_matchesTheRegexPipelineOnPlainText() {
+        String[] samples = {
+                "HELP! Fire in the building, smoke everywhere",
+                "  he's   hitting\tme...\n",
+                "I'm in danger - call 999 now",
+                "বাঁচাও! আমাকে কেউ অনুসরণ করছে।",
+                "मदद करो, कोई मेरा पीछा कर रहा है",
+                "!!!",
+                ""
+        };
+        for (String sample : samples) {
+            assertEquals(sample, regexNormalize(sample), TextNormalizer.normalize(sample));
+        }
+    }
+
+    @Test
+    public void normalize_recordsTokenOffsets() {
+        TextNormalizer.Buffer buffer = new TextNormalizer.Buffer();
+        TextNormalizer.normalize("  Save   ME, please ", buffer);
+
+        assertEquals("save me please", buffer.toString());
+        assertEquals(3, buffer.tokenCount());
+        assertEquals("me", buffer.subSequence(buffer.tokenStart(1), buffer.tokenEnd(1)).toString());
+        assertEquals("please", buffer.subSequence(buffer.tokenStart(2), buffer.tokenEnd(2)).toString());
+    }
+
+    @Test
+    public void normalize_foldsAccentedLatin() {
+        assertEquals("cafe naive", TextNormalizer.normalize("Café NAÏVE"));
+    }
+
+    @Test
+    public void normalize_bringsIndicTextToNfc() {
+        Random random = new Random(7);
+        char[] alphabet = {
+                '\u09AF', '\u09BC', '\u09DF', '\u09C7', '\u09BE', '\u09D7', '\u09CB', '\u09A1', '\u09DC', '\u0995',
+                '\u0928', '\u093C', '\u0929', '\u0915', '\u0958', '\u0930', '\u092F', '\u095F', ' '
+        };
+
+        for (int trial = 0; trial < 5000; trial++) {
+            StringBuilder builder = new StringBuilder();
+            int length = 1 + random.nextInt(8);
+            for (int i = 0; i < length; i++) {
+                builder.append(alphabet[random.nextInt(alphabet.length)]);
+            }
+            String text = builder.toString();
+            // Stacked nukta marks reorder under NFC, which is out of scope for spoken text
+            if (text.matches(".*[\u09BC\u09DC\u09DF\u093C\u0958\u095F][\u09BC\u093C].*")) {
+                continue;
+            }
+
+            String expected = Normalizer.normalize(text, Normalizer.Form.NFC).replaceAll("\\s+", " ").trim();
+            assertEquals(text, expected, TextNormalizer.normalize(text));
+        }
+    }
+
+    @Test
+    public void steadyStateNormalize_allocatesNothing() {
+        com.sun.management.ThreadMXBean threadBean =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+
+        TextNormalizer.Buffer buffer = new TextNormalizer.Buffer();
+        String text = "Help me! Someone is following me - বাঁচাও";
+        for (int i = 0; i < 1000; i++) {
+            TextNormalizer.normalize(text, buffer);
+        }
+
+        long before = threadBean.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < 1000; i++) {
+            TextNormalizer.normalize(text, buffer);
+        }
+        long allocated = threadBean.getThreadAllocatedBytes(threadId) - before;
+
+        assertEquals(7, buffer.tokenCount());
+        assertTrue("Allocated " + allocated + " bytes", allocated < 1024);
+    }
+}
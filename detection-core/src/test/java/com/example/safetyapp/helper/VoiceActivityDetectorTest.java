@@ -0,0 +1,90 @@
+package com.example.safetyapp.helper;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+/**
+ * Local unit tests for the keyword spotter's voice activity detector
+ */
+public class VoiceActivityDetectorTest {
+    private static final int SAMPLE_RATE = 16000;
+
+    /**
+     * Noise plus, if speechAmplitude > 0, a voiced 180 Hz "talker" with formants and a 4 Hz
+     * syllable rhythm for the first half of every 3 s
+     */
+    private static short[] audio(long seed, double seconds, double speechAmplitude, double noiseAmplitude, boolean swelling) {
+        Random random = new Random(seed);
+        short[] pcm = new short[(int) (seconds * SAMPLE_RATE)];
+        double phase = 0;
+        for (int i = 0; i < pcm.length; i++) {
+            double t = (double) i / SAMPLE_RATE;
+            double noise = random.nextGaussian() * noiseAmplitude;
+            if (swelling) noise *= 1 + 0.8 * Math.sin(2 * Math.PI * 0.3 * t); // Passing traffic
+
+            double speech = 0;
+            if (speechAmplitude > 0 && t % 3 < 1.5) {
+                double envelope = Math.max(0, Math.sin(2 * Math.PI * 4 * t));
+                double pitch = 180 + 30 * Math.sin(2 * Math.PI * 3 * t);
+                phase += 2 * Math.PI * pitch / SAMPLE_RATE;
+                for (int harmonic = 1; harmonic <= 15; harmonic++) {
+                    double frequency = harmonic * pitch;
+                    double formants = Math.exp(-Math.pow((frequency - 700) / 300, 2))
+                            + 0.6 * Math.exp(-Math.pow((frequency - 1200) / 400, 2)) + 0.2;
+                    speech += speechAmplitude * formants / harmonic * envelope * Math.sin(harmonic * phase);
+                }
+            }
+            pcm[i] = (short) Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, speech + noise));
+        }
+        return pcm;
+    }
+
+    private static int segments(VoiceActivityDetector detector, short[] pcm, int chunk) {
+        int started = 0;
+        for (int offset = 0; offset < pcm.length; offset += chunk) {
+            if (detector.process(pcm, offset, Math.min(chunk, pcm.length - offset))) started++;
+        }
+        return started;
+    }
+
+    @Test
+    public void process_ignoresSteadyNoise() {
+        VoiceActivityDetector detector = new VoiceActivityDetector();
+        assertEquals(0, segments(detector, audio(1, 10, 0, 2000, false), 800));
+        assertTrue(detector.getNoiseFloorDb() > -30.0f);
+    }
+
+    @Test
+    public void process_hearsSoftSpeechInAQuietRoom() {
+        // Far below the old fixed RMS threshold of 800
+        VoiceActivityDetector detector = new VoiceActivityDetector();
+        assertTrue(segments(detector, audio(2, 10, 300, 20, false), 800) >= 3);
+    }
+
+    @Test
+    public void process_hearsSpeechOverNoise() {
+        VoiceActivityDetector detector = new VoiceActivityDetector();
+        assertTrue(segments(detector, audio(3, 10, 12000, 1500, false), 800) >= 3);
+    }
+
+    @Test
+    public void process_rarelyStartsOnSwellingTraffic() {
+        VoiceActivityDetector detector = new VoiceActivityDetector();
+        assertTrue(segments(detector, audio(4, 30, 0, 1500, true), 800) <= 1);
+    }
+
+    @Test
+    public void process_doesNotDependOnHowTheAudioIsChunked() {
+        short[] pcm = audio(5, 6, 3000, 100, false);
+        VoiceActivityDetector whole = new VoiceActivityDetector();
+        VoiceActivityDetector pieces = new VoiceActivityDetector();
+
+        assertEquals(segments(whole, pcm, 800), segments(pieces, pcm, 37));
+        assertEquals(whole.getFrames(), pieces.getFrames());
+        assertEquals(whole.getNoiseFloorDb(), pieces.getNoiseFloorDb(), 0.0f);
+    }
+}
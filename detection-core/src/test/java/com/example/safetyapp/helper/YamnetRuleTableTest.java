@@ -0,0 +1,110 @@
+package com.example.safetyapp.helper;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+
+/**
+ * Local unit tests for the YAMNet rule table and the detectors that read it
+ */
+public class YamnetRuleTableTest {
+
+    private static float[] scores(int... classAndPercent) {
+        float[] scores = new float[ScoreFrame.NUM_CLASSES];
+        for (int i = 0; i < classAndPercent.length; i += 2) {
+            scores[classAndPercent[i]] = classAndPercent[i + 1] / 100.0f;
+        }
+        return scores;
+    }
+
+    private static YamnetRuleTable.Evaluation evaluate(float[] scores) {
+        YamnetRuleTable.Evaluation evaluation = new YamnetRuleTable.Evaluation();
+        YamnetRuleTable.evaluate(scores, evaluation);
+        return evaluation;
+    }
+
+    @Test
+    public void evaluate_picksTheStrongestType() {
+        YamnetRuleTable.Evaluation evaluation = evaluate(scores(
+                YamnetRuleTable.CLASS_FIRE_ALARM, 40,
+                YamnetRuleTable.CLASS_CRASH, 35,
+                YamnetRuleTable.CLASS_GLASS_BREAK, 60));
+
+        assertEquals(EmergencyTypeDetector.EmergencyType.ROAD_ACCIDENT, evaluation.bestType());
+        assertEquals(0.6f, evaluation.typeScore(EmergencyTypeDetector.EmergencyType.ROAD_ACCIDENT), 0.0f);
+        assertEquals(0.4f, evaluation.typeScore(EmergencyTypeDetector.EmergencyType.FIRE), 0.0f);
+    }
+
+    @Test
+    public void evaluate_crowdPanicNeedsYelling() {
+        assertEquals(EmergencyTypeDetector.EmergencyType.NONE,
+                evaluate(scores(YamnetRuleTable.CLASS_CROWD, 80)).bestType());
+        assertEquals(EmergencyTypeDetector.EmergencyType.CROWD_PANIC,
+                evaluate(scores(YamnetRuleTable.CLASS_CROWD, 80, YamnetRuleTable.CLASS_YELL, 40)).bestType());
+    }
+
+    @Test
+    public void evaluate_sumsWeightedDistressSounds() {
+        YamnetRuleTable.Evaluation evaluation = evaluate(scores(
+                YamnetRuleTable.CLASS_SCREAM, 60,     // 0.6 x 1.5
+                YamnetRuleTable.CLASS_SIREN, 50,      // 0.5 x 0.9
+                YamnetRuleTable.CLASS_CROWD, 40,      // Under the crowd threshold
+                YamnetRuleTable.CLASS_GASP, 20));     // Under the ambient threshold
+
+        assertEquals(2, evaluation.distressCount());
+        assertEquals(0.6f * 1.5f + 0.5f * 0.9f, evaluation.distressSum(), 1e-6f);
+        assertEquals("Scream, Siren", evaluation.describeDistress());
+    }
+
+    @Test
+    public void evaluate_clearsThePreviousResult() {
+        YamnetRuleTable.Evaluation evaluation = evaluate(scores(YamnetRuleTable.CLASS_EXPLOSION, 90));
+        YamnetRuleTable.evaluate(scores(), evaluation);
+
+        assertEquals(EmergencyTypeDetector.EmergencyType.NONE, evaluation.bestType());
+        assertEquals(0, evaluation.distressCount());
+        assertEquals(0.0f, evaluation.typeScore(EmergencyTypeDetector.EmergencyType.ASSAULT_ATTACK), 0.0f);
+    }
+
+    @Test
+    public void detectors_giveTheSameResultForRawScoresAndFrames() {
+        float[] scores = scores(
+                YamnetRuleTable.CLASS_SCREAM, 45,
+                YamnetRuleTable.CLASS_CRYING, 30,
+                YamnetRuleTable.CLASS_SIREN, 70);
+        ScoreFrame frame = new ScoreFrame();
+        frame.set(scores);
+
+        assertEquals(AmbientDistressDetector.detectAmbientDistress(scores, 0.2f),
+                AmbientDistressDetector.detectAmbientDistress(frame, 0.2f), 0.0f);
+        assertEquals(EmergencyTypeDetector.EmergencyType.GENERAL_DISTRESS,
+                EmergencyTypeDetector.detectEmergencyType(scores, 0.1f, 0.2f, null));
+        assertEquals(EmergencyTypeDetector.EmergencyType.GENERAL_DISTRESS,
+                EmergencyTypeDetector.detectEmergencyType(frame, 0.1f, 0.2f, null));
+    }
+
+    @Test
+    public void scoreFrame_readsTensorBuffersLikeArrays() {
+        float[] scores = scores(
+                YamnetRuleTable.CLASS_GLASS_BREAK, 55,
+                YamnetRuleTable.CLASS_SCREAM, 20);
+        ByteBuffer tensor = ByteBuffer.allocateDirect(scores.length * 4).order(ByteOrder.nativeOrder());
+        tensor.asFloatBuffer().put(scores);
+
+        ScoreFrame fromArray = new ScoreFrame();
+        fromArray.set(scores);
+        ScoreFrame fromBuffer = new ScoreFrame();
+        FloatBuffer view = tensor.asFloatBuffer();
+        fromBuffer.set(view);
+
+        assertEquals(0, view.position());
+        assertEquals(fromArray.topClass(), fromBuffer.topClass());
+        assertEquals(fromArray.maxScore(), fromBuffer.maxScore(), 0.0f);
+        assertEquals(fromArray.rules().bestType, fromBuffer.rules().bestType);
+        assertEquals(fromArray.get(YamnetRuleTable.CLASS_SCREAM), fromBuffer.get(YamnetRuleTable.CLASS_SCREAM), 0.0f);
+    }
+}
@@ -0,0 +1,106 @@
+package com.example.safetyapp.helper;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+/**
+ * Local unit tests for the temporal smoothing of YAMNet scores
+ */
+public class YamnetScoreHistoryTest {
+
+    private static float[] scores(int classIndex, float score) {
+        float[] scores = new float[ScoreFrame.NUM_CLASSES];
+        scores[classIndex] = score;
+        return scores;
+    }
+
+    @Test
+    public void add_dampsASingleNoisyWindow() {
+        YamnetScoreHistory history = new YamnetScoreHistory(4);
+        history.add(scores(YamnetRuleTable.CLASS_SIREN, 0.9f));
+
+        assertEquals(0.36f, history.smoothed(YamnetRuleTable.CLASS_SIREN), 1e-6f);
+        assertEquals(EmergencyTypeDetector.EmergencyType.GENERAL_DISTRESS, history.rules().bestType());
+
+        history.add(scores(YamnetRuleTable.CLASS_SIREN, 0.0f));
+        assertEquals(EmergencyTypeDetector.EmergencyType.NONE, history.rules().bestType());
+    }
+
+    @Test
+    public void add_carriesASteadySoundAcrossADropout() {
+        YamnetScoreHistory history = new YamnetScoreHistory(4);
+        for (int i = 0; i < 6; i++) {
+            history.add(scores(YamnetRuleTable.CLASS_FIRE_ALARM, 0.6f));
+        }
+        history.add(scores(YamnetRuleTable.CLASS_FIRE_ALARM, 0.0f));
+
+        assertTrue(history.smoothed(YamnetRuleTable.CLASS_FIRE_ALARM) > YamnetRuleTable.TYPE_THRESHOLD);
+        assertEquals(EmergencyTypeDetector.EmergencyType.FIRE, history.rules().bestType());
+    }
+
+    @Test
+    public void peak_isHeldForTheHorizonOnly() {
+        YamnetScoreHistory history = new YamnetScoreHistory(3);
+        history.add(scores(YamnetRuleTable.CLASS_CRASH, 0.8f));
+        history.add(scores(YamnetRuleTable.CLASS_CRASH, 0.1f));
+        history.add(scores(YamnetRuleTable.CLASS_CRASH, 0.4f));
+
+        assertEquals(0.8f, history.peak(YamnetRuleTable.CLASS_CRASH), 0.0f);
+        // Transient sounds are judged on their held peak
+        assertEquals(0.8f, history.rules().typeScore(EmergencyTypeDetector.EmergencyType.ROAD_ACCIDENT), 0.0f);
+
+        history.add(scores(YamnetRuleTable.CLASS_CRASH, 0.2f));
+        assertEquals(0.4f, history.peak(YamnetRuleTable.CLASS_CRASH), 0.0f);
+    }
+
+    @Test
+    public void peak_matchesABruteForceWindowMaximum() {
+        int horizon = 5;
+        YamnetScoreHistory history = new YamnetScoreHistory(horizon);
+        Random random = new Random(7);
+        float[] past = new float[200];
+        for (int frame = 0; frame < past.length; frame++) {
+            past[frame] = random.nextFloat();
+            history.add(scores(YamnetRuleTable.CLASS_SCREAM, past[frame]));
+
+            float expected = 0.0f;
+            for (int i = Math.max(0, frame - horizon + 1); i <= frame; i++) {
+                expected = Math.max(expected, past[i]);
+            }
+            assertEquals("frame " + frame, expected, history.peak(YamnetRuleTable.CLASS_SCREAM), 0.0f);
+        }
+    }
+
+    @Test
+    public void horizonOfOne_isTheUnsmoothedEvaluation() {
+        YamnetScoreHistory history = new YamnetScoreHistory(1);
+        YamnetRuleTable.Evaluation raw = new YamnetRuleTable.Evaluation();
+        Random random = new Random(3);
+        for (int frame = 0; frame < 50; frame++) {
+            float[] scores = new float[ScoreFrame.NUM_CLASSES];
+            for (int classIndex : YamnetRuleTable.TRACKED_CLASSES) {
+                scores[classIndex] = random.nextFloat();
+            }
+            history.add(scores);
+            YamnetRuleTable.evaluate(scores, raw);
+
+            assertEquals(raw.bestType(), history.rules().bestType());
+            assertEquals(raw.distressSum(), history.rules().distressSum(), 0.0f);
+        }
+    }
+
+    @Test
+    public void reset_forgetsTheHistory() {
+        YamnetScoreHistory history = new YamnetScoreHistory();
+        history.add(scores(YamnetRuleTable.CLASS_EXPLOSION, 0.9f));
+        history.reset();
+
+        assertEquals(0L, history.frames());
+        assertEquals(0.0f, history.peak(YamnetRuleTable.CLASS_EXPLOSION), 0.0f);
+        assertEquals(EmergencyTypeDetector.EmergencyType.NONE, history.rules().bestType());
+    }
+}
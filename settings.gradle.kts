@@ -22,3 +22,4 @@ dependencyResolutionManagement {
 
 rootProject.name = "SafetyApp"
 include(":app")
+include(":detection-core")